@@ -4,12 +4,15 @@ import shared.connectivity.thor.input.InputHandler;
 import shared.connectivity.thor.response.Component;
 import shared.connectivity.thor.response.GeneralArchitecture;
 import shared.connectivity.thor.response.Response;
+import shared.connectivity.thor.server.QueryHandler;
+import shared.connectivity.thor.server.QueryServer;
 import shared.database.config.PropertiesSingleton;
 import shared.database.connectivity.DataSourceFactory;
 import shared.database.model.graph.SchemaGraph;
 import shared.database.model.DatabaseType;
 import shared.database.model.SQLDatabase;
 import shared.util.Pair;
+import shared.util.Table;
 import shared.util.Timer;
 import shared.util.Timer.Type;
 import discover.model.TupleSet;
@@ -20,28 +23,30 @@ import discover.model.JoiningNetworkOfTupleSets;
 import discover.model.OverloadedTuple;
 import discover.components.TupleSetPostProcessor;
 import discover.components.CandidateNetworksGenerator;
+import discover.components.CandidateNetworkTemplateCache;
 import discover.components.MasterIndex;
 import discover.components.Parser;
 import discover.components.PlanGenerator;
 import discover.components.executors.PlanExecutor;
 import discover.exceptions.ShutdownHook;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 
-public class DiscoverApplication {
+public class DiscoverApplication implements QueryHandler {
 
     // Parameters
     String query;
     String schemaName;
     DatabaseType databaseType;
     private int maxTuples;
-    int maxNetworkSize;
+    int maxNetworkSize = 5;
 
-    // Database Variables
-    HashMap<String, Pair<SQLDatabase, SchemaGraph>> storedDatabases = new HashMap<>();
+    // Database Variables (the stored databases are shared by the workers of the server)
+    static final HashMap<String, Pair<SQLDatabase, SchemaGraph>> storedDatabases = new HashMap<>();
     SQLDatabase database;
     SchemaGraph schemaGraph;
 
@@ -59,7 +64,11 @@ public class DiscoverApplication {
     public static final Boolean DEBUG_PRINTS = false;
     public static Boolean USE_VALUE_CONST = true;
     public static final Boolean USE_INTERMEDIATE_RESULTS = false;
+    public static Boolean USE_COST_BASED_PLAN = false;  // Materialize only the intermediate results whose estimated savings exceed their cost.
     public static Boolean USE_VIEWS = false;
+    public static Boolean USE_BATCHED_PROBING = false;  // One full-text query per table instead of one per keyword and column.
+    public static Boolean USE_TOP_K_EXECUTION = false;  // Execute the candidate networks by rank and stop after maxTuples results.
+    public static Boolean USE_CN_TEMPLATE_CACHE = false;  // Reuse the candidate networks of queries with the same tuple set structure.
 
     public static void main(String[] args) {
         // Assign the shutdown hook
@@ -68,10 +77,28 @@ public class DiscoverApplication {
         // Fill the configurations using the "app.properties" file
         PropertiesSingleton.loadPropertiesFile("app");
 
+        // Enable the optimizations turned on in the configurations.
+        USE_COST_BASED_PLAN = PropertiesSingleton.getBooleanProperty("optimizations.costBasedPlan", USE_COST_BASED_PLAN);
+        USE_BATCHED_PROBING = PropertiesSingleton.getBooleanProperty("optimizations.batchedProbing", USE_BATCHED_PROBING);
+        USE_TOP_K_EXECUTION = PropertiesSingleton.getBooleanProperty("optimizations.topKExecution", USE_TOP_K_EXECUTION);
+        USE_CN_TEMPLATE_CACHE = PropertiesSingleton.getBooleanProperty("optimizations.cnTemplateCache", USE_CN_TEMPLATE_CACHE);
+
+        // Answer the queries of many clients when started with '--server'.
+        if (QueryServer.isRequested(args)) {
+            try {
+                QueryServer server = QueryServer.fromProperties(DiscoverApplication::new);
+                DataSourceFactory.setMaxConnections(server.getWorkers() * connectionsPerQuery());
+                server.serve();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            return;
+        }
+
         // Create an instate of the discover App
+        DataSourceFactory.setMaxConnections(connectionsPerQuery());
         DiscoverApplication discoverApp = new DiscoverApplication();
         Timer timer = new Timer(Type.WALL_CLOCK_TIME), totalTimer = new Timer(Type.WALL_CLOCK_TIME);
-        discoverApp.maxNetworkSize = 5;
 
         // Read and store all known databases for THOR
         // discoverApp.readAndStoreDatabases(new String[]{"mysql.IMDB", "mysql.YELP", "mysql.MAS"});
@@ -106,24 +133,7 @@ public class DiscoverApplication {
             Component pExecutor = new Component("Plan Executor");
 
             try {
-                // Create Database and Schema Graph automatically
-                discoverApp.getDatabaseAndSchemaGraph();
-
-                // Parse query and crete BasicTupleSets
-                discoverApp.parseQueryAndCreateBasicTupleSets(timer, mIndex, genArch);
-
-                // Use the Basic Tuple Sets to generate all possible combinations
-                // of Tuple Sets containing more than one keyword on each TupleSet.
-                discoverApp.generateTupleSetCombinations(timer, pProcessor);
-
-                // Create the candidate Networks
-                discoverApp.generateCandidateNetworks(timer, cnGenerator, genArch);
-
-                // Generate the execution Plan
-                discoverApp.generateExecutionPlan(timer, pGenerator);
-
-                // Execute the Plan generated above
-                discoverApp.runExecutionPlan(timer, pExecutor, genArch);
+                discoverApp.executeQuery(timer, genArch, mIndex, pProcessor, cnGenerator, pGenerator, pExecutor);
             }
             catch (Exception e) {
                 System.err.println("[ERR] Exception ocurred while executing : " + discoverApp.query);
@@ -156,6 +166,77 @@ public class DiscoverApplication {
     }
 
 
+    // Returns the number of connections a query may hold at the same time: one for every
+    // worker of the MasterIndex or the PlanExecutor (whichever has more, since they run one
+    // after the other) and one for the thread of the query.
+    private static int connectionsPerQuery() {
+        return Math.max(MasterIndex.INDEX_WORKERS, PlanExecutor.EXECUTION_WORKERS) + 1;
+    }
+
+    /**
+     * Answers a query of the {@link QueryServer} and returns the response for THOR.
+     */
+    @Override
+    public Response<?> answer(InputHandler request) throws Exception {
+        this.resetVars();
+        this.query = request.getQuery();
+        this.schemaName = request.getDatabaseName();
+        this.databaseType = request.getDatabaseType();
+        this.maxTuples = request.getResultsPerInterpretation();
+
+        // The components of discover displayed in THOR.
+        Timer timer = new Timer(Type.WALL_CLOCK_TIME);
+        GeneralArchitecture genArch = new GeneralArchitecture();
+        Component mIndex = new Component("MasterIndex");
+        Component pProcessor = new Component("TupleSetPostProcessor");
+        Component cnGenerator = new Component("Candidate Network Generator");
+        Component pGenerator = new Component("Plan Generator");
+        Component pExecutor = new Component("Plan Executor");
+
+        this.executeQuery(timer, genArch, mIndex, pProcessor, cnGenerator, pGenerator, pExecutor);
+
+        // Create the architecture of the system.
+        mIndex.connectWith(pProcessor, "Basic tuple sets");
+        pProcessor.connectWith(cnGenerator, "Non-empty tuple sets");
+        cnGenerator.connectWith(pGenerator, "Candidate networks");
+        pGenerator.connectWith(pExecutor, "Execution plan");
+
+        return new Response<OverloadedTuple>(
+            "discover",
+            "Discover",
+            genArch,
+            Arrays.asList(mIndex, pProcessor, cnGenerator, pGenerator, pExecutor),
+            this.finalResults
+        );
+    }
+
+    /**
+     * Runs all the components of discover for the current query.
+     */
+    void executeQuery(Timer timer, GeneralArchitecture genArch, Component mIndex, Component pProcessor,
+        Component cnGenerator, Component pGenerator, Component pExecutor)
+    {
+        // Create Database and Schema Graph automatically
+        this.getDatabaseAndSchemaGraph();
+
+        // Parse query and crete BasicTupleSets
+        this.parseQueryAndCreateBasicTupleSets(timer, mIndex, genArch);
+
+        // Use the Basic Tuple Sets to generate all possible combinations
+        // of Tuple Sets containing more than one keyword on each TupleSet.
+        this.generateTupleSetCombinations(timer, pProcessor);
+
+        // Create the candidate Networks
+        this.generateCandidateNetworks(timer, cnGenerator, genArch);
+
+        // Generate the execution Plan
+        this.generateExecutionPlan(timer, pGenerator);
+
+        // Execute the Plan generated above
+        this.runExecutionPlan(timer, pExecutor, genArch);
+    }
+
+
     /**
      * Reads all databases and creates a database object and a schema object for
      * each database. Then stores them for later usage
@@ -163,7 +244,7 @@ public class DiscoverApplication {
      * @param databases
      */
     public void readAndStoreDatabases(String[] databases) {
-        this.storedDatabases = new HashMap<>();
+        storedDatabases.clear();
 
         for (String dbName: databases) {
             String name = dbName.split("\\.")[1];
@@ -171,13 +252,14 @@ public class DiscoverApplication {
 
             // Automatically get the info of database.
             SQLDatabase database = SQLDatabase.InstantiateDatabase(name, DatabaseType.getTypeFromString(type) );
+            CandidateNetworkTemplateCache.invalidate(database.getType(), database.getName());
 
             // Create PK-FK Relationship Graph.
             SchemaGraph schemaGraph = new SchemaGraph();
             schemaGraph.fillDirected(database.getTables(), database.getFKConstrains());
 
             // Store the db.
-            this.storedDatabases.put(dbName, new Pair<>(database, schemaGraph));
+            storedDatabases.put(dbName, new Pair<>(database, schemaGraph));
         }
     }
 
@@ -187,10 +269,17 @@ public class DiscoverApplication {
      *
      */
     void getDatabaseAndSchemaGraph() {
-        // If we have stored the database then dont read it again.
-        // Else read the db and store it.
-        if (this.storedDatabases != null && this.storedDatabases.containsKey(schemaName)) {
-            Pair<SQLDatabase, SchemaGraph> dbPair = this.storedDatabases.get(schemaName);
+        // The workers of the server must not read the same database twice.
+        synchronized (storedDatabases) {
+            this.getOrStoreDatabaseAndSchemaGraph();
+        }
+    }
+
+    // If we have stored the database then dont read it again.
+    // Else read the db and store it.
+    private void getOrStoreDatabaseAndSchemaGraph() {
+        if (storedDatabases.containsKey(schemaName)) {
+            Pair<SQLDatabase, SchemaGraph> dbPair = storedDatabases.get(schemaName);
 
             // Change the Datasource Object to reflect the new database name
             DataSourceFactory.loadConnectionProperties(this.schemaName, this.databaseType);
@@ -201,13 +290,14 @@ public class DiscoverApplication {
         else {
             // Automatically get the info of database.
             this.database = SQLDatabase.InstantiateDatabase(this.schemaName, this.databaseType);
+            CandidateNetworkTemplateCache.invalidate(this.database.getType(), this.database.getName());
 
             // Create PK-FK Relationship Graph.
             this.schemaGraph = new SchemaGraph();
             schemaGraph.fillDirected(database.getTables(), database.getFKConstrains());
 
             // store the db
-            this.storedDatabases.put(this.schemaName, new Pair<>(this.database, this.schemaGraph));
+            storedDatabases.put(this.schemaName, new Pair<>(this.database, this.schemaGraph));
 
             // Print Stats and Database.
             if (DEBUG_PRINTS) {
@@ -325,8 +415,11 @@ public class DiscoverApplication {
         // Initialize the plan generator and generate the execution plan.
         PlanGenerator planGenerator = new PlanGenerator();
 
-        // Create an execution plan containing intermediate results or not.
-        if (USE_INTERMEDIATE_RESULTS)
+        // Create an execution plan containing intermediate results or not. The cost-based
+        // plan picks its own intermediate results, so it does not need USE_INTERMEDIATE_RESULTS.
+        if (USE_COST_BASED_PLAN)
+            this.executionPlan = planGenerator.generateCostBasedExecutionPlan(this.candidateNetworks, this.schemaGraph);
+        else if (USE_INTERMEDIATE_RESULTS)
             this.executionPlan = planGenerator.generateExecutionPlan(this.candidateNetworks);
         else
             this.executionPlan = planGenerator.generateExecutionPlan_CN_ONLY(this.candidateNetworks);
@@ -359,6 +452,22 @@ public class DiscoverApplication {
         // Create the TupleSet graph
         this.createTupleSetGraph();
 
+        // Bind the candidate networks of a previous query with the same tuple set structure.
+        List<TupleSet> tupleSets = this.tupleSetGraph.getTupleSets();
+        String templateKey = CandidateNetworkTemplateCache.keyOf(this.database, tupleSets, this.keywords, this.maxNetworkSize);
+        if (USE_CN_TEMPLATE_CACHE) {
+            this.candidateNetworks = CandidateNetworkTemplateCache.get(templateKey, tupleSets);
+            if (this.candidateNetworks != null) {
+                cnGenerator.setTime(timer.stop());
+                cnGenerator.addComponentInfo(new Table(Arrays.asList(
+                    new Table.Row("Max network size", Integer.toString(this.maxNetworkSize)),
+                    new Table.Row("Networks from the template cache", Integer.toString(this.candidateNetworks.size()))
+                )));
+                genArch.setInterpretationGeneratorOutput(this.candidateNetworks.size());
+                return;
+            }
+        }
+
         // ================================
         // Initialize the candidate networks generator component.
         CandidateNetworksGenerator candidateNetworksGenerator = new CandidateNetworksGenerator(
@@ -369,6 +478,8 @@ public class DiscoverApplication {
         // Generate the networks.
         candidateNetworksGenerator.generateCandidateNetworks();
         this.candidateNetworks = candidateNetworksGenerator.getCandidateNetworks();
+        if (USE_CN_TEMPLATE_CACHE)
+            CandidateNetworkTemplateCache.put(templateKey, this.candidateNetworks, tupleSets);
 
         // Set statistics
         cnGenerator.setTime(timer.stop());
@@ -0,0 +1,90 @@
+package discover.components;
+
+import discover.model.CandidateNetworkTemplate;
+import discover.model.JoiningNetworkOfTupleSets;
+import discover.model.TupleSet;
+
+import shared.database.model.SQLDatabase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// A cache of the candidate networks generated for previous queries, stored as templates.
+//
+// The candidate networks of a query depend only on the schema graph, the tables whose
+// tuples matched every subset of the keywords and the maximum network size, not on the
+// tuples themselves. Thus a query whose tuple sets have the same tables and keyword subsets
+// (by the position of the keywords in the query) as a previous query, in the same order,
+// has the same candidate networks, bound to its own tuple sets.
+// The keys contain the type of the database and the checksum of the catalog it was filled
+// from, so a changed schema never reuses the networks of the old one, and the networks of a
+// database are dropped when it is instantiated again (see invalidate).
+// The cache is shared by all the queries (and the workers of the query server).
+public class CandidateNetworkTemplateCache {
+
+    private static final int CACHE_SIZE = 256;
+    private static final Map<String, List<CandidateNetworkTemplate>> templates = new ConcurrentHashMap<>();
+
+    // Returns the key of the candidate networks of a query: the database (type, name and catalog
+    // checksum), the max network size, the number of keywords and the table and keyword positions
+    // of every tuple set, in order.
+    public static String keyOf(SQLDatabase database, List<TupleSet> tupleSets, List<String> keywords, int maxSize) {
+        StringBuilder key = new StringBuilder(databasePrefix(database.getType(), database.getName()))
+            .append(database.getFilledCatalogChecksum())
+            .append('|').append(maxSize)
+            .append('|').append(keywords.size());
+
+        for (TupleSet tupleSet : tupleSets) {
+            List<Integer> positions = new ArrayList<>();
+            for (String keyword : tupleSet.getKeywords())
+                positions.add(keywords.indexOf(keyword));
+            Collections.sort(positions);
+
+            key.append('|').append(tupleSet.getTable().getName()).append(':');
+            for (Integer position : positions)
+                key.append(position).append(',');
+        }
+
+        return key.toString();
+    }
+
+    // The start of the keys of a database.
+    private static String databasePrefix(Object databaseType, String databaseName) {
+        return databaseType + "|" + databaseName + "|";
+    }
+
+    // Returns the cached candidate networks of a key bound to the tuple sets,
+    // or null if the networks of the key are not cached.
+    public static List<JoiningNetworkOfTupleSets> get(String key, List<TupleSet> tupleSets) {
+        List<CandidateNetworkTemplate> networkTemplates = templates.get(key);
+        if (networkTemplates == null)
+            return null;
+
+        List<JoiningNetworkOfTupleSets> networks = new ArrayList<>(networkTemplates.size());
+        for (CandidateNetworkTemplate template : networkTemplates)
+            networks.add(template.bind(tupleSets));
+        return networks;
+    }
+
+    // Caches the candidate networks of a key. The networks must contain only tuple sets of the list.
+    public static void put(String key, List<JoiningNetworkOfTupleSets> networks, List<TupleSet> tupleSets) {
+        List<CandidateNetworkTemplate> networkTemplates = new ArrayList<>(networks.size());
+        for (JoiningNetworkOfTupleSets network : networks)
+            networkTemplates.add(new CandidateNetworkTemplate(network, tupleSets));
+
+        // Forget the networks of older queries.
+        if (templates.size() >= CACHE_SIZE)
+            templates.clear();
+        templates.put(key, networkTemplates);
+    }
+
+    // Removes the networks of a database, because it is instantiated again.
+    public static void invalidate(Object databaseType, String databaseName) {
+        String prefix = databasePrefix(databaseType, databaseName);
+        templates.keySet().removeIf(key -> key.startsWith(prefix));
+    }
+
+}
@@ -2,7 +2,8 @@ package discover.components;
 
 import discover.model.JoiningNetworkOfTupleSets;
 import discover.model.TupleSetGraph;
-import shared.connectivity.thor.response.Table;
+import shared.util.Table;
+import shared.database.config.PropertiesSingleton;
 import shared.util.Timer;
 import discover.model.TupleSet;
 import discover.model.AdjacentTupleSets;
@@ -14,14 +15,21 @@ import java.util.Arrays;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
 
 // Input: Set of m keywords {k1, ..., km}, non-empty Ri^k tuple sets, and the max candidate network size.
 // Output: A complete and non-redundant set of candidate joining networks of tuple sets.
 public class CandidateNetworksGenerator {
 
+    // The number of networks of a level expanded concurrently (1 = sequential).
+    private static final int GENERATOR_WORKERS = PropertiesSingleton.getIntProperty("candidateNetworks.workers", 1);
+
     private List<TupleSet> tupleSets; // The output of the post processor component.
     private List<String> keywords; // The keywords of the query.
     private int maxSize; // Max size (number of joins) of a candidate network.
+    private int workers; // The number of networks of a level expanded concurrently.
 
     private TupleSetGraph tupleSetGraph;
     private UniqueCandidateNetworkQueue jntsQueue; // A queue of "active" JNTSs.
@@ -35,10 +43,18 @@ public class CandidateNetworksGenerator {
 
     public CandidateNetworksGenerator(List<TupleSet> tupleSets, TupleSetGraph tupleSetGraph,
             List<String> keywords, int maxSize) {
+        this(tupleSets, tupleSetGraph, keywords, maxSize, GENERATOR_WORKERS);
+    }
+
+    // Creates a generator that expands the networks of a level with the given number
+    // of workers instead of 'candidateNetworks.workers' (see CandidateNetworksGeneratorBenchmark).
+    public CandidateNetworksGenerator(List<TupleSet> tupleSets, TupleSetGraph tupleSetGraph,
+            List<String> keywords, int maxSize, int workers) {
         this.tupleSets = new ArrayList<TupleSet>();
         this.tupleSets.addAll(tupleSets);
         this.keywords = keywords;
         this.maxSize = maxSize;
+        this.workers = workers;
         this.networksProcessed = 0;
 
         this.tupleSetGraph = tupleSetGraph;
@@ -61,6 +77,11 @@ public class CandidateNetworksGenerator {
         // Initialize the queue with the tuple sets of a random keyword.
         this.randomlyInitializeQueue();
 
+        // Any networks left by a failed parallel generation are generated sequentially.
+        if (this.workers > 1) {
+            this.generateInParallel();
+        }
+
         while (!this.jntsQueue.isEmpty()) {
             // Get the head of the queue.
             JoiningNetworkOfTupleSets jnts = jntsQueue.remove();
@@ -74,42 +95,9 @@ public class CandidateNetworksGenerator {
                 this.candidateNetworks.add(jnts);
             }
             else {
-                // Get the adjacent tuple sets of every node of the network.
-                List<AdjacentTupleSets> adjacentTupleSetsList = jnts.getAdjacentTupleSets(this.tupleSetGraph);
-
-                // System.out.println("AdjacentTupleSets: ");
-                // for (AdjacentTupleSets a : adjacentTupleSetsList) System.out.print(a);
-                // System.out.println("\n-----\n"); System.out.flush();
-
-                // Check the expansion rule for every adjacent tuple set of the network.
-                for (int i = 0; i < adjacentTupleSetsList.size(); i++) {
-                    AdjacentTupleSets adjacentTupleSets = adjacentTupleSetsList.get(i);
-                    // System.out.println("For: " + adjacentTupleSets.getTupleSet().toAbbreviation());
-
-                    for (TupleSet adjacent : adjacentTupleSets.getAdjacentTupleSets()) {
-                        // System.out.println("check expansion rule for adjacent: " + adjacent.toAbbreviation() + " ");
-
-                        // Check the size of the network and the expansion rule.
-                        if ((jnts.getSize() < maxSize) && (jnts.checkExpansionRule(adjacent))) {
-                            // Connect the two tuple sets in the network.
-                            JoiningNetworkOfTupleSets expandedJnts = jnts.expand(
-                                adjacentTupleSets.getTupleSet(), adjacent, i, this.tupleSetGraph
-                            );
-
-                            // System.out.println("Expand with Ri^K: " + adjacent.toAbbreviation());
-                            // System.out.println("Expanded JNTS:\n" + expandedJnts);
-
-                            if (expandedJnts.satisfiesLeavesCondition(this.keywords.size())) {
-                                this.jntsQueue.add(expandedJnts);
-                                this.networksProcessed++;
-                            }
-                        }
-                        else {
-                            // System.out.println("Ignore Ri^K: " + adjacent.toAbbreviation());
-                        }
-                        // System.out.println();
-                    }
-                    // System.out.println();
+                for (JoiningNetworkOfTupleSets expandedJnts : this.expandNetwork(jnts)) {
+                    this.jntsQueue.add(expandedJnts);
+                    this.networksProcessed++;
                 }
             }
         }
@@ -118,6 +106,95 @@ public class CandidateNetworksGenerator {
     }
 
 
+    // Returns the networks created by expanding a network with every adjacent tuple set
+    // that satisfies the expansion rule, in the order they must be added in the queue.
+    // Networks that are pruned or accepted are not expanded.
+    private List<JoiningNetworkOfTupleSets> expandNetwork(JoiningNetworkOfTupleSets jnts) {
+        List<JoiningNetworkOfTupleSets> expandedNetworks = new ArrayList<>();
+        if (jnts.violatesPruningCondition() || jnts.satisfiesAcceptanceConditions(this.keywords))
+            return expandedNetworks;
+
+        // Get the adjacent tuple sets of every node of the network.
+        List<AdjacentTupleSets> adjacentTupleSetsList = jnts.getAdjacentTupleSets(this.tupleSetGraph);
+
+        // System.out.println("AdjacentTupleSets: ");
+        // for (AdjacentTupleSets a : adjacentTupleSetsList) System.out.print(a);
+        // System.out.println("\n-----\n"); System.out.flush();
+
+        // Check the expansion rule for every adjacent tuple set of the network.
+        for (int i = 0; i < adjacentTupleSetsList.size(); i++) {
+            AdjacentTupleSets adjacentTupleSets = adjacentTupleSetsList.get(i);
+            // System.out.println("For: " + adjacentTupleSets.getTupleSet().toAbbreviation());
+
+            for (TupleSet adjacent : adjacentTupleSets.getAdjacentTupleSets()) {
+                // System.out.println("check expansion rule for adjacent: " + adjacent.toAbbreviation() + " ");
+
+                // Check the size of the network and the expansion rule.
+                if ((jnts.getSize() < maxSize) && (jnts.checkExpansionRule(adjacent))) {
+                    // Connect the two tuple sets in the network.
+                    JoiningNetworkOfTupleSets expandedJnts = jnts.expand(
+                        adjacentTupleSets.getTupleSet(), adjacent, i, this.tupleSetGraph
+                    );
+
+                    // System.out.println("Expand with Ri^K: " + adjacent.toAbbreviation());
+                    // System.out.println("Expanded JNTS:\n" + expandedJnts);
+
+                    if (expandedJnts.satisfiesLeavesCondition(this.keywords.size())) {
+                        // Encode the network here, so the duplicate check of the queue only compares strings.
+                        expandedJnts.getCanonicalForm();
+                        expandedNetworks.add(expandedJnts);
+                    }
+                }
+            }
+        }
+
+        return expandedNetworks;
+    }
+
+    // Generates the networks level by level: every network in the queue has the same
+    // size, so the queue holds one level at a time. The networks of a level are expanded
+    // concurrently and their expansions are added in the queue in the order of the level,
+    // so the duplicates discarded and the candidate networks are the same as the ones
+    // of the sequential generation, in the same order.
+    private void generateInParallel() {
+        ForkJoinPool pool = new ForkJoinPool(this.workers);
+        try {
+            while (!this.jntsQueue.isEmpty()) {
+                List<JoiningNetworkOfTupleSets> level = this.jntsQueue.removeAll();
+                List<List<JoiningNetworkOfTupleSets>> expansions;
+                try {
+                    expansions = pool.submit(() ->
+                        level.parallelStream().map(this::expandNetwork).collect(Collectors.toList())
+                    ).get();
+                } catch (InterruptedException | ExecutionException e) {
+                    // Put the level back, the caller generates the rest of the networks sequentially.
+                    e.printStackTrace();
+                    if (e instanceof InterruptedException)
+                        Thread.currentThread().interrupt();
+                    for (JoiningNetworkOfTupleSets network : level)
+                        this.jntsQueue.add(network);
+                    break;
+                }
+
+                for (int i = 0; i < level.size(); i++) {
+                    JoiningNetworkOfTupleSets jnts = level.get(i);
+                    if (jnts.violatesPruningCondition())
+                        continue;
+                    else if (jnts.satisfiesAcceptanceConditions(this.keywords))
+                        this.candidateNetworks.add(jnts);
+
+                    for (JoiningNetworkOfTupleSets expandedJnts : expansions.get(i)) {
+                        this.jntsQueue.add(expandedJnts);
+                        this.networksProcessed++;
+                    }
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+
      // Initialize the queue with every JNTS that contains
     // a single tuple set containing a randomly picked keyword.
     public void randomlyInitializeQueue() {
@@ -244,6 +321,14 @@ class UniqueCandidateNetworkQueue {
         return network;
     }
 
+    // Removes and returns all the networks of the queue, in order.
+    List<JoiningNetworkOfTupleSets> removeAll() {
+        List<JoiningNetworkOfTupleSets> networks = new ArrayList<>(this.networkQueue);
+        this.networkQueue.clear();
+        this.setOfUniqueNetworks.clear();
+        return networks;
+    }
+
      // Print the statistics.
      public void printStats() {
         System.out.println("\tNetworks added in Active Networks Queue: " + this.networksAddedInQueue);
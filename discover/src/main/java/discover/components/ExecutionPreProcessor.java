@@ -12,10 +12,8 @@ import shared.database.connectivity.DataSourceFactory;
 import shared.database.connectivity.DatabaseUtil;
 import shared.database.model.SQLQueries;
 import shared.database.model.SQLColumn;
-import shared.database.model.SQLDatabase;
 import shared.database.model.SQLTable;
 import shared.database.model.SQLTuple;
-import shared.database.config.PropertiesSingleton;
 import shared.util.Timer;
 import discover.DiscoverApplication;
 import discover.model.SQLTempTable;
@@ -29,29 +27,22 @@ import discover.model.TupleSet;
 // The Temp Tables we are about to create contain only 
 // the tuples matching a keyword of the query along with 
 // each tuples Score for the query.
+// The temp tables of every execution belong to its own TempTableSession,
+// so plans of different queries can be executed concurrently.
 public class ExecutionPreProcessor {
-    private static final String AUX_DB = PropertiesSingleton.getBundle().getString("database.auxDatabase");
-    
-    private volatile static int tempTablesNum;          // An integer indicating the number of temp tables created.    
     private List<TupleSet> tupleSets;                   // The list of tupleSets.
     private List<SQLTable> oldTupleSetsTables;          // The old Tables of the tuples sets. (before creating temp Tables)
-    
-    // A database instance holding all the new temp tables
-    // that we will add in the ExecutorPreProcessing step.
-    private volatile static SQLDatabase modifiedDatabase;    
 
-    // Store the tempTables.
-    private volatile static List<SQLTempTable> tempTablesList = new ArrayList<>();
+    // The session naming and owning the temp tables of this execution.
+    private TempTableSession session;
 
     // Statistics
     private double timeCreatingTempTables;
 
-    public ExecutionPreProcessor(List<TupleSet> tupleSets, SQLDatabase database) {
+    public ExecutionPreProcessor(List<TupleSet> tupleSets) {
         this.tupleSets = tupleSets;
         this.oldTupleSetsTables = new ArrayList<>();        
-        ExecutionPreProcessor.modifiedDatabase = database;
-        ExecutionPreProcessor.tempTablesList.clear();
-        ExecutionPreProcessor.tempTablesNum = 0;
+        this.session = new TempTableSession();
 
         // Keep a List of SQLTables of tupleSet, because at the end of the
         // execution we will need to restore them.
@@ -73,9 +64,8 @@ public class ExecutionPreProcessor {
         for (TupleSet tupleSet: this.tupleSets) {
             SQLTempTable tempTable = createTempTable(tupleSet);
 
-            // Update the database.
-            ExecutionPreProcessor.modifiedDatabase.addTable(tempTable);
-            ExecutionPreProcessor.tempTablesList.add(tempTable);
+            // Add the table to the session.
+            this.session.addTempTable(tempTable);
 
             
             // Replace the original SQLTable with the temp Table.
@@ -97,7 +87,7 @@ public class ExecutionPreProcessor {
     // against the database.
     private SQLTempTable createTempTable(TupleSet tupleSet) {
         // Create the temp Tables name. It will contain the 
-        String tempTableName = AUX_DB + ".discover_temp" + ExecutionPreProcessor.tempTablesNum++ + "_" + tupleSet.getTable().getName();        
+        String tempTableName = this.session.getTempTableName(tupleSet.getTable().getName());
 
         // Crete a temp table Like the tupleSets Table.
         SQLTempTable tempTable = new SQLTempTable(tempTableName);
@@ -145,48 +135,8 @@ public class ExecutionPreProcessor {
 
 
     // Drops all temp tables that the Execution created (if any created).
-    public static void dropAllTempTables() {        
-        // If there are none return.
-        if (tempTablesList.isEmpty()) return;
-
-        // Initialize connection variables.
-        Connection con = null;
-        Statement stmt = null;
-
-        // Create a string containing all temp Tables names 
-        String listOfTempTables = new String();
-        for (SQLTempTable tempTable: tempTablesList) {
-            listOfTempTables += tempTable.getName() + ", ";
-        }
-        // Remove the last ", ";
-        listOfTempTables = listOfTempTables.substring(0, listOfTempTables.length()-2);        
-        
-        try {
-            // Connect with the database
-            con = DataSourceFactory.getConnection();
-            stmt = con.createStatement();
-
-            // Temporary disable the Constraints.
-            stmt.executeUpdate(SQLQueries.SQL_DISABLE_CONSTRAINTS_QUERY);
-            // Drop a list of temp tables.
-            if (DiscoverApplication.USE_VIEWS)
-                stmt.executeUpdate(String.format(SQLQueries.SQL_DROP_VIEWS_QUERY, listOfTempTables));
-            else 
-                stmt.executeUpdate(String.format(SQLQueries.SQL_DROP_TABLES_QUERY, listOfTempTables));
-            
-            // Temporary enable the Constraints.
-            stmt.executeUpdate(SQLQueries.SQL_ENABLE_CONSTRAINTS_QUERY);
-        } 
-        catch (Exception e) {
-            e.printStackTrace();
-        }
-        finally {
-            DatabaseUtil.close(con, stmt);
-        }
-
-        // Clear the TempTables from the database array.
-        ExecutionPreProcessor.modifiedDatabase.getTables().removeAll(ExecutionPreProcessor.tempTablesList);
-        ExecutionPreProcessor.tempTablesNum = 0;
+    public void dropAllTempTables() {
+        this.session.close();
     }
 
 
@@ -254,8 +204,8 @@ public class ExecutionPreProcessor {
         }
     }
 
-    public static List<SQLTempTable> getTempTablesList() {
-        return ExecutionPreProcessor.tempTablesList;
+    public TempTableSession getSession() {
+        return this.session;
     }
 
 
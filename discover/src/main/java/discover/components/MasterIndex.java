@@ -3,24 +3,34 @@ package discover.components;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import discover.DiscoverApplication;
 import discover.model.TupleSet;
-import shared.connectivity.thor.response.Table;
-import shared.database.connectivity.DataSourceFactory;
+import shared.util.Table;
+import shared.database.config.PropertiesSingleton;
+import shared.database.connectivity.ConcurrentQueryRunner;
+import shared.database.connectivity.ConcurrentQueryRunner.QueryTask;
 import shared.database.connectivity.DatabaseUtil;
+import shared.database.connectivity.KeywordPostingCache;
+import shared.database.connectivity.KeywordPostingCache.SearchMode;
 import shared.database.model.SQLColumn;
 import shared.database.model.SQLDatabase;
 import shared.database.model.SQLQueries;
 import shared.database.model.SQLTable;
 import shared.database.model.SQLTuple;
+import shared.database.model.SQLType;
+import shared.database.model.TupleBlock;
+import shared.database.model.TupleDecoder;
 import shared.util.Pair;
 import shared.util.Timer;
 
@@ -31,6 +41,16 @@ import shared.util.Timer;
 // holds all the tuples of Ri which contain the keyword k.
 public class MasterIndex {
 
+    // The aliases of the two columns that the batched probing query appends to every
+    // row, so we know which keyword and which column produced the row.
+    private static final String KEYWORD_INDEX_ALIAS = "discover_kw_idx";
+    private static final String COLUMN_INDEX_ALIAS = "discover_col_idx";
+    private static final String UNION_ALL = " UNION ALL ";
+
+    // The number of tables (or keyword, table pairs) probed concurrently, each one
+    // on its own pooled connection. A value of 1 probes them one after the other.
+    public static final int INDEX_WORKERS = PropertiesSingleton.getIntProperty("masterIndex.workers", 1);
+
     // The keywords of the input query.    
     private List<String> keywords; 
 
@@ -61,7 +81,9 @@ public class MasterIndex {
 
 
     // Generates all basic tuple sets. One for every keyword and every table.
-    public List<TupleSet> generateBasicTupleSets() {        
+    public List<TupleSet> generateBasicTupleSets() {
+        if (DiscoverApplication.USE_BATCHED_PROBING)
+            return this.generateBasicTupleSetsBatched();
 
         // Start the timer.
         Timer timer = new Timer();
@@ -70,23 +92,33 @@ public class MasterIndex {
         // Initialize variables.
         List<TupleSet> basicTupleSets = new ArrayList<TupleSet>(); 
         Set<String> tables = new HashSet<>();       
-        Connection con = null;
-        PreparedStatement stmt = null;
-        ResultSet rs = null;
+
+        // One probing task for every keyword and every table, in keyword-major order.
+        List<QueryTask<Pair<Set<SQLTuple>, Set<SQLColumn>>>> tasks = new ArrayList<>();
+        for (String keyword : this.keywords) {
+            for (SQLTable table : this.database.getTables()) {
+                tasks.add(con -> {
+                    // Get the tuples of the current table that contain the current keyword.
+                    Set<SQLColumn> columnsContainingKeywords = new HashSet<>();
+                    Set<SQLTuple> tuples = getTuplesContainingKeyword(keyword, table, con, null, null, columnsContainingKeywords);
+                    return new Pair<>(tuples, columnsContainingKeywords);
+                });
+            }
+        }
 
         try {
-            // Get the connection.
-            con = DataSourceFactory.getConnection();
             totalSizeOfSqlIO = 0;
             totalRowsOfSqlIO = 0;
+            List<Pair<Set<SQLTuple>, Set<SQLColumn>>> results = new ConcurrentQueryRunner(INDEX_WORKERS).runAll(tasks);
 
+            // Merge the results in the order the tasks were created.
+            int taskIndex = 0;
             for (String keyword : this.keywords) {
                 Integer tuplesNumber = 0;
                 Integer relationsNumber = 0;
                 for (SQLTable table : this.database.getTables()) {
-                    // Get the tuples of the current table that contain the current keyword.
-                    Set<SQLColumn> columnsContainingKeywords = new HashSet<>();
-                    Set<SQLTuple> tuples = getTuplesContainingKeyword(keyword, table, con, stmt, rs, columnsContainingKeywords);
+                    Set<SQLTuple> tuples = results.get(taskIndex).getLeft();
+                    Set<SQLColumn> columnsContainingKeywords = results.get(taskIndex++).getRight();
                     totalRowsOfSqlIO += tuples.size();
                     
                     // Store the stats
@@ -111,10 +143,6 @@ public class MasterIndex {
         catch (Exception e) {
             e.printStackTrace();
         }
-        finally {
-            // Close the connection.
-            DatabaseUtil.close(con, stmt, rs);
-        }
 
         // Stop the timer.
         this.timeGeneratingSets = timer.stop();
@@ -124,6 +152,202 @@ public class MasterIndex {
         return basicTupleSets;
     }
 
+    // Generates the same basic tuple sets as generateBasicTupleSets() but issues only one
+    // query per table. That query probes every indexed column of the table for every
+    // keyword (one UNION ALL branch per keyword and column) and tags each returned row
+    // with the keyword and the column that matched it.
+    private List<TupleSet> generateBasicTupleSetsBatched() {
+        // Start the timer.
+        Timer timer = new Timer();
+        timer.start();
+
+        // Initialize variables.
+        List<TupleSet> basicTupleSets = new ArrayList<TupleSet>();
+        Set<String> tables = new HashSet<>();
+
+        // For every keyword (by position) keep the tuple set of every table, in table order.
+        List<List<TupleSet>> tupleSetsPerKeyword = new ArrayList<>();
+        for (int index = 0; index < this.keywords.size(); index++)
+            tupleSetsPerKeyword.add(new ArrayList<>());
+
+        // One probing task for every table.
+        List<QueryTask<Pair<List<Set<SQLTuple>>, List<Set<SQLColumn>>>>> tasks = new ArrayList<>();
+        for (SQLTable table : this.database.getTables()) {
+            tasks.add(con -> {
+                List<Set<SQLColumn>> columnsContainingKeywords = new ArrayList<>();
+                List<Set<SQLTuple>> tuples = getTuplesContainingKeywords(table, con, columnsContainingKeywords);
+                return new Pair<>(tuples, columnsContainingKeywords);
+            });
+        }
+
+        try {
+            totalSizeOfSqlIO = 0;
+            totalRowsOfSqlIO = 0;
+            List<Pair<List<Set<SQLTuple>>, List<Set<SQLColumn>>>> results = new ConcurrentQueryRunner(INDEX_WORKERS).runAll(tasks);
+
+            // Merge the results in table order.
+            int taskIndex = 0;
+            for (SQLTable table : this.database.getTables()) {
+                List<Set<SQLTuple>> tuples = results.get(taskIndex).getLeft();
+                List<Set<SQLColumn>> columnsContainingKeywords = results.get(taskIndex++).getRight();
+                if (tuples == null) continue;  // No indexed columns, nothing was probed.
+
+                for (int index = 0; index < this.keywords.size(); index++) {
+                    totalRowsOfSqlIO += tuples.get(index).size();
+
+                    // Create a basic tuple set for the keyword and the table.
+                    if (!tuples.get(index).isEmpty()) {
+                        String keyword = this.keywords.get(index);
+                        TupleSet ts = new TupleSet(table, keyword, columnsContainingKeywords.get(index), tuples.get(index));
+                        ts.getKeywords2columns().put(keyword, columnsContainingKeywords.get(index));
+                        tupleSetsPerKeyword.get(index).add(ts);
+                        tables.add(table.getName());
+                    }
+                }
+            }
+
+            // Output the tuple sets in the keyword-major order of the sequential probing
+            // and update the statistics the same way.
+            for (int index = 0; index < this.keywords.size(); index++) {
+                Integer tuplesNumber = 0;
+                Integer relationsNumber = 0;
+                for (TupleSet ts : tupleSetsPerKeyword.get(index)) {
+                    tuplesNumber += ts.getSize();
+                    relationsNumber++;
+                    basicTupleSets.add(ts);
+                }
+
+                this.keywordsToNumOfTuples.put(this.keywords.get(index), new Pair<>(tuplesNumber, relationsNumber));
+            }
+        }
+        catch (Exception e) {
+            e.printStackTrace();
+        }
+
+        // Stop the timer.
+        this.timeGeneratingSets = timer.stop();
+        this.numberOfRelations = tables.size();
+
+        // Return the basicTupleSets.
+        return basicTupleSets;
+    }
+
+    // Returns, for every keyword (by position in the keywords list), the tuples of a table
+    // in which the keyword was found. Every indexed column is probed for every keyword with
+    // a single UNION ALL query. The columns that matched each keyword are added in the
+    // columnsContainingKeywords list. Returns null if the table has no indexed columns.
+    public List<Set<SQLTuple>> getTuplesContainingKeywords(
+        SQLTable table, Connection con,
+        List<Set<SQLColumn>> columnsContainingKeywords) throws SQLException
+    {
+        // FULLTEXT indexes can only be built on columns with strings as values.
+        List<SQLColumn> indexedColumns = new ArrayList<>();
+        for (SQLColumn column : table.getColumns())
+            if (column.getType().isTextual() && column.isIndexed())
+                indexedColumns.add(column);
+        if (indexedColumns.isEmpty())
+            return null;
+
+        // Initialize the results.
+        List<Set<SQLTuple>> tuples = new ArrayList<>();
+        for (int kwIndex = 0; kwIndex < this.keywords.size(); kwIndex++) {
+            tuples.add(new HashSet<SQLTuple>());
+            columnsContainingKeywords.add(new HashSet<SQLColumn>());
+        }
+
+        // Use the cached postings of the keyword and column pairs searched before,
+        // and keep the rest to probe them with the query. The pairs are identified
+        // by their position: kwIndex * indexedColumns.size() + colIndex.
+        KeywordPostingCache cache = KeywordPostingCache.getInstance();
+        int columnsNum = indexedColumns.size();
+        Map<Integer, List<SQLTuple>> probedPostings = new LinkedHashMap<>();
+        for (int kwIndex = 0; kwIndex < this.keywords.size(); kwIndex++) {
+            for (int colIndex = 0; colIndex < indexedColumns.size(); colIndex++) {
+                List<SQLTuple> cachedTuples = cache.get(new KeywordPostingCache.Key(
+                    this.database.getName(), indexedColumns.get(colIndex), this.keywords.get(kwIndex), SearchMode.BOOLEAN_ROWS));
+
+                if (cachedTuples == null) {
+                    probedPostings.put(kwIndex * columnsNum + colIndex, new ArrayList<>());
+                }
+                else if (!cachedTuples.isEmpty()) {
+                    tuples.get(kwIndex).addAll(cachedTuples);
+                    columnsContainingKeywords.get(kwIndex).add(indexedColumns.get(colIndex));
+                }
+            }
+        }
+        if (probedPostings.isEmpty())
+            return tuples;
+
+        // Prepare the query to execute. One branch per keyword and column, each one
+        // returning the tuple followed by the keyword and column positions.
+        List<String> branches = new ArrayList<>();
+        for (Integer position : probedPostings.keySet()) {
+            branches.add(this.database.getQuery()
+                .select("*, " + (position / columnsNum) + SQLQueries.ALIAS_SPECIFIER + KEYWORD_INDEX_ALIAS +
+                        ", " + (position % columnsNum) + SQLQueries.ALIAS_SPECIFIER + COLUMN_INDEX_ALIAS)
+                .from(table.getName())
+                .where().addInvIndexCond(indexedColumns.get(position % columnsNum)).endWhere()
+                .toSQL()
+            );
+        }
+        String query = String.join(UNION_ALL, branches);
+
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        try {
+            // Bind the keywords in the same order the branches were created.
+            stmt = con.prepareStatement(query);
+            int parameter = 1;
+            for (Integer position : probedPostings.keySet())
+                stmt.setString(parameter++, this.database.prepareForAndFullTextSearch(this.keywords.get(position / columnsNum)));
+
+            // Execute the query and store the tuples.
+            rs = stmt.executeQuery();
+            TupleDecoder decoder = TupleDecoder.forColumns(resolveResultColumns(table, rs.getMetaData()));
+            TupleBlock block = decoder.newBlock();
+
+            while (rs.next()) {
+                int kwIndex = rs.getInt(KEYWORD_INDEX_ALIAS);
+                int colIndex = rs.getInt(COLUMN_INDEX_ALIAS);
+
+                // Store the row in the table's block and keep a view of it.
+                SQLTuple tuple = block.getRow(decoder.decode(rs, block));
+
+                // Add the tuple to the tuple set of the keyword and the column which contains it.
+                tuples.get(kwIndex).add(tuple);
+                columnsContainingKeywords.get(kwIndex).add(indexedColumns.get(colIndex));
+                probedPostings.get(kwIndex * columnsNum + colIndex).add(tuple);
+            }
+        }
+        finally {
+            DatabaseUtil.close(stmt, rs);
+        }
+
+        // Cache the probed postings, including the empty ones.
+        for (Map.Entry<Integer, List<SQLTuple>> entry : probedPostings.entrySet()) {
+            cache.put(new KeywordPostingCache.Key(
+                this.database.getName(), indexedColumns.get(entry.getKey() % columnsNum),
+                this.keywords.get(entry.getKey() / columnsNum), SearchMode.BOOLEAN_ROWS), entry.getValue());
+        }
+
+        // Return the tuples.
+        return tuples;
+    }
+
+    // Maps the columns of a batched probing result set (except the two trailing position
+    // columns) to the table's columns, the same way SQLTuple.fill(database, rs) does.
+    private static List<SQLColumn> resolveResultColumns(SQLTable table, ResultSetMetaData metadata) throws SQLException {
+        List<SQLColumn> columns = new ArrayList<>();
+        for (int index = 1; index <= metadata.getColumnCount() - 2; index++) {
+            SQLColumn column = table.getColumnByName(metadata.getColumnName(index));
+            if (column == null)
+                column = new SQLColumn(null, metadata.getColumnLabel(index), SQLType.NUMERIC_TYPE, null);
+            columns.add(column);
+        }
+
+        return columns;
+    }
+
     // Returns the tuples of a table in which a given keyword was found.
     public Set<SQLTuple> getTuplesContainingKeyword(
         String keyword, SQLTable table,
@@ -137,6 +361,18 @@ public class MasterIndex {
             // FULLTEXT indexes can only be built on columns with strings as values.
             if (column.getType().isTextual() && column.isIndexed()) {
 
+                // Use the cached posting if we have probed the column for the keyword before.
+                KeywordPostingCache.Key cacheKey = new KeywordPostingCache.Key(
+                    this.database.getName(), column, keyword, SearchMode.BOOLEAN_ROWS);
+                List<SQLTuple> columnTuples = KeywordPostingCache.getInstance().get(cacheKey);
+                if (columnTuples != null) {
+                    tuples.addAll(columnTuples);
+                    if (!columnTuples.isEmpty())
+                        columnsContainingKeywords.add(column);
+                    continue;
+                }
+                columnTuples = new ArrayList<>();
+
                 // Prepare the query to execute.
                 // String query = String.format(SQLQueries.INV_INDEX_QUERY, "*", table.getName(), column.getName());
                 String query = this.database.getQuery()
@@ -152,16 +388,22 @@ public class MasterIndex {
                 rs = stmt.executeQuery();
                 // totalSizeOfSqlIO += InstrumentationAgent.getObjectSize(rs);
 
+                TupleDecoder decoder = TupleDecoder.forDatabase(this.database, rs.getMetaData());
+                TupleBlock block = decoder.newBlock();
                 while (rs.next()) {
-                    SQLTuple tuple = new SQLTuple();
-                    tuple.fill(this.database, rs);                    
+                    SQLTuple tuple = block.getRow(decoder.decode(rs, block));
 
                     // Add the tuple to the tuple set of the current keyword and relation.
                     tuples.add(tuple);
+                    columnTuples.add(tuple);
 
                     // Add the column which contains this keyword.
                     columnsContainingKeywords.add(column);
                 }
+
+                // Release the statement before probing the next column.
+                DatabaseUtil.close(stmt, rs);
+                KeywordPostingCache.getInstance().put(cacheKey, columnTuples);
             }
         }
 
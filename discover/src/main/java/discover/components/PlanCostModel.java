@@ -0,0 +1,134 @@
+package discover.components;
+
+import discover.model.FreeTupleSet;
+import discover.model.JoinableExpression;
+import discover.model.JoinablePair;
+import discover.model.JoiningNetworkOfTupleSets;
+import discover.model.TupleSet;
+import shared.database.model.SQLTable;
+import shared.database.model.graph.SchemaGraph;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Estimates the cardinalities and the evaluation costs of the joinable expressions of
+// an execution plan, from the number of rows of the tables, the sizes of the tuple sets
+// and the fan-out of the foreign keys joining them.
+//
+// A join over a foreign key from S to R (the primary key side) matches every row of S
+// with at most one row of R, so joining a subset R' of R with a subset S' of S returns
+// about |R'| * |S'| / |R| rows. The cost of an expression is the number of rows its joins
+// read and produce. A materialized intermediate result costs a scan of its rows.
+class PlanCostModel {
+
+    // Writing a row of an intermediate result costs as much as reading this many rows.
+    static final double MATERIALIZATION_FACTOR = 2.0;
+
+    private SchemaGraph schemaGraph;
+    private Map<String, SQLTable> tables; // The tables of the candidate networks by name.
+
+    // The estimated cardinality of every expression by its key (the cardinality does not
+    // change when the expression is materialized, so it is computed once). The plan generator
+    // creates a new pair for every candidate intermediate result, so the expressions are
+    // keyed by their structure and equal pairs of different networks share their estimate.
+    private Map<String, Double> cardinalities;
+
+    PlanCostModel(List<JoiningNetworkOfTupleSets> candidateNetworks, SchemaGraph schemaGraph) {
+        this.schemaGraph = schemaGraph;
+        this.tables = new HashMap<>();
+        this.cardinalities = new HashMap<>();
+
+        for (JoiningNetworkOfTupleSets jnts : candidateNetworks)
+            for (TupleSet tupleSet : jnts.getTupleSets())
+                this.tables.put(tupleSet.getTable().getName(), tupleSet.getTable());
+    }
+
+    // Returns the estimated number of rows of an expression.
+    double cardinality(JoinableExpression expression) {
+        String key = keyOf(expression);
+        Double cardinality = this.cardinalities.get(key);
+        if (cardinality != null)
+            return cardinality;
+
+        if (expression instanceof FreeTupleSet)
+            cardinality = (double) Math.max(1, expression.getTable().getRowsNum());
+        else if (expression instanceof TupleSet)
+            cardinality = (double) Math.max(1, ((TupleSet) expression).getSize());
+        else if (expression instanceof JoinablePair) {
+            JoinablePair pair = (JoinablePair) expression;
+            cardinality = Math.max(1.0, this.cardinality(pair.getLeft()) * this.cardinality(pair.getRight())
+                * this.selectivity(pair.getLeft(), pair.getRight()));
+        }
+        else
+            cardinality = 1.0;
+
+        this.cardinalities.put(key, cardinality);
+        return cardinality;
+    }
+
+    // Returns a key that is the same for equal expressions: the canonical label of a tuple
+    // set, or the keys of the two sides of a pair in order (the sides of a join commute).
+    private static String keyOf(JoinableExpression expression) {
+        if (expression instanceof TupleSet)
+            return ((TupleSet) expression).getCanonicalLabel();
+        else if (expression instanceof JoinablePair) {
+            JoinablePair pair = (JoinablePair) expression;
+            String left = keyOf(pair.getLeft()), right = keyOf(pair.getRight());
+            return (left.compareTo(right) <= 0) ? "(" + left + "," + right + ")" : "(" + right + "," + left + ")";
+        }
+        return expression.toAbbreviation();
+    }
+
+    // Returns the estimated cost of evaluating an expression in a query. The
+    // intermediate results that are materialized are scanned instead of joined.
+    double cost(JoinableExpression expression) {
+        if (expression instanceof JoinablePair && ((JoinablePair) expression).getAssignment() != null)
+            return this.cardinality(expression);
+        return this.joinCost(expression);
+    }
+
+    // Returns the estimated cost of joining an expression, even if it is materialized.
+    double joinCost(JoinableExpression expression) {
+        if (!(expression instanceof JoinablePair))
+            return this.cardinality(expression);
+
+        JoinablePair pair = (JoinablePair) expression;
+        return this.cost(pair.getLeft()) + this.cost(pair.getRight()) + this.cardinality(pair);
+    }
+
+    // Returns the estimated cost saved by materializing an expression used by the given
+    // number of assignments: every use scans the result instead of joining it, and the
+    // result is joined and written once. A negative value means the materialization loses.
+    double materializationBenefit(JoinableExpression expression, int uses) {
+        double joinCost = this.joinCost(expression);
+        double cardinality = this.cardinality(expression);
+        double savedPerUse = joinCost - cardinality;
+        double materializationCost = joinCost + MATERIALIZATION_FACTOR * cardinality;
+        return uses * savedPerUse - materializationCost;
+    }
+
+    // Returns the selectivity of joining two expressions over the foreign key between
+    // two of their base tables: 1 / the rows of the primary key side.
+    private double selectivity(JoinableExpression left, JoinableExpression right) {
+        for (String leftName : left.getContainedBaseTables()) {
+            SQLTable leftTable = this.tables.get(leftName);
+            if (leftTable == null) continue;
+
+            for (String rightName : right.getContainedBaseTables()) {
+                SQLTable rightTable = this.tables.get(rightName);
+                if (rightTable == null) continue;
+
+                // The schema graph has directed edges from the primary key to the foreign key table.
+                if (this.schemaGraph.getDirectedConnection(leftTable, rightTable))
+                    return 1.0 / Math.max(1, leftTable.getRowsNum());
+                if (this.schemaGraph.getDirectedConnection(rightTable, leftTable))
+                    return 1.0 / Math.max(1, rightTable.getRowsNum());
+            }
+        }
+
+        // No foreign key joins the two expressions.
+        return 1.0;
+    }
+
+}
@@ -4,12 +4,13 @@ import discover.model.execution.Assignment;
 import discover.model.execution.CandidateNetworkAssignment;
 import discover.model.execution.ExecutionPlan;
 import discover.model.execution.IntermediateResultAssignment;
-import shared.connectivity.thor.response.Table;
+import shared.util.Table;
 import shared.util.Timer;
 import discover.model.JoiningNetworkOfTupleSets;
 import discover.model.TupleSet;
 import discover.model.JoinableExpression;
 import discover.model.JoinablePair;
+import shared.database.model.graph.SchemaGraph;
 
 import java.util.List;
 import java.util.Map;
@@ -19,6 +20,7 @@ import java.util.Arrays;
 import java.util.BitSet;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 
 // Input: A set S of candidate networks {C1, ..., Cr}.
 // Output: An execution plan to evaluate them.
@@ -41,6 +43,22 @@ public class PlanGenerator {
     // Selects common join sub-expressions of 1 join inside 
     // the candidate networks that are frequently used.
     public ExecutionPlan generateExecutionPlan(List<JoiningNetworkOfTupleSets> candidateNetworks) {
+        return this.generateExecutionPlan(candidateNetworks, null);
+    }
+
+    // Generates an execution plan using the estimated costs of the PlanCostModel.
+    // Selects first the common join sub-expressions of 1 join whose materialization
+    // saves the most cost, and keeps as intermediate results only the ones whose
+    // estimated savings exceed the cost of materializing them.
+    public ExecutionPlan generateCostBasedExecutionPlan(List<JoiningNetworkOfTupleSets> candidateNetworks,
+            SchemaGraph schemaGraph) {
+        return this.generateExecutionPlan(candidateNetworks, new PlanCostModel(candidateNetworks, schemaGraph));
+    }
+
+    // Generates an execution plan, selecting the sub-expressions by their occurrences
+    // or by their estimated costs if a cost model is given.
+    private ExecutionPlan generateExecutionPlan(List<JoiningNetworkOfTupleSets> candidateNetworks,
+            PlanCostModel costModel) {
         Timer timer = new Timer();
         timer.start(); // Start the timer.
         ExecutionPlan executionPlan = new ExecutionPlan(); // The execution Plan.
@@ -61,13 +79,22 @@ public class PlanGenerator {
             // is the last assignment for creating a candidate network.
             boolean assignmentCreatesCN = false;
             
-            // Maps the subExpressions with their number of occurrences in the candidate networks.
-            SubExpressionOccurrencesMap subExprOccurrencesMap = getPairOccurrencesMap(
-                candidateNetworks, candidateNetworksInExecutionPlan
-            );
+            JoinablePair bestSubExpression = null;
+            if (costModel != null) {
+                // Get the subExpression whose materialization saves the most cost.
+                bestSubExpression = this.getMostBeneficialSubExpression(
+                    candidateNetworks, candidateNetworksInExecutionPlan, costModel
+                );
+            }
+            else {
+                // Maps the subExpressions with their number of occurrences in the candidate networks.
+                SubExpressionOccurrencesMap subExprOccurrencesMap = getPairOccurrencesMap(
+                    candidateNetworks, candidateNetworksInExecutionPlan
+                );
 
-            // Get the subExpression with the largest frequency() value.
-            JoinablePair bestSubExpression = subExprOccurrencesMap.peek();
+                // Get the subExpression with the largest frequency() value.
+                bestSubExpression = subExprOccurrencesMap.peek();
+            }
             // System.out.println("Adding to IR: " + bestSubExpression + "\n");            
 
             // Rewrite all candidate networks to use the best joinable pair when possible.            
@@ -103,7 +130,7 @@ public class PlanGenerator {
         // System.out.println("ExecutionPlan before victimization:\n" + executionPlan);
 
         // Call the PostProcessing Function.
-        this.victimizeIntermediateResults(executionPlan);
+        this.victimizeIntermediateResults(executionPlan, costModel);
         // System.out.println("ExecutionPlan after victimization:\n" + executionPlan);
 
 
@@ -115,8 +142,9 @@ public class PlanGenerator {
     // The PlanGenerators Post Processing function. Traces Intermediate Result that are 
     // used only once in the Execution Plan and replaces them with their contents.
     // This saves us from the extra Computation Time of creating Intermediate Results 
-    // that are barely used.
-    private void victimizeIntermediateResults(ExecutionPlan executionPlan) {
+    // that are barely used. With a cost model, the intermediate results that cost more
+    // to materialize than they save are replaced too.
+    private void victimizeIntermediateResults(ExecutionPlan executionPlan, PlanCostModel costModel) {
         Timer timer = new Timer();
         timer.start(); // Start the timer.
 
@@ -135,6 +163,7 @@ public class PlanGenerator {
             // Vitimize Intermediate results that :
             // 1) Are not used more than once in the execution plan
             // 2) Are complied by free tuple Sets (too much computations for no reason)
+            // 3) Cost more to materialize than they save (if a cost model is given)
             
             // Get all the Assignments using this intermediateResult after this assignments index.
             List<Assignment> assignmentsUsingIRres = executionPlan.getAssignmentsUsingTerm(intermediateResult, index + 1);
@@ -152,7 +181,8 @@ public class PlanGenerator {
             }
             // (2) If the intermediate result is complied by free tuple sets then remove it because it is not 
             // useful at all and adds computation to the Systems execution.
-            else if (expression instanceof JoinablePair && ((JoinablePair) expression).isCompliedByFreeTupleSets()) {
+            else if ((expression instanceof JoinablePair && ((JoinablePair) expression).isCompliedByFreeTupleSets()) ||
+                     (costModel != null && costModel.materializationBenefit(expression, assignmentsUsingIRres.size()) <= 0)) {
                 // Remove this intermediate result from all assignments using it.
                 for (Assignment assignmentToReform: assignmentsUsingIRres) {
                     assignmentToReform.replaceIntermediateResultWithContents(intermediateResult);
@@ -230,6 +260,41 @@ public class PlanGenerator {
     }
 
 
+    // Returns the sub-expression of 1 join whose materialization saves the most estimated cost.
+    // Ties are broken by the occurrences of the sub-expressions and then by the order of the
+    // candidate networks, so the plan is deterministic.
+    private JoinablePair getMostBeneficialSubExpression(
+        List<JoiningNetworkOfTupleSets> candidateNetworks,
+        BitSet candidateNetworksInExecutionPlan,
+        PlanCostModel costModel)
+    {
+        // Maps the pairs with their number of occurrences in the candidate networks, in order.
+        Map<JoinablePair, Integer> occurrences = new LinkedHashMap<>();
+        for (int index = 0; index < candidateNetworks.size(); index++) {
+            // If the CN is already it the execution plan then skip it
+            if (candidateNetworksInExecutionPlan.get(index)) continue;
+
+            for (JoinablePair pair : candidateNetworks.get(index).getAdjacentJoinablePairs())
+                occurrences.merge(pair, 1, Integer::sum);
+        }
+
+        JoinablePair bestPair = null;
+        double bestBenefit = 0.0;
+        int bestOccurrences = 0;
+        for (Map.Entry<JoinablePair, Integer> entry : occurrences.entrySet()) {
+            double benefit = costModel.materializationBenefit(entry.getKey(), entry.getValue());
+            if (bestPair == null || benefit > bestBenefit ||
+                (benefit == bestBenefit && entry.getValue() > bestOccurrences)) {
+                bestPair = entry.getKey();
+                bestBenefit = benefit;
+                bestOccurrences = entry.getValue();
+            }
+        }
+
+        return bestPair;
+    }
+
+
     // Rewrites all candidate networks to use the best sub Expression when possible.
     // Also returns a boolean showing if this sub Expression is responsible for creating a 
     // Candidate network.
@@ -2,6 +2,7 @@ package discover.components;
 
 import java.util.List;
 
+import shared.database.model.InListConstraint;
 import shared.database.model.SQLColumn;
 import shared.database.model.SQLQueries;
 import shared.database.model.SQLQuery;
@@ -76,8 +77,8 @@ public class SQLQueryCreator {
         // }
 
         //  - The IN LIST Constraints if there are any. {        
-        for(String inListConstraint: joinableFormat.getInListConstraints()) {
-            query.getInListConstraints().add( inListConstraint );
+        for(InListConstraint inListConstraint: joinableFormat.getInListConstraints()) {
+            query.addInListConstraint( inListConstraint );
         }           
         // }
 
@@ -123,8 +124,8 @@ public class SQLQueryCreator {
         // }
 
         //  - The IN LIST Constraints if there are any. {        
-        for(String inListConstraint: joinableFormat.getInListConstraints()) {
-            query.getInListConstraints().add( inListConstraint );
+        for(InListConstraint inListConstraint: joinableFormat.getInListConstraints()) {
+            query.addInListConstraint( inListConstraint );
         }           
         // }
 
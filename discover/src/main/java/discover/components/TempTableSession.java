@@ -0,0 +1,122 @@
+package discover.components;
+
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import shared.database.config.PropertiesSingleton;
+import shared.database.connectivity.DataSourceFactory;
+import shared.database.connectivity.DatabaseUtil;
+import shared.database.model.SQLQueries;
+import discover.DiscoverApplication;
+import discover.model.SQLTempTable;
+
+// A TempTableSession owns the temp tables (or views) created while
+// executing the plan of one query. Every session has a unique prefix
+// for the names of its tables, so the plans of many queries can be
+// executed concurrently in the same process without their tables
+// colliding. The session drops its tables when it is closed.
+//
+// The open sessions are tracked so that the ShutdownHook can drop
+// the tables of the plans that were interrupted.
+public class TempTableSession {
+
+    private static final String AUX_DB = PropertiesSingleton.getBundle().getString("database.auxDatabase");
+
+    private static final AtomicLong nextSessionId = new AtomicLong(0);               // The id of the next session.
+    private static final Set<TempTableSession> openSessions = ConcurrentHashMap.newKeySet();  // The sessions not closed yet.
+
+    private long id;                          // The id of the session.
+    private AtomicInteger tempTablesNum;      // The number of temp tables named by this session.
+    private List<SQLTempTable> tempTables;    // The temp tables created in this session.
+
+    public TempTableSession() {
+        this.id = nextSessionId.getAndIncrement();
+        this.tempTablesNum = new AtomicInteger(0);
+        this.tempTables = Collections.synchronizedList(new ArrayList<>());
+        openSessions.add(this);
+    }
+
+    // Returns the name of a new temp table holding the tuples of a tuple set's table.
+    public String getTempTableName(String tableName) {
+        return AUX_DB + ".discover_s" + this.id + "_temp" + this.tempTablesNum.getAndIncrement() + "_" + tableName;
+    }
+
+    // Returns the name of the temp table (or view) of an intermediate result.
+    public String getIntermediateResultName(String assignmentAbbreviation) {
+        return AUX_DB + ".DView" + this.id + "_" + assignmentAbbreviation;
+    }
+
+    // Adds a temp table created in the database to the session.
+    public void addTempTable(SQLTempTable tempTable) {
+        this.tempTables.add(tempTable);
+    }
+
+    // Returns a copy of the temp tables created in this session.
+    public List<SQLTempTable> getTempTables() {
+        synchronized (this.tempTables) {
+            return new ArrayList<>(this.tempTables);
+        }
+    }
+
+    // Drops all the temp tables of this session (if any created).
+    public void close() {
+        List<SQLTempTable> tables = this.getTempTables();
+        this.tempTables.clear();
+        openSessions.remove(this);
+
+        // If there are none return.
+        if (tables.isEmpty()) return;
+
+        // Create a string containing all temp Tables names
+        String listOfTempTables = new String();
+        for (SQLTempTable tempTable: tables) {
+            listOfTempTables += tempTable.getName() + ", ";
+        }
+        // Remove the last ", ";
+        listOfTempTables = listOfTempTables.substring(0, listOfTempTables.length()-2);
+
+        // Initialize connection variables.
+        Connection con = null;
+        Statement stmt = null;
+
+        try {
+            // Connect with the database
+            con = DataSourceFactory.getConnection();
+            stmt = con.createStatement();
+
+            // Temporary disable the Constraints.
+            stmt.executeUpdate(SQLQueries.SQL_DISABLE_CONSTRAINTS_QUERY);
+            // Drop a list of temp tables.
+            if (DiscoverApplication.USE_VIEWS)
+                stmt.executeUpdate(String.format(SQLQueries.SQL_DROP_VIEWS_QUERY, listOfTempTables));
+            else
+                stmt.executeUpdate(String.format(SQLQueries.SQL_DROP_TABLES_QUERY, listOfTempTables));
+
+            // Temporary enable the Constraints.
+            stmt.executeUpdate(SQLQueries.SQL_ENABLE_CONSTRAINTS_QUERY);
+        }
+        catch (Exception e) {
+            e.printStackTrace();
+        }
+        finally {
+            DatabaseUtil.close(con, stmt);
+        }
+    }
+
+    // Closes all the sessions that are still open.
+    public static void closeAll() {
+        for (TempTableSession session : new ArrayList<>(openSessions))
+            session.close();
+    }
+
+    public long getId() {
+        return this.id;
+    }
+}
@@ -1,19 +1,23 @@
 package discover.components;
 
-import shared.connectivity.thor.response.Table;
+import shared.util.Table;
+import shared.database.model.SQLColumn;
 import shared.database.model.SQLTable;
 import shared.database.model.SQLTuple;
-import discover.DiscoverApplication;
 import discover.model.TableTupleSets;
 import discover.model.TupleSet;
+import shared.util.KeywordMatcher;
 import shared.util.Timer;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.BitSet;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 // Input: Basic tuple sets and a set of keywords {k1, ..., km}
 // Output: TupleSets Ri^K containing tuples with keywords in all 
@@ -69,46 +73,149 @@ public class TupleSetPostProcessor {
         return this.tupleSetCombinations;
     }
 
-    // Given the basic tuple sets of a table, this function creates all possible subsets
-    // of keywords from the list of keywords contained in the table's basic tuple sets.
-    // Then, for every subset of keywords it creates the tuple set from the given table
-    // that contains all keywords of the subset.
+    // Given the basic tuple sets of a table, this function creates the tuple set of
+    // every subset of keywords from the list of keywords contained in the table's basic
+    // tuple sets. The result is the same as intersecting the basic tuple sets of every
+    // subset with createSubset, but every tuple is scanned for the keywords only once:
+    //
+    // Each tuple is tagged with the mask of the table keywords it contains and the mask
+    // of the basic tuple sets it belongs to. A tuple containing a query keyword that no
+    // basic tuple set of the table has is in no subset. Otherwise, a tuple containing the
+    // keywords K belongs to the tuple set of K (if it is in a basic tuple set of K), and a
+    // tuple containing none of the keywords belongs to the tuple set of every single
+    // keyword whose basic tuple set it is in.
     public List<TupleSet> createTableSubsets(TableTupleSets tableBasicTupleSets) {        
-        // List of tuple sets for every subset of keywords.
-        List<TupleSet> subsetsTupleSets = new ArrayList<TupleSet>();
-
         // Get all the keywords contained in the current table's basic tuple sets.
         List<String> tableKeywords = new ArrayList<>(tableBasicTupleSets.getKeywords());        
         int keywordsNumber = tableKeywords.size();
-        int numOfSubsets = 1 << keywordsNumber;        
-
-        // Generate all possible subsets of the keywords and save their corresponding tuple sets.
-        for (int subsetNum = 1; subsetNum < numOfSubsets; subsetNum++) {
-            // The tuple sets of the single keywords that make up a set of keywords.
-            List<TupleSet> tupleSetsCombination = new ArrayList<TupleSet>();            
-
-            // If not create it with basic tuple sets of single keywords.
-            for (int pos = 0; pos < keywordsNumber; pos++) {
-                if ((subsetNum & (1 << pos)) > 0) {
-                    TupleSet keywordTupleSet = tableBasicTupleSets.getBasicTupleSetOfKeyword(
-                        tableKeywords.get(pos)
-                    );
-                    if (keywordTupleSet != null) {                        
-                        tupleSetsCombination.add(keywordTupleSet);
-                    }
-                }
-            }
 
-            // Create the tuple set of the current subset of keywords.
-            TupleSet subset = this.createSubset(tupleSetsCombination, this.keywords);
-            if (!subset.isEmpty()) {
-                subsetsTupleSets.add(subset);
+        // The basic tuple set of every table keyword.
+        List<TupleSet> keywordTupleSets = new ArrayList<TupleSet>(keywordsNumber);
+        for (String keyword : tableKeywords)
+            keywordTupleSets.add(tableBasicTupleSets.getBasicTupleSetOfKeyword(keyword));
+
+        // The query keywords that no basic tuple set of the table contains.
+        List<String> otherKeywords = new ArrayList<String>();
+        for (String keyword : this.keywords)
+            if (!tableKeywords.contains(keyword))
+                otherKeywords.add(keyword);
+
+        // Scan every value once for all the query keywords. The matches are cached on the
+        // values, so the later containsKeyword calls of the query do not scan them again.
+        // Without a matcher (too many keywords) or if it does not know a table keyword,
+        // the tuples are scanned for every keyword separately.
+        KeywordMatcher matcher = KeywordMatcher.forKeywords(this.keywords);
+        long otherMask = (matcher != null) ? matcher.maskOf(otherKeywords) : -1L;
+        long[] tableMasks = new long[keywordsNumber];
+        for (int pos = 0; pos < keywordsNumber && otherMask >= 0; pos++) {
+            int index = matcher.indexOf(tableKeywords.get(pos));
+            if (index < 0)
+                otherMask = -1L;
+            else
+                tableMasks[pos] = 1L << index;
+        }
+        if (otherMask < 0)
+            matcher = null;
+
+        // Map every tuple to the mask of the basic tuple sets it belongs to.
+        // The first tuple set a tuple was found in provides its object.
+        Map<SQLTuple, Integer> basicMasks = new LinkedHashMap<>();
+        for (int pos = 0; pos < keywordsNumber; pos++)
+            if (keywordTupleSets.get(pos) != null)
+                for (SQLTuple tuple : keywordTupleSets.get(pos).getTuples())
+                    basicMasks.merge(tuple, 1 << pos, (a, b) -> a | b);
+
+        // Group the tuples by the subset of keywords they belong to.
+        Map<Integer, Set<SQLTuple>> subsetTuples = new HashMap<>();
+        for (Map.Entry<SQLTuple, Integer> entry : basicMasks.entrySet()) {
+            SQLTuple tuple = entry.getKey();
+            int basicMask = entry.getValue();
+            int keywordMask = (matcher != null)
+                ? keywordMaskOf(tuple, matcher, otherMask, tableMasks)
+                : keywordMaskOf(tuple, otherKeywords, tableKeywords);
+            if (keywordMask < 0)
+                continue;
+
+            if (keywordMask != 0) {
+                if ((keywordMask & basicMask) != 0)
+                    subsetTuples.computeIfAbsent(keywordMask, k -> new HashSet<>()).add(tuple);
+            }
+            else {
+                for (int pos = 0; pos < keywordsNumber; pos++)
+                    if ((basicMask & (1 << pos)) != 0)
+                        subsetTuples.computeIfAbsent(1 << pos, k -> new HashSet<>()).add(tuple);
             }
         }
 
+        // Create the tuple sets in the order of the subsets' numbers.
+        List<Integer> subsets = new ArrayList<>(subsetTuples.keySet());
+        Collections.sort(subsets);
+
+        List<TupleSet> subsetsTupleSets = new ArrayList<TupleSet>(subsets.size());
+        for (Integer subsetNum : subsets)
+            subsetsTupleSets.add(this.createSubset(subsetNum, tableKeywords, keywordTupleSets, subsetTuples.get(subsetNum)));
+
         return subsetsTupleSets;
     }
 
+    // Returns the mask of the positions of the table keywords that a tuple contains,
+    // or -1 if it contains one of the other keywords, with the matcher of the query.
+    private static int keywordMaskOf(SQLTuple tuple, KeywordMatcher matcher, long otherMask, long[] tableMasks) {
+        long tupleMask = tuple.getKeywordMask(matcher);
+        if ((tupleMask & otherMask) != 0)
+            return -1;
+
+        int keywordMask = 0;
+        for (int pos = 0; pos < tableMasks.length; pos++)
+            if ((tupleMask & tableMasks[pos]) != 0)
+                keywordMask |= 1 << pos;
+        return keywordMask;
+    }
+
+    // Returns the mask of the positions of the table keywords that a tuple contains,
+    // or -1 if it contains one of the other keywords, checking every keyword separately.
+    private static int keywordMaskOf(SQLTuple tuple, List<String> otherKeywords, List<String> tableKeywords) {
+        for (String keyword : otherKeywords)
+            if (tuple.containsKeyword(keyword))
+                return -1;
+
+        int keywordMask = 0;
+        for (int pos = 0; pos < tableKeywords.size(); pos++)
+            if (tuple.containsKeyword(tableKeywords.get(pos)))
+                keywordMask |= 1 << pos;
+        return keywordMask;
+    }
+
+    // Creates the tuple set of a subset of the table keywords (given as a mask of their
+    // positions) from its tuples, with the keywords and columns of the subset's basic
+    // tuple sets like the ones createSubset gives.
+    private TupleSet createSubset(
+        int subsetNum, List<String> tableKeywords,
+        List<TupleSet> keywordTupleSets, Set<SQLTuple> tuples)
+    {
+        Set<String> subsetKeywords = new HashSet<>();
+        Set<SQLColumn> columns = new HashSet<>();
+        HashMap<String, Set<SQLColumn>> keywords2columns = new HashMap<>();
+        for (int pos = 0; pos < tableKeywords.size(); pos++) {
+            if ((subsetNum & (1 << pos)) == 0 || keywordTupleSets.get(pos) == null)
+                continue;
+
+            TupleSet keywordTupleSet = keywordTupleSets.get(pos);
+            subsetKeywords.addAll(keywordTupleSet.getKeywords());
+            columns.addAll(keywordTupleSet.getColumnsContainingKeywords());
+            keywords2columns.putAll(keywordTupleSet.getKeywords2columns());
+        }
+
+        // Drop the columns of the keywords the tuples do not contain.
+        for (String keyword : this.keywords)
+            if (!subsetKeywords.contains(keyword))
+                keywords2columns.remove(keyword);
+
+        TupleSet subset = new TupleSet(keywordTupleSets.get(Integer.numberOfTrailingZeros(subsetNum)).getTable(), subsetKeywords, columns, tuples);
+        subset.setKeywords2columns(keywords2columns);
+        return subset;
+    }
+
     // Given a list of basic tuple sets create a new tuple set that contains all keywords
     // of the given tuple sets, but no other keyword from the allKeywords list.
     //
@@ -195,104 +302,3 @@ public class TupleSetPostProcessor {
 
 }
 
-
-
-
-
-
-//  +==========================+
-//  | TupleSet HashTable Class |
-//  +==========================+
-
-class TupleSetsHashTable {
-    // A list of HashMaps ordered in the cardinality of the sets they include.
-    // The BitSet represents what keywords each tupleSet contains (with 1) and not contain (with 0).
-    List<Map<BitSet,TupleSet>> listOfMaps; 
-
-    // Public Constructor
-    TupleSetsHashTable (int maxSetCardinality) {
-        this.listOfMaps = new ArrayList<Map<BitSet,TupleSet>>(maxSetCardinality);
-        for (int index=0; index < maxSetCardinality; index++) {
-            this.listOfMaps.add(new HashMap<BitSet,TupleSet>());
-        }
-    }
-
-    public static BitSet convert(int value) {
-        BitSet bits = new BitSet();
-        int index = 0;
-        while (value != 0L) {
-            if (value % 2L != 0) {
-                bits.set(index);
-            }
-            index++;
-            value = value >>> 1;
-        }
-        return bits;
-    }
-
-    // Add a new tuple set
-    void add(BitSet bitset, TupleSet tupleSet) {
-        // Determine the Hash Map that this tuple set will
-        // be added to depending on his bitset sum of 1.
-        // Which means on the number of tupleSets contained
-        // in the TupleSet.
-        int index = bitset.cardinality() - 1;
-        this.listOfMaps.get(index).put(bitset, tupleSet);
-    }
-
-    // Get the TupleSet mapped to bitset
-    TupleSet getTupleSetWithBitSet(BitSet bitset){
-        // The hash map that this biteSet's tuple 
-        // is, can be located from the bitSets sum of 1.
-        Map<BitSet,TupleSet> map = this.listOfMaps.get(bitset.cardinality() - 1);
-        return map.get(bitset);
-
-    }
-
-    // Get a pair of TupleSets that create the give bitSet of keywords
-    List<TupleSet> getPairCreatingTupleSetWithBitSet(BitSet bitset) {
-        // Dont search for TupleSets containing less than two keywords
-        if (bitset.cardinality() < 2) {
-            return null;
-        }
-
-        // Find the first occurrence of a bit set to 1
-        int index = bitset.nextSetBit(0);
-
-        // Candidate one :
-        // Create a bit set with the same size but with only that bit set to 1
-        BitSet candidateOne = new BitSet(bitset.length());
-        candidateOne.set(index);
-
-        // Candidate two :
-        BitSet candidateTwo = (BitSet) bitset.clone();
-        candidateTwo.clear(index);
-
-        // Search for both candidates in the hash map.
-        // They should be there because of the way that Tuple
-        // sets are created from the callee function.
-        TupleSet tupleSetOne = this.getTupleSetWithBitSet(candidateOne);
-        TupleSet tupleSetTwo = this.getTupleSetWithBitSet(candidateTwo);
-
-        // Return the candidates or null if a candidate was not found.
-        if (tupleSetOne == null || tupleSetTwo == null) {
-            return null;
-        }
-        List<TupleSet> resultList = new ArrayList<TupleSet>();
-        resultList.add(tupleSetOne);
-        resultList.add(tupleSetTwo);
-
-        if (DiscoverApplication.DEBUG_PRINTS) {
-            System.out.println("Candidate TupleSets for creating a set");
-            for (TupleSet set: resultList) {
-                System.out.println(set.toAbbreviation());
-                for (SQLTuple tup: set.getTuples()) {
-                    System.out.println("\t" + tup);
-                }
-            }
-        }
-
-        return resultList;
-    }
-        
-}
\ No newline at end of file
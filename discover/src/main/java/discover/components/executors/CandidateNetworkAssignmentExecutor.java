@@ -4,6 +4,7 @@ import shared.database.connectivity.DatabaseUtil;
 import shared.database.model.graph.SchemaGraph;
 import shared.database.model.SQLDatabase;
 import shared.database.model.SQLQuery;
+import shared.database.model.TupleDecoder;
 import shared.database.connectivity.DataSourceFactory;
 import discover.model.JoiningNetworkOfTupleSets;
 import discover.model.OverloadedTuple;
@@ -14,9 +15,9 @@ import discover.model.execution.CandidateNetworkAssignment;
 import discover.model.execution.JoinableFormat;
 
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
@@ -37,9 +38,18 @@ public class CandidateNetworkAssignmentExecutor {
 
     private static int timeout = 30;
    
+    // The maximum number of results fetched for a candidate network.
+    private static final int MAX_RESULTS = 2000;
+
     // Executes the assignment. All the results are returned to the user as output.    
     public static List<OverloadedTuple> execute(CandidateNetworkAssignment assignment, SchemaGraph schemaGraph,
             SQLDatabase database) throws JoinCandidateNotFoundException {            
+        return execute(assignment, schemaGraph, database, MAX_RESULTS);
+    }
+
+    // Executes the assignment fetching at most limit results (used by the top-k execution).
+    public static List<OverloadedTuple> execute(CandidateNetworkAssignment assignment, SchemaGraph schemaGraph,
+            SQLDatabase database, int limit) throws JoinCandidateNotFoundException {            
         List<OverloadedTuple> results = new ArrayList<OverloadedTuple>(); // The results to be returned.
         
         // Create a generic joinable format from the assignments Terms.
@@ -51,6 +61,7 @@ public class CandidateNetworkAssignmentExecutor {
         
         // Create a SELECT query.
         SQLQuery selectQuery = SQLQueryCreator.createSQLSelectQuery(joinableFormat);
+        selectQuery.setLimit(Math.min(limit, MAX_RESULTS));
         
 
         // Create the network
@@ -62,22 +73,25 @@ public class CandidateNetworkAssignmentExecutor {
 
         
         Connection con = null;
-        Statement stmt = null;
+        PreparedStatement stmt = null;
         ResultSet rs = null;
 
         // Execute the SELECT query against the MYSQL server.
         try {
-            // Get the connection.
+            // Get the connection and prepare the query (the IN lists are bound as
+            // parameters, so queries with the same shape share a prepared statement).
             con = DataSourceFactory.getConnection();
-            stmt = con.createStatement();
+            stmt = DatabaseUtil.prepareSelectQuery(con, selectQuery);
+            DatabaseUtil.setStreamingFetchSize(stmt);
 
             // Execute the query.
             stmt.setQueryTimeout(timeout);
-            rs = stmt.executeQuery(selectQuery.toSelectQuery());
+            rs = stmt.executeQuery();
+            TupleDecoder decoder = TupleDecoder.forColumns(joinableFormat.getColumnsWithoutAliases());
             while (rs.next()) {                
                 // Add the tuples to the List.
                 OverloadedTuple tuple = new OverloadedTuple();
-                tuple.fill(joinableFormat.getColumnsWithoutAliases(), rs);
+                tuple.fill(decoder, rs);
                 tuple.setQuery(selectQuery); tuple.setNetworks(networks);
                 results.add(tuple);
             }
@@ -11,7 +11,6 @@ import discover.exceptions.JoinCandidateNotFoundException;
 import discover.model.SQLTempTable;
 import discover.model.execution.IntermediateResultAssignment;
 import discover.model.execution.JoinableFormat;
-import shared.database.config.PropertiesSingleton;
 import shared.database.connectivity.DataSourceFactory;
 import shared.database.connectivity.DatabaseUtil;
 import shared.database.model.SQLDatabase;
@@ -27,11 +26,6 @@ import shared.database.model.graph.SchemaGraph;
 public class IntermediateResultAssignmentExecutor {
 
 
-    // public static String AUX_DB = null;
-    public static String AUX_DB = PropertiesSingleton.getBundle().getString("database.auxDatabase");
-    public static String VIEW_PREFIX = AUX_DB + ".DView_";
-    
-
     public static void execute(IntermediateResultAssignment assignment, ExecutionPreProcessor preProcessor,
             SchemaGraph schemaGraph, SQLDatabase database) throws JoinCandidateNotFoundException {
         if (DiscoverApplication.USE_VIEWS)
@@ -49,7 +43,7 @@ public class IntermediateResultAssignmentExecutor {
         joinableFormat.fill(assignment.getAssignmentTerms(), schemaGraph);
 
         // Create a new TempTable and fill it with the joinableFormat.
-        String tempTableName = VIEW_PREFIX + assignment.toAbbreviation();        
+        String tempTableName = preProcessor.getSession().getIntermediateResultName(assignment.toAbbreviation());        
         SQLTempTable tempTable = new SQLTempTable(tempTableName);
         tempTable.fill(joinableFormat);        
 
@@ -65,33 +59,30 @@ public class IntermediateResultAssignmentExecutor {
             System.out.println("InsertInto Query :" + insertIntoQuery + "\n");
         }
                
-        // Synchronize this part of the code using a lock from ExecutionPreProcessor
-        synchronized(ExecutionPreProcessor.class) {
-            // Run the queries against MysqlServer.
-            Connection con = null;
-            Statement stmt = null;
-            try {
-                // Get the connection.
-                con = DataSourceFactory.getConnection();
-                stmt = con.createStatement();
-                
-                // Use the statement to submit the CREATE TABLE query.
-                stmt.executeUpdate(tempTableCreationQuery);   
-
-                // Use the same statement again to submit the INSERT INTO SELECT query.        
-                stmt.executeUpdate(insertIntoQuery);
-            }
-            catch (SQLException e) {
-                e.printStackTrace();
-            }
-            finally {
-                DatabaseUtil.close(con, stmt);
-            }
-
-            // Update the database with the tempTable.
-            database.addTable(tempTable);
-            ExecutionPreProcessor.getTempTablesList().add(tempTable);
+        // Run the queries against MysqlServer.
+        // The table name is unique to the session of this execution, so no lock is needed.
+        Connection con = null;
+        Statement stmt = null;
+        try {
+            // Get the connection.
+            con = DataSourceFactory.getConnection();
+            stmt = con.createStatement();
+            
+            // Use the statement to submit the CREATE TABLE query.
+            stmt.executeUpdate(tempTableCreationQuery);   
+
+            // Use the same statement again to submit the INSERT INTO SELECT query.        
+            stmt.executeUpdate(insertIntoQuery);
+        }
+        catch (SQLException e) {
+            e.printStackTrace();
         }
+        finally {
+            DatabaseUtil.close(con, stmt);
+        }
+
+        // Add the tempTable to the session of this execution, which drops it at the end.
+        preProcessor.getSession().addTempTable(tempTable);
 
         // Update the assignmentTerms of this assignment that they are now created by a tempTable.
         assignment.getAssignmentTerms().setTable(tempTable);
@@ -107,7 +98,7 @@ public class IntermediateResultAssignmentExecutor {
   
 
         // Create a new TempTable and fill it with the joinableFormat.
-        String tempTableName = VIEW_PREFIX + assignment.toAbbreviation();
+        String tempTableName = preProcessor.getSession().getIntermediateResultName(assignment.toAbbreviation());
         SQLTempTable tempTable = new SQLTempTable(tempTableName);
         tempTable.fill(joinableFormat);
 
@@ -136,9 +127,8 @@ public class IntermediateResultAssignmentExecutor {
             DatabaseUtil.close(con, stmt);
         }
 
-        // Update the database with the tempTable.
-        database.addTable(tempTable);
-        preProcessor.getTempTablesList().add(tempTable);
+        // Add the view to the session of this execution, which drops it at the end.
+        preProcessor.getSession().addTempTable(tempTable);
 
         // Update the assignmentTerms of this assignment that they are now created by a tempTable.
         assignment.getAssignmentTerms().setTable(tempTable);
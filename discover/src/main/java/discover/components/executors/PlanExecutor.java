@@ -4,14 +4,18 @@ import discover.model.execution.Assignment;
 import discover.model.execution.CandidateNetworkAssignment;
 import discover.model.execution.ExecutionPlan;
 import discover.model.execution.IntermediateResultAssignment;
+import discover.model.FreeTupleSet;
+import discover.model.JoiningNetworkOfTupleSets;
 import discover.model.TupleSet;
 import discover.DiscoverApplication;
 import discover.components.ExecutionPreProcessor;
 import discover.model.OverloadedTuple;
 import discover.model.OverloadedTupleList;
+import shared.database.config.PropertiesSingleton;
 import shared.database.model.graph.SchemaGraph;
-import shared.connectivity.thor.response.Table;
+import shared.util.Table;
 import shared.database.model.SQLDatabase;
+import shared.util.Pair;
 import shared.util.PrintingUtils;
 import shared.util.Timer;
 import shared.util.Timer.Type;
@@ -19,6 +23,14 @@ import shared.util.Timer.Type;
 import java.util.List;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 // Input: An execution Plan, a schemaGraph and a database.
 // Output: The results of the candidate networks are printed
@@ -37,9 +49,9 @@ public class PlanExecutor {
 
     private SchemaGraph schemaGraph; // The schemaGraph.
 
-    // The only modification applied in the Database created in the begging of
-    // the program will be the addition of Temp Tables containing then
-    // the intermediate results.
+    // The database of the query. The Temp Tables containing the intermediate
+    // results are kept by the session of the preProcessor and not added to the
+    // database, which is shared by all the queries.
     // At the end of the Executor all the Temp Tables will be dropped.
     private SQLDatabase modifiedDatabase;
 
@@ -51,6 +63,9 @@ public class PlanExecutor {
 
     int maxTuples; // The maximum number of tuples to be returned to the user.
 
+    // The number of assignments executed concurrently (1 executes the plan sequentially).
+    public static final int EXECUTION_WORKERS = PropertiesSingleton.getIntProperty("planExecutor.workers", 1);
+
     // Statistics.
     private double timeExecutingPlan;
 
@@ -92,61 +107,290 @@ public class PlanExecutor {
         timer.start();
 
         // Initialize the execution pre processor.
-        preProcessor = new ExecutionPreProcessor(tupleSets, this.modifiedDatabase);
+        preProcessor = new ExecutionPreProcessor(tupleSets);
         
+        // The assignments bind the keys of the tuple sets in their queries (see the
+        // InListConstraints of the JoinableFormats) instead of joining temp tables, so the
+        // tuple sets are not loaded in temp tables. The session
+        // only keeps the intermediate results.
         // System.out.println("EXECUTORS PRE PROCESSOR");
         // preProcessor.createTempTablesForTupleSets();
         // System.out.println("-----------------\n");
 
-        // Convert each assignment to an SQL query.
-        for (Assignment assignment : executionPlan.getAssignments()) {
+        // The results of every assignment, in the order of the plan (or of the ranking for top-k).
+        List<Assignment> assignments = executionPlan.getAssignments();
+        List<List<OverloadedTuple>> assignmentsResults;
+        if (DiscoverApplication.USE_TOP_K_EXECUTION && !containsIntermediateResults(assignments)) {
+            assignments = rankCandidateNetworks(assignments);
+            assignmentsResults = this.executeTopK(assignments);
+        }
+        else if (EXECUTION_WORKERS > 1 && assignments.size() > 1)
+            assignmentsResults = this.executeInParallel(assignments, executionPlan.getDependencies());
+        else
+            assignmentsResults = this.executeSequentially(assignments);
+
+        // Merge the results in the order of execution.
+        for (int index = 0; index < assignmentsResults.size(); index++) {
+            List<OverloadedTuple> rs = assignmentsResults.get(index);
+            if (rs != null && !rs.isEmpty()) {
+                OverloadedTupleList otl = new OverloadedTupleList(rs);
+                otl.setNetwork(assignments.get(index).toString());
+                this.orderedResults.add(otl);
+                this.results.addAll(rs);
+            }
+        }
+        
+        // Restore the changes done by the pre processor to the database.
+        // preProcessor.restoreChanges();
+        preProcessor.dropAllTempTables();
+        this.timeExecutingPlan = timer.stop();
+    }
 
-            // Debug prints
-            if (DiscoverApplication.DEBUG_PRINTS)
-                System.out.println("Executing assignment " + assignment.toAbbreviation() + "\n");
-            
-            // Execute the assignment.
+    // Executes the assignments one after the other. Stops at the first assignment
+    // that fails, returning the results of the assignments before it.
+    private List<List<OverloadedTuple>> executeSequentially(List<Assignment> assignments) {
+        List<List<OverloadedTuple>> assignmentsResults = new ArrayList<>();
+        for (Assignment assignment : assignments) {
             try {
-                Timer assignmentTimer = new Timer(Type.WALL_CLOCK_TIME);
-                assignmentTimer.start();
-
-                // Execute the Assignment with the appropriate AssignmentExecutor depending on its instance type.
-                if (assignment instanceof IntermediateResultAssignment) {
-                    // This assignment does not return anything, only modifies the database.
-                    IntermediateResultAssignmentExecutor.execute((IntermediateResultAssignment) assignment,
-                        this.preProcessor, this.schemaGraph, this.modifiedDatabase
-                    );
+                assignmentsResults.add(this.executeAssignment(assignment));
+            } 
+            catch (Exception e) {
+                e.printStackTrace();
+                break;
+            }
+        }
+        return assignmentsResults;
+    }
+
+    // Executes the assignments on a pool of workers, each one using its own connection.
+    // An assignment is submitted once all the intermediate results it uses are created.
+    // Like the sequential execution, the results of the assignments following (in the
+    // plan's order) the first one that failed are discarded.
+    private List<List<OverloadedTuple>> executeInParallel(List<Assignment> assignments, List<List<Integer>> dependencies) {
+        int assignmentsNum = assignments.size();
+
+        // Count the dependencies of each assignment and find the assignments depending on it.
+        int[] pendingDependencies = new int[assignmentsNum];
+        List<List<Integer>> dependents = new ArrayList<>();
+        for (int index = 0; index < assignmentsNum; index++)
+            dependents.add(new ArrayList<>());
+        for (int index = 0; index < assignmentsNum; index++) {
+            pendingDependencies[index] = dependencies.get(index).size();
+            for (Integer dependency : dependencies.get(index))
+                dependents.get(dependency).add(index);
+        }
+
+        List<List<OverloadedTuple>> assignmentsResults = new ArrayList<>(Collections.nCopies(assignmentsNum, null));
+        int firstFailed = assignmentsNum;  // The index of the first assignment that failed.
+
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(EXECUTION_WORKERS, assignmentsNum));
+        CompletionService<Pair<Integer, List<OverloadedTuple>>> completionService = new ExecutorCompletionService<>(pool);
+        try {
+            // Submit the assignments without dependencies.
+            int running = 0;
+            for (int index = 0; index < assignmentsNum; index++) {
+                if (pendingDependencies[index] == 0) {
+                    this.submitAssignment(completionService, assignments, index);
+                    running++;
+                }
+            }
+
+            // Collect the finished assignments and submit the ones they unblock.
+            while (running > 0) {
+                Pair<Integer, List<OverloadedTuple>> finished;
+                try {
+                    finished = completionService.take().get();
+                    running--;
+                }
+                catch (ExecutionException e) {
+                    running--;
+                    AssignmentExecutionException cause = (AssignmentExecutionException) e.getCause();
+                    cause.getCause().printStackTrace();
+                    firstFailed = Math.min(firstFailed, cause.index);
+                    continue;
                 }
-                else if (assignment instanceof CandidateNetworkAssignment) {
-                    // This assignment returns the results tuples of the execution.
-                    List<OverloadedTuple> rs = CandidateNetworkAssignmentExecutor.execute((CandidateNetworkAssignment) assignment,
-                        this.schemaGraph, this.modifiedDatabase
-                    );
-                    
-                    if (!rs.isEmpty()) {
-                        OverloadedTupleList otl = new OverloadedTupleList(rs);
-                        otl.setNetwork(assignment.toString());
-                        this.orderedResults.add(otl);
-                        this.results.addAll(rs);
+
+                int index = finished.getLeft();
+                assignmentsResults.set(index, finished.getRight());
+
+                // After a failure only the assignments preceding it are scheduled, the rest would be discarded.
+                for (Integer dependent : dependents.get(index)) {
+                    if (--pendingDependencies[dependent] == 0 && dependent < firstFailed) {
+                        this.submitAssignment(completionService, assignments, dependent);
+                        running++;
                     }
                 }
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            firstFailed = 0;
+        }
+        finally {
+            pool.shutdownNow();
+        }
 
-                assignment.executionTime = assignmentTimer.stop();
-            } 
+        return assignmentsResults.subList(0, firstFailed);
+    }
+
+    // Submits an assignment to the workers. Its result is paired with its index in the plan.
+    private void submitAssignment(CompletionService<Pair<Integer, List<OverloadedTuple>>> completionService,
+        List<Assignment> assignments, int index)
+    {
+        Assignment assignment = assignments.get(index);
+        completionService.submit(() -> {
+            try {
+                return new Pair<>(index, this.executeAssignment(assignment));
+            }
             catch (Exception e) {
-                e.printStackTrace();
-                break;
+                throw new AssignmentExecutionException(index, e);
             }
+        });
+    }
 
-            // Debug prints
-            if (DiscoverApplication.DEBUG_PRINTS)
-                System.out.println("---------" + "\n");
-        }   
-        
-        // Restore the changes done by the pre processor to the database.
-        // preProcessor.restoreChanges();
-        preProcessor.dropAllTempTables();
-        this.timeExecutingPlan = timer.stop();
+    // Executes the candidate networks in the order of their rank until maxTuples results
+    // are produced. Each network fetches at most the remaining number of results, so the
+    // large joins of the low ranked networks are usually never executed. The networks are
+    // executed in waves of EXECUTION_WORKERS, and the results of a wave are kept in rank order.
+    private List<List<OverloadedTuple>> executeTopK(List<Assignment> rankedAssignments) {
+        List<List<OverloadedTuple>> assignmentsResults = new ArrayList<>();
+        int remaining = this.maxTuples;
+        int waveSize = Math.max(1, EXECUTION_WORKERS);
+
+        ExecutorService pool = (waveSize > 1) ? Executors.newFixedThreadPool(waveSize) : null;
+        try {
+            for (int start = 0; start < rankedAssignments.size() && remaining > 0; start += waveSize) {
+                List<Assignment> wave = rankedAssignments.subList(start, Math.min(start + waveSize, rankedAssignments.size()));
+                final int limit = remaining;
+
+                // Submit the wave, or execute it here if there is a single worker.
+                List<Future<List<OverloadedTuple>>> futures = new ArrayList<>();
+                if (pool != null)
+                    for (Assignment assignment : wave)
+                        futures.add(pool.submit(() -> this.executeAssignment(assignment, limit)));
+
+                // Keep the results in rank order, up to the remaining number of results.
+                for (int index = 0; index < wave.size() && remaining > 0; index++) {
+                    List<OverloadedTuple> rs;
+                    try {
+                        rs = (pool != null) ? futures.get(index).get() : this.executeAssignment(wave.get(index), limit);
+                    }
+                    catch (ExecutionException e) {
+                        e.getCause().printStackTrace();
+                        return assignmentsResults;
+                    }
+                    catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return assignmentsResults;
+                    }
+                    catch (Exception e) {
+                        e.printStackTrace();
+                        return assignmentsResults;
+                    }
+
+                    if (rs.size() > remaining)
+                        rs = new ArrayList<>(rs.subList(0, remaining));
+                    remaining -= rs.size();
+                    assignmentsResults.add(rs);
+                }
+            }
+        }
+        finally {
+            if (pool != null)
+                pool.shutdownNow();
+        }
+
+        return assignmentsResults;
+    }
+
+    // Returns true if the plan creates intermediate results.
+    private static boolean containsIntermediateResults(List<Assignment> assignments) {
+        for (Assignment assignment : assignments)
+            if (assignment instanceof IntermediateResultAssignment)
+                return true;
+        return false;
+    }
+
+    // Ranks the candidate networks like DISCOVER does, the smaller networks first.
+    // Networks of the same size are ordered by their estimated cost and then by their order in the plan.
+    private static List<Assignment> rankCandidateNetworks(List<Assignment> assignments) {
+        List<Assignment> rankedAssignments = new ArrayList<>(assignments);
+        Collections.sort(rankedAssignments, Comparator
+            .comparingInt((Assignment assignment) -> getNetworkSize(assignment))
+            .thenComparingDouble(assignment -> estimateNetworkCost(assignment))
+        );
+        return rankedAssignments;
+    }
+
+    // Returns the size of the assignment's candidate network.
+    private static int getNetworkSize(Assignment assignment) {
+        if (assignment.getAssignmentTerms() instanceof JoiningNetworkOfTupleSets)
+            return ((JoiningNetworkOfTupleSets) assignment.getAssignmentTerms()).getSize();
+        return Integer.MAX_VALUE;
+    }
+
+    // Estimates the cost of joining a candidate network as the product of the sizes of its
+    // tuple sets. Free tuple sets contribute the number of rows of their table.
+    private static double estimateNetworkCost(Assignment assignment) {
+        if (!(assignment.getAssignmentTerms() instanceof JoiningNetworkOfTupleSets))
+            return Double.MAX_VALUE;
+
+        double cost = 1.0;
+        for (TupleSet tupleSet : ((JoiningNetworkOfTupleSets) assignment.getAssignmentTerms()).getTupleSets()) {
+            int size = (tupleSet instanceof FreeTupleSet) ? tupleSet.getTable().getRowsNum() : tupleSet.getSize();
+            cost *= Math.max(1, size);
+        }
+        return cost;
+    }
+
+    // Executes an assignment with the appropriate AssignmentExecutor depending on its instance type.
+    // Returns the results of a candidate network, or null for an intermediate result.
+    private List<OverloadedTuple> executeAssignment(Assignment assignment) throws Exception {
+        return this.executeAssignment(assignment, Integer.MAX_VALUE);
+    }
+
+    // Like the above but fetches at most limit results for a candidate network.
+    private List<OverloadedTuple> executeAssignment(Assignment assignment, int limit) throws Exception {
+        List<OverloadedTuple> rs = null;
+
+        // Debug prints
+        if (DiscoverApplication.DEBUG_PRINTS)
+            System.out.println("Executing assignment " + assignment.toAbbreviation() + "\n");
+
+        Timer assignmentTimer = new Timer(Type.WALL_CLOCK_TIME);
+        assignmentTimer.start();
+
+        if (assignment instanceof IntermediateResultAssignment) {
+            // This assignment does not return anything, only modifies the database.
+            IntermediateResultAssignmentExecutor.execute((IntermediateResultAssignment) assignment,
+                this.preProcessor, this.schemaGraph, this.modifiedDatabase
+            );
+        }
+        else if (assignment instanceof CandidateNetworkAssignment) {
+            // This assignment returns the results tuples of the execution.
+            rs = CandidateNetworkAssignmentExecutor.execute((CandidateNetworkAssignment) assignment,
+                this.schemaGraph, this.modifiedDatabase, limit
+            );
+        }
+
+        assignment.executionTime = assignmentTimer.stop();
+
+        // Debug prints
+        if (DiscoverApplication.DEBUG_PRINTS)
+            System.out.println("---------" + "\n");
+
+        return rs;
+    }
+
+    // Wraps the exception of an assignment executed by a worker, along with its index in the plan.
+    private static class AssignmentExecutionException extends Exception {
+        private static final long serialVersionUID = 1L;
+        private int index;
+
+        AssignmentExecutionException(int index, Exception cause) {
+            super(cause);
+            this.index = index;
+        }
     }
 
     // Print the statistics. Optional take an execution plan and print
@@ -1,6 +1,6 @@
 package discover.exceptions;
 
-import discover.components.ExecutionPreProcessor;
+import discover.components.TempTableSession;
 
 /**
  * This class is used to clean up before exiting,
@@ -13,9 +13,7 @@ public class ShutdownHook extends Thread {
      */
     public void run() {
         System.out.println("[INFO] Shutdown hook called. Dropping Tables....");
-        synchronized(ExecutionPreProcessor.class) {
-            ExecutionPreProcessor.dropAllTempTables();
-        }
+        TempTableSession.closeAll();
         System.out.println("[INFO] Tables Dropped");
     }
 }
\ No newline at end of file
@@ -0,0 +1,59 @@
+package discover.model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// The structure of a candidate network without its tuple sets. The tuple set of every
+// node is stored as its position in a list of tuple sets, so the template can be bound
+// to the tuple sets of another query that has the same tuple sets in the same positions.
+// A template keeps no references to tuple sets or tuples.
+public class CandidateNetworkTemplate {
+
+    private int[] tupleSets; // The position of every node's tuple set, in breadth first order.
+    private int[] parents;   // The index of every node's parent, in breadth first order (-1 for the root).
+
+    // Creates the template of a network whose tuple sets are contained in the list.
+    public CandidateNetworkTemplate(JoiningNetworkOfTupleSets network, List<TupleSet> tupleSets) {
+        Map<TupleSet, Integer> positions = new HashMap<>();
+        for (int position = 0; position < tupleSets.size(); position++)
+            positions.putIfAbsent(tupleSets.get(position), position);
+
+        // Traverse the tree breadth first, keeping the index of every node's parent.
+        List<Node> nodes = new ArrayList<>();
+        List<Integer> parentIndexes = new ArrayList<>();
+        nodes.add(network.getRoot());
+        parentIndexes.add(-1);
+        for (int index = 0; index < nodes.size(); index++) {
+            for (Node child : nodes.get(index).children) {
+                nodes.add(child);
+                parentIndexes.add(index);
+            }
+        }
+
+        this.tupleSets = new int[nodes.size()];
+        this.parents = new int[nodes.size()];
+        for (int index = 0; index < nodes.size(); index++) {
+            Integer position = positions.get(nodes.get(index).tupleSet);
+            if (position == null)
+                throw new IllegalArgumentException("The tuple sets do not contain " + nodes.get(index).getJoinableExpressionsAbbreviation());
+            this.tupleSets[index] = position;
+            this.parents[index] = parentIndexes.get(index);
+        }
+    }
+
+    // Creates the network of the template with the tuple sets of the list.
+    public JoiningNetworkOfTupleSets bind(List<TupleSet> tupleSets) {
+        Node[] nodes = new Node[this.tupleSets.length];
+        for (int index = 0; index < nodes.length; index++) {
+            Node parent = (this.parents[index] < 0) ? null : nodes[this.parents[index]];
+            nodes[index] = new Node(tupleSets.get(this.tupleSets[index]), parent);
+            if (parent != null)
+                parent.children.add(nodes[index]);
+        }
+
+        return new JoiningNetworkOfTupleSets(nodes[0]);
+    }
+
+}
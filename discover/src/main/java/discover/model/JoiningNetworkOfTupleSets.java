@@ -5,6 +5,7 @@ import java.util.ArrayList;
 import java.util.Map;
 import java.util.HashMap;
 import java.util.Set;
+import java.util.Collections;
 
 import discover.model.execution.IntermediateResultAssignment;
 import shared.database.model.SQLColumn;
@@ -63,6 +64,9 @@ class IntermediateResultNode extends Node {
             this.children.add(child);
             child.parent = this;
         }
+
+        // The subtrees of this node and its new ancestors changed.
+        this.invalidateCanonicalForm();
     }
 
     // Return Joinable Expression's Abbreviation. In this case Joinable Pair's
@@ -110,6 +114,7 @@ public class JoiningNetworkOfTupleSets implements JoinableExpression {
     private int freeTupleSetLeaves; // The number of free tuple sets as leaves in the network.
     private int totalLeaves; // The total number of leaves in the network.
     private boolean violatesPruningCondition; // Indicates whether a JNTS violates the pruning condition.
+    private boolean containsIntermediateResults; // Indicates whether the network was rewritten using intermediate results.
 
     // Maps every keyword contained in the network with its number of occurrences.
     private Map<String, Integer> keywordOccurrences;
@@ -124,6 +129,7 @@ public class JoiningNetworkOfTupleSets implements JoinableExpression {
         this.freeTupleSetLeaves = src.getFreeTupleSetLeaves();
         this.totalLeaves = src.getTotalLeaves();
         this.violatesPruningCondition = src.getViolatesPruningCondition();
+        this.containsIntermediateResults = src.containsIntermediateResults;
 
         this.keywordOccurrences = new HashMap<String, Integer>();
         copyMap(src.getKeywordOccurrences(), this.keywordOccurrences);
@@ -139,6 +145,7 @@ public class JoiningNetworkOfTupleSets implements JoinableExpression {
         this.freeTupleSetLeaves = 0;
         this.totalLeaves = 1;
         this.violatesPruningCondition = false;
+        this.containsIntermediateResults = false;
 
         // Add the keywords of the tuple set.
         // A single tuple set does not contain duplicate keywords so we
@@ -149,6 +156,42 @@ public class JoiningNetworkOfTupleSets implements JoinableExpression {
         }
     }
 
+    // Creates a network from a tree of tuple sets, computing its variables from the tree.
+    // Used for trees of networks that are known to be valid, like the candidate networks
+    // bound from a CandidateNetworkTemplate, so the pruning condition is not checked.
+    JoiningNetworkOfTupleSets(Node root) {
+        this.root = root;
+        this.size = -1;
+        this.networkTupleSets = new HashSet<TupleSet>();
+        this.freeTupleSetLeaves = 0;
+        this.totalLeaves = 0;
+        this.violatesPruningCondition = false;
+        this.containsIntermediateResults = false;
+        this.keywordOccurrences = new HashMap<String, Integer>();
+
+        Queue<Node> queue = new LinkedList<Node>(); // For the breadth first traversal.
+        queue.add(root);
+        while (!queue.isEmpty()) {
+            Node node = queue.remove();
+            this.size++;
+            this.networkTupleSets.add(node.tupleSet);
+            for (String keyword : node.tupleSet.getKeywords()) {
+                this.keywordOccurrences.put(keyword, this.keywordOccurrences.getOrDefault(keyword, 0) + 1);
+            }
+
+            // The leaves are the nodes without children, as counted by updateVariables.
+            if (node.isLeaf()) {
+                this.totalLeaves++;
+                if (node.tupleSet instanceof FreeTupleSet)
+                    this.freeTupleSetLeaves++;
+            }
+
+            for (Node child : node.children) {
+                queue.add(child);
+            }
+        }
+    }
+
     // Getters and Setters.
     public void setRoot(Node root) {
         this.root = root;
@@ -382,17 +425,24 @@ public class JoiningNetworkOfTupleSets implements JoinableExpression {
             return null;
 
         Node copyNode = new Node(node.tupleSet, parent);
+        boolean subtreeChanged = false;
         for (Node child : node.children) {
-            copyNode.children
-                    .add(copyNetwork(tupleSet, adjacent, currentDepth + 1, depth, child, copyNode, expandedNode));
+            Node copyChild = copyNetwork(tupleSet, adjacent, currentDepth + 1, depth, child, copyNode, expandedNode);
+            subtreeChanged |= copyChild.canonicalForm != child.canonicalForm;
+            copyNode.children.add(copyChild);
         }
 
         // Attach the adjacent tuple set Ri^K to its appropriate neighbor.
         if ((copyNode.tupleSet.equals(tupleSet) && (currentDepth == depth))) {
             copyNode.children.add(new Node(adjacent, copyNode));
             expandedNode.shallowCopy(copyNode); // Save a reference to return to the caller function.
+            subtreeChanged = true;
         }
 
+        // Reuse the canonical form of an unchanged subtree, so that only
+        // the path from the root to the expanded node is encoded again.
+        copyNode.canonicalForm = subtreeChanged ? null : node.canonicalForm;
+
         return copyNode;
     }
 
@@ -483,6 +533,7 @@ public class JoiningNetworkOfTupleSets implements JoinableExpression {
                 // Merge Node and childContainingExpression to intermediateNode.
                 intermediateNode.updateIntermediateNode(node, childContainingExpression, this);
                 this.size--;
+                this.containsIntermediateResults = true;
                 break; // Re-writing tree completed.
             }
         }
@@ -507,17 +558,44 @@ public class JoiningNetworkOfTupleSets implements JoinableExpression {
         if (this.size != jnts.size)
             return false;
 
-        // Check the special case where jnts and this have only roots.
-        if (this.size == 0)
-            return this.getRootsJoinableExpression().equals(jnts.getRootsJoinableExpression());
+        // Networks rewritten using intermediate results are compared node by node.
+        if (this.containsIntermediateResults || jnts.containsIntermediateResults) {
+            // Check the special case where jnts and this have only roots.
+            if (this.size == 0)
+                return this.getRootsJoinableExpression().equals(jnts.getRootsJoinableExpression());
+
+            // If not false is returned then they are the same.
+            return this.parallelBfsEquals(jnts);
+        }
+
+        // Isomorphic networks have the same canonical form.
+        return this.getCanonicalForm().equals(jnts.getCanonicalForm());
+    }
+
+    // Returns the canonical form of the network: a string that is the same for
+    // all the networks with the same tuple sets joined in the same shape, no matter
+    // the order of the children. Every node is encoded as its tuple set's label
+    // followed by the sorted encodings of its children in parentheses. The encodings
+    // are cached in the nodes, so expanding a network only encodes the changed path.
+    public String getCanonicalForm() {
+        return canonicalFormOf(this.root);
+    }
+
+    // Returns the canonical form of the subtree rooted at the node.
+    private static String canonicalFormOf(Node node) {
+        if (node.canonicalForm != null)
+            return node.canonicalForm;
 
-        // System.out.println("----\n" +
-        // "Equals for this:\n" + this +
-        // "\nAnd that:\n" + jnts + "\n-----"
-        // );
+        List<String> childrenForms = new ArrayList<>(node.children.size());
+        for (Node child : node.children)
+            childrenForms.add(canonicalFormOf(child));
+        Collections.sort(childrenForms);
 
-        // If not false is returned then they are the same.
-        return this.parallelBfsEquals(jnts);
+        StringBuilder form = new StringBuilder(node.tupleSet.getCanonicalLabel()).append('(');
+        for (String childForm : childrenForms)
+            form.append(childForm);
+        node.canonicalForm = form.append(')').toString();
+        return node.canonicalForm;
     }
 
     // Traverse this and jnts Trees parallel in a BFS way.
@@ -644,7 +722,9 @@ public class JoiningNetworkOfTupleSets implements JoinableExpression {
     public int hashCode() {
         int hash = 1;
         hash = 31 * hash + this.size;
-        int treeHashCode = recTreeHashCode(this.root);
+        int treeHashCode = (this.containsIntermediateResults)
+            ? recTreeHashCode(this.root)
+            : this.getCanonicalForm().hashCode();
         return hash * 31 + treeHashCode;
     }
 
@@ -10,6 +10,7 @@ public class Node {
     TupleSet tupleSet;
     Node parent;
     List<Node> children;
+    String canonicalForm;  // The canonical encoding of the subtree rooted at the node, or null if not computed yet.
 
     public Node() {
         this.tupleSet = null;
@@ -55,6 +56,7 @@ public class Node {
         this.tupleSet = srcNode.tupleSet;
         this.parent = srcNode.parent;
         this.children = srcNode.children;
+        this.canonicalForm = srcNode.canonicalForm;
     }
 
     // Returns a node's joinable expression. In this case it is a tuple set.
@@ -109,4 +111,12 @@ public class Node {
         return this.tupleSet;
     }
 
+    // Forgets the canonical encodings of the node and its ancestors, after the subtree
+    // rooted at the node was modified. Every function that changes the children or the
+    // parent of a node in place calls it (the copies of expand build their own encodings).
+    void invalidateCanonicalForm() {
+        for (Node node = this; node != null; node = node.parent)
+            node.canonicalForm = null;
+    }
+
 }
\ No newline at end of file
@@ -7,6 +7,7 @@ import discover.model.execution.IntermediateResultAssignment;
 import shared.util.PrintingUtils;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -266,12 +267,24 @@ public class TupleSet implements JoinableExpression {
         int keywordsHash = 0;
         hash = 31 * hash + (this.table == null ? 0 : this.table.hashCode());
         for (String keyword: this.keywords) {
-             keywordsHash =  keyword.hashCode();
+             keywordsHash += keyword.hashCode();  // Independent of the order of the keywords, like equals.
         }
-        hash = 31 * keywordsHash;
+        hash = 31 * hash + keywordsHash;
         return  hash;
     }
 
+    // Returns a label that is the same for equal tuple sets: the table's name
+    // followed by the sorted keywords, each prefixed with its length.
+    public String getCanonicalLabel() {
+        List<String> sortedKeywords = new ArrayList<>(this.keywords);
+        Collections.sort(sortedKeywords);
+
+        StringBuilder label = new StringBuilder(this.table.getName()).append('^');
+        for (String keyword : sortedKeywords)
+            label.append(keyword.length()).append(':').append(keyword);
+        return label.toString();
+    }
+
     @Override
     public boolean equals(Object obj) {
         if (obj == null) return false;
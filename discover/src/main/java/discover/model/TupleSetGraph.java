@@ -44,6 +44,11 @@ public class TupleSetGraph extends Graph<TupleSet, Graph.NoLabel> {
         }        
     }
 
+    // Returns the tuple sets of the graph, in the order they were given.
+    public List<TupleSet> getTupleSets() {
+        return this.tupleSets;
+    }
+
     // Returns true if a directed edge between two tuple sets exists.
     public boolean getDirectedConnection(TupleSet from, TupleSet to) {
         return super.areDirConnected(from, to);
@@ -50,6 +50,25 @@ public class ExecutionPlan {
         return assignmentsList;
     }
 
+    // Returns the dependency DAG of the plan. The list at index i holds the indexes of
+    // the intermediate result assignments that the assignment i uses, so the assignment
+    // can only be executed after them. Intermediate results always precede the
+    // assignments that use them, hence the graph is acyclic.
+    public List<List<Integer>> getDependencies() {
+        List<List<Integer>> dependencies = new ArrayList<>();
+        for (int index = 0; index < this.assignments.size(); index++) {
+            List<Integer> assignmentDependencies = new ArrayList<>();
+            for (int prevIndex = 0; prevIndex < index; prevIndex++) {
+                Assignment prevAssignment = this.assignments.get(prevIndex);
+                if (prevAssignment instanceof IntermediateResultAssignment &&
+                    this.assignments.get(index).containsIntermediateResult((IntermediateResultAssignment) prevAssignment))
+                    assignmentDependencies.add(prevIndex);
+            }
+            dependencies.add(assignmentDependencies);
+        }
+        return dependencies;
+    }
+
     @Override
     public String toString() {
         String str = new String();
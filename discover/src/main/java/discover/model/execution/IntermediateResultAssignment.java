@@ -1,5 +1,7 @@
 package discover.model.execution;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 import discover.model.JoinableExpression;
 
 // A class extending the Abstract Assignment class. This 
@@ -7,17 +9,16 @@ import discover.model.JoinableExpression;
 // Intermediate Results produced but the CNGenerator.
 public class IntermediateResultAssignment extends Assignment {
 
-    private static int nextId = 0; // A static int holding the number of CNs generated.
+    private static final AtomicInteger nextId = new AtomicInteger(0); // The number of assignments generated (by all the queries).
     private static String intermediatePrefix = "T"; // A prefix for printing reasons.    
 
     public IntermediateResultAssignment(JoinableExpression assignmentTerms) {
-        super(IntermediateResultAssignment.nextId, intermediatePrefix, assignmentTerms);
-        IntermediateResultAssignment.incrementNextId();
+        super(IntermediateResultAssignment.nextId.getAndIncrement(), intermediatePrefix, assignmentTerms);
     }
 
     // A static method Incrementing the static ID.
     public static void incrementNextId() {
-        IntermediateResultAssignment.nextId++;
+        IntermediateResultAssignment.nextId.incrementAndGet();
     }   
 
 }
\ No newline at end of file
@@ -13,6 +13,7 @@ import discover.DiscoverApplication;
 import discover.components.Joiner;
 import shared.database.connectivity.DataSourceFactory;
 import shared.database.connectivity.DatabaseUtil;
+import shared.database.model.InListConstraint;
 import shared.database.model.SQLColumn;
 import shared.database.model.SQLQueries;
 import shared.database.model.SQLTable;
@@ -39,7 +40,7 @@ public class JoinableFormat {
     /* Optional Fields */
     // Depending on the objects that fill the JoinableFormat, create a list of strings that
     // stores IN LIST SQL Constraints. (Happens for TupleSets)
-    private List<String> inListConstraints;
+    private List<InListConstraint> inListConstraints;
     private List<String> valueConstraints;
 
     // I know that its hard coded bu there is no time and these are too complicated to change.
@@ -60,7 +61,7 @@ public class JoinableFormat {
     public List<Pair<SQLTable, String>> getTablesToJoin() { return tablesToJoin;}    
     public List<Pair<SQLColumn, String>> getColumnsFromTables() { return columnsFromTables; }        
     public List<JoinEquation> getJoinEquations() { return joinEquations; }
-    public List<String> getInListConstraints() { return inListConstraints; }  
+    public List<InListConstraint> getInListConstraints() { return inListConstraints; }  
     public List<String> getValueConstraints() { return valueConstraints; }  
       
 
@@ -215,7 +216,7 @@ public class JoinableFormat {
         return lastPair;
     }
 
-    // Fill the List<String> inListConstraints storing IN LIST SQLConstraints for the 
+    // Fill the List<InListConstraint> inListConstraints storing IN LIST SQLConstraints for the 
     // SQLTables and their tuples. Because we have to join TupleSets we need to pick
     // specific tuples from the SQLTables connected with them. The parameter 
     // tupleSets indicate how to fill the List of inListConstraints.
@@ -225,75 +226,44 @@ public class JoinableFormat {
             // If a tupleSet's table is created by the pre processor as a temp Table then dont create
             // an in list Constraint.
             if (pair.getLeft().getTable() instanceof SQLTempTable) continue;
-            String inListConstraint = this.getInListConstraintForIdsOfTupleSet(pair.getLeft(), pair.getRight());
-            if (inListConstraint != null && !inListConstraint.isEmpty())
+            InListConstraint inListConstraint = this.getInListConstraintForIdsOfTupleSet(pair.getLeft(), pair.getRight());
+            if (inListConstraint != null && inListConstraint.size() > 0)
                 this.inListConstraints.add(inListConstraint);
         }
     }
 
-    // Returns an IN LIST SQLConstraint in String format, containing primaryKey values of the tuples
+    // Returns an IN LIST SQLConstraint containing primaryKey values of the tuples
     // inside the parameter tupleSet. This IN LIST SQLConstraint is formated like this :
     //      [table_identifier].[primaryKeyColumn] IN LIST ([ColumnValue], ..., [ColumnValue])
+    // or with a row of columns if the primary key has more than one column.
     // Remember that each tupleSet is connected with an SQLTable so the primaryKeys
     // and the identifier is borrowed by that SQLTable.
-    protected String getInListConstraintForIdsOfTupleSet(TupleSet tupleSet, String tableAlias) {
+    protected InListConstraint getInListConstraintForIdsOfTupleSet(TupleSet tupleSet, String tableAlias) {
         // Dont process FreeTupleSets, they dont have tuples.
         if (tupleSet instanceof FreeTupleSet) return null;       
 
         // Get the primary key column of the table connecting with this tupleSet.
         Set<SQLColumn> primaryKey = tupleSet.getTable().getPrimaryKey();        
 
-        // Get the TupleSets tuples and extract the value of the PK columns.
-        String columnsWithAliases = new String();
-        String columnValues = new String();
-
-        if (primaryKey.size() > 1)  {
-            // Create columns with aliases
-            columnsWithAliases += "(";
-            for (SQLColumn pkColumn: primaryKey)
-                columnsWithAliases += tableAlias + "." + pkColumn.getName() + ", ";
-            columnsWithAliases = columnsWithAliases.substring(0, columnsWithAliases.length() - 2) + ")";
-
-            // Create column values
-            for (SQLTuple tuple: tupleSet.getTuples()) {
-
-                // Create (pkColVal1, pkColVal2, ..), (pkColVal1, pkColVal2, ..), ..
-                columnValues += "(";
-                for (SQLColumn pkColumn: primaryKey) {
-                    SQLValue value = tuple.getValueOfColumn(pkColumn);
-                    if (pkColumn.getType().isArithmetic())
-                        columnValues += value.toString() + ", ";
-                    else 
-                        columnValues += "'" + DatabaseUtil.escapeStrValue(value.toString()) + "', ";
-                }
-                columnValues = columnValues.substring(0, columnValues.length() - 2) + "), ";
-            }
+        // Create the columns with aliases.
+        List<String> columnsWithAliases = new ArrayList<>();
+        for (SQLColumn pkColumn: primaryKey)
+            columnsWithAliases.add(tableAlias + "." + pkColumn.getName());
 
-            // Remove the last ", ".
-            columnValues = columnValues.substring(0, columnValues.length() - 2);
-        }
-        else {
-            SQLColumn pkc = primaryKey.iterator().next();
-            columnsWithAliases += tableAlias + "." + pkc.getName();
-
-            // Create the columnValues
-            for (SQLTuple tuple: tupleSet.getTuples()) {
-                SQLValue value = tuple.getValueOfColumn(pkc);
-                if (pkc.getType().isArithmetic())
-                    columnValues += value.toString() + ", ";
-                else 
-                    columnValues += "'" + DatabaseUtil.escapeStrValue(value.toString()) + "', ";
+        // Get the TupleSets tuples and extract the value of the PK columns.
+        List<Object[]> columnValues = new ArrayList<>();
+        for (SQLTuple tuple: tupleSet.getTuples()) {
+            Object[] row = new Object[primaryKey.size()];
+            int index = 0;
+            for (SQLColumn pkColumn: primaryKey) {
+                SQLValue value = tuple.getValueOfColumn(pkColumn);
+                row[index++] = (value == null) ? null : value.getValue();
             }
-
-            // Remove the last ", ".
-            columnValues = columnValues.substring(0, columnValues.length()-2);
+            columnValues.add(row);
         }
 
         // Create the assignment
-        return String.format(
-            SQLQueries.IN_LIST_CONSTRAINT,
-            columnsWithAliases, columnValues
-        );
+        return new InListConstraint(columnsWithAliases, columnValues);
     }   
     
     
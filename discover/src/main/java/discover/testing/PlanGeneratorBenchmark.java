@@ -0,0 +1,128 @@
+package discover.testing;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import discover.components.CandidateNetworksGenerator;
+import discover.components.MasterIndex;
+import discover.components.Parser;
+import discover.components.PlanGenerator;
+import discover.components.TupleSetPostProcessor;
+import discover.components.executors.PlanExecutor;
+import discover.model.CandidateNetworkTemplate;
+import discover.model.FreeTupleSet;
+import discover.model.JoiningNetworkOfTupleSets;
+import discover.model.TupleSet;
+import discover.model.TupleSetGraph;
+import discover.model.execution.Assignment;
+import discover.model.execution.ExecutionPlan;
+import discover.model.execution.IntermediateResultAssignment;
+import shared.database.config.PropertiesSingleton;
+import shared.database.connectivity.DataSourceFactory;
+import shared.database.model.DatabaseType;
+import shared.database.model.SQLDatabase;
+import shared.database.model.graph.SchemaGraph;
+import shared.util.Stopwords;
+import shared.util.Timer;
+
+// Compares the execution plans of the PlanGenerator on the queries of the query file:
+// the plan without intermediate results (generateExecutionPlan_CN_ONLY), the greedy plan
+// (generateExecutionPlan) and the cost based plan (generateCostBasedExecutionPlan).
+// Every plan is generated from its own copy of the candidate networks and executed, and a
+// line with the times of the plan is printed for every query and plan.
+public class PlanGeneratorBenchmark {
+
+    private static final String QUERY_FILE = "./qqc";
+    private static final int MAX_NETWORK_SIZE = 3;
+    private static final int MAX_RESULTS = 10;
+    private static final String[] PLANS = { "CN_ONLY", "GREEDY", "COST_BASED" };
+
+    public static void main(String[] args) {
+        PropertiesSingleton.loadPropertiesFile("app");
+        List<String> queries = TestingMain.getQueryList((args.length > 0) ? args[0] : QUERY_FILE);
+        TestingMain.readAndStoreDatabases(new String[]{"mysql.IMDB", "mysql.YELP", "mysql.MAS"});
+
+        System.out.println("query;plan;candidate networks;intermediate results;assignments;plan time;execution time;results");
+        for (String line : queries) {
+            String query = line.split(";")[0];
+            String schemaName = line.split(";")[1];
+            try {
+                benchmarkQuery(query, schemaName);
+            }
+            catch (Exception e) {
+                System.out.println("[ERROR] Exception occurred while running query: " + query);
+                e.printStackTrace();
+            }
+        }
+    }
+
+    // Generates the candidate networks of a query and runs every plan on them.
+    private static void benchmarkQuery(String query, String schemaName) throws Exception {
+        String name = schemaName.split("\\.")[1];
+        String type = schemaName.split("\\.")[0];
+        DataSourceFactory.loadConnectionProperties(name, DatabaseType.getTypeFromString(type));
+        SQLDatabase database = TestingMain.storedDatabases.get(schemaName).getLeft();
+        SchemaGraph schemaGraph = TestingMain.storedDatabases.get(schemaName).getRight();
+
+        // Parse the query into keywords.
+        List<String> keywords = Parser.whitespaceTokenizer(query);
+        keywords.removeIf(k -> ( Stopwords.isStopword(k) ));
+
+        // Create the tuple sets and the candidate networks.
+        List<TupleSet> basicTupleSets = new MasterIndex(keywords, database).generateBasicTupleSets();
+        List<TupleSet> keywordSubsetTupleSets = new TupleSetPostProcessor(keywords, basicTupleSets).generateKeywordSubsetsTupleSets();
+
+        List<TupleSet> freeAndNonFreeTupleSets = new ArrayList<TupleSet>();
+        freeAndNonFreeTupleSets.addAll(keywordSubsetTupleSets);
+        freeAndNonFreeTupleSets.addAll(FreeTupleSet.getFreeTupleSets(database.getTables()));
+        TupleSetGraph tupleSetGraph = new TupleSetGraph();
+        tupleSetGraph.fill(freeAndNonFreeTupleSets, schemaGraph);
+
+        CandidateNetworksGenerator candidateNetworksGenerator = new CandidateNetworksGenerator(
+            keywordSubsetTupleSets, tupleSetGraph, keywords, MAX_NETWORK_SIZE
+        );
+        candidateNetworksGenerator.generateCandidateNetworks();
+
+        // The plan generator rewrites the networks, so every plan gets its own copy.
+        List<CandidateNetworkTemplate> templates = new ArrayList<>();
+        for (JoiningNetworkOfTupleSets jnts : candidateNetworksGenerator.getCandidateNetworks())
+            templates.add(new CandidateNetworkTemplate(jnts, freeAndNonFreeTupleSets));
+
+        for (String plan : PLANS) {
+            List<JoiningNetworkOfTupleSets> candidateNetworks = new ArrayList<>();
+            for (CandidateNetworkTemplate template : templates)
+                candidateNetworks.add(template.bind(freeAndNonFreeTupleSets));
+
+            // Generate the plan.
+            Timer timer = new Timer(Timer.Type.WALL_CLOCK_TIME);
+            timer.start();
+            PlanGenerator planGenerator = new PlanGenerator();
+            ExecutionPlan executionPlan;
+            if (plan.equals("CN_ONLY"))
+                executionPlan = planGenerator.generateExecutionPlan_CN_ONLY(candidateNetworks);
+            else if (plan.equals("GREEDY"))
+                executionPlan = planGenerator.generateExecutionPlan(candidateNetworks);
+            else
+                executionPlan = planGenerator.generateCostBasedExecutionPlan(candidateNetworks, schemaGraph);
+            double planTime = timer.stop();
+
+            int intermediateResults = 0;
+            for (Assignment assignment : executionPlan.getAssignments())
+                if (assignment instanceof IntermediateResultAssignment)
+                    intermediateResults++;
+
+            // Execute the plan.
+            timer.start();
+            PlanExecutor planExecutor = new PlanExecutor(schemaGraph, database, MAX_RESULTS);
+            planExecutor.execute(executionPlan, keywordSubsetTupleSets);
+            double executionTime = timer.stop();
+
+            System.out.println(
+                query + ";" + plan + ";" + templates.size() + ";" + intermediateResults + ";" +
+                executionPlan.getAssignments().size() + ";" + planTime + ";" + executionTime + ";" +
+                planExecutor.getAllResults().size()
+            );
+        }
+    }
+
+}
@@ -14,10 +14,10 @@ import discoverIR.model.OverloadedTuple;
 import discoverIR.model.Parameters;
 
 import shared.database.model.graph.SchemaGraph;
+import shared.database.config.PropertiesSingleton;
 import shared.database.connectivity.DataSourceFactory;
-import shared.database.connectivity.DatabaseInfo;
+import shared.database.model.DatabaseType;
 import shared.database.model.SQLDatabase;
-import shared.database.connectivity.DatabaseConfigurations;
 import shared.util.Pair;
 import shared.util.Stopwords;
 import shared.util.Timer;
@@ -26,26 +26,30 @@ import shared.connectivity.thor.input.InputHandler;
 import shared.connectivity.thor.response.Component;
 import shared.connectivity.thor.response.GeneralArchitecture;
 import shared.connectivity.thor.response.Response;
+import shared.connectivity.thor.server.QueryHandler;
+import shared.connectivity.thor.server.QueryServer;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 
-public class DiscoverIRApplication {
+public class DiscoverIRApplication implements QueryHandler {
 
     // Parameters
     String query;
     String schemaName;
-    public static Parameters parameters = new Parameters.ParametersBuilder()
+    DatabaseType databaseType;
+    Parameters parameters = new Parameters.ParametersBuilder()
         .setAndSemantics(true)
         .setPrintResultsOrderedByTable(false)
         .setMaxNetworksSize(3)
-        .setExecutionEngineAlgorithm(ExecutionEngineAlgorithms.Naive)
+        .setExecutionEngineAlgorithm(EXECUTION_ENGINE_ALGORITHM)
         .build();
 
-    // Database Variables
-    private HashMap<String, Pair<SQLDatabase, SchemaGraph>> storedDatabases = new HashMap<>();
+    // Database Variables (the stored databases are shared by the workers of the server)
+    private static final HashMap<String, Pair<SQLDatabase, SchemaGraph>> storedDatabases = new HashMap<>();
     SQLDatabase database;
     SchemaGraph schemaGraph;
 
@@ -57,13 +61,34 @@ public class DiscoverIRApplication {
 
     // Static variables
     public static final Boolean DEBUG_PRINTS = false;
+    public static final ExecutionEngineAlgorithms EXECUTION_ENGINE_ALGORITHM = ExecutionEngineAlgorithms.Naive;
+    public static Boolean USE_BULK_LOADING = false;  // Fill the temp tables with COPY / LOAD DATA / batched inserts instead of INSERT queries of 50 rows.
 
     public static void main(String[] args) {
+        // Fill the configurations using the "app.properties" file
+        PropertiesSingleton.loadPropertiesFile("app");
+
+        // Enable the optimizations turned on in the configurations.
+        USE_BULK_LOADING = PropertiesSingleton.getBooleanProperty("optimizations.bulkLoading", USE_BULK_LOADING);
+
+        // Answer the queries of many clients when started with '--server'.
+        if (QueryServer.isRequested(args)) {
+            try {
+                QueryServer server = QueryServer.fromProperties(DiscoverIRApplication::new);
+                DataSourceFactory.setMaxConnections(server.getWorkers() * connectionsPerQuery());
+                server.serve();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            return;
+        }
+
         // Create an instance of the DiscoverIrApplication
+        DataSourceFactory.setMaxConnections(connectionsPerQuery());
         DiscoverIRApplication discoverIrApp = new DiscoverIRApplication();
 
         // Read and store all the databases
-        // discoverIrApp.readAndStoreDatabases(new String[]{"IMDB", "YELP", "MAS"});
+        // discoverIrApp.readAndStoreDatabases(new String[]{"mysql.IMDB", "mysql.YELP", "mysql.MAS"});
 
         // Instantiate Thor's input Handler
         InputHandler inputHandler = new InputHandler();
@@ -79,8 +104,9 @@ public class DiscoverIRApplication {
 
             // Read the parameters needed for the execution from the stdin.
             discoverIrApp.query = inputHandler.getQuery();
-            discoverIrApp.schemaName = inputHandler.getSchemaName();
-            discoverIrApp.parameters.maxTuples = inputHandler.getResultsNumber();
+            discoverIrApp.schemaName = inputHandler.getDatabaseName();
+            discoverIrApp.databaseType = inputHandler.getDatabaseType();
+            discoverIrApp.parameters.maxTuples = inputHandler.getResultsPerInterpretation();
             if (inputHandler.shutDownSystem())
                 break;
 
@@ -92,17 +118,7 @@ public class DiscoverIRApplication {
             Component executor = new Component("Executor");
 
             try {
-                // Create Database and Schema Graph automatically
-                discoverIrApp.getDatabaseAndSchemaGraph();
-
-                // Parse query and create the TupleSets
-                discoverIrApp.parseQueryAndCreateTupleSets(timer, irEngine, genArch);
-
-                // Create candidate networks
-                discoverIrApp.generateCandidateNetworks(timer, cnGenerator, genArch);
-
-                // Execute the candidate networks
-                discoverIrApp.executeCandidateNetworks(timer, executor, genArch);
+                discoverIrApp.executeQuery(timer, genArch, irEngine, cnGenerator, executor);
             }
             catch (Exception e) {
                 System.err.println("[ERR] Exception ocurred while executing : " + discoverIrApp.query);
@@ -132,6 +148,63 @@ public class DiscoverIRApplication {
         }
     }
 
+
+    // Returns the number of connections a query may hold at the same time:
+    // one for every worker of the IREngine and one for the thread of the query.
+    private static int connectionsPerQuery() {
+        return IREngine.INDEX_WORKERS + 1;
+    }
+
+    /**
+     * Answers a query of the {@link QueryServer} and returns the response for THOR.
+     */
+    @Override
+    public Response<?> answer(InputHandler request) throws Exception {
+        this.resetVars();
+        this.query = request.getQuery();
+        this.schemaName = request.getDatabaseName();
+        this.databaseType = request.getDatabaseType();
+        this.parameters.maxTuples = request.getResultsPerInterpretation();
+
+        // The components of discoverIR displayed in THOR.
+        Timer timer = new Timer(Type.WALL_CLOCK_TIME);
+        GeneralArchitecture genArch = new GeneralArchitecture();
+        Component irEngine = new Component("IR Engine");
+        Component cnGenerator = new Component("Network Generator");
+        Component executor = new Component("Executor");
+
+        this.executeQuery(timer, genArch, irEngine, cnGenerator, executor);
+
+        // Create the architecture of the system.
+        irEngine.connectWith(cnGenerator, "Tuple sets");
+        cnGenerator.connectWith(executor, "Candidate networks");
+
+        return new Response<OverloadedTuple>(
+            "discoverir",
+            "DiscoverIR",
+            genArch,
+            Arrays.asList(irEngine, cnGenerator, executor),
+            this.finalResults
+        );
+    }
+
+    /**
+     * Runs all the components of discoverIR for the current query.
+     */
+    void executeQuery(Timer timer, GeneralArchitecture genArch, Component irEngine, Component cnGenerator, Component executor) {
+        // Create Database and Schema Graph automatically
+        this.getDatabaseAndSchemaGraph();
+
+        // Parse query and create the TupleSets
+        this.parseQueryAndCreateTupleSets(timer, irEngine, genArch);
+
+        // Create candidate networks
+        this.generateCandidateNetworks(timer, cnGenerator, genArch);
+
+        // Execute the candidate networks
+        this.executeCandidateNetworks(timer, executor, genArch);
+    }
+
     /**
      * Reads all databases and creates a database object and a schema object for
      * each database. Then stores them for later usage
@@ -139,21 +212,21 @@ public class DiscoverIRApplication {
      * @param databases
      */
     public void readAndStoreDatabases(String[] databases) {
-        this.storedDatabases = new HashMap<>();
+        storedDatabases.clear();
 
         for (String dbName: databases) {
-            // Use tha database we got from the input
-            useDatabase(dbName);
+            String name = dbName.split("\\.")[1];
+            String type = dbName.split("\\.")[0];
 
             // Automatically get the info of database.
-            SQLDatabase database = DatabaseInfo.getDatabaseObject(dbName);
+            SQLDatabase database = SQLDatabase.InstantiateDatabase(name, DatabaseType.getTypeFromString(type));
 
             // Create PK-FK Relationship Graph.
             SchemaGraph schemaGraph = new SchemaGraph();
             schemaGraph.fillDirected(database.getTables(), database.getFKConstrains());
 
             // Store the db.
-            this.storedDatabases.put(dbName, new Pair<>(database, schemaGraph));
+            storedDatabases.put(name, new Pair<>(database, schemaGraph));
         }
     }
 
@@ -161,28 +234,34 @@ public class DiscoverIRApplication {
      * Fills the Database and the Schema Graph variables
      */
     void getDatabaseAndSchemaGraph() {
-        // If we have stored the database then dont read it again.
-        // Else read the db and store it.
-        if (this.storedDatabases != null && this.storedDatabases.containsKey(schemaName)) {
-            Pair<SQLDatabase, SchemaGraph> dbPair = this.storedDatabases.get(schemaName);
-            useDatabase(schemaName);
+        // The workers of the server must not read the same database twice.
+        synchronized (storedDatabases) {
+            this.getOrStoreDatabaseAndSchemaGraph();
+        }
+    }
+
+    // If we have stored the database then dont read it again.
+    // Else read the db and store it.
+    private void getOrStoreDatabaseAndSchemaGraph() {
+        if (storedDatabases.containsKey(schemaName)) {
+            Pair<SQLDatabase, SchemaGraph> dbPair = storedDatabases.get(schemaName);
+
+            // Change the Datasource Object to reflect the new database name
+            DataSourceFactory.loadConnectionProperties(this.schemaName, this.databaseType);
+
             this.database = dbPair.getLeft();
             this.schemaGraph = dbPair.getRight();
         }
         else {
-
-            // Use tha database we got from the input
-            useDatabase(schemaName);
-
             // Automatically get the info of database.
-            this.database = DatabaseInfo.getDatabaseObject(schemaName);
+            this.database = SQLDatabase.InstantiateDatabase(this.schemaName, this.databaseType);
 
             // Create PK-FK Relationship Graph.
             this.schemaGraph = new SchemaGraph();
             schemaGraph.fillDirected(database.getTables(), database.getFKConstrains());
 
             // store the db
-            this.storedDatabases.put(this.schemaName, new Pair<>(this.database, this.schemaGraph));
+            storedDatabases.put(this.schemaName, new Pair<>(this.database, this.schemaGraph));
 
             // Print Stats and Database.
             if (DEBUG_PRINTS) {
@@ -349,13 +428,6 @@ public class DiscoverIRApplication {
         this.finalResults = new ArrayList<>();;
     }
 
-    /**
-     *  Set the database to be used.
-     */
-    static void useDatabase(String databaseName) {
-        DatabaseConfigurations configs = new DatabaseConfigurations("app", databaseName);     // "app" is the file name of the properties file
-        DataSourceFactory.loadDbConfigurations(configs);
-    }
 
 
 }
@@ -2,7 +2,8 @@ package discoverIR.components;
 
 import discoverIR.model.JoiningNetworkOfTupleSets;
 import discoverIR.model.TupleSetGraph;
-import shared.connectivity.thor.response.Table;
+import shared.util.Table;
+import shared.database.config.PropertiesSingleton;
 import discoverIR.model.TupleSet;
 import discoverIR.model.AdjacentTupleSets;
 
@@ -13,11 +14,17 @@ import java.util.Arrays;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
 
 // Input: Set of m keywords {k1, ..., km}, non-empty tuple sets Ri^Q, and the max candidate network size.
 // Output: A complete and non-redundant set of candidate joining networks of tuple sets.
 public class CandidateNetworksGenerator {
 
+    // The number of networks of a level expanded concurrently (1 = sequential).
+    private static final int GENERATOR_WORKERS = PropertiesSingleton.getIntProperty("candidateNetworks.workers", 1);
+
     // A class keeping a queue and a HashSet of JoiningNetworkOfTupleSets
     // bothContaining the same networks. This parallel structure helps us
     // store only unique candidate Networks.
@@ -83,6 +90,14 @@ public class CandidateNetworksGenerator {
             return network;
         }
 
+        // Removes and returns all the networks of the queue, in order.
+        List<JoiningNetworkOfTupleSets> removeAll() {
+            List<JoiningNetworkOfTupleSets> networks = new ArrayList<>(this.networkQueue);
+            this.networkQueue.clear();
+            this.setOfUniqueNetworks.clear();
+            return networks;
+        }
+
     }
 
     // The output of the Candidate Network Generator component.
@@ -91,6 +106,7 @@ public class CandidateNetworksGenerator {
     private List<TupleSet> tupleSets; // The output of the IREngine component.
     private List<String> keywords; // The keywords of the query.
     private int maxSize; // Max size (number of joins) of a candidate network.
+    private int workers; // The number of networks of a level expanded concurrently.
 
     private TupleSetGraph tupleSetGraph;
     private UniqueCandidateNetworkQueue networkQueue; // A queue of 'active' networks.
@@ -100,10 +116,18 @@ public class CandidateNetworksGenerator {
 
     public CandidateNetworksGenerator(List<TupleSet> tupleSets, TupleSetGraph tupleSetGraph,
                 List<String> keywords, int maxSize) {
+        this(tupleSets, tupleSetGraph, keywords, maxSize, GENERATOR_WORKERS);
+    }
+
+    // Creates a generator that expands the networks of a level with the given number
+    // of workers instead of 'candidateNetworks.workers' (see CandidateNetworksGeneratorBenchmark).
+    public CandidateNetworksGenerator(List<TupleSet> tupleSets, TupleSetGraph tupleSetGraph,
+                List<String> keywords, int maxSize, int workers) {
         this.tupleSets = new ArrayList<TupleSet>();
         this.tupleSets.addAll(tupleSets);
         this.keywords = keywords;
         this.maxSize = maxSize;
+        this.workers = workers;
         this.networksProcessed = 0;
 
         this.tupleSetGraph = tupleSetGraph;
@@ -141,6 +165,11 @@ public class CandidateNetworksGenerator {
     public List<JoiningNetworkOfTupleSets> generate(boolean andSemantics) {
         this.initializeQueue();
 
+        // Any networks left by a failed parallel generation are generated sequentially.
+        if (this.workers > 1) {
+            this.generateInParallel(andSemantics);
+        }
+
         while (!this.networkQueue.isEmpty()) {
             // Get the head of the queue.
             JoiningNetworkOfTupleSets network = networkQueue.remove();
@@ -156,45 +185,105 @@ public class CandidateNetworksGenerator {
                 this.candidateNetworks.add(network);
             }
 
-            // Get the adjacent tuple sets of every node of the network.
-            List<AdjacentTupleSets> adjacentTupleSetsList = network.getAdjacentTupleSets(this.tupleSetGraph);
-            // for (AdjacentTupleSets a : adjacentTupleSetsList) System.out.print("Adjacent of " + a);
-            // System.out.println("\n--------------\n"); System.out.flush();
-
             // Expand the network by attaching every node with its adjacent tuple sets.
-            for (int i = 0; i < adjacentTupleSetsList.size(); i++) {
-                AdjacentTupleSets adjacentTupleSets = adjacentTupleSetsList.get(i);
-
-                for (TupleSet adjacent : adjacentTupleSets.getAdjacentTupleSets()) {
-                    // System.out.print("For " + adjacentTupleSets.getTupleSet().toAbbreviation() + "\n");
-                    // System.out.println(" check expansion rule for adjacent: " + adjacent.toAbbreviation() + " ");
-                    // Check the size of the network and the expansion rule.
-                    if (network.getSize() < maxSize) {
-                        // Connect the two tuple sets in the network.
-                        JoiningNetworkOfTupleSets expandedJnts = network.expand(adjacentTupleSets.getTupleSet(),
-                                adjacent, i, this.tupleSetGraph);
-
-                        // System.out.println("Expand with Ri^K: " + adjacent.toAbbreviation());
-                        // System.out.println("Expanded JNTS:\n" + expandedJnts);
-
-                        // if (expandedJnts.satisfiesLeavesCondition(this.keywords.size())) {
+            for (JoiningNetworkOfTupleSets expandedJnts : this.expandNetwork(network)) {
+                this.networkQueue.add(expandedJnts);
+                this.networksProcessed++;
+            }
+        }
+
+        return this.candidateNetworks;
+    }
+
+    // Returns the networks created by expanding a network with its adjacent tuple sets,
+    // in the order they must be added in the queue. Pruned networks are not expanded.
+    private List<JoiningNetworkOfTupleSets> expandNetwork(JoiningNetworkOfTupleSets network) {
+        List<JoiningNetworkOfTupleSets> expandedNetworks = new ArrayList<>();
+        if (network.violatesPruningCondition())
+            return expandedNetworks;
+
+        // Get the adjacent tuple sets of every node of the network.
+        List<AdjacentTupleSets> adjacentTupleSetsList = network.getAdjacentTupleSets(this.tupleSetGraph);
+        // for (AdjacentTupleSets a : adjacentTupleSetsList) System.out.print("Adjacent of " + a);
+        // System.out.println("\n--------------\n"); System.out.flush();
+
+        // Expand the network by attaching every node with its adjacent tuple sets.
+        for (int i = 0; i < adjacentTupleSetsList.size(); i++) {
+            AdjacentTupleSets adjacentTupleSets = adjacentTupleSetsList.get(i);
+
+            for (TupleSet adjacent : adjacentTupleSets.getAdjacentTupleSets()) {
+                // System.out.print("For " + adjacentTupleSets.getTupleSet().toAbbreviation() + "\n");
+                // System.out.println(" check expansion rule for adjacent: " + adjacent.toAbbreviation() + " ");
+                // Check the size of the network and the expansion rule.
+                if (network.getSize() < maxSize) {
+                    // Connect the two tuple sets in the network.
+                    JoiningNetworkOfTupleSets expandedJnts = network.expand(adjacentTupleSets.getTupleSet(),
+                            adjacent, i, this.tupleSetGraph);
+
+                    // System.out.println("Expand with Ri^K: " + adjacent.toAbbreviation());
+                    // System.out.println("Expanded JNTS:\n" + expandedJnts);
+
+                    // if (expandedJnts.satisfiesLeavesCondition(this.keywords.size())) {
+                    // Encode the network here, so the duplicate check of the queue only compares strings.
+                    expandedJnts.getCanonicalForm();
+                    expandedNetworks.add(expandedJnts);
+                    // }
+                    // else {
+                    //     // System.out.println("Pruned because of leaves condition.");
+                    // }
+                }
+                else {
+                    // System.out.println("Ignore Ri^K: " + adjacent.toAbbreviation());
+                }
+                // System.out.println();
+            }
+            // System.out.println();
+        }
+
+        return expandedNetworks;
+    }
+
+    // Generates the networks level by level: every network in the queue has the same
+    // size, so the queue holds one level at a time. The networks of a level are expanded
+    // concurrently and their expansions are added in the queue in the order of the level,
+    // so the duplicates discarded and the candidate networks are the same as the ones
+    // of the sequential generation, in the same order.
+    private void generateInParallel(boolean andSemantics) {
+        ForkJoinPool pool = new ForkJoinPool(this.workers);
+        try {
+            while (!this.networkQueue.isEmpty()) {
+                List<JoiningNetworkOfTupleSets> level = this.networkQueue.removeAll();
+                List<List<JoiningNetworkOfTupleSets>> expansions;
+                try {
+                    expansions = pool.submit(() ->
+                        level.parallelStream().map(this::expandNetwork).collect(Collectors.toList())
+                    ).get();
+                } catch (InterruptedException | ExecutionException e) {
+                    // Put the level back, the caller generates the rest of the networks sequentially.
+                    e.printStackTrace();
+                    if (e instanceof InterruptedException)
+                        Thread.currentThread().interrupt();
+                    for (JoiningNetworkOfTupleSets network : level)
+                        this.networkQueue.add(network);
+                    break;
+                }
+
+                for (int i = 0; i < level.size(); i++) {
+                    JoiningNetworkOfTupleSets network = level.get(i);
+                    if (network.violatesPruningCondition())
+                        continue;
+                    if (network.satisfiesAcceptanceConditions(this.keywords, andSemantics))
+                        this.candidateNetworks.add(network);
+
+                    for (JoiningNetworkOfTupleSets expandedJnts : expansions.get(i)) {
                         this.networkQueue.add(expandedJnts);
                         this.networksProcessed++;
-                        // }
-                        // else {
-                        //     // System.out.println("Pruned because of leaves condition.");
-                        // }
-                    }
-                    else {
-                        // System.out.println("Ignore Ri^K: " + adjacent.toAbbreviation());
                     }
-                    // System.out.println();
                 }
-                // System.out.println();
             }
+        } finally {
+            pool.shutdown();
         }
-
-        return this.candidateNetworks;
     }
 
 
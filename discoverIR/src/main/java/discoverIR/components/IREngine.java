@@ -3,9 +3,16 @@ package discoverIR.components;
 import shared.database.model.SQLColumn;
 import shared.database.model.SQLDatabase;
 import shared.database.model.SQLTable;
-import shared.connectivity.thor.response.Table;
-import shared.database.connectivity.DataSourceFactory;
+import shared.database.model.SQLTuple;
+import shared.database.model.TupleBlock;
+import shared.database.model.TupleDecoder;
+import shared.util.Table;
+import shared.database.config.PropertiesSingleton;
+import shared.database.connectivity.ConcurrentQueryRunner;
+import shared.database.connectivity.ConcurrentQueryRunner.QueryTask;
 import shared.database.connectivity.DatabaseUtil;
+import shared.database.connectivity.KeywordPostingCache;
+import shared.database.connectivity.KeywordPostingCache.SearchMode;
 
 import discoverIR.model.TupleSet;
 import discoverIR.model.OverloadedTuple;
@@ -38,6 +45,10 @@ public class IREngine {
             "SELECT *, MATCH (%s) AGAINST (? IN NATURAL LANGUAGE MODE) AS score " +
             "FROM %s WHERE MATCH (%s) AGAINST (? IN NATURAL LANGUAGE MODE);";
 
+    // The number of tables probed concurrently, each one on its own pooled
+    // connection. A value of 1 probes them one after the other.
+    public static final int INDEX_WORKERS = PropertiesSingleton.getIntProperty("irEngine.workers", 1);
+
     private List<String> keywords;     // The keywords of the input query.
     private List<TupleSet> tupleSets;  // Contains the tuple set of every table in the database.
     private SQLDatabase database;
@@ -72,21 +83,21 @@ public class IREngine {
         this.tablesContainingQuery = 0;
         this.rowsMatchingQuery = 0;
         this.query = query;
-
-        Connection con = null;
-        PreparedStatement stmt = null;
-        ResultSet rs = null;
         sqlIoRows = 0;
 
-        try {
-            // Get the connection.
-            con = DataSourceFactory.getConnection();
+        // One task generating the tuple set of every table in the database.
+        List<QueryTask<TupleSet>> tasks = new ArrayList<>();
+        for (SQLTable table : this.database.getTables())
+            tasks.add(con -> generateTupleSetOfTable(query, table, con, null, null));
 
-            // Generate the tuple set of every table in the database.
-            for (SQLTable table : this.database.getTables()) {
-                TupleSet tupleSet = generateTupleSetOfTable(query, table, con, stmt, rs);
+        try {
+            // Merge the tuple sets in table order.
+            for (TupleSet tupleSet : new ConcurrentQueryRunner(INDEX_WORKERS).runAll(tasks)) {
                 sqlIoRows += tupleSet.getSize();
 
+                // Store the rows matched the query.
+                rowsMatchingQuery += tupleSet.getSize();
+
                 if (!tupleSet.isEmpty()) {
                     this.tupleSets.add(tupleSet);
                     tablesContainingQuery++;
@@ -96,10 +107,6 @@ public class IREngine {
         catch (SQLException e) {
             e.printStackTrace();
         }
-        finally {
-            // Close the connection.
-            DatabaseUtil.close(con, stmt, rs);
-        }
         
         return this.tupleSets;
     }
@@ -109,11 +116,30 @@ public class IREngine {
                 Connection con, PreparedStatement stmt, ResultSet rs) throws SQLException {
         Set<OverloadedTuple> tuples = new HashSet<OverloadedTuple>();
         Set<SQLColumn> columnsContainingKeywords = new HashSet<SQLColumn>();
+        TupleBlock block = null;  // Stores the tuples with their scores and keyword frequencies.
 
         // Execute the INV_INDEX_QUERY against every column's index.
         for (SQLColumn column : table.getColumns()) {
             // FULLTEXT indexes can only be built on columns with strings as values.
             if (column.getType().isTextual() && column.isIndexed()) {
+                // Use the cached posting if we have probed the column for the query before.
+                KeywordPostingCache.Key cacheKey = new KeywordPostingCache.Key(
+                    this.database.getName(), column, query, SearchMode.NATURAL_LANGUAGE_ROWS);
+                List<SQLTuple> cachedTuples = KeywordPostingCache.getInstance().get(cacheKey);
+                if (cachedTuples != null) {
+                    // Copy the cached rows to the query's block, so every query computes its own keyword frequencies.
+                    for (SQLTuple cachedTuple : cachedTuples) {
+                        TupleBlock.Row cachedRow = (TupleBlock.Row) cachedTuple;
+                        if (block == null)
+                            block = cachedRow.getBlock().emptyCopy();
+                        tuples.add(new OverloadedTuple(block, block.addRow(cachedRow.getBlock(), cachedRow.getRow())));
+                    }
+                    if (!cachedTuples.isEmpty())
+                        columnsContainingKeywords.add(column);
+                    continue;
+                }
+                List<TupleBlock.Row> columnRows = new ArrayList<>();
+
                 // Prepare the query to execute.
                 // String againstStmt = this.prepareKeywordsForOrBooleanSearch(this.keywords);
                 String indexQuery = String.format(INV_INDEX_QUERY, column.getName(), table.getName(), column.getName());
@@ -124,24 +150,31 @@ public class IREngine {
                 // Execute the query and store the tuples.
                 rs = stmt.executeQuery();                
                 
+                TupleDecoder decoder = TupleDecoder.forColumnNames(table.getColumns(), rs.getMetaData(), "score");
+                // The probes of a table select the same columns, so they share the block.
+                if (block == null)
+                    block = decoder.newBlock();
                 while (rs.next()) {
-                    // Create an OverloadedTuple object and save it.
-                    OverloadedTuple tuple = new OverloadedTuple();
-                    tuple.fill(table.getColumns(), rs);
-                    tuples.add(tuple);
+                    // Store the row in the block and save a tuple backed by it.
+                    int row = decoder.decode(rs, block);
+                    tuples.add(new OverloadedTuple(block, row));
                     columnsContainingKeywords.add(column);
+                    columnRows.add(block.getRow(row));
                 }
+
+                // Release the statement before probing the next column.
+                DatabaseUtil.close(stmt, rs);
+                KeywordPostingCache.getInstance().put(cacheKey, columnRows);
             }
         }
 
         // Create the tuple set of the table.
         // The tuples are stored in a list sorted in descending order based on their score.
         TupleSet tupleSet = new TupleSet(table, columnsContainingKeywords, tuples);
+        if (block != null)
+            block.setKeywords(this.keywords);
         tupleSet.computeKeywordStatistics(this.keywords);
 
-        // Store the rows matched the query.
-        rowsMatchingQuery += tupleSet.getSize();
-
         // Finds and saves the keywords of the query that the tuple set contains.
         tupleSet.setKeywords(this.keywords);
 
@@ -7,7 +7,9 @@ import discoverIR.model.JoinEquation;
 import discoverIR.model.JoinableFormat;
 import discoverIR.model.OverloadedTuple;
 import discoverIR.model.SQLTempTable;
+import shared.database.connectivity.DataSourceFactory;
 import shared.database.connectivity.DatabaseUtil;
+import shared.database.model.InListConstraint;
 import shared.database.model.SQLColumn;
 import shared.database.model.SQLQueries;
 import shared.database.model.SQLTable;
@@ -74,7 +76,10 @@ public class SQLQueryCreator {
         // Then create the FROM part of the query, the tables with their aliases. {        
         for(Pair<SQLTable, String> pair: joinableFormat.getTablesToJoin()) {
             // query.getFromElements().add( pair.getLeft().getName() + SQLQueries.ALIAS_SPECIFIER + pair.getRight());
-            query.addTableWithAlias(pair.getLeft().getName(), pair.getRight());
+            if (pair.getLeft() instanceof SQLTempTable && ((SQLTempTable) pair.getLeft()).isInlined())
+                query.addDerivedTableWithAlias(((SQLTempTable) pair.getLeft()).getFromExpression(), pair.getLeft().getName(), pair.getRight());
+            else
+                query.addTableWithAlias(pair.getLeft().getName(), pair.getRight());
         }         
         // }
         
@@ -86,8 +91,8 @@ public class SQLQueryCreator {
         // }
 
         //  - The IN LIST Constraints if there are any. {        
-        for(String inListConstraint: joinableFormat.getInListConstraints()) {
-            query.getInListConstraints().add( inListConstraint );
+        for(InListConstraint inListConstraint: joinableFormat.getInListConstraints()) {
+            query.addInListConstraint( inListConstraint );
         }           
         // }
 
@@ -95,6 +100,76 @@ public class SQLQueryCreator {
     }
 
 
+    // Creates the SELECT query of a derived table returning the tuples of the tempTable with their
+    // scores, used to inline the temp table in the queries instead of creating it. The tuples are
+    // selected from the base table by their primary key: with an IN list and a CASE for the scores
+    // if the key has one column, or else by joining with a derived table of the key values and the
+    // scores. Returns null if the tuples can not be selected by a primary key.
+    public static String createDerivedTableQuery(List<OverloadedTuple> tuples, SQLTempTable tempTable) {
+        SQLTable baseTable = tempTable.getConnectedTable();
+        List<SQLColumn> primaryKey = new ArrayList<>(baseTable.getPrimaryKey());
+        if (primaryKey.isEmpty() || tuples.isEmpty()) return null;
+
+        // The key values of every tuple.
+        List<List<String>> keys = new ArrayList<>();
+        for (OverloadedTuple tuple: tuples) {
+            List<String> key = new ArrayList<>();
+            for (SQLColumn column: primaryKey) {
+                SQLValue value = tuple.getValueOfColumnWithName(column.getName());
+                if (value == null || value.getValue() == null) return null;
+                key.add(SQLQueryCreator.toSQLLiteral(value));
+            }
+            keys.add(key);
+        }
+
+        String query = "SELECT b.*, ";
+        if (primaryKey.size() == 1) {
+            // b.[pk] IN ([value], ...) with the score of every value in a CASE.
+            String keyColumn = "b." + primaryKey.get(0).getName();
+            String scores = new String();
+            List<String> values = new ArrayList<>();
+            for (int index = 0; index < tuples.size(); index++) {
+                scores += " WHEN " + keys.get(index).get(0) + " THEN " + tuples.get(index).getScore();
+                values.add(keys.get(index).get(0));
+            }
+
+            query += "CASE " + keyColumn + scores + " END AS score FROM " + baseTable.getName() + " b WHERE " +
+                String.format(SQLQueries.IN_LIST_CONSTRAINT, keyColumn, PrintingUtils.separateWithDelimiter(values, ", "));
+        }
+        else {
+            // Join with (SELECT [value] AS [pk_1], ..., [score] AS score UNION ALL SELECT ...) v.
+            List<String> rows = new ArrayList<>();
+            for (int index = 0; index < tuples.size(); index++) {
+                String row = "SELECT ";
+                for (int column = 0; column < primaryKey.size(); column++)
+                    row += keys.get(index).get(column) + ((index == 0) ? " AS " + primaryKey.get(column).getName() : "") + ", ";
+                row += tuples.get(index).getScore() + ((index == 0) ? " AS score" : "");
+                rows.add(row);
+            }
+
+            List<String> joinEquations = new ArrayList<>();
+            for (SQLColumn column: primaryKey)
+                joinEquations.add("b." + column.getName() + " = v." + column.getName());
+
+            query += "v.score FROM " + baseTable.getName() + " b, (" + PrintingUtils.separateWithDelimiter(rows, " UNION ALL ") +
+                ") v WHERE " + PrintingUtils.separateWithDelimiter(joinEquations, " AND ");
+        }
+
+        return query;
+    }
+
+    // Returns a value as an SQL literal, quoting and escaping the non arithmetic values.
+    private static String toSQLLiteral(SQLValue value) {
+        if (value.getType().isArithmetic())
+            return value.toString();
+
+        String str = value.toString().replace("'", "''");
+        if (DataSourceFactory.getType() == null || DataSourceFactory.getType().isMySQL())
+            str = str.replace("\\", "\\\\");  // MySQL also escapes with backslashes.
+        return "'" + str + "'";
+    }
+
+
     // Return the CREATE TABLE query for the tempTable in string format.
     public static String createSQLCreateTableQuery(SQLTempTable tempTable) {
         // First create the Columns and Types subString.
@@ -4,22 +4,28 @@ import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 import java.util.HashSet;
+import java.util.concurrent.atomic.AtomicLong;
 
 import discoverIR.DiscoverIRApplication;
 import discoverIR.components.SQLQueryCreator;
+import discoverIR.exceptions.ShutdownHook;
 import discoverIR.model.OverloadedTuple;
 import discoverIR.model.SQLTempTable;
 import discoverIR.model.TupleSet;
 import shared.database.config.PropertiesSingleton;
+import shared.database.connectivity.BulkLoader;
 import shared.database.connectivity.DataSourceFactory;
 import shared.database.connectivity.DatabaseUtil;
+import shared.database.connectivity.TempTablePool;
 import shared.database.model.SQLQueries;
 import shared.database.model.SQLColumn;
 import shared.database.model.SQLDatabase;
 import shared.database.model.SQLTable;
+import shared.database.model.SQLValue;
 import shared.util.Timer;
 
 // The main functionality of the ExecutionPreProcessor is
@@ -31,10 +37,28 @@ import shared.util.Timer;
 // the tuples matching a keyword of the query along with 
 // each tuples Score for the query.
 public class ExecutionPreProcessor {
-    public static String AUX_DB = PropertiesSingleton.getBundle("app").getString("database.mysql.auxDatabase");    
+    public static String AUX_DB = PropertiesSingleton.getBundle().getString("database.mysql.auxDatabase");
     
+    private static final AtomicLong nextPreProcessorId = new AtomicLong(0);  // The number of pre processors created.
+    private long id;            // The id of the pre processor, naming its temp tables apart from the ones of concurrent queries.
     private int tempTablesNum;  // An integer indicating the number of temp tables created.    
     private static int batchCardinality = 50;
+    // Tuple sets with up to this many tuples are inlined in the queries as derived tables instead
+    // of being created as temp tables (0 creates a temp table for every tuple set). Like AUX_DB,
+    // it is read when the class is first used by an execution, after main loaded app.properties.
+    private static int inlineThreshold = PropertiesSingleton.getIntProperty("tempTables.inlineThreshold", 100);
+
+    // The pool of the tuple set tables reused by the next queries with the same tuple sets. The pool
+    // drops the least recently used tables above 'tempTables.poolRows' rows, and the rest on shutdown.
+    // The pooled tables left by an earlier run that was killed are dropped when the pool is created.
+    public static final TempTablePool POOL = new TempTablePool(PropertiesSingleton.getIntProperty("tempTables.poolRows", 100000));
+    private static final String POOLED_TABLE_PREFIX = "discoverIR_pool";
+    static {
+        if (POOL.isEnabled()) {
+            TempTablePool.dropStaleTables(AUX_DB, POOLED_TABLE_PREFIX);
+            Runtime.getRuntime().addShutdownHook(new ShutdownHook());
+        }
+    }
     private List<TupleSet> tupleSets; // The list of tupleSets.
     private List<SQLTable> oldTupleSetsTables; // The old Tables of the tuples sets. (before creating temp Tables)
     
@@ -42,17 +66,24 @@ public class ExecutionPreProcessor {
     // that we will add in the ExecutorPreProcessing step.
     private SQLDatabase modifiedDatabase;
 
-    // Store the tempTables.
+    // Store the tempTables created (and dropped) by this pre processor.
     private List<SQLTempTable> tempTablesList;
 
+    // Store the tempTables of the pool used by this pre processor.
+    private List<SQLTempTable> pooledTablesList;
+
     // Statistics
     private double timeCreatingTempTables;
+    private int inlinedTupleSets;       // The tuple sets inlined as derived tables.
+    private int materializedTupleSets;  // The tuple sets created as temp tables.
 
     public ExecutionPreProcessor(List<TupleSet> tupleSets, SQLDatabase database) {
         this.tupleSets = tupleSets;
         this.modifiedDatabase = database;
         this.oldTupleSetsTables = new ArrayList<>();
         this.tempTablesList = new ArrayList<>();
+        this.pooledTablesList = new ArrayList<>();
+        this.id = nextPreProcessorId.getAndIncrement();
         this.tempTablesNum = 0;
 
         // Keep a List of SQLTables of tupleSet, because at the end of the
@@ -94,58 +125,130 @@ public class ExecutionPreProcessor {
     // against the database.
     private SQLTempTable createTempTable(TupleSet tupleSet) {
         // Create the temp Tables name. It will contain the 
-        String tempTableName = AUX_DB + ".discoverIR_temp" + this.tempTablesNum++ + "_" + tupleSet.getTable().getName();        
+        String tempTableName = AUX_DB + ".discoverIR_p" + this.id + "_temp" + this.tempTablesNum++ + "_" + tupleSet.getTable().getName();        
+
+        // Inline small tuple sets as derived tables, if their tuples can be selected by their primary key.
+        if (tupleSet.getTuples().size() <= ExecutionPreProcessor.inlineThreshold) {
+            SQLTempTable inlinedTable = this.createInlinedTable(tupleSet);
+            if (inlinedTable != null) {
+                this.inlinedTupleSets++;
+                return inlinedTable;
+            }
+        }
+        this.materializedTupleSets++;
+        List<Object[]> rows = toRows(tupleSet.getTuples());
+
+        // Reuse a pooled table holding the same tuples with the same scores.
+        String poolKey = null;
+        if (POOL.isEnabled()) {
+            poolKey = poolKeyOf(tupleSet, rows);
+            String pooledTableName = POOL.acquire(poolKey);
+            if (pooledTableName != null) {
+                SQLTempTable tempTable = new SQLTempTable(pooledTableName);
+                tempTable.fill(tupleSet);
+                this.modifiedDatabase.addTable(tempTable);  // Update the database.
+                this.pooledTablesList.add(tempTable);       // Update the pooled table list.
+                return tempTable;
+            }
 
-        // Crete a temp table Like the tupleSets Table.
-        SQLTempTable tempTable = new SQLTempTable(tempTableName);
-        tempTable.fill(tupleSet);        
-        this.modifiedDatabase.addTable(tempTable);  // Update the database.
-        this.tempTablesList.add(tempTable);         // Update the temp table list.
+            tempTableName = POOL.newTableName(AUX_DB + "." + POOLED_TABLE_PREFIX) + "_" + tupleSet.getTable().getName();
+        }
 
-        // Create the CREATE_TABLE query.
-        String createTableQuery = SQLQueryCreator.createSQLCreateTableQuery(tempTable);
+        // A pooled table whose CREATE query fails is created once more with a fresh name.
+        int attempts = (poolKey != null) ? 2 : 1;
+        SQLTempTable tempTable = null;
+        boolean created = false, filled = false;
+        for (int attempt = 0; attempt < attempts && !created; attempt++) {
+            if (attempt > 0)
+                tempTableName = POOL.newTableName(AUX_DB + "." + POOLED_TABLE_PREFIX) + "_" + tupleSet.getTable().getName();
+
+            // Crete a temp table Like the tupleSets Table.
+            tempTable = new SQLTempTable(tempTableName);
+            tempTable.fill(tupleSet);
+
+            // Create the CREATE_TABLE query.
+            String createTableQuery = SQLQueryCreator.createSQLCreateTableQuery(tempTable);
+
+            // Create the INSERT_INTO_SELECT queries, unless the tuples are bulk loaded.
+            List<String> insertIntoQueries = (DiscoverIRApplication.USE_BULK_LOADING) ? null :
+                this.createBatchesOfInsertIntoQueries(ExecutionPreProcessor.batchCardinality, tupleSet.getTuples(), tempTable);
+
+            if (DiscoverIRApplication.DEBUG_PRINTS)
+                System.out.println("Crete query:\n" + createTableQuery);
+
+            // Initialize connection variables.
+            Connection con = null;
+            Statement stmt = null;
+
+            // Execute the two update queries.
+            try {
+                con = DataSourceFactory.getConnection();
+                stmt = con.createStatement();
+
+                // Execute the create query.
+                stmt.executeUpdate(createTableQuery);
+                created = true;
+                // Temporary disable the Constraints.
+                stmt.executeUpdate(SQLQueries.SQL_DISABLE_CONSTRAINTS_QUERY);
+                // Load the tuples.
+                if (DiscoverIRApplication.USE_BULK_LOADING)
+                    this.bulkLoadTuples(con, tupleSet.getTuples(), rows, tempTable);
+                else
+                    this.executeInsertIntoQueryInBatches(stmt, insertIntoQueries);
+                // Enable the constraints;
+                stmt.executeUpdate(SQLQueries.SQL_ENABLE_CONSTRAINTS_QUERY);
+                filled = true;
+            }
+            catch (SQLException e) {
+               e.printStackTrace();
+            }
+            finally {
+                DatabaseUtil.close(con, stmt);
+            }
+        }
+        this.modifiedDatabase.addTable(tempTable);  // Update the database.
 
-        // Create the INSERT_INTO_SELECT query.
-        List<String> insertIntoQueries = this.createBatchesOfInsertIntoQueries(
-            ExecutionPreProcessor.batchCardinality,
-            tupleSet.getTuples(),
-            tempTable
-        );
-        
-        if (DiscoverIRApplication.DEBUG_PRINTS)
-            System.out.println("Crete query:\n" + createTableQuery);        
+        // A table whose CREATE query failed is neither pooled nor dropped, since it is not ours.
+        if (!created)
+            return tempTable;
 
-        // Initialize connection variables.
-        Connection con = null;
-        Statement stmt = null;
-        
-        // Execute the two update queries.
-        try {
-            con = DataSourceFactory.getConnection();
-            stmt = con.createStatement();
-
-            // Execute the create query.
-            stmt.executeUpdate(createTableQuery);
-            // Temporary disable the Constraints.
-            stmt.executeUpdate(SQLQueries.SQL_DISABLE_CONSTRAINTS_QUERY);
-            // Execute the insert into.
-            this.executeInsertIntoQueryInBatches(stmt, insertIntoQueries);       
-            // Enable the constraints;
-            stmt.executeUpdate(SQLQueries.SQL_ENABLE_CONSTRAINTS_QUERY);                    
-        } 
-        catch (SQLException e) {
-           e.printStackTrace();
-        }
-        finally {
-            DatabaseUtil.close(con, stmt);
-        }
+        // Add the table to the pool, or else to the temp table list to drop it.
+        if (poolKey != null && filled && POOL.add(poolKey, tempTable.getName(), rows.size()))
+            this.pooledTablesList.add(tempTable);
+        else
+            this.tempTablesList.add(tempTable);
 
         return tempTable;
     }   
 
 
-    // Drops all temp tables that the Execution created (if any created).
+    // Creates an SQLTempTable that is not created in the database, but is inlined in the
+    // queries as a derived table selecting the tuples of the tuple set from its table.
+    // Returns null if the tuples can not be selected with a derived table.
+    private SQLTempTable createInlinedTable(TupleSet tupleSet) {
+        // The name is used as the table's alias in the queries, so it is not qualified.
+        SQLTempTable inlinedTable = new SQLTempTable("discoverIR_inline" + this.tempTablesNum + "_" + tupleSet.getTable().getName());
+        inlinedTable.fill(tupleSet);
+
+        String derivedTableQuery = SQLQueryCreator.createDerivedTableQuery(tupleSet.getTuples(), inlinedTable);
+        if (derivedTableQuery == null) return null;
+
+        if (DiscoverIRApplication.DEBUG_PRINTS)
+            System.out.println("Inlined table query:\n" + derivedTableQuery);
+
+        inlinedTable.setDerivedTableQuery(derivedTableQuery);
+        return inlinedTable;
+    }
+
+    // Drops all temp tables that the Execution created (if any created)
+    // and releases the pooled tables it used.
     public void dropAllTempTables() {
+        // Release the pooled tables.
+        for (SQLTempTable pooledTable: this.pooledTablesList)
+            POOL.release(pooledTable.getName());
+        this.modifiedDatabase.getTables().removeAll(this.pooledTablesList);
+        this.pooledTablesList.clear();
+
         // If there are none return.
         if (tempTablesList.isEmpty()) return;        
 
@@ -182,6 +285,7 @@ public class ExecutionPreProcessor {
 
         // Clear the TempTables from the database array.
         this.modifiedDatabase.getTables().removeAll(this.tempTablesList);
+        this.tempTablesList.clear();
         this.tempTablesNum = 0;
     }
 
@@ -229,6 +333,42 @@ public class ExecutionPreProcessor {
         return queries;
     }
 
+    // Loads the tuples along with their scores in the temp table with the
+    // BulkLoader, in one COPY / LOAD DATA statement or in batches of prepared inserts.
+    private void bulkLoadTuples(Connection con, List<OverloadedTuple> tuples, List<Object[]> rows, SQLTempTable tempTable) throws SQLException {
+        if (tuples.isEmpty()) return;
+
+        // The columns in the order of the tuple's values, followed by the score.
+        List<String> columnNames = new ArrayList<>();
+        for (SQLColumn column: tuples.get(0).getAttributes())
+            columnNames.add(column.getName());
+        columnNames.add("score");
+
+        BulkLoader.load(con, DataSourceFactory.getType(), tempTable.getName(), columnNames, rows);
+    }
+
+    // Returns the values of the tuples followed by their scores.
+    private static List<Object[]> toRows(List<OverloadedTuple> tuples) {
+        List<Object[]> rows = new ArrayList<>(tuples.size());
+        for (OverloadedTuple tuple: tuples) {
+            Object[] row = new Object[tuple.getValues().size() + 1];
+            int index = 0;
+            for (SQLValue value: tuple.getValues())
+                row[index++] = value.getValue();
+            row[index] = tuple.getScore();
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    // Returns the key of a pooled table: the base table, the keywords of the
+    // tuple set and the fingerprint of the values and scores of its tuples.
+    private static String poolKeyOf(TupleSet tupleSet, List<Object[]> rows) {
+        List<String> keywords = new ArrayList<>(tupleSet.getKeywords());
+        Collections.sort(keywords);
+        return tupleSet.getTable().getName() + "|" + String.join(" ", keywords) + "|" + TempTablePool.fingerprint(rows);
+    }
+
     // Execute a list of SQL INSERT INTO queries.
     private void executeInsertIntoQueryInBatches(Statement stmt, List<String> queries) throws SQLException {                
         for (String query: queries) {
@@ -258,11 +398,20 @@ public class ExecutionPreProcessor {
         return this.tempTablesList;
     }
 
+    public int getInlinedTupleSets() {
+        return this.inlinedTupleSets;
+    }
+
+    public int getMaterializedTupleSets() {
+        return this.materializedTupleSets;
+    }
+
 
     // Print the statistics
     public void printStats() {
         System.out.println("EXECUTION PRE PROCESSOR STATS:");
         System.out.println("\tTime to execute the Plan: " + this.timeCreatingTempTables);
+        System.out.println("\tTuple sets inlined: " + this.inlinedTupleSets + ", in temp tables: " + this.materializedTupleSets);
     }
 
 }
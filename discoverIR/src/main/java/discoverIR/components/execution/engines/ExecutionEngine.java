@@ -1,8 +1,9 @@
 package discoverIR.components.execution.engines;
 
+import discoverIR.components.execution.executors.Executor;
 import discoverIR.model.OverloadedTuple;
 import discoverIR.model.OverloadedTupleList;
-import shared.connectivity.thor.response.Table;
+import shared.util.Table;
 import discoverIR.model.JoiningNetworkOfTupleSets;
 
 import java.util.ArrayList;
@@ -23,6 +24,10 @@ public abstract class ExecutionEngine {
     protected boolean andSemantics; // If true then the results must contain all keyword.
     protected boolean printResultsOrderedByTable; // If true print results Ordered by tables.
 
+    // Statistics
+    protected int inlinedTupleSets;       // The tuple sets inlined in the queries as derived tables.
+    protected int materializedTupleSets;  // The tuple sets created as temp tables.
+
     public ExecutionEngine(List<JoiningNetworkOfTupleSets> candidateNetworks, Integer maxTuples,
                 List<String> keywords, boolean andSemantics, boolean printResultsOrderedByTable) {
         this.candidateNetworks = candidateNetworks;
@@ -52,6 +57,14 @@ public abstract class ExecutionEngine {
         // this.printResultsOrderedByTable = printResultsOrderedByTable;
     }
 
+    // Initializes an executor (creating or inlining the tables of its tuple sets)
+    // and keeps how its tuple sets were used in the statistics.
+    protected void initializeExecutor(Executor executor) {
+        executor.initializeExecutor();
+        this.inlinedTupleSets += executor.getPreProcessor().getInlinedTupleSets();
+        this.materializedTupleSets += executor.getPreProcessor().getMaterializedTupleSets();
+    }
+
     // Keep only the top K tuples form each OverloadedTupleList represents a Candidate Network result.
     public int keepTopKTuples(List<OverloadedTupleList> allTopKCNTuples) {
         // Each OverloadedTupleList tuples are sorted in a descending order.
@@ -230,6 +243,14 @@ public abstract class ExecutionEngine {
             "Total Results",
             Integer.toString(this.getAllResults().size())
         )));
+        rows.add(new Table.Row( Arrays.asList(
+            "Tuple sets inlined in the queries",
+            Integer.toString(this.inlinedTupleSets)
+        )));
+        rows.add(new Table.Row( Arrays.asList(
+            "Tuple sets in temp tables",
+            Integer.toString(this.materializedTupleSets)
+        )));
                 
         // Return the table containing the Components Info.
         return new Table(rows);        
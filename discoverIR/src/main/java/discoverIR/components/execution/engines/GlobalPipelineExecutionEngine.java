@@ -8,8 +8,10 @@ import java.util.List;
 import java.util.PriorityQueue;
 import java.util.Queue;
 
+import shared.database.config.PropertiesSingleton;
 import shared.database.model.SQLDatabase;
 import shared.database.model.graph.SchemaGraph;
+import shared.util.IndexedPriorityQueue;
 import shared.util.Pair;
 import discoverIR.components.execution.executors.CandidateNetworkExecutor;
 import discoverIR.components.execution.executors.SinglePipelinedExecutor;
@@ -30,8 +32,11 @@ class CandidateNetworkMPFSPair extends Pair<JoiningNetworkOfTupleSets, Double> {
         }
     }
 
-    CandidateNetworkMPFSPair (JoiningNetworkOfTupleSets candidateNetwork, Double score) {
+    private int index; // The index of the Candidate Network in the list of networks.
+
+    CandidateNetworkMPFSPair (JoiningNetworkOfTupleSets candidateNetwork, Double score, int index) {
         super(candidateNetwork, score);
+        this.index = index;
     }
 
     // Getters and setters.
@@ -43,6 +48,10 @@ class CandidateNetworkMPFSPair extends Pair<JoiningNetworkOfTupleSets, Double> {
         return this.getRight();
     }
 
+    int getIndex() {
+        return this.index;
+    }
+
     @Override
     public int hashCode() {
         int hash = 7;        
@@ -68,12 +77,21 @@ class CandidateNetworkMPFSPair extends Pair<JoiningNetworkOfTupleSets, Double> {
 //          the execution of the above Candidate Networks.
 public class GlobalPipelineExecutionEngine extends ExecutionEngine {
 
+    // The maximum number of tuples retrieved from the chosen tuple set by one query. The tuples
+    // of a batch are joined with the prefixes of the other tuple sets of the network in a single
+    // query (the delta of the join). A value of 1 retrieves one tuple per query.
+    private static final int BATCH_SIZE = PropertiesSingleton.getIntProperty("globalPipeline.batchSize", 1);
+
     List<TupleSet> allNonFreeTupleSets; // All the non-free tuple sets produced by the IREngine.
     PriorityQueue<OverloadedTuple> results;    
 
     // A priority queue storing the networks prioritizing the ones 
     // with the highest Maximum Possible Feature Score.
-    PriorityQueue<CandidateNetworkMPFSPair> networksPQueue;
+    IndexedPriorityQueue<CandidateNetworkMPFSPair> networksPQueue;
+
+    // The handle of every network in the queue (null until the network is added),
+    // used to update the network's MPFS in place.
+    private List<IndexedPriorityQueue.Handle<CandidateNetworkMPFSPair>> networkHandles;
 
     // A list of pointers to keep track of the prefixes (retrieved tuples S(TSi)) of every tuple set.
     // Initially all pointers are zero.
@@ -96,13 +114,15 @@ public class GlobalPipelineExecutionEngine extends ExecutionEngine {
         this.database = database;
 
         this.results = new PriorityQueue<OverloadedTuple>(new OverloadedTuple.ScoreComparator());
-        this.networksPQueue = new PriorityQueue<>(new CandidateNetworkMPFSPair.ScoreComparator());
+        this.networksPQueue = new IndexedPriorityQueue<>(new CandidateNetworkMPFSPair.ScoreComparator());
         this.allNonFreeTupleSets = allNonFreeTupleSets;
 
         // Initialize prefixes.
         this.prefixesPerCN = new ArrayList<>();
+        this.networkHandles = new ArrayList<>();
         for (JoiningNetworkOfTupleSets network: networks) {
             this.prefixesPerCN.add(new int[network.getNonFreeTupleSets().size()]);
+            this.networkHandles.add(null);
         }               
     }
 
@@ -160,8 +180,9 @@ public class GlobalPipelineExecutionEngine extends ExecutionEngine {
 
     // Returns a new network where every tuple set contains all of its retrieved tuples (S(TSi))
     // as indicated by its prefix, but the tuple set that corresponds to the chosen tuple set
-    // contains only the next not retrieved tuple of the set.    
-    private JoiningNetworkOfTupleSets createNetworkWithRetrievedTuples(JoiningNetworkOfTupleSets network, int[] prefixes, TupleSet chosenTupleSet) {        
+    // contains only the last batch of retrieved tuples of the set.    
+    private JoiningNetworkOfTupleSets createNetworkWithRetrievedTuples(JoiningNetworkOfTupleSets network, int[] prefixes,
+            TupleSet chosenTupleSet, int batchSize) {        
         Queue<Pair<Node, Node>> queue = new LinkedList<>(); // For the breadth first traversal.
 
         // Create a map between tuple sets in the network and the new tuple sets
@@ -171,9 +192,10 @@ public class GlobalPipelineExecutionEngine extends ExecutionEngine {
             int prefix = prefixes[i];
 
             if (t.equals(chosenTupleSet)) {
-                // We subtract one from the prefix because it was just incremented for the
-                // chosen tuple set, and we need to get the last tuple from the prefix.
-                tupleSetMap.put(t, new TupleSet(t.getTable(), t.getColumnsContainingKeywords(), t.getTupleByIndex(prefix-1)));
+                // The prefix was just incremented by the batch size for the chosen
+                // tuple set, and we need to get the last batch of tuples from the prefix.
+                List<OverloadedTuple> batch = t.getTuples().subList(prefix - batchSize, prefix);
+                tupleSetMap.put(t, new TupleSet(t.getTable(), t.getColumnsContainingKeywords(), batch));
             }
             else {
                 tupleSetMap.put(t, new TupleSet(t.getTable(), t.getColumnsContainingKeywords(), t.getTuplesUpToIndex(prefix)));
@@ -216,9 +238,10 @@ public class GlobalPipelineExecutionEngine extends ExecutionEngine {
         }
     }
 
-    private void executeAllCombinations(CandidateNetworkExecutor executor, JoiningNetworkOfTupleSets network, int[] prefixes, TupleSet chosenTupleSet) {
+    private void executeAllCombinations(CandidateNetworkExecutor executor, JoiningNetworkOfTupleSets network, int[] prefixes,
+            TupleSet chosenTupleSet, int batchSize) {
         // Create a list of tuple sets with the retrieved tuples of every non free tuple set (and add the free ones).
-        JoiningNetworkOfTupleSets networkWIthRetrievedTuples = createNetworkWithRetrievedTuples(network, prefixes, chosenTupleSet);
+        JoiningNetworkOfTupleSets networkWIthRetrievedTuples = createNetworkWithRetrievedTuples(network, prefixes, chosenTupleSet, batchSize);
 
         // System.out.println("Prefixed TupleSets and chosen tuple :");
         // for (TupleSet t : tupleSetsWithRetrievedTuples) {
@@ -236,25 +259,65 @@ public class GlobalPipelineExecutionEngine extends ExecutionEngine {
         }       
     }
 
-    // Update the MPFS of the parameter network in the Priority Queue. If it 
-    // is not contained in the queue add it.
-    private void updateCandidateNetworksMPFS(JoiningNetworkOfTupleSets network, int[] prefixes) {
+    // Returns the number of tuples to retrieve from the chosen tuple set of a network with one query.
+    // Retrieving one tuple at a time, the pipeline keeps choosing the next tuple of the chosen tuple set
+    // while its MPFS is not lower than the MPFS of any other choice: the next tuple of another tuple set
+    // of the network, or the best MPFS of the other networks. So the batch contains the next tuples
+    // above that threshold (a large gap gives a large batch), at least one and at most BATCH_SIZE.
+    // Retrieving them together does not change the results nor the stopping condition, because the
+    // output threshold (the global MPFS) is still an upper bound of the score of every unseen result.
+    private int computeBatchSize(JoiningNetworkOfTupleSets network, int[] prefixes, TupleSet chosenTupleSet) {
+        if (BATCH_SIZE <= 1) return 1;
+
+        // The best MPFS of the other networks.
+        Double threshold = 0.0;
+        for (CandidateNetworkMPFSPair pair : this.networksPQueue) {
+            if (pair.getCandidateNetwork() != network && pair.getScore() > threshold)
+                threshold = pair.getScore();
+        }
+
+        // The MPFS of the other tuple sets of the network.
+        List<TupleSet> tupleSets = network.getNonFreeTupleSets();
+        for (int i = 0; i < tupleSets.size(); i++) {
+            TupleSet tupleSet = tupleSets.get(i);
+            if (tupleSet.equals(chosenTupleSet) || prefixes[i] == tupleSet.getSize()) continue;
+
+            Double mpfs = network.computeMaximumPossibleFutureScore(tupleSet, prefixes[i]);
+            if (mpfs > threshold)
+                threshold = mpfs;
+        }
+
+        // Take the next tuples of the chosen tuple set while their MPFS stays above the threshold.
+        int prefix = prefixes[tupleSets.indexOf(chosenTupleSet)];
+        int batchSize = 1;
+        while (batchSize < BATCH_SIZE && prefix + batchSize < chosenTupleSet.getSize() &&
+                network.computeMaximumPossibleFutureScore(chosenTupleSet, prefix + batchSize) >= threshold) {
+            batchSize++;
+        }
+
+        return batchSize;
+    }
+
+    // Update the MPFS of the network with the parameter index in the Priority Queue.
+    // If it is not contained in the queue add it.
+    private void updateCandidateNetworksMPFS(int index) {
+        JoiningNetworkOfTupleSets network = this.candidateNetworks.get(index);
+
         // Compute the networks MPFS.
         Double networksMPFS = network.computeGlobalMaximumPossibleFutureScoreOnly(
-            network.getNonFreeTupleSets(), prefixes
+            network.getNonFreeTupleSets(), this.prefixesPerCN.get(index)
         );
 
-        // Create a new pair with the updated score.
-        CandidateNetworkMPFSPair pair = new CandidateNetworkMPFSPair(network, networksMPFS);
-
-        // It the pair is stored remove it and add a new with the updated score.
-        // The contains function looks only for equal Candidate Networks in the pair, not scores.
-        if (this.networksPQueue.contains(pair)) {
-            this.networksPQueue.remove(pair);            
+        // If the network is stored update its score in place (moving it in the queue),
+        // else add a new pair with the score.
+        IndexedPriorityQueue.Handle<CandidateNetworkMPFSPair> handle = this.networkHandles.get(index);
+        if (handle != null) {
+            handle.getElement().setRight(networksMPFS);
+            this.networksPQueue.update(handle);
+        }
+        else {
+            this.networkHandles.set(index, this.networksPQueue.add(new CandidateNetworkMPFSPair(network, networksMPFS, index)));
         }
-        
-        // Add the a new pair with the updates score
-        this.networksPQueue.add(pair);
     }
     
 
@@ -315,7 +378,7 @@ public class GlobalPipelineExecutionEngine extends ExecutionEngine {
                 tempGlobalMPFS = pair.getLeft();
 
             // Update the networks MPFS and add it to the Priority queue.
-            this.updateCandidateNetworksMPFS(network, prefixes);
+            this.updateCandidateNetworksMPFS(index);
 
             System.out.println();
         }
@@ -358,7 +421,7 @@ public class GlobalPipelineExecutionEngine extends ExecutionEngine {
             this.maxTuples
         );
 
-        executor.initializeExecutor();
+        this.initializeExecutor(executor);
     
     
         // Initialize the Queue of results by executing a parameterized query for 
@@ -372,7 +435,7 @@ public class GlobalPipelineExecutionEngine extends ExecutionEngine {
             // Get the network with the Best MPFS score.
             CandidateNetworkMPFSPair promisingNetworkPair = this.networksPQueue.peek();
             JoiningNetworkOfTupleSets network = promisingNetworkPair.getCandidateNetwork();
-            int [] prefixes = this.prefixesPerCN.get(this.candidateNetworks.indexOf(network));
+            int [] prefixes = this.prefixesPerCN.get(promisingNetworkPair.getIndex());
 
             // System.out.println("----\nBest network : " + network.toAbbreviation() +
             //     "\nWith Score : " + promisingNetworkPair.getScore() +
@@ -382,9 +445,10 @@ public class GlobalPipelineExecutionEngine extends ExecutionEngine {
             // First Compute the maximum possible feature score of the Network.
             Pair<Double, TupleSet> pair = network.computeGlobalMaximumPossibleFutureScore(network.getNonFreeTupleSets(), prefixes);
 
-            // Increment the prefix of the chosen tuple set by one.            
+            // Increment the prefix of the chosen tuple set by the size of the batch.            
             int chosenTupleSetIndex = network.getNonFreeTupleSets().indexOf(pair.getRight());
-            prefixes[chosenTupleSetIndex]++;
+            int batchSize = this.computeBatchSize(network, prefixes, pair.getRight());
+            prefixes[chosenTupleSetIndex] += batchSize;
             if (prefixes[chosenTupleSetIndex] == pair.getRight().getSize()) {
                 this.retrievedTupleSets++;
             }
@@ -396,14 +460,14 @@ public class GlobalPipelineExecutionEngine extends ExecutionEngine {
             // System.out.println("\nChosen: " + pair.getValue().toAbbreviation());
             // System.out.println("maximum MPFS = " + pair.getKey() + "\n");
 
-            // Execute the combinations.
-            this.executeAllCombinations(executor, network, prefixes, pair.getRight());
+            // Execute the combinations of the batch with the retrieved tuples.
+            this.executeAllCombinations(executor, network, prefixes, pair.getRight(), batchSize);
 
             // Print any results before updating the scores.
             this.printResultsAboveThreshold(this.getGlobalMPFS());
 
             // Update the networks MPFS in the Priority Queue.
-            this.updateCandidateNetworksMPFS(network, prefixes);
+            this.updateCandidateNetworksMPFS(promisingNetworkPair.getIndex());
             
             // System.out.println("\nUpdated GlobalMPFS : " + this.getGlobalMPFS() + "\n");
         }
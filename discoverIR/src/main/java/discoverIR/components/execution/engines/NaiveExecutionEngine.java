@@ -65,7 +65,7 @@ public class NaiveExecutionEngine extends ExecutionEngine {
         // Initialize a Candidate Network Executor.
         CandidateNetworkExecutor executor = new CandidateNetworkExecutor(modifiedSchemaGraph, modifiedDatabase,
                 nonFreeTupleSets, super.maxTuples);
-        executor.initializeExecutor();
+        this.initializeExecutor(executor);
 
         // Loop through the candidate networks and execute them.
         for (JoiningNetworkOfTupleSets candidateNetwork: super.candidateNetworks) {
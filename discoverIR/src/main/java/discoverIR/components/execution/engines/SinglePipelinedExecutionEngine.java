@@ -158,7 +158,7 @@ public class SinglePipelinedExecutionEngine extends ExecutionEngine {
                 this.nonFreeTupleSets
         );
 
-        executor.initializeExecutor();
+        this.initializeExecutor(executor);
 
         System.out.println("Initializing queue by joining top tuples.\n");
 
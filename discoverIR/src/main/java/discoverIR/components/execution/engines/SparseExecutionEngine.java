@@ -2,6 +2,7 @@ package discoverIR.components.execution.engines;
 
 import shared.database.model.SQLDatabase;
 import shared.database.model.graph.SchemaGraph;
+import shared.util.TopKHeap;
 
 import discoverIR.components.execution.executors.CandidateNetworkExecutor;
 import discoverIR.model.OverloadedTuple;
@@ -101,22 +102,24 @@ public class SparseExecutionEngine extends ExecutionEngine {
         );
 
         // Initialize the Candidate Network Executor.
-        candidateNetworkExecutor.initializeExecutor();
+        this.initializeExecutor(candidateNetworkExecutor);
 
         // Group the candidate networks according to their size.
         // Smaller networks need to be evaluated first for efficiency reasons.
         List<List<JoiningNetworkOfTupleSets>> groupedNetworks = groupNetworksBySize(this.candidateNetworks);
 
         List<OverloadedTupleList> topTuples = new ArrayList<OverloadedTupleList>();
-        Double threshold = 0.0; // Networks with an MPSi above this value will be executed.
-        int topTuplesNumber = 0;
+
+        // The top tuples from all the executed networks. When it is full, only the networks with an
+        // MPSi above the score of its last tuple (the threshold) will be executed.
+        TopKHeap<OverloadedTuple> topK = new TopKHeap<>(this.maxTuples, new OverloadedTuple.ScoreComparator());
 
         // Loop through the networks (smaller first).
         for (List<JoiningNetworkOfTupleSets> innerList : groupedNetworks) {
             for (JoiningNetworkOfTupleSets network : innerList) {
                 Double networkScore = network.computeMaximumPossibleScore();
 
-                if (topTuplesNumber < this.maxTuples || networkScore > threshold) {
+                if (!topK.isFull() || networkScore > topK.peekLast().getScore()) {
                     // System.out.println("EXECUTE " + network);
                     // System.out.println("passes threshold: " + threshold + " with MPS: " + networkScore + "\n");
 
@@ -135,13 +138,9 @@ public class SparseExecutionEngine extends ExecutionEngine {
                     // System.out.println("\nRESULT\n");
                     // resultTuples.print(true);
 
-                    // Add the tuples and update the threshold
+                    // Add the tuples (updating the threshold).
                     topTuples.add(resultTuples);
-                    threshold = keepTopKTuples(topTuples, threshold);
-
-                    // Update the capacity of the topTuplesList;
-                    for (OverloadedTupleList list: topTuples)
-                        topTuplesNumber += list.getTupleList().size();
+                    topK.addAll(resultTuples.getTupleList());
 
                     // System.out.println("\nTOP TUPLES FROM ALL CNs\n");
                     // for (OverloadedTupleList list: topTuples)  {
@@ -156,13 +155,9 @@ public class SparseExecutionEngine extends ExecutionEngine {
             }
         }
 
-        // Create a list containing all top tuples.
-        for (OverloadedTupleList tupleList: topTuples) {
-            this.results.addAll(tupleList.getTupleList());
-        }
-
-        // Sort the list.
-        Collections.sort(this.results, new OverloadedTuple.ScoreComparator());
+        // Keep only the top tuples in the lists of the networks and in the results.
+        this.keepTopKTuples(topTuples);
+        this.results = topK.toSortedList();
 
         // Print the results.
         this.printResults(topTuples);
@@ -1,9 +1,9 @@
 package discoverIR.components.execution.executors;
 
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -22,6 +22,7 @@ import discoverIR.model.JoiningNetworkOfTupleSets;
 import discoverIR.model.OverloadedTuple;
 import discoverIR.model.OverloadedTupleList;
 import shared.database.model.SQLQuery;
+import shared.database.model.TupleDecoder;
 
 // Input: A Candidate Network
 // Output: The list of tuples contained in the Candidate Network.
@@ -66,23 +67,22 @@ public class CandidateNetworkExecutor extends Executor {
 
         // Initialize connection variables.
         Connection con = null;
-        Statement stmt = null;
+        PreparedStatement stmt = null;
         ResultSet rs = null;
         try {
             // Get the connection.
             con = DataSourceFactory.getConnection();
 
-            // Create and execute the statement.
-            stmt = con.createStatement();
+            // Prepare (or reuse the prepared statement of a query with the same shape) and execute.
+            stmt = DatabaseUtil.prepareSelectQuery(con, query);
             stmt.setQueryTimeout(SQL_TIMEOUT);           
-            rs = stmt.executeQuery(selectQuery);
+            rs = stmt.executeQuery();
 
             // Get the results
+            TupleDecoder decoder = TupleDecoder.forColumnNames(joinableFormat.getColumnsWithoutAliases(), rs.getMetaData(), "score");
             while(rs.next()) {
                 OverloadedTuple tuple = new OverloadedTuple();
-                tuple.fill(
-                    joinableFormat.getColumnsWithoutAliases(), rs, candidateNetwork.getSize()
-                );
+                tuple.fill(decoder, rs, candidateNetwork.getSize());
                 tuple.setQuery(query);
                 resultTuples.add(tuple);
             }
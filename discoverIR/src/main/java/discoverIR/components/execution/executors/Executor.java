@@ -78,6 +78,10 @@ public abstract class Executor {
         this.preProcessor.createTempTablesForTupleSets();
     }
 
+    public ExecutionPreProcessor getPreProcessor() {
+        return this.preProcessor;
+    }
+
     // Restores all changes created to the TupleSets and SQLTables and
     // drop all the temporary Tables Created.
     public void finalizeExecutor() {
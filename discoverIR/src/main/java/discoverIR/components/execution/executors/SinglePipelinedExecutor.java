@@ -1,10 +1,12 @@
 package discoverIR.components.execution.executors;
 
+import shared.database.model.InListConstraint;
 import shared.database.model.SQLColumn;
 import shared.database.model.SQLDatabase;
 import shared.database.model.SQLTable;
 import shared.database.model.SQLType;
 import shared.database.model.SQLValue;
+import shared.database.model.TupleDecoder;
 import shared.database.model.graph.SchemaGraph;
 import shared.database.connectivity.DataSourceFactory;
 import shared.database.connectivity.DatabaseUtil;
@@ -12,14 +14,16 @@ import shared.util.Pair;
 
 import discoverIR.model.FreeTupleSet;
 import discoverIR.model.OverloadedTuple;
+import discoverIR.model.SQLTempTable;
 import discoverIR.model.TupleSet;
 import discoverIR.exceptions.JoinCandidateNotFoundException;
 
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -36,7 +40,6 @@ public class SinglePipelinedExecutor extends Executor {
         "FROM %s " +  // The tables of the tupleSets.
         "WHERE %s %s " + // The first %s are the JoinEquations and the second the in list constraints.
         "ORDER BY score LIMIT %s";
-    protected final static String IN_LIST_ASSIGNMENT = "%s IN (%s)";
 
     // Public Constructor.
     public SinglePipelinedExecutor(
@@ -48,37 +51,30 @@ public class SinglePipelinedExecutor extends Executor {
         super(database, schemaGraph, maxTuples, nonFreeTupleSets);
     }
 
-    // Returns a constraint containing specific Primary Key's values in String format.
+    // Returns a constraint containing specific Primary Key's values.
     // Create a list containing values of the Primary Key (of the TupleSet's Table)
     // which are used to limit the tuples Select query to those tuples that are contain
     // by the tupleSets. This list of values is applied in the WHERE stmt
-    // with that format "[columnName] IN ([idsList])".
-    protected String getInListConstraintForIds(TupleSet tupleSet, SQLColumn columnInvolvingInJoin) {
-        String inListAssignment = new String();
-
+    // with that format "[columnName] IN ([idsList])", and bound as parameters.
+    // Returns null for free tuple sets.
+    protected InListConstraint getInListConstraintForIds(TupleSet tupleSet, SQLColumn columnInvolvingInJoin) {
         // Check if the Tuple Set is not a Free tuple Set.
-        if (!(tupleSet instanceof FreeTupleSet)) {
-
-            // Get the TupleSets tuples and extract the value of the PK column.
-            // This is the id we want
-            String idList = new String();
-            for (OverloadedTuple tuple: tupleSet.getTuples()) {
-                SQLValue value = tuple.getValueOfColumnWithName(columnInvolvingInJoin.getName());
-                if (value != null) {
-                    idList += value.toString() + ", ";
-                }
-            }
-
-            // Remove the last ", ".
-            if (idList.length() != 0)
-                idList = idList.substring(0, idList.length()-2);
+        if (tupleSet instanceof FreeTupleSet)
+            return null;
 
-            // Create the assignment
-            String columnWithAlias = columnInvolvingInJoin.getTableName() + "." + columnInvolvingInJoin.getName();
-            inListAssignment = String.format(IN_LIST_ASSIGNMENT, columnWithAlias, idList);
+        // Get the TupleSets tuples and extract the value of the PK column.
+        // This is the id we want
+        List<Object[]> ids = new ArrayList<>();
+        for (OverloadedTuple tuple: tupleSet.getTuples()) {
+            SQLValue value = tuple.getValueOfColumnWithName(columnInvolvingInJoin.getName());
+            if (value != null) {
+                ids.add(new Object[]{ value.getValue() });
+            }
         }
 
-        return inListAssignment;
+        // Create the assignment
+        String columnWithAlias = columnInvolvingInJoin.getTableName() + "." + columnInvolvingInJoin.getName();
+        return new InListConstraint(Arrays.asList(columnWithAlias), ids);
     }
 
     // Returns a list of Pairs. Those pairs contain columns where the SQLTable connected with the
@@ -170,14 +166,16 @@ public class SinglePipelinedExecutor extends Executor {
     }
 
 
-    // Create the SQL Select Query joining all the TupleSets
-    // in the input List and return it in String format.
-    private String getSelectQueryToString(List<TupleSet> tupleSetList) throws JoinCandidateNotFoundException {
+    // Create the SQL Select Query joining all the TupleSets in the input List and return
+    // it in String format. The values of the in list constraints are added to the parameters,
+    // unless they are more than a query can have and are inlined.
+    private String getSelectQueryToString(List<TupleSet> tupleSetList, List<Object> parameters) throws JoinCandidateNotFoundException {
         // Strings used to fill the parameterized query.
         String sqlTablesList = new String();
         String sqlInListConstraints = new String();
         String sqlListOfJoinEquations = new String();
         Set<SQLTable> tables = new HashSet<>();
+        List<InListConstraint> inListConstraints = new ArrayList<>();
 
         // A set storing unique join equations.
         Set<JoinEquation> equations = new HashSet<>();
@@ -197,7 +195,11 @@ public class SinglePipelinedExecutor extends Executor {
 
             // Add the SQLTable that this tupleSet is connected with, to the sqlTableList string.
             if (!tables.contains(tupleSet.getTable())) {
-                sqlTablesList += tupleSet.getTable().getName() + ", ";
+                // An inlined temp table is a derived table, named after the temp table.
+                if (tupleSet.getTable() instanceof SQLTempTable && ((SQLTempTable) tupleSet.getTable()).isInlined())
+                    sqlTablesList += ((SQLTempTable) tupleSet.getTable()).getFromExpression() + " AS " + tupleSet.getTable().getName() + ", ";
+                else
+                    sqlTablesList += tupleSet.getTable().getName() + ", ";
                 tables.add(tupleSet.getTable());
             }
 
@@ -229,13 +231,27 @@ public class SinglePipelinedExecutor extends Executor {
             // tuple set.
             for (SQLColumn column: tupleSetColumnsInvolvingInJoinPairs) {
                 // System.out.println("Column for in list: " + column);
-                sqlInListConstraints += this.getInListConstraintForIds(tupleSet, column) + " AND ";
+                inListConstraints.add(this.getInListConstraintForIds(tupleSet, column));
             }
 
             // Add all the Columns contained from keywords from this TupleSet in the columns set.
             columnsToSelect.addAll(tupleSet.getColumnsContainingKeywords());
         }
 
+        // Add the in list constraints, with bind parameters if they fit in the query.
+        int parametersNum = 0;
+        for (InListConstraint inList: inListConstraints)
+            parametersNum += inList.getParametersNum();
+        for (InListConstraint inList: inListConstraints) {
+            if (parametersNum <= InListConstraint.MAX_PARAMETERS) {
+                sqlInListConstraints += inList.toParameterizedString() + " AND ";
+                inList.addParameters(parameters);
+            }
+            else {
+                sqlInListConstraints += inList.toString() + " AND ";
+            }
+        }
+
         // Add all the Join Equations to the sqlListOfJoinEquations string.
         for (JoinEquation joinEquation: equations) {
             sqlListOfJoinEquations += joinEquation.toString() + " AND ";
@@ -270,27 +286,29 @@ public class SinglePipelinedExecutor extends Executor {
         }
 
         // Create the SQL SELECT QUERY.
-        String selectQuery = this.getSelectQueryToString(tupleSetList);
+        List<Object> parameters = new ArrayList<>();
+        String selectQuery = this.getSelectQueryToString(tupleSetList, parameters);
 
         // System.out.println("Query :" + selectQuery + "\n");
 
         // Initialize connection variables.
         Connection con = null;
-        Statement stmt = null;
+        PreparedStatement stmt = null;
         ResultSet rs = null;
 
         try {
             // Get Connection.
             con = DataSourceFactory.getConnection();
 
-            // Create the statement and execute it.
-            stmt = con.createStatement();
-            rs = stmt.executeQuery(selectQuery);
+            // Prepare the statement, bind the in list values and execute it.
+            stmt = DatabaseUtil.prepareQuery(con, selectQuery, parameters);
+            rs = stmt.executeQuery();
 
             // Get the results
+            TupleDecoder decoder = TupleDecoder.forColumnNames(this.columnsToSelect, rs.getMetaData(), "score");
             while (rs.next()) {
                 OverloadedTuple tuple = new OverloadedTuple();
-                tuple.fill(this.columnsToSelect, rs, this.columnsToSelect.size());
+                tuple.fill(decoder, rs, this.columnsToSelect.size());
                 resultTuples.add(tuple);
             }
 
@@ -15,13 +15,23 @@ public class ShutdownHook extends Thread {
         this.executionPreProcessor = executionPreProcessor;
     }
 
+    /** Constructor of the hook dropping the tables of the ExecutionPreProcessor's pool. */
+    public ShutdownHook() {
+        this.executionPreProcessor = null;
+    }
+
     /**
      * This function runs the actual clean up code.
      */
     public void run() {
         System.out.println("[INFO] Shutdown hook called. Dropping Tables....");
-        synchronized(this.executionPreProcessor) {
-            this.executionPreProcessor.dropAllTempTables();
+        if (this.executionPreProcessor == null) {
+            ExecutionPreProcessor.POOL.dropAll();
+        }
+        else {
+            synchronized(this.executionPreProcessor) {
+                this.executionPreProcessor.dropAllTempTables();
+            }
         }
         System.out.println("[INFO] Tables Dropped");
     }
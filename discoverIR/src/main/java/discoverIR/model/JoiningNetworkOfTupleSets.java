@@ -11,6 +11,7 @@ import java.util.Map;
 import java.util.HashMap;
 import java.util.Set;
 import java.util.HashSet;
+import java.util.Collections;
 import java.util.Queue;
 import java.util.LinkedList;
 
@@ -19,8 +20,6 @@ import java.util.LinkedList;
 // there is an an edge between the tables Ri Rj in the schema graph.
 public class JoiningNetworkOfTupleSets {
 
-    private static int sizeOfTreeWithRootOnly = 1;
-
     private Node root; // The root of the network.
     private int size; // The size of the network (number of tuple sets).
     private List<TupleSet> networkTupleSets; // All the tuple sets in the network.
@@ -217,16 +216,24 @@ public class JoiningNetworkOfTupleSets {
         if (node == null) return null;
 
         Node copyNode = new Node(node.tupleSet, parent);
+        boolean subtreeChanged = false;
         for (Node child : node.children) {
-            copyNode.children.add(copyNetwork(tupleSet, adjacent, currentDepth+1, depth, child, copyNode, expandedNode));
+            Node copyChild = copyNetwork(tupleSet, adjacent, currentDepth+1, depth, child, copyNode, expandedNode);
+            subtreeChanged |= copyChild.canonicalForm != child.canonicalForm;
+            copyNode.children.add(copyChild);
         }
 
         // Attach the adjacent tuple set Ri^K to its appropriate neighbor.
         if ((copyNode.tupleSet.equals(tupleSet) && (currentDepth == depth))) {
             copyNode.children.add(new Node(adjacent, copyNode));
             expandedNode.shallowCopy(copyNode); // Save a reference to return to the caller function.
+            subtreeChanged = true;
         }
 
+        // Reuse the canonical form of an unchanged subtree, so that only
+        // the path from the root to the expanded node is encoded again.
+        copyNode.canonicalForm = subtreeChanged ? null : node.canonicalForm;
+
         return copyNode;
     }
 
@@ -637,40 +644,41 @@ public class JoiningNetworkOfTupleSets {
         // If the trees have different sizes then return false.
         if (this.size != jnts.size) return false;        
 
-        // Check the special case where jnts and this have only roots.
-        if (this.size == sizeOfTreeWithRootOnly)
-            return this.getRoot().getTupleSet().equals(jnts.getRoot().getTupleSet());
-        
-        // System.out.println("----\nEquals for this:\n" + this +
-        //     "\nJnts:\n" + jnts + "-----"
-        // );
-        
-        // If no false is returned then they are the same.
-        return this.parallelBfsEquals(jnts);
+        // Isomorphic networks have the same canonical form.
+        return this.getCanonicalForm().equals(jnts.getCanonicalForm());
     }
 
-    // Recursively create the tree's hashCode. Its the sum
-    // of all joinable Expressions hashCodes in the tree.
-    private int recTreeHashCode(Node node) {
-        // Get the parents HashCode.
-        int hashCode = node.getTupleSet().hashCode();
+    // Returns the canonical form of the network: a string that is the same for
+    // all the networks with the same tuple sets joined in the same shape, no matter
+    // the order of the children. Every node is encoded as its tuple set's label
+    // followed by the sorted encodings of its children in parentheses. The encodings
+    // are cached in the nodes, so expanding a network only encodes the changed path.
+    public String getCanonicalForm() {
+        return canonicalFormOf(this.root);
+    }
 
-        // Get the children's HashCode.
-        int childrenHashCode = 1;
-        for (Node child: node.children) {
-            // Sum the children's HashCode.
-            childrenHashCode += recTreeHashCode(child);
-        }
+    // Returns the canonical form of the subtree rooted at the node.
+    private static String canonicalFormOf(Node node) {
+        if (node.canonicalForm != null)
+            return node.canonicalForm;
+
+        List<String> childrenForms = new ArrayList<>(node.children.size());
+        for (Node child : node.children)
+            childrenForms.add(canonicalFormOf(child));
+        Collections.sort(childrenForms);
 
-        // Add the hashCodes.
-        return hashCode + childrenHashCode;
+        StringBuilder form = new StringBuilder(node.tupleSet.getCanonicalLabel()).append('(');
+        for (String childForm : childrenForms)
+            form.append(childForm);
+        node.canonicalForm = form.append(')').toString();
+        return node.canonicalForm;
     }
 
     @Override
     public int hashCode() {
         int hash = 1;
         hash = 31 * hash + this.size;
-        int treeHashCode = recTreeHashCode(this.root);
+        int treeHashCode = this.getCanonicalForm().hashCode();
         return hash*31 + treeHashCode;
     }
 
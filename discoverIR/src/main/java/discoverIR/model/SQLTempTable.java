@@ -18,6 +18,10 @@ public class SQLTempTable extends SQLTable {
     // A hashMap linking baseTable's columns with this table's Columns.
     private HashMap<SQLColumn,SQLColumn> baseTableColumnLinksMap;
 
+    // The SELECT query of a derived table returning the tuples of the temp table, when the
+    // table is inlined in the queries instead of being created in the database (null otherwise).
+    private String derivedTableQuery;
+
 
     // Public Constructor    
     public SQLTempTable(String name) {
@@ -30,6 +34,24 @@ public class SQLTempTable extends SQLTable {
         return this.baseTable;
     }
 
+    // Returns true if the table is not created in the database but
+    // inlined in the queries as a derived table.
+    public boolean isInlined() {
+        return this.derivedTableQuery != null;
+    }
+
+    public void setDerivedTableQuery(String derivedTableQuery) {
+        this.derivedTableQuery = derivedTableQuery;
+    }
+
+    // Returns the table in the format of the FROM part of a query: the derived
+    // table in parentheses if the table is inlined, or else the table's name.
+    public String getFromExpression() {
+        if (this.isInlined())
+            return "(" + this.derivedTableQuery + ")";
+        return this.getName();
+    }
+
     // Get the TempTable's SQLColumn that was created like the 
     // SQLColumn column that the SQLTable containedTable has stored.
     public SQLColumn getColumnLikeConnectedTables(SQLColumn column) {
@@ -0,0 +1,102 @@
+package discoverIR.testing;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import discoverIR.components.CandidateNetworksGenerator;
+import discoverIR.components.IREngine;
+import discoverIR.components.Parser;
+import discoverIR.model.FreeTupleSet;
+import discoverIR.model.JoiningNetworkOfTupleSets;
+import discoverIR.model.TupleSet;
+import discoverIR.model.TupleSetGraph;
+import shared.database.config.PropertiesSingleton;
+import shared.database.connectivity.DataSourceFactory;
+import shared.database.model.DatabaseType;
+import shared.database.model.SQLDatabase;
+import shared.database.model.graph.SchemaGraph;
+import shared.util.Stopwords;
+import shared.util.Timer;
+
+// Compares the sequential CandidateNetworksGenerator with the one expanding the networks
+// of a level concurrently on the queries of the query file. The candidate networks of every
+// query are generated with 1 worker and with N workers (the second argument, by default the
+// number of processors) from the same tuple sets, and a line is printed for every query with
+// the best time of both, the speedup and whether they generated the same number of networks.
+public class CandidateNetworksGeneratorBenchmark {
+
+    private static final String QUERY_FILE = "./q";
+    private static final int MAX_NETWORK_SIZE = 3;
+    private static final int REPETITIONS = 3;
+
+    public static void main(String[] args) {
+        PropertiesSingleton.loadPropertiesFile("app");
+        List<String> queries = TestingMain.getQueryList((args.length > 0) ? args[0] : QUERY_FILE);
+        int workers = (args.length > 1) ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        TestingMain.readAndStoreDatabases(new String[]{"mysql.IMDB", "mysql.YELP", "mysql.MAS"});
+
+        System.out.println("query;networks (1 worker);networks (" + workers + " workers);time (1 worker);time (" +
+            workers + " workers);speedup;same networks");
+        for (String line : queries) {
+            String query = line.split(";")[0];
+            String schemaName = line.split(";")[1];
+            try {
+                benchmarkQuery(query, schemaName, workers);
+            }
+            catch (Exception e) {
+                System.out.println("[ERROR] Exception occurred while running query: " + query);
+                e.printStackTrace();
+            }
+        }
+    }
+
+    // Generates the candidate networks of a query with 1 and with the given number of workers.
+    private static void benchmarkQuery(String query, String schemaName, int workers) {
+        String name = schemaName.split("\\.")[1];
+        String type = schemaName.split("\\.")[0];
+        DataSourceFactory.loadConnectionProperties(name, DatabaseType.getTypeFromString(type));
+        SQLDatabase database = TestingMain.storedDatabases.get(schemaName).getLeft();
+        SchemaGraph schemaGraph = TestingMain.storedDatabases.get(schemaName).getRight();
+
+        // Parse the query into keywords.
+        List<String> keywords = Parser.whitespaceTokenizer(query);
+        keywords.removeIf(k -> ( Stopwords.isStopword(k) ));
+
+        // Create the tuple sets and the tuple set graph once, for both generators.
+        List<TupleSet> tupleSets = new IREngine(keywords, database).generateTupleSets(query);
+
+        List<TupleSet> freeAndNonFreeTupleSets = new ArrayList<TupleSet>();
+        freeAndNonFreeTupleSets.addAll(tupleSets);
+        freeAndNonFreeTupleSets.addAll(FreeTupleSet.getFreeTupleSets(database.getTables()));
+        TupleSetGraph tupleSetGraph = new TupleSetGraph();
+        tupleSetGraph.fill(freeAndNonFreeTupleSets, schemaGraph);
+
+        double[] sequential = generate(tupleSets, tupleSetGraph, keywords, 1);
+        double[] parallel = generate(tupleSets, tupleSetGraph, keywords, workers);
+
+        System.out.println(
+            query + ";" + (int) sequential[0] + ";" + (int) parallel[0] + ";" + sequential[1] + ";" +
+            parallel[1] + ";" + (sequential[1] / parallel[1]) + ";" + (sequential[0] == parallel[0])
+        );
+    }
+
+    // Generates the candidate networks REPETITIONS times with the given number of workers and
+    // returns the number of networks and the best time.
+    private static double[] generate(List<TupleSet> tupleSets, TupleSetGraph tupleSetGraph,
+            List<String> keywords, int workers) {
+        int networks = 0;
+        double bestTime = Double.MAX_VALUE;
+        for (int repetition = 0; repetition < REPETITIONS; repetition++) {
+            Timer timer = new Timer(Timer.Type.WALL_CLOCK_TIME);
+            timer.start();
+            CandidateNetworksGenerator generator = new CandidateNetworksGenerator(
+                tupleSets, tupleSetGraph, keywords, MAX_NETWORK_SIZE, workers
+            );
+            List<JoiningNetworkOfTupleSets> candidateNetworks = generator.generate(true);
+            bestTime = Math.min(bestTime, timer.stop());
+            networks = candidateNetworks.size();
+        }
+        return new double[] { networks, bestTime };
+    }
+
+}
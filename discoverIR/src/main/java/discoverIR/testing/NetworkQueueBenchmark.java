@@ -0,0 +1,181 @@
+package discoverIR.testing;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import discoverIR.components.CandidateNetworksGenerator;
+import discoverIR.components.IREngine;
+import discoverIR.components.Parser;
+import discoverIR.model.FreeTupleSet;
+import discoverIR.model.JoiningNetworkOfTupleSets;
+import discoverIR.model.TupleSet;
+import discoverIR.model.TupleSetGraph;
+import shared.database.config.PropertiesSingleton;
+import shared.database.connectivity.DataSourceFactory;
+import shared.database.model.DatabaseType;
+import shared.database.model.SQLDatabase;
+import shared.database.model.graph.SchemaGraph;
+import shared.util.IndexedPriorityQueue;
+import shared.util.Stopwords;
+import shared.util.Timer;
+
+// Compares the two ways the GlobalPipelineExecutionEngine can keep its candidate networks
+// ordered by their MPFS, on the candidate networks of the queries of the query file (use
+// the queries over wide schemas, which have the most networks). The scheduling of the engine
+// is replayed on both queues: every step takes the network with the best MPFS, lowers its
+// MPFS and puts it back, through the PriorityQueue contains / remove / add sequence the engine
+// used before, and through the handles of the IndexedPriorityQueue. A line is printed for every
+// query with the number of networks, the times of both queues and whether they took the
+// networks in the same order.
+public class NetworkQueueBenchmark {
+
+    private static final String QUERY_FILE = "./q";
+    private static final int MAX_NETWORK_SIZE = 3;
+    private static final int STEPS_PER_NETWORK = 10;
+    private static final long SEED = 42;
+
+    // A network and its MPFS. Like the engine's pairs, two pairs are equal if their networks are.
+    private static class NetworkScore {
+        JoiningNetworkOfTupleSets network;
+        int index;
+        double score;
+
+        NetworkScore(JoiningNetworkOfTupleSets network, int index, double score) {
+            this.network = network;
+            this.index = index;
+            this.score = score;
+        }
+
+        @Override
+        public int hashCode() {
+            return this.network.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == this) return true;
+            if (!(obj instanceof NetworkScore)) return false;
+            return this.network.equals(((NetworkScore) obj).network);
+        }
+    }
+
+    // Orders the pairs in descending order of their MPFS, and the pairs with the same MPFS
+    // by the index of their network, so both queues take the networks in the same order.
+    private static final Comparator<NetworkScore> BY_SCORE = (a, b) -> (a.score != b.score) ?
+        Double.compare(b.score, a.score) : Integer.compare(a.index, b.index);
+
+    public static void main(String[] args) {
+        PropertiesSingleton.loadPropertiesFile("app");
+        List<String> queries = TestingMain.getQueryList((args.length > 0) ? args[0] : QUERY_FILE);
+        TestingMain.readAndStoreDatabases(new String[]{"mysql.IMDB", "mysql.YELP", "mysql.MAS"});
+
+        System.out.println("query;networks;steps;PriorityQueue time;IndexedPriorityQueue time;speedup;same order");
+        for (String line : queries) {
+            String query = line.split(";")[0];
+            String schemaName = line.split(";")[1];
+            try {
+                benchmarkQuery(query, schemaName);
+            }
+            catch (Exception e) {
+                System.out.println("[ERROR] Exception occurred while running query: " + query);
+                e.printStackTrace();
+            }
+        }
+    }
+
+    // Generates the candidate networks of a query and replays the scheduling on both queues.
+    private static void benchmarkQuery(String query, String schemaName) {
+        String name = schemaName.split("\\.")[1];
+        String type = schemaName.split("\\.")[0];
+        DataSourceFactory.loadConnectionProperties(name, DatabaseType.getTypeFromString(type));
+        SQLDatabase database = TestingMain.storedDatabases.get(schemaName).getLeft();
+        SchemaGraph schemaGraph = TestingMain.storedDatabases.get(schemaName).getRight();
+
+        // Parse the query into keywords.
+        List<String> keywords = Parser.whitespaceTokenizer(query);
+        keywords.removeIf(k -> ( Stopwords.isStopword(k) ));
+
+        // Create the tuple sets and the candidate networks.
+        List<TupleSet> tupleSets = new IREngine(keywords, database).generateTupleSets(query);
+        List<TupleSet> freeAndNonFreeTupleSets = new ArrayList<TupleSet>();
+        freeAndNonFreeTupleSets.addAll(tupleSets);
+        freeAndNonFreeTupleSets.addAll(FreeTupleSet.getFreeTupleSets(database.getTables()));
+        TupleSetGraph tupleSetGraph = new TupleSetGraph();
+        tupleSetGraph.fill(freeAndNonFreeTupleSets, schemaGraph);
+        List<JoiningNetworkOfTupleSets> networks = new CandidateNetworksGenerator(
+            tupleSets, tupleSetGraph, keywords, MAX_NETWORK_SIZE
+        ).generate(true);
+        if (networks.isEmpty()) {
+            System.out.println(query + ";0;0;0;0;0;true");
+            return;
+        }
+
+        // The initial MPFS of every network, before any tuple is retrieved.
+        double[] scores = new double[networks.size()];
+        for (int index = 0; index < networks.size(); index++) {
+            JoiningNetworkOfTupleSets network = networks.get(index);
+            scores[index] = network.computeGlobalMaximumPossibleFutureScoreOnly(
+                network.getNonFreeTupleSets(), new int[network.getNonFreeTupleSets().size()]
+            );
+        }
+
+        int steps = STEPS_PER_NETWORK * networks.size();
+        Timer timer = new Timer(Timer.Type.WALL_CLOCK_TIME);
+        timer.start();
+        long priorityQueueOrder = replayWithPriorityQueue(networks, scores, steps);
+        double priorityQueueTime = timer.stop();
+
+        timer.start();
+        long indexedQueueOrder = replayWithIndexedPriorityQueue(networks, scores, steps);
+        double indexedQueueTime = timer.stop();
+
+        System.out.println(
+            query + ";" + networks.size() + ";" + steps + ";" + priorityQueueTime + ";" + indexedQueueTime + ";" +
+            (priorityQueueTime / indexedQueueTime) + ";" + (priorityQueueOrder == indexedQueueOrder)
+        );
+    }
+
+    // Replays the scheduling with a PriorityQueue and returns a hash of the order of the networks taken.
+    private static long replayWithPriorityQueue(List<JoiningNetworkOfTupleSets> networks, double[] scores, int steps) {
+        PriorityQueue<NetworkScore> queue = new PriorityQueue<>(BY_SCORE);
+        for (int index = 0; index < networks.size(); index++)
+            queue.add(new NetworkScore(networks.get(index), index, scores[index]));
+
+        Random random = new Random(SEED);
+        long order = 0;
+        for (int step = 0; step < steps; step++) {
+            NetworkScore head = queue.peek();
+            order = 31 * order + head.index;
+
+            // Remove the pair of the network and add it with its new MPFS.
+            NetworkScore pair = new NetworkScore(head.network, head.index, head.score * random.nextDouble());
+            if (queue.contains(pair))
+                queue.remove(pair);
+            queue.add(pair);
+        }
+        return order;
+    }
+
+    // Replays the scheduling with an IndexedPriorityQueue and returns a hash of the order of the networks taken.
+    private static long replayWithIndexedPriorityQueue(List<JoiningNetworkOfTupleSets> networks, double[] scores, int steps) {
+        IndexedPriorityQueue<NetworkScore> queue = new IndexedPriorityQueue<>(BY_SCORE);
+        for (int index = 0; index < networks.size(); index++)
+            queue.add(new NetworkScore(networks.get(index), index, scores[index]));
+
+        Random random = new Random(SEED);
+        long order = 0;
+        for (int step = 0; step < steps; step++) {
+            IndexedPriorityQueue.Handle<NetworkScore> head = queue.peekHandle();
+            order = 31 * order + head.getElement().index;
+
+            // Update the MPFS of the network in place.
+            head.getElement().score *= random.nextDouble();
+            queue.update(head);
+        }
+        return order;
+    }
+
+}
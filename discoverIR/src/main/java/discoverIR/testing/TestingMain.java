@@ -24,9 +24,9 @@ import discoverIR.model.JoiningNetworkOfTupleSets;
 import discoverIR.model.Parameters;
 import discoverIR.model.TupleSet;
 import discoverIR.model.TupleSetGraph;
+import shared.database.config.PropertiesSingleton;
 import shared.database.connectivity.DataSourceFactory;
-import shared.database.connectivity.DatabaseConfigurations;
-import shared.database.connectivity.DatabaseInfo;
+import shared.database.model.DatabaseType;
 import shared.database.model.SQLDatabase;
 import shared.database.model.graph.SchemaGraph;
 import shared.util.Pair;
@@ -46,6 +46,7 @@ public class TestingMain {
 		PrintStream originalOut = System.out;
 
         // Load properties and queries
+        PropertiesSingleton.loadPropertiesFile("app");
         CSVManager.init();
         ArrayList<Boolean> dflag = new ArrayList<>();
         List<String> overloadedQueries = getQueryList(QUERY_FILE);
@@ -59,7 +60,7 @@ public class TestingMain {
         scanner.nextLine();
 
         // Read and store know databases for testing        
-        readAndStoreDatabases(new String[]{"IMDB", "YELP", "MAS"});
+        readAndStoreDatabases(new String[]{"mysql.IMDB", "mysql.YELP", "mysql.MAS"});
         
         // Execute the queries
         for (String ovQuery: overloadedQueries) {
@@ -68,8 +69,11 @@ public class TestingMain {
             String query = queryStats.query = ovQuery.split(";")[0];
             String schemaName = ovQuery.split(";")[1];
             
-            // Automatically get the info of the database.
-            useDatabase(schemaName);
+            String name = schemaName.split("\\.")[1];
+            String type = schemaName.split("\\.")[0];
+
+            // Change the Datasource Object to reflect the database of the query.
+            DataSourceFactory.loadConnectionProperties(name, DatabaseType.getTypeFromString(type));
             SQLDatabase database = storedDatabases.get(schemaName).getLeft();
             SchemaGraph schemaGraph = storedDatabases.get(schemaName).getRight();
             
@@ -252,15 +256,6 @@ public class TestingMain {
             System.out.print(message);
     }
     
-    /**
-     *  Set the database to be used.
-     */
-    static void useDatabase(String databaseName) {
-        DatabaseConfigurations configs = new DatabaseConfigurations("app", databaseName);     // "app" is the file name of the properties file           
-        DataSourceFactory.loadDbConfigurations(configs);        
-    }
-
-
     /**
      * Reads all databases and creates a database object and a schema object for 
      * each database. Then stores them for later usage
@@ -271,11 +266,11 @@ public class TestingMain {
         storedDatabases = new HashMap<>();
 
         for (String dbName: databases) {
-            // Use tha database we got from the input
-            useDatabase(dbName);
+            String name = dbName.split("\\.")[1];
+            String type = dbName.split("\\.")[0];
 
             // Automatically get the info of the database.
-            SQLDatabase database = DatabaseInfo.getDatabaseObject(dbName);
+            SQLDatabase database = SQLDatabase.InstantiateDatabase(name, DatabaseType.getTypeFromString(type));
 
             // Create PK-FK Relationship Graph.
             SchemaGraph schemaGraph = new SchemaGraph();
@@ -1,5 +1,6 @@
 package expressq2;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -17,7 +18,9 @@ import expressq2.model.OverloadedTupleList;
 import expressq2.model.QueryPattern;
 import expressq2.model.SQLQuery;
 
-import shared.database.connectivity.DatabaseConfigurations;
+import shared.database.config.PropertiesSingleton;
+import shared.database.connectivity.DataSourceFactory;
+import shared.database.model.DatabaseType;
 import shared.database.model.SQLDatabase;
 import shared.database.model.graph.ORMSchemaGraph;
 import shared.util.OrderedList;
@@ -28,18 +31,21 @@ import shared.connectivity.thor.input.InputHandler;
 import shared.connectivity.thor.response.Component;
 import shared.connectivity.thor.response.GeneralArchitecture;
 import shared.connectivity.thor.response.Response;
-import shared.connectivity.thor.response.Table;
+import shared.connectivity.thor.server.QueryHandler;
+import shared.connectivity.thor.server.QueryServer;
+import shared.util.Table;
 
 
-public class ExpressQ2Application {
+public class ExpressQ2Application implements QueryHandler {
     // Parameters
     String query;
     String schemaName;
+    DatabaseType databaseType;
     int maxTuples;
     int maxPatterns = 5;   // The maximum number of QueryInterpretations executed and returned to the user.
 
-    // Database Variables
-    HashMap<String, Pair<SQLDatabase, ORMSchemaGraph>> storedDatabases = new HashMap<>();
+    // Database Variables (the stored databases are shared by the workers of the server)
+    static final HashMap<String, Pair<SQLDatabase, ORMSchemaGraph>> storedDatabases = new HashMap<>();
     SQLDatabase database;
     ORMSchemaGraph schemaGraph;
 
@@ -55,8 +61,20 @@ public class ExpressQ2Application {
 
 
     public static void main(String[] args) {
-        // Load the database configurations from the configurations file.
-        DatabaseConfigurations.fill("app");
+        // Fill the configurations using the "app.properties" file
+        PropertiesSingleton.loadPropertiesFile("app");
+
+        // Answer the queries of many clients when started with '--server'.
+        if (QueryServer.isRequested(args)) {
+            try {
+                QueryServer server = QueryServer.fromProperties(ExpressQ2Application::new);
+                DataSourceFactory.setMaxConnections(server.getWorkers());  // A query uses one connection at a time.
+                server.serve();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            return;
+        }
 
         // Create an instance of the ExpressQ2 app
         ExpressQ2Application expressQ2App = new ExpressQ2Application();
@@ -65,7 +83,7 @@ public class ExpressQ2Application {
         InputHandler inputHandler = new InputHandler();
 
         // Read all THOR's databases
-        // expressQ2App.readAndStoreDatabases(new String[]{"IMDB", "MAS", "YELP"});
+        // expressQ2App.readAndStoreDatabases(new String[]{"mysql.IMDB", "mysql.MAS", "mysql.YELP"});
 
         // Create the timers
         Timer timer = new Timer(Type.WALL_CLOCK_TIME), totalTimer = new Timer(Type.WALL_CLOCK_TIME);
@@ -80,8 +98,9 @@ public class ExpressQ2Application {
 
             // Read the parameters needed for the execution from the stdin.
             expressQ2App.query = inputHandler.getQuery();
-            expressQ2App.schemaName = inputHandler.getSchemaName();
-            expressQ2App.maxTuples = inputHandler.getResultsNumber();
+            expressQ2App.schemaName = inputHandler.getDatabaseName();
+            expressQ2App.databaseType = inputHandler.getDatabaseType();
+            expressQ2App.maxTuples = inputHandler.getResultsPerInterpretation();
             if (inputHandler.shutDownSystem())
                 break;
 
@@ -94,17 +113,7 @@ public class ExpressQ2Application {
             Component executor = new Component("Executor");
 
             try {
-                // Get the database and the Schema Graph
-                expressQ2App.getDatabaseAndORMSchemaGraph(timer);
-
-                // Parse and Annotate the query
-                expressQ2App.parseAndAnnotateQuery(timer, qAnalyzer, genArch);
-
-                // Interpret the annotates Queries into Query Patterns
-                expressQ2App.createQueryPatters(timer, qInterpreter, genArch);
-
-                // Translate and execute the query Patterns
-                expressQ2App.translateAndExecuteQueryPatterns(timer, translator, executor, genArch);
+                expressQ2App.executeQuery(timer, genArch, qAnalyzer, qInterpreter, translator, executor);
             }
             catch (Exception e) {
                 System.err.println("[ERR] Exception ocurred while executing : " + expressQ2App.query);
@@ -133,6 +142,60 @@ public class ExpressQ2Application {
         }
     }
 
+    /**
+     * Answers a query of the {@link QueryServer} and returns the response for THOR.
+     */
+    @Override
+    public Response<?> answer(InputHandler request) throws Exception {
+        this.resetVars();
+        this.query = request.getQuery();
+        this.schemaName = request.getDatabaseName();
+        this.databaseType = request.getDatabaseType();
+        this.maxTuples = request.getResultsPerInterpretation();
+
+        // The components of ExpressQ displayed in THOR.
+        Timer timer = new Timer(Type.WALL_CLOCK_TIME);
+        GeneralArchitecture genArch = new GeneralArchitecture();
+        Component qAnalyzer = new Component("Query Analyzer");
+        Component qInterpreter = new Component("Query Interpreter");
+        Component translator = new Component("Translator");
+        Component executor = new Component("Executor");
+
+        this.executeQuery(timer, genArch, qAnalyzer, qInterpreter, translator, executor);
+
+        // Create the architecture of the system.
+        qAnalyzer.connectWith(qInterpreter, "Annotated Query");
+        qInterpreter.connectWith(translator, "Query Pattern");
+        translator.connectWith(executor, "SQLQuery");
+
+        return new Response<OverloadedTuple>(
+            "expressq",
+            "ExpressQ",
+            genArch,
+            Arrays.asList(qAnalyzer, qInterpreter, translator, executor),
+            this.finalResults
+        );
+    }
+
+    /**
+     * Runs all the components of ExpressQ for the current query.
+     */
+    void executeQuery(Timer timer, GeneralArchitecture genArch, Component qAnalyzer, Component qInterpreter,
+        Component translator, Component executor)
+    {
+        // Get the database and the Schema Graph
+        this.getDatabaseAndORMSchemaGraph(timer);
+
+        // Parse and Annotate the query
+        this.parseAndAnnotateQuery(timer, qAnalyzer, genArch);
+
+        // Interpret the annotates Queries into Query Patterns
+        this.createQueryPatters(timer, qInterpreter, genArch);
+
+        // Translate and execute the query Patterns
+        this.translateAndExecuteQueryPatterns(timer, translator, executor, genArch);
+    }
+
     /**
      * Reads all databases and creates a database object and a schema object for
      * each database. Then stores them for later usage
@@ -140,18 +203,21 @@ public class ExpressQ2Application {
      * @param databases
      */
     public void readAndStoreDatabases(String[] databases) {
-        this.storedDatabases = new HashMap<>();
+        storedDatabases.clear();
 
         for (String dbName: databases) {
+            String name = dbName.split("\\.")[1];
+            String type = dbName.split("\\.")[0];
+
             // Automatically get the info of database.
-            SQLDatabase database = SQLDatabase.InstantiateDatabase(dbName);
+            SQLDatabase database = SQLDatabase.InstantiateDatabase(name, DatabaseType.getTypeFromString(type));
 
             // Create PK-FK Relationship Graph.
             ORMSchemaGraph schemaGraph = new ORMSchemaGraph();
             schemaGraph.fill(database.getTables(), database.getFKConstrains());
 
             // Store the db.
-            this.storedDatabases.put(dbName, new Pair<>(database, schemaGraph));
+            storedDatabases.put(name, new Pair<>(database, schemaGraph));
         }
     }
 
@@ -165,30 +231,39 @@ public class ExpressQ2Application {
     public void getDatabaseAndORMSchemaGraph(Timer timer) {
         timer.start();
 
-        if (this.storedDatabases.containsKey(this.schemaName)) {
-            DatabaseConfigurations.useDatabase(schemaName);
+        // The workers of the server must not read the same database twice.
+        synchronized (storedDatabases) {
+            this.getOrStoreDatabaseAndORMSchemaGraph();
+        }
+
+        // Debug Prints
+        if (DEBUG_PRINTS) {
+            System.out.println("Database: \n" + this.database + "\n\nORMSchemaGraph: \n" + this.schemaGraph);
+            System.out.println("[INFO] Recognized Database & Created Graph in: " + timer.stop());
+        }
+    }
+
+    // Get the cached database and ORM graph, or else read the database and store it.
+    private void getOrStoreDatabaseAndORMSchemaGraph() {
+        if (storedDatabases.containsKey(this.schemaName)) {
+            // Change the Datasource Object to reflect the new database name
+            DataSourceFactory.loadConnectionProperties(this.schemaName, this.databaseType);
 
             // Get the cached database and ORM graph
-            Pair<SQLDatabase, ORMSchemaGraph> dbPair = this.storedDatabases.get(this.schemaName);
+            Pair<SQLDatabase, ORMSchemaGraph> dbPair = storedDatabases.get(this.schemaName);
             this.database = dbPair.getLeft();
             this.schemaGraph = dbPair.getRight();
         }
         else {
             // Create a database object on the database.
-            this.database = SQLDatabase.InstantiateDatabase(schemaName);
+            this.database = SQLDatabase.InstantiateDatabase(this.schemaName, this.databaseType);
 
             // Create an ORM schema Graph.
             this.schemaGraph = new ORMSchemaGraph();
             schemaGraph.fill(database.getTables(), database.getFKConstrains());
 
             // Put the database in the storedDatabases
-            this.storedDatabases.put(this.schemaName, new Pair<>(this.database, this.schemaGraph));
-        }
-
-        // Debug Prints
-        if (DEBUG_PRINTS) {
-            System.out.println("Database: \n" + this.database + "\n\nORMSchemaGraph: \n" + this.schemaGraph);
-            System.out.println("[INFO] Recognized Database & Created Graph in: " + timer.stop());
+            storedDatabases.put(this.schemaName, new Pair<>(this.database, this.schemaGraph));
         }
     }
 
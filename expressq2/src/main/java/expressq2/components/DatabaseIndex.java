@@ -55,7 +55,7 @@ public class DatabaseIndex {
             }
 
             // Then check if it referenced by a tuple value.
-            SQLIndexResult results = database.searchColumn(attr, keyword);
+            SQLIndexResult results = database.searchColumn(attr, keyword, true);
             if (results != null)
                 DatabaseIndex.numOfIoSql += results.getTuples().size();
             if (results != null && results.getTuples() != null && results.getTuples().size() > 0) {
@@ -10,7 +10,7 @@ import java.util.HashSet;
 import java.util.AbstractMap.SimpleEntry;
 import java.util.logging.Logger;
 
-import shared.connectivity.thor.response.Table;
+import shared.util.Table;
 import shared.database.model.SQLDatabase;
 import shared.database.model.SQLTable;
 import shared.database.model.graph.ORMNode;
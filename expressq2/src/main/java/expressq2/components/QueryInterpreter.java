@@ -10,7 +10,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
-import shared.connectivity.thor.response.Table;
+import shared.util.Table;
 import shared.database.model.graph.ORMNode;
 import shared.database.model.graph.ORMSchemaGraph;
 import expressq2.model.AnnotatedQuery;
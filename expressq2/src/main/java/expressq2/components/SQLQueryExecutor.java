@@ -16,6 +16,7 @@ import expressq2.model.SQLQuery;
 import shared.database.connectivity.DataSourceFactory;
 import shared.database.connectivity.DatabaseUtil;
 import shared.database.model.SQLDatabase;
+import shared.database.model.TupleDecoder;
 
 /**
  * This class models an Query Executor for an underling SQL Database. Turns the
@@ -43,9 +44,10 @@ public class SQLQueryExecutor {
             rs = stmt.executeQuery(sqlQuery.getQueryToString());
 
             // Get the results
+            TupleDecoder decoder = TupleDecoder.forDatabase(database, rs.getMetaData());
             while(rs.next()) {
                 OverloadedTuple tuple = new OverloadedTuple();
-                tuple.fill(database, rs );
+                tuple.fill(decoder, rs);
                 tuple.setQuery(sqlQuery);
                 tuple.setScore(interpretationScore);
                 resultTuples.add(tuple);
@@ -21,8 +21,9 @@ import expressq2.model.Keyword;
 import expressq2.model.OverloadedTupleList;
 import expressq2.model.QueryPattern;
 import expressq2.model.SQLQuery;
+import shared.database.config.PropertiesSingleton;
 import shared.database.connectivity.DataSourceFactory;
-import shared.database.connectivity.DatabaseConfigurations;
+import shared.database.model.DatabaseType;
 import shared.database.model.SQLDatabase;
 import shared.database.model.graph.ORMSchemaGraph;
 import shared.util.OrderedList;
@@ -40,8 +41,8 @@ public class TestingMain {
 	private static HashMap<String, Pair<SQLDatabase, ORMSchemaGraph>> storedDatabases = new HashMap<>();
  
     public static void main(String[] args) throws IOException {
-        // Load the database configurations from the configurations file.
-        DatabaseConfigurations.fill("app");
+        // Fill the configurations using the "app.properties" file
+        PropertiesSingleton.loadPropertiesFile("app");
 
 		// Redirect all output to file
 		PrintStream o = new PrintStream(new File(DEBUG_FILE));
@@ -53,7 +54,7 @@ public class TestingMain {
         scanner.nextLine();
 
 		// Read all THOR's databases
-		readAndStoreDatabases(new String[]{"IMDB", "MAS", "YELP"});
+		readAndStoreDatabases(new String[]{"mysql.IMDB", "mysql.MAS", "mysql.YELP"});
 		
 		// Initialize the info writer
 		InfoWriter.init();
@@ -71,8 +72,11 @@ public class TestingMain {
 
 			System.out.println("[INFO] Executing: " + query);
 
-			// Connect to the database and retrieve its information.
-			DatabaseConfigurations.useDatabase(schemaName);
+			String name = schemaName.split("\\.")[1];
+			String type = schemaName.split("\\.")[0];
+
+			// Change the Datasource Object to reflect the database of the query.
+			DataSourceFactory.loadConnectionProperties(name, DatabaseType.getTypeFromString(type));
 
             // Get the cached database and ORM graph
             Pair<SQLDatabase, ORMSchemaGraph> dbPair = storedDatabases.get(schemaName);
@@ -262,8 +266,11 @@ public class TestingMain {
         storedDatabases = new HashMap<>();
 
         for (String dbName: databases) {            
+            String name = dbName.split("\\.")[1];
+            String type = dbName.split("\\.")[0];
+
             // Automatically get the info of database.
-            SQLDatabase database = SQLDatabase.InstantiateDatabase(dbName);
+            SQLDatabase database = SQLDatabase.InstantiateDatabase(name, DatabaseType.getTypeFromString(type));
 
             // Create PK-FK Relationship Graph.
             ORMSchemaGraph schemaGraph = new ORMSchemaGraph();
@@ -23,6 +23,8 @@ public class InputHandler {
     private Integer interpretationsNum;          // The maximum number of interpretations to be returned by the system.
     private Boolean shutDownSystem; // Indicates whether the application ordered a shutdown.
 
+    private static BufferedReader stdin = null;  // The reader of the standard input.
+
     /**
      * Constructor.
      */
@@ -36,21 +38,41 @@ public class InputHandler {
      * Reads the input line by line, and stores it.
      */
     public void readInput() {
-        InputStreamReader r = new InputStreamReader(System.in);
-        BufferedReader br = new BufferedReader(r);
+        // The reader is created once, since a new reader could lose input buffered by the previous one.
+        if (stdin == null)
+            stdin = new BufferedReader(new InputStreamReader(System.in));
 
         System.out.println("<input>");
 
         // Read the parameters needed for the execution from the standard input.
+        this.readInput(stdin);
+
+        // Print a line to indicate that the input to the program ends here.
+        System.out.println("</input>");
+    }
+
+    /**
+     * Reads a request from a reader (the standard input or a client socket of the
+     * {@link shared.connectivity.thor.server.QueryServer}), and stores it.
+     * A closed reader is treated as a shutdown message.
+     *
+     * @param br The reader to read the request from.
+     */
+    public void readInput(BufferedReader br) {
+        this.shutDownSystem = false;
+
+        // Read the parameters needed for the execution.
         try {
             this.query = br.readLine();
 
             // The '%exit' query signals the systems to shutdown.
-            if (this.query.equals("%exit%")) {
+            if (this.query == null || this.query.equals("%exit%")) {
                 this.shutDownSystem = true;
             }
             else {
                 String dbNameAndType = br.readLine();  // This is formated like <type>.<dbname>, for example mysql.IMDB or psql.CORDIS
+                if (dbNameAndType == null)
+                    throw new IOException("Unexpected end of input");
 
                 // If dbNameAndType does not contain a "." use MySQL as database type.
                 // Else split the dbNameAndType to ".""
@@ -61,10 +83,10 @@ public class InputHandler {
                     this.databaseType = DatabaseType.getTypeFromString(dbNameAndType.split("\\.")[0]);
                     this.databaseName = dbNameAndType.split("\\.")[1];
                 }
-                this.interpretationsNum = Integer.parseInt(br.readLine());
-                this.resultsPerInterpretationNum = Integer.parseInt(br.readLine());
+                this.interpretationsNum = Integer.parseInt(br.readLine().trim());
+                this.resultsPerInterpretationNum = Integer.parseInt(br.readLine().trim());
             }
-        } catch (IOException e) {
+        } catch (IOException | RuntimeException e) {
             e.printStackTrace();
             this.query = "";
             this.databaseName = "";
@@ -73,9 +95,6 @@ public class InputHandler {
             this.interpretationsNum = 0;
             this.resultsPerInterpretationNum = 0;
         }
-
-        // Print a line to indicate that the input to the program ends here.
-        System.out.println("</input>");
     }
 
     /**
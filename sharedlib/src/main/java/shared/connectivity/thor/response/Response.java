@@ -112,8 +112,7 @@ public class Response<R extends ResultInterface> {
      * The web application will receive the response and display it properly.
      */
     public void sendToTHOR() {
-        Gson gson = new Gson();
-        String json = gson.toJson(this);
+        String json = this.toJson();
 
         // The json must be printed between this two lines.
         System.out.println("<json>");
@@ -122,6 +121,13 @@ public class Response<R extends ResultInterface> {
         System.out.println();
     }
 
+    /**
+     * @return The response in JSON format.
+     */
+    public String toJson() {
+        return new Gson().toJson(this);
+    }
+
     /**
      * @return The id of the system.
      */
@@ -0,0 +1,25 @@
+package shared.connectivity.thor.server;
+
+import shared.connectivity.thor.input.InputHandler;
+import shared.connectivity.thor.response.Response;
+
+/**
+ * Answers the queries dispatched by a {@link QueryServer}. Every worker thread of the
+ * server creates its own handler, so a handler is never called by two threads at once
+ * and can keep per query state in its fields (like the applications do).
+ *
+ * Anything shared between the handlers of a system (the stored databases and schema
+ * graphs) must be thread safe.
+ */
+public interface QueryHandler {
+
+    /**
+     * Answers a query.
+     *
+     * @param request The request holding the query, the database and the number of results.
+     * @return The response of the system.
+     * @throws Exception If the query could not be answered. The server reports the error to the client.
+     */
+    public Response<?> answer(InputHandler request) throws Exception;
+
+}
@@ -0,0 +1,258 @@
+package shared.connectivity.thor.server;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+import shared.connectivity.thor.input.InputHandler;
+import shared.connectivity.thor.response.Response;
+import shared.database.config.PropertiesSingleton;
+
+/**
+ * A long running server that answers the queries of many clients with one JVM, instead of
+ * reading one query at a time from the standard input. The stored databases and schema
+ * graphs of the system, as well as the JIT compiled code, are reused by all the queries.
+ *
+ * <pre>
+ * The protocol is line based and mirrors the standard input of the systems:
+ * The client sends a request as 4 lines (see {@link InputHandler#readInput(BufferedReader)}):
+ *   1. The query.
+ *   2. The database formatted like [type].[name], for example mysql.IMDB or psql.CORDIS.
+ *   3. The maximum number of interpretations.
+ *   4. The maximum number of results per interpretation.
+ * The server answers with the JSON of the {@link Response} between two lines that contain
+ * the keyword [json] (like {@link Response#sendToTHOR()}), or with the error message between
+ * two lines that contain the keyword [error]. A client can send many requests over the same
+ * connection, and closes it by sending '%exit%'.
+ * </pre>
+ *
+ * Requests of different connections are answered concurrently by a pool of workers, each
+ * one with its own {@link QueryHandler}. Since the systems connect to one database at a time
+ * (see {@link shared.database.connectivity.DataSourceFactory}), only requests on the same
+ * database run together: a request on another database waits until the running ones finish,
+ * and meanwhile no new requests on the running database are admitted.
+ *
+ * The port and the number of workers are read from the properties file
+ * ('server.port' and 'server.workers').
+ */
+public class QueryServer {
+
+    public static final int DEFAULT_PORT = 7070;
+    public static final int DEFAULT_WORKERS = 1;
+
+    private int port;                            // The port to listen to.
+    private int workers;                         // The number of queries answered concurrently.
+    private ThreadLocal<QueryHandler> handlers;  // The handler of each worker thread.
+
+    private ServerSocket serverSocket;
+    private ExecutorService workerPool;          // Answers the queries.
+    private ExecutorService connectionPool;      // Reads the requests and writes the responses of every client.
+    private volatile boolean running;
+
+    // The database of the requests that are running, and the one of the requests that wait for them to finish.
+    private String activeDatabase;
+    private String pendingDatabase;
+    private int activeRequests;
+
+    /**
+     * @param port The port to listen to.
+     * @param workers The number of queries answered concurrently.
+     * @param handlerFactory Creates the handler of every worker thread.
+     */
+    public QueryServer(int port, int workers, Supplier<QueryHandler> handlerFactory) {
+        this.port = port;
+        this.workers = Math.max(1, workers);
+        this.handlers = ThreadLocal.withInitial(handlerFactory);
+        this.running = false;
+        this.activeDatabase = null;
+        this.pendingDatabase = null;
+        this.activeRequests = 0;
+    }
+
+    /**
+     * Creates a server with the port and the number of workers of the loaded properties file.
+     */
+    public static QueryServer fromProperties(Supplier<QueryHandler> handlerFactory) {
+        return new QueryServer(
+            PropertiesSingleton.getIntProperty("server.port", DEFAULT_PORT),
+            PropertiesSingleton.getIntProperty("server.workers", DEFAULT_WORKERS),
+            handlerFactory
+        );
+    }
+
+    /**
+     * Returns true if the arguments of the application ask for the server mode ('--server').
+     */
+    public static boolean isRequested(String[] args) {
+        for (String arg : args)
+            if (arg.equals("--server"))
+                return true;
+        return false;
+    }
+
+
+    /**
+     * Listens to the port and serves the clients until {@link #shutdown()} is called.
+     *
+     * @throws IOException If the server could not listen to the port.
+     */
+    public void serve() throws IOException {
+        this.serverSocket = new ServerSocket(this.port);
+        this.workerPool = Executors.newFixedThreadPool(this.workers);
+        this.connectionPool = Executors.newCachedThreadPool();
+        this.running = true;
+
+        System.out.println("[INFO] Listening to port " + this.port + " with " + this.workers + " workers");
+
+        try {
+            while (this.running) {
+                Socket client = this.serverSocket.accept();
+                this.connectionPool.execute(() -> this.serveClient(client));
+            }
+        }
+        catch (SocketException e) {
+            // The socket was closed by shutdown().
+            if (this.running)
+                throw e;
+        }
+        finally {
+            this.shutdown();
+        }
+    }
+
+    /**
+     * Stops accepting clients and closes the pools. Running queries are left to finish.
+     */
+    public void shutdown() {
+        this.running = false;
+
+        try {
+            if (this.serverSocket != null && !this.serverSocket.isClosed())
+                this.serverSocket.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+
+        if (this.connectionPool != null)
+            this.connectionPool.shutdown();
+        if (this.workerPool != null)
+            this.workerPool.shutdown();
+    }
+
+
+    // Reads the requests of a client and writes their responses, one request at a time.
+    private void serveClient(Socket client) {
+        try (Socket socket = client;
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             PrintWriter out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8)))
+        {
+            while (this.running) {
+                InputHandler request = new InputHandler();
+                request.readInput(in);
+                if (request.shutDownSystem())
+                    break;
+
+                // Answer the query with a worker and send back the response or the error.
+                try {
+                    Future<Response<?>> response = this.workerPool.submit(() -> this.answer(request));
+                    writeMessage(out, "json", response.get().toJson());
+                }
+                catch (ExecutionException e) {
+                    Throwable cause = (e.getCause() != null) ? e.getCause() : e;
+                    System.err.println("[ERR] Exception ocurred while executing : " + request.getQuery());
+                    cause.printStackTrace();
+                    writeMessage(out, "error", String.valueOf(cause));
+                }
+            }
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Answers a request with the handler of the current worker, once its database can be used.
+    private Response<?> answer(InputHandler request) throws Exception {
+        String database = request.getDatabaseType() + "." + request.getDatabaseName();
+
+        this.enterDatabase(database);
+        try {
+            return this.handlers.get().answer(request);
+        }
+        finally {
+            this.exitDatabase();
+        }
+    }
+
+    // Waits until the requests on the database can run.
+    private synchronized void enterDatabase(String database) throws InterruptedException {
+        try {
+            while (true) {
+                boolean admitted = (this.activeDatabase == null)
+                    ? (this.pendingDatabase == null || this.pendingDatabase.equals(database))
+                    : (this.activeDatabase.equals(database) && this.pendingDatabase == null);
+                if (admitted)
+                    break;
+
+                // Stop admitting requests on the active database, so this one does not starve.
+                if (this.pendingDatabase == null && this.activeDatabase != null)
+                    this.pendingDatabase = database;
+                this.wait();
+            }
+        }
+        catch (InterruptedException e) {
+            if (database.equals(this.pendingDatabase)) {
+                this.pendingDatabase = null;
+                this.notifyAll();
+            }
+            throw e;
+        }
+
+        if (database.equals(this.pendingDatabase))
+            this.pendingDatabase = null;
+        this.activeDatabase = database;
+        this.activeRequests++;
+    }
+
+    // Marks the end of a request, letting the requests on another database run after the last one.
+    private synchronized void exitDatabase() {
+        this.activeRequests--;
+        if (this.activeRequests == 0) {
+            this.activeDatabase = null;
+            this.notifyAll();
+        }
+    }
+
+    // Writes a message between two lines that contain its tag.
+    private static void writeMessage(PrintWriter out, String tag, String message) {
+        out.println("<" + tag + ">");
+        out.println(message);
+        out.println("<" + tag + ">");
+        out.println();
+        out.flush();
+    }
+
+
+    // Getters
+
+    public int getPort() {
+        return this.port;
+    }
+
+    public int getWorkers() {
+        return this.workers;
+    }
+}
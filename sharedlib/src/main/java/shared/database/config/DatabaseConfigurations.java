@@ -13,7 +13,9 @@ public class DatabaseConfigurations {
     private static final String mysqlDriver = "com.mysql.cj.jdbc.Driver";
     private static final String psqlDriver = "org.postgresql.Driver";
     
-    private static final String mysqlURL = "jdbc:mysql://%s:%s/%s?useSSL=%s&serverTimezone=UTC";
+    // rewriteBatchedStatements sends the batches of INSERT statements as multi-row INSERTs (see BulkLoader),
+    // and useServerPrepStmts lets the server parse the prepared statements once (see DatabaseUtil.prepareSelectQuery).
+    private static final String mysqlURL = "jdbc:mysql://%s:%s/%s?useSSL=%s&serverTimezone=UTC&rewriteBatchedStatements=true&useServerPrepStmts=true&allowLoadLocalInfile=%s";
     private static final String psqlURL = "jdbc:postgresql://%s:%s/%s";
     
     private String databaseName = null;         // The database Name
@@ -91,7 +93,8 @@ public class DatabaseConfigurations {
         if (this.type.isPostgreSQL())
             return String.format(psqlURL, this.hostName, this.portNumber, this.databaseName);
         else if (this.type.isMySQL())
-            return String.format(mysqlURL, this.hostName, this.portNumber, this.databaseName, String.valueOf(this.useSSL));
+            return String.format(mysqlURL, this.hostName, this.portNumber, this.databaseName, String.valueOf(this.useSSL),
+                String.valueOf(PropertiesSingleton.getStringProperty("bulkLoad.mysql", "batch").equalsIgnoreCase("loadData")));
         else 
             throw new RuntimeException("Database type unspecified");
     }
@@ -1,6 +1,7 @@
 package shared.database.config;
 
 import java.util.Enumeration;
+import java.util.MissingResourceException;
 import java.util.Properties;
 import java.util.ResourceBundle;
 
@@ -33,6 +34,61 @@ public class PropertiesSingleton {
         return resource;
     }
 
+    /**
+     * Return an integer property of the loaded bundle. If the bundle is not loaded,
+     * or the property is missing or not a number, return the default value.
+     *
+     * @param key The property key.
+     * @param defaultValue The value to return when the property is not available.
+     */
+    public static int getIntProperty(String key, int defaultValue) {
+        if (resource == null)
+            return defaultValue;
+
+        try {
+            return Integer.parseInt(resource.getString(key).trim());
+        } catch (MissingResourceException | NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Return a boolean property of the loaded bundle ("true" or "false", ignoring the case).
+     * If the bundle is not loaded, or the property is missing or not a boolean, return the
+     * default value.
+     *
+     * @param key The property key.
+     * @param defaultValue The value to return when the property is not available.
+     */
+    public static boolean getBooleanProperty(String key, boolean defaultValue) {
+        String value = getStringProperty(key, null);
+        if (value == null)
+            return defaultValue;
+        else if (value.equalsIgnoreCase("true"))
+            return true;
+        else if (value.equalsIgnoreCase("false"))
+            return false;
+        return defaultValue;
+    }
+
+    /**
+     * Return a string property of the loaded bundle. If the bundle is not loaded,
+     * or the property is missing, return the default value.
+     *
+     * @param key The property key.
+     * @param defaultValue The value to return when the property is not available.
+     */
+    public static String getStringProperty(String key, String defaultValue) {
+        if (resource == null)
+            return defaultValue;
+
+        try {
+            return resource.getString(key).trim();
+        } catch (MissingResourceException e) {
+            return defaultValue;
+        }
+    }
+
     /**
      * From ResourceBundle to Properties
      */
@@ -0,0 +1,264 @@
+package shared.database.connectivity;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import shared.database.config.PropertiesSingleton;
+import shared.database.model.DatabaseType;
+
+/**
+ * Loads rows into a table with as few round trips as the database allows, instead of
+ * one INSERT INTO ... VALUES query per few rows. The way the rows are loaded depends on
+ * the {@link DatabaseType}:
+ *
+ * 1. PostgreSQL: COPY ... FROM STDIN, streaming the rows through the CopyManager of the driver.
+ * 2. MySQL: LOAD DATA LOCAL INFILE reading the rows from an in-memory stream, if enabled with
+ *    'bulkLoad.mysql = loadData' (the server must allow local_infile). Otherwise, and for unknown
+ *    database types, a batched INSERT that the MySQL driver rewrites into multi-row INSERTs
+ *    (see the rewriteBatchedStatements parameter of {@link shared.database.config.DatabaseConfigurations}).
+ *
+ * The driver specific calls are made with reflection, because the systems are packaged with
+ * different versions of the JDBC drivers. COPY and LOAD DATA run in a transaction (or after a
+ * savepoint, if the caller has started one). If they fail (for example when the server does not
+ * allow local files) the rows they loaded are rolled back (except in tables of non-transactional
+ * engines, like MEMORY), the rows are loaded with the batched INSERT, and the failing way is not
+ * tried again for that database.
+ */
+public class BulkLoader {
+
+    private static final int BATCH_SIZE = PropertiesSingleton.getIntProperty("bulkLoad.batchSize", 1000);
+    private static final boolean MYSQL_LOAD_DATA =
+        PropertiesSingleton.getStringProperty("bulkLoad.mysql", "batch").equalsIgnoreCase("loadData");
+
+    private static final String NULL_FIELD = "\\N";  // The NULL value of the text format of COPY and LOAD DATA.
+
+    // The statement interfaces of the MySQL drivers (8.x and 5.x) that can read LOAD DATA LOCAL from a stream.
+    private static final String[] MYSQL_STATEMENT_CLASSES = { "com.mysql.cj.jdbc.JdbcStatement", "com.mysql.jdbc.Statement" };
+    private static final String PSQL_CONNECTION_CLASS = "org.postgresql.PGConnection";
+
+    // The URLs of the databases where COPY or LOAD DATA failed once, which use only the batched INSERT.
+    private static final Set<String> streamingFailed = ConcurrentHashMap.newKeySet();
+
+    private BulkLoader() {}
+
+    /**
+     * Loads the rows into a table using the connection.
+     *
+     * @param con The connection to the database containing the table.
+     * @param type The type of the database (null loads the rows with the batched INSERT).
+     * @param tableName The (qualified) name of the table.
+     * @param columnNames The names of the columns in the order of the values of the rows.
+     * @param rows The values of the rows. A value is a String, a Number or null.
+     * @return The number of rows loaded.
+     * @throws SQLException
+     */
+    public static int load(Connection con, DatabaseType type, String tableName, List<String> columnNames, List<Object[]> rows)
+        throws SQLException
+    {
+        if (rows.isEmpty())
+            return 0;
+
+        boolean streaming = type != null && (type.isPostgreSQL() || (type.isMySQL() && MYSQL_LOAD_DATA));
+        String url = streaming ? con.getMetaData().getURL() : null;
+        if (streaming && !streamingFailed.contains(url)) {
+            boolean autoCommit = con.getAutoCommit();
+            Savepoint savepoint = null;
+            try {
+                if (autoCommit)
+                    con.setAutoCommit(false);
+                else
+                    savepoint = con.setSavepoint();
+
+                int loaded = type.isPostgreSQL()
+                    ? copyIn(con, tableName, columnNames, rows)
+                    : loadDataLocal(con, tableName, columnNames, rows);
+
+                if (autoCommit)
+                    con.commit();
+                else
+                    con.releaseSavepoint(savepoint);
+                return loaded;
+            }
+            catch (ReflectiveOperationException | SQLException e) {
+                System.err.println("[WARN] Bulk loading failed (" + e.getMessage() + "), using batched inserts");
+                streamingFailed.add(url);
+
+                // Remove the rows loaded before the failure, so they are not inserted twice
+                // (a failed COPY also aborts the transaction until it is rolled back).
+                if (savepoint != null)
+                    con.rollback(savepoint);
+                else
+                    con.rollback();
+            }
+            finally {
+                if (autoCommit)
+                    con.setAutoCommit(true);
+            }
+        }
+
+        return insertInBatches(con, tableName, columnNames, rows);
+    }
+
+    /**
+     * Loads the rows with a PostgreSQL COPY ... FROM STDIN.
+     */
+    private static int copyIn(Connection con, String tableName, List<String> columnNames, List<Object[]> rows)
+        throws ReflectiveOperationException, SQLException
+    {
+        Class<?> pgConnectionClass = Class.forName(PSQL_CONNECTION_CLASS);
+        Object pgConnection = con.unwrap(pgConnectionClass);
+        Object copyManager = pgConnectionClass.getMethod("getCopyAPI").invoke(pgConnection);
+        Method copyIn = copyManager.getClass().getMethod("copyIn", String.class, java.io.Reader.class);
+
+        String query = "COPY " + tableName + " (" + String.join(", ", columnNames) + ") FROM STDIN";
+        try {
+            return ((Number) copyIn.invoke(copyManager, query, new StringReader(toTextFormat(rows)))).intValue();
+        }
+        catch (InvocationTargetException e) {
+            throw asSQLException(e);
+        }
+    }
+
+    /**
+     * Loads the rows with a MySQL LOAD DATA LOCAL INFILE, passing the rows to the driver as the file's stream.
+     */
+    private static int loadDataLocal(Connection con, String tableName, List<String> columnNames, List<Object[]> rows)
+        throws ReflectiveOperationException, SQLException
+    {
+        String query = "LOAD DATA LOCAL INFILE 'stream' INTO TABLE " + tableName +
+            " CHARACTER SET utf8mb4 FIELDS TERMINATED BY '\\t' ESCAPED BY '\\\\' LINES TERMINATED BY '\\n'" +
+            " (" + String.join(", ", columnNames) + ")";
+        InputStream stream = new ByteArrayInputStream(toTextFormat(rows).getBytes(StandardCharsets.UTF_8));
+
+        Statement stmt = null;
+        try {
+            stmt = con.createStatement();
+
+            // Find the driver's statement and give it the stream to read instead of a file.
+            Statement driverStatement = null;
+            for (String className : MYSQL_STATEMENT_CLASSES) {
+                try {
+                    Class<?> statementClass = Class.forName(className);
+                    if (stmt.isWrapperFor(statementClass)) {
+                        driverStatement = (Statement) stmt.unwrap(statementClass);
+                        break;
+                    }
+                } catch (ClassNotFoundException e) {
+                    // Not this version of the driver.
+                }
+            }
+            if (driverStatement == null)
+                throw new ClassNotFoundException("No MySQL statement supporting local infile streams");
+
+            driverStatement.getClass().getMethod("setLocalInfileInputStream", InputStream.class).invoke(driverStatement, stream);
+            return stmt.executeUpdate(query);
+        }
+        catch (InvocationTargetException e) {
+            throw asSQLException(e);
+        }
+        finally {
+            DatabaseUtil.close(stmt);
+        }
+    }
+
+    /**
+     * Loads the rows with INSERT INTO ... VALUES (?, ..., ?), executed in batches of 'bulkLoad.batchSize' rows.
+     */
+    private static int insertInBatches(Connection con, String tableName, List<String> columnNames, List<Object[]> rows)
+        throws SQLException
+    {
+        StringBuilder query = new StringBuilder("INSERT INTO ").append(tableName)
+            .append(" (").append(String.join(", ", columnNames)).append(") VALUES (");
+        for (int column = 0; column < columnNames.size(); column++)
+            query.append((column == 0) ? "?" : ", ?");
+        query.append(")");
+
+        int loaded = 0;
+        PreparedStatement stmt = null;
+        try {
+            stmt = con.prepareStatement(query.toString());
+            int batched = 0;
+            for (Object[] row : rows) {
+                for (int column = 0; column < row.length; column++) {
+                    if (row[column] == null)
+                        stmt.setNull(column + 1, Types.OTHER);
+                    else
+                        stmt.setObject(column + 1, row[column]);
+                }
+                stmt.addBatch();
+
+                if (++batched == BATCH_SIZE) {
+                    stmt.executeBatch();
+                    loaded += batched;
+                    batched = 0;
+                }
+            }
+            if (batched > 0) {
+                stmt.executeBatch();
+                loaded += batched;
+            }
+        }
+        finally {
+            DatabaseUtil.close(stmt);
+        }
+
+        return loaded;
+    }
+
+    /**
+     * Returns the rows in the text format read by COPY and LOAD DATA: one line per row
+     * with the values separated by tabs, the special characters escaped with '\' and NULL as '\N'.
+     */
+    private static String toTextFormat(List<Object[]> rows) {
+        StringBuilder text = new StringBuilder();
+        for (Object[] row : rows) {
+            for (int column = 0; column < row.length; column++) {
+                if (column > 0)
+                    text.append('\t');
+
+                if (row[column] == null) {
+                    text.append(NULL_FIELD);
+                    continue;
+                }
+
+                String value = row[column].toString();
+                for (int index = 0; index < value.length(); index++) {
+                    char c = value.charAt(index);
+                    switch (c) {
+                        case '\\': text.append("\\\\"); break;
+                        case '\t': text.append("\\t"); break;
+                        case '\n': text.append("\\n"); break;
+                        case '\r': text.append("\\r"); break;
+                        default: text.append(c);
+                    }
+                }
+            }
+            text.append('\n');
+        }
+        return text.toString();
+    }
+
+    /**
+     * Returns the exception thrown by a driver method called with reflection.
+     */
+    private static SQLException asSQLException(InvocationTargetException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof SQLException)
+            return (SQLException) cause;
+        return new SQLException(cause);
+    }
+
+}
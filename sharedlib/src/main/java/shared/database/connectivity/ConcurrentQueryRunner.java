@@ -0,0 +1,111 @@
+package shared.database.connectivity;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs a list of independent database tasks on a bounded pool of workers.
+ * Every task gets its own {@link Connection} from the {@link DataSourceFactory} pool,
+ * and the results are returned in the order the tasks were given, so callers can merge
+ * them deterministically no matter which worker finished first.
+ *
+ * With one worker (or a single task) the tasks run on the calling thread sharing one connection.
+ */
+public class ConcurrentQueryRunner {
+
+    /**
+     * A unit of work that queries the database using the connection it is given.
+     * The connection is owned by the runner and must not be closed by the task.
+     */
+    public static interface QueryTask<T> {
+        public T run(Connection con) throws SQLException;
+    }
+
+    private int workers;  // The maximum number of tasks running at the same time.
+
+    public ConcurrentQueryRunner(int workers) {
+        this.workers = Math.max(1, workers);
+    }
+
+    /**
+     * Runs all the tasks and returns their results in the order of the tasks.
+     *
+     * @param tasks The tasks to run.
+     * @return The result of every task, in the order of the parameter list.
+     * @throws SQLException The first exception thrown by a task.
+     */
+    public <T> List<T> runAll(List<? extends QueryTask<T>> tasks) throws SQLException {
+        if (this.workers == 1 || tasks.size() <= 1)
+            return this.runSequentially(tasks);
+
+        List<T> results = new ArrayList<>();
+        List<Future<T>> futures = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(this.workers, tasks.size()));
+
+        try {
+            // Submit every task with its own pooled connection.
+            for (QueryTask<T> task : tasks) {
+                futures.add(executor.submit(() -> {
+                    Connection con = null;
+                    try {
+                        con = DataSourceFactory.getConnection();
+                        return task.run(con);
+                    }
+                    finally {
+                        DatabaseUtil.close(con);
+                    }
+                }));
+            }
+
+            // Collect the results in submission order.
+            for (Future<T> future : futures)
+                results.add(future.get());
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for the query tasks", e);
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof SQLException)
+                throw (SQLException) e.getCause();
+            throw new SQLException("A query task failed", e.getCause());
+        }
+        finally {
+            executor.shutdownNow();
+        }
+
+        return results;
+    }
+
+    // Runs the tasks one after the other on a single connection.
+    private <T> List<T> runSequentially(List<? extends QueryTask<T>> tasks) throws SQLException {
+        List<T> results = new ArrayList<>();
+        if (tasks.isEmpty())
+            return results;
+
+        Connection con = null;
+        try {
+            con = DataSourceFactory.getConnection();
+            for (QueryTask<T> task : tasks)
+                results.add(task.run(con));
+        }
+        finally {
+            DatabaseUtil.close(con);
+        }
+
+        return results;
+    }
+
+    /**
+     * @return the number of workers
+     */
+    public int getWorkers() {
+        return this.workers;
+    }
+}
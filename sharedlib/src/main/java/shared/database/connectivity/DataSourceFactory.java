@@ -15,9 +15,12 @@ import shared.database.model.DatabaseType;
  * First loadDBConfigurations and then getConnection from the pool.
  */
 public class DataSourceFactory {
+    public static final int DEFAULT_MAX_CONNECTIONS = 8;                                      // The default of BasicDataSource
     private static final Logger LOGGER = Logger.getLogger(DataSourceFactory.class.getName());  // The LOGGER
-    private static BasicDataSource ds = null;                                                  // The DataSource Object
+    private static volatile BasicDataSource ds = null;                                         // The DataSource Object
     private static DatabaseType type = null;                                                   // The database type {psql, mysql}
+    private static DatabaseConfigurations loadedConfigs = null;                                // The configurations of the DataSource Object
+    private static int maxConnections = DEFAULT_MAX_CONNECTIONS;                               // The maximum number of open connections
 
 
     /**
@@ -55,9 +58,22 @@ public class DataSourceFactory {
      /**
      * Creates a {@link BasicDataSource} instance using the an instance of the class {@link DatabaseConfigurations}
      */
-    private static void instantiateDataSource(DatabaseConfigurations config) {
+    private static synchronized void instantiateDataSource(DatabaseConfigurations config) {
         // Get the connection parameters.
         if (config.isAssigned()) {
+            // Keep the pool (and its open connections) if it already connects to this database.
+            if (ds != null && config.equals(loadedConfigs) && config.getType() == type)
+                return;
+
+            // Close the pool of the previous database.
+            if (ds != null) {
+                try {
+                    ds.close();
+                } catch (SQLException e) {
+                    e.printStackTrace();
+                }
+            }
+
             ds = new BasicDataSource();
             ds.setUrl(config.getFormattedURL());
             ds.setDriverClassName(config.getDriver());
@@ -65,14 +81,32 @@ public class DataSourceFactory {
             ds.setPassword(config.getPassword());
             ds.setMinIdle(5);
             ds.setMaxIdle(10);
+            ds.setMaxActive(maxConnections);
+            ds.setPoolPreparedStatements(true);  // Cache the prepared (parameterized) queries of every connection.
             ds.setMaxOpenPreparedStatements(100);
             type = config.getType();
+            loadedConfigs = config;
         }
         else {
             LOGGER.info("[ERR] Configuration Object not assigned");
         }
     }
 
+    /**
+     * Sets the maximum number of connections the pool opens at the same time, so that the
+     * concurrent workers of the systems do not wait for each other's connections. The
+     * 'database.maxConnections' property, if set, overrides the requested number, and the
+     * pool never opens less than {@link #DEFAULT_MAX_CONNECTIONS} connections.
+     *
+     * @param connections The number of connections the application may use concurrently.
+     */
+    public static synchronized void setMaxConnections(int connections) {
+        int configured = PropertiesSingleton.getIntProperty("database.maxConnections", 0);
+        maxConnections = (configured > 0) ? configured : Math.max(DEFAULT_MAX_CONNECTIONS, connections);
+        if (ds != null)
+            ds.setMaxActive(maxConnections);
+    }
+
     // ----------------------
 
     /**
@@ -91,4 +125,12 @@ public class DataSourceFactory {
     public static DatabaseType getType() {
         return type;
     }
+
+    /**
+     * @return the URL of the database specified by the configurations loaded, or null if none are loaded
+     */
+    public static String getURL() {
+        DatabaseConfigurations configs = loadedConfigs;
+        return (configs != null) ? configs.getFormattedURL() : null;
+    }
 }
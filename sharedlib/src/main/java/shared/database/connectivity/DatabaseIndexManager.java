@@ -14,6 +14,7 @@ import shared.database.model.SQLIndexResult;
 import shared.database.model.SQLQueries;
 import shared.database.model.SQLTable;
 import shared.database.model.SQLTuple;
+import shared.database.model.TupleDecoder;
 
 /**
  * This class manages the inverted indexes located in a database.
@@ -87,6 +88,7 @@ public class DatabaseIndexManager {
         String query = null;                                     // The query to execute.
         SQLTable table = attribute.getTable();                   // The attribute's SQLTable.
         SQLColumn pk = table.getPrimaryKey().iterator().next();  // Get the pk from the Table (first entry only)
+        KeywordPostingCache.Key cacheKey = null;                 // The key of the search in the posting cache.
 
         // Get the Value's attribute and the values ID
         String attrsToSelect = pk.toString() + ", " + attribute.toString();
@@ -108,6 +110,13 @@ public class DatabaseIndexManager {
         // Else return null.        
         else 
             return null;
+
+        // Return the cached tuples if we have searched the keyword before.
+        cacheKey = new KeywordPostingCache.Key(database.getName(), attribute, keyword, 
+            attribute.isIndexed() ? KeywordPostingCache.SearchMode.BOOLEAN_KEYS : KeywordPostingCache.SearchMode.LIKE_KEYS);
+        List<SQLTuple> cachedTuples = KeywordPostingCache.getInstance().get(cacheKey);
+        if (cachedTuples != null)
+            return cachedTuples;
                 
         try(PreparedStatement stmt = con.prepareStatement(query)) {
             // Parameterized the stmt in the right way.
@@ -122,12 +131,16 @@ public class DatabaseIndexManager {
             
             // Execute the query and store the result.
             try (ResultSet rs = stmt.executeQuery() ) {
+                TupleDecoder decoder = TupleDecoder.forColumns(Arrays.asList(pk, attribute));
                 while(rs.next()) {
                     SQLTuple tup = new SQLTuple();
-                    tup.fill(Arrays.asList(pk, attribute), rs);
+                    tup.fill(decoder, rs);
                     tuples.add(tup);
                 } 
             }        
+
+            // Cache the tuples for the next searches of the keyword.
+            KeywordPostingCache.getInstance().put(cacheKey, tuples);
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -1,13 +1,18 @@
 package shared.database.connectivity;
 
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 
+import shared.database.config.PropertiesSingleton;
+import shared.database.model.DatabaseType;
+import shared.database.model.SQLQuery;
 import shared.util.PrintingUtils;
 
 import java.util.Date;
+import java.util.List;
 
 public class DatabaseUtil {
 
@@ -114,7 +119,7 @@ public class DatabaseUtil {
         escapedStr = PrintingUtils.escapeCharacter(sqlValue, '\\', '\\');
 
         // Escape char '
-        escapedStr = PrintingUtils.escapeCharacter(sqlValue, '\'', '\\');
+        escapedStr = PrintingUtils.escapeCharacter(escapedStr, '\'', '\\');
         
         // Escape char "
         escapedStr = PrintingUtils.escapeCharacter(escapedStr, '\"', '\\');
@@ -122,6 +127,67 @@ public class DatabaseUtil {
         return escapedStr;
     }
 
+    /**
+     * Prepares the parameterized form of a select query and binds the values of its IN lists.
+     * The connection pool keeps the prepared statements of every connection (keyed by the
+     * parameterized query), so the queries that differ only in the values of their IN lists
+     * are parsed and planned by the database once, instead of on every execution.
+     *
+     * @param con The connection.
+     * @param query The select query.
+     * @return The prepared statement, ready to be executed.
+     * @throws SQLException
+     */
+    public static PreparedStatement prepareSelectQuery(Connection con, SQLQuery query) throws SQLException {
+        return prepareQuery(con, query.toParameterizedSelectQuery(), query.getParameters());
+    }
+
+    /**
+     * Prepares a query with bind parameters ('?') and binds their values.
+     *
+     * @param con The connection.
+     * @param query The query.
+     * @param parameters The values of the parameters, in order.
+     * @return The prepared statement, ready to be executed.
+     * @throws SQLException
+     */
+    public static PreparedStatement prepareQuery(Connection con, String query, List<Object> parameters) throws SQLException {
+        PreparedStatement stmt = con.prepareStatement(query);
+        for (int index = 0; index < parameters.size(); index++)
+            stmt.setObject(index + 1, parameters.get(index));
+        return stmt;
+    }
+
+    /**
+     * Asks the driver to stream the rows of the statement's result sets instead of
+     * loading them all in memory, so the rows can be decoded while they arrive.
+     * The fetch size is read from the properties file ('resultSet.fetchSize'), and 0
+     * (the default) keeps the driver's behavior.
+     *
+     * For MySQL any positive fetch size streams the rows one by one, and the connection
+     * can not run other statements until the result set is read or closed. For
+     * PostgreSQL the rows are fetched in batches of the fetch size, but only when the
+     * connection is not in auto-commit mode.
+     *
+     * @param statement The statement, before it is executed.
+     */
+    public static void setStreamingFetchSize(Statement statement) {
+        int fetchSize = PropertiesSingleton.getIntProperty("resultSet.fetchSize", 0);
+        DatabaseType type = DataSourceFactory.getType();
+        if (fetchSize <= 0 || type == null)
+            return;
+
+        try {
+            if (type.isMySQL())
+                statement.setFetchSize(Integer.MIN_VALUE);
+            else
+                statement.setFetchSize(fetchSize);
+        }
+        catch (SQLException e) {
+            System.err.println("Setting the fetch size failed: " + e.getMessage());
+        }
+    }
+
     public static void close(Connection connection) {
         if (connection != null) {
             try {
@@ -0,0 +1,294 @@
+package shared.database.connectivity;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import shared.database.config.PropertiesSingleton;
+import shared.database.model.SQLColumn;
+import shared.database.model.SQLTuple;
+import shared.database.model.SQLValue;
+import shared.database.model.TupleBlock;
+
+/**
+ * A cache of keyword postings shared by all the systems. A posting is the list of
+ * {@link SQLTuple}s that a full-text (or LIKE) search returned for a keyword on one column
+ * of a table. Since the same keywords recur across queries, the systems look their postings
+ * up here before querying the database.
+ *
+ * The cache never shares a tuple with its callers: the tuples are copied when they are
+ * cached and when they are returned (see {@link SQLTuple#copy()}), except for the read only
+ * {@link TupleBlock.Row} views, which are moved to a block holding only the posting's rows,
+ * so that a posting does not keep the whole block of the query that produced it in memory,
+ * and are returned as new views of the same rows.
+ *
+ * The cache is bounded both by the number of postings and by an estimate of the memory
+ * they occupy, evicting the least recently used postings first. All the postings of a
+ * database are invalidated when the database is instantiated again
+ * (see {@link shared.database.model.SQLDatabase#InstantiateDatabase}), since the
+ * cached tuples reference the columns of the old database object.
+ *
+ * The limits are read from the properties file ('cache.postings.maxEntries' and
+ * 'cache.postings.maxMegabytes'). Setting maxEntries to 0 disables the cache.
+ */
+public class KeywordPostingCache {
+
+    /**
+     * How the posting was produced. Postings of the same keyword and column produced by
+     * different searches (or projecting different attributes) are cached separately.
+     */
+    public static enum SearchMode {
+        BOOLEAN_ROWS(true),           // Boolean full-text search returning whole rows.
+        BOOLEAN_KEYS(true),           // Boolean full-text search returning the primary key and the column.
+        LIKE_KEYS(false),             // LIKE '%keyword%' search returning the primary key and the column.
+        NATURAL_LANGUAGE_ROWS(true);  // Natural language full-text search returning whole rows and their score.
+
+        private final boolean fullText;
+
+        private SearchMode(boolean fullText) {
+            this.fullText = fullText;
+        }
+
+        /**
+         * @return true if the search tokenizes the keyword, so the spaces between its words do not matter.
+         */
+        public boolean isFullText() {
+            return this.fullText;
+        }
+    }
+
+    /**
+     * The key of a posting: (database, table, column, normalized keyword, search mode).
+     */
+    public static class Key {
+        private String database;
+        private String table;
+        private String column;
+        private String keyword;
+        private SearchMode mode;
+
+        public Key(String database, SQLColumn column, String keyword, SearchMode mode) {
+            this.database = database;
+            this.table = (column.getTable() != null) ? column.getTable().getName() : null;
+            this.column = column.getName();
+            this.keyword = normalize(keyword, mode);
+            this.mode = mode;
+        }
+
+        public String getDatabase() {
+            return this.database;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o == this) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return Objects.equals(database, key.database) && Objects.equals(table, key.table) &&
+                Objects.equals(column, key.column) && Objects.equals(keyword, key.keyword) && mode == key.mode;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(database, table, column, keyword, mode);
+        }
+
+        @Override
+        public String toString() {
+            return "(" + database + ", " + table + ", " + column + ", " + keyword + ", " + mode + ")";
+        }
+    }
+
+    // A cached posting along with its estimated size in bytes.
+    private static class Posting {
+        List<SQLTuple> tuples;
+        long bytes;
+
+        Posting(List<SQLTuple> tuples, long bytes) {
+            this.tuples = tuples;
+            this.bytes = bytes;
+        }
+    }
+
+    // Rough per object costs used to estimate the memory of a posting.
+    private static final long TUPLE_BYTES = 96;   // The tuple and its three lists.
+    private static final long VALUE_BYTES = 48;   // A value wrapper, its type and the boxed value.
+    private static final long STRING_BYTES = 40;  // A String object without its characters.
+
+    private static final KeywordPostingCache INSTANCE = new KeywordPostingCache(
+        PropertiesSingleton.getIntProperty("cache.postings.maxEntries", 10000),
+        PropertiesSingleton.getIntProperty("cache.postings.maxMegabytes", 256) * 1024L * 1024L
+    );
+
+    private int maxEntries;      // The maximum number of cached postings.
+    private long maxBytes;       // The maximum estimated memory of the cached postings.
+    private long bytes;          // The estimated memory of the cached postings.
+    private LinkedHashMap<Key, Posting> postings;  // The postings in least recently used order.
+
+    // Statistics
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public KeywordPostingCache(int maxEntries, long maxBytes) {
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.bytes = 0;
+        this.postings = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * @return The cache shared by the whole application.
+     */
+    public static KeywordPostingCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Normalizes a keyword so the same search is cached only once. The words of a full-text
+     * search are trimmed and separated by single spaces, other searches (LIKE) use the keyword
+     * as it is. The case is kept, since the collation of the column (or the database) decides
+     * whether the search is case sensitive.
+     */
+    public static String normalize(String keyword, SearchMode mode) {
+        if (keyword == null || !mode.isFullText())
+            return keyword;
+        return keyword.trim().replaceAll("\\s+", " ");
+    }
+
+    /**
+     * Returns a copy of the cached posting of the key, or null if it is not cached.
+     * The tuples of the copy can be modified without changing the cached ones.
+     */
+    public synchronized List<SQLTuple> get(Key key) {
+        Posting posting = this.postings.get(key);
+        if (posting == null) {
+            this.misses++;
+            return null;
+        }
+
+        this.hits++;
+        List<SQLTuple> tuples = new ArrayList<>(posting.tuples.size());
+        for (SQLTuple tuple : posting.tuples)
+            tuples.add((tuple instanceof TupleBlock.Row) ? ((TupleBlock.Row) tuple).newView() : tuple.copy());
+        return tuples;
+    }
+
+    /**
+     * Caches the posting of a key, evicting the least recently used postings if the cache
+     * exceeds its limits. Postings larger than the whole cache are not stored.
+     */
+    public synchronized void put(Key key, List<? extends SQLTuple> tuples) {
+        if (this.maxEntries <= 0 || tuples == null)
+            return;
+
+        long postingBytes = estimateBytes(tuples);
+        if (postingBytes > this.maxBytes)
+            return;
+
+        Posting old = this.postings.put(key, new Posting(copyTuples(tuples), postingBytes));
+        if (old != null)
+            this.bytes -= old.bytes;
+        this.bytes += postingBytes;
+
+        // Evict from the least recently used side.
+        Iterator<Posting> iter = this.postings.values().iterator();
+        while ((this.postings.size() > this.maxEntries || this.bytes > this.maxBytes) && iter.hasNext()) {
+            this.bytes -= iter.next().bytes;
+            iter.remove();
+            this.evictions++;
+        }
+    }
+
+    /**
+     * Removes all the postings of a database.
+     */
+    public synchronized void invalidate(String database) {
+        Iterator<Map.Entry<Key, Posting>> iter = this.postings.entrySet().iterator();
+        while (iter.hasNext()) {
+            Map.Entry<Key, Posting> entry = iter.next();
+            if (Objects.equals(entry.getKey().getDatabase(), database)) {
+                this.bytes -= entry.getValue().bytes;
+                iter.remove();
+            }
+        }
+    }
+
+    /**
+     * Removes all the postings.
+     */
+    public synchronized void clear() {
+        this.postings.clear();
+        this.bytes = 0;
+    }
+
+    // Copies the tuples of a posting. The row views are copied to blocks holding only
+    // the rows of the posting, one for every block the views came from.
+    private static List<SQLTuple> copyTuples(List<? extends SQLTuple> tuples) {
+        List<SQLTuple> copies = new ArrayList<>(tuples.size());
+        IdentityHashMap<TupleBlock, TupleBlock> blocks = new IdentityHashMap<>();
+        for (SQLTuple tuple : tuples) {
+            if (tuple instanceof TupleBlock.Row) {
+                TupleBlock.Row row = (TupleBlock.Row) tuple;
+                TupleBlock block = blocks.computeIfAbsent(row.getBlock(), TupleBlock::emptyCopy);
+                copies.add(block.getRow(block.addRow(row.getBlock(), row.getRow())));
+            }
+            else {
+                copies.add(tuple.copy());
+            }
+        }
+        return copies;
+    }
+
+    // Estimates the memory occupied by a list of tuples.
+    private static long estimateBytes(List<? extends SQLTuple> tuples) {
+        long bytes = 0;
+        for (SQLTuple tuple : tuples) {
+            bytes += TUPLE_BYTES;
+            for (SQLValue value : tuple.getValues()) {
+                bytes += VALUE_BYTES;
+                if (value.getValue() instanceof String)
+                    bytes += STRING_BYTES + 2L * ((String) value.getValue()).length();
+            }
+        }
+        return bytes;
+    }
+
+
+    // Getters
+
+    public synchronized long getHits() {
+        return this.hits;
+    }
+
+    public synchronized long getMisses() {
+        return this.misses;
+    }
+
+    public synchronized long getEvictions() {
+        return this.evictions;
+    }
+
+    public synchronized int getSize() {
+        return this.postings.size();
+    }
+
+    public synchronized long getEstimatedBytes() {
+        return this.bytes;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "KeywordPostingCache{" +
+            " postings=" + this.postings.size() +
+            ", bytes=" + this.bytes +
+            ", hits=" + this.hits +
+            ", misses=" + this.misses +
+            ", evictions=" + this.evictions +
+            " }";
+    }
+}
@@ -230,5 +230,44 @@ public class MySQLInformationReader implements DatabaseInfoReader{
             // Close the connection
             DatabaseUtil.close(con, stmt, rs);
         }
-    } 
-}
\ No newline at end of file
+    }
+
+    /**
+     * Returns a fingerprint of the database catalog, computed by the server with a single
+     * aggregate query. It changes whenever a column, a key or a full-text index changes,
+     * and when the row counts (the statistics stored in the snapshot) change.
+     *
+     * @param database
+     * @return The checksum or null if the catalog could not be read.
+     */
+    public static Long getCatalogChecksum(SQLDatabase database) {
+        Connection con = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        Long checksum = null;
+
+        try {
+            con = DataSourceFactory.getConnection();
+            stmt = con.prepareStatement(SQLQueries.INFORMATION_SCHEMA_CHECKSUM_QUERY);
+            for (int index = 1; index <= 5; index++)
+                stmt.setString(index, database.getName());
+            rs = stmt.executeQuery();
+
+            // Mix the columns of the fingerprint into one value.
+            if (rs.next()) {
+                checksum = 17L;
+                for (int index = 1; index <= rs.getMetaData().getColumnCount(); index++)
+                    checksum = 31 * checksum + rs.getLong(index);
+            }
+        }
+        catch (SQLException e) {
+            e.printStackTrace();
+        }
+        finally {
+            // Close the connection
+            DatabaseUtil.close(con, stmt, rs);
+        }
+
+        return checksum;
+    }
+}
@@ -0,0 +1,329 @@
+package shared.database.connectivity;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import shared.database.model.SQLQueries;
+
+/**
+ * A pool of temp tables that outlive the query that created them. A table is
+ * identified by a key describing its content (for example the base table, the
+ * keywords and the {@link #fingerprint(List) fingerprint} of the rows of a tuple set),
+ * so a later query needing a table with the same content reuses it instead of
+ * creating and filling a new one. The keys are scoped to the database the
+ * {@link DataSourceFactory} connects to, so the tables of a database are never
+ * reused for another one with the same table names.
+ *
+ * A query acquires the tables it uses and releases them when it finishes. When the
+ * pooled tables hold more than the maximum number of rows, the least recently used
+ * tables that no query uses are dropped. The remaining tables are dropped with
+ * {@link #dropAll()}, which the systems call from their ShutdownHook.
+ *
+ * The pooled tables are named with {@link #newTableName(String)}, which makes the names
+ * unique across the processes sharing a database. The tables left by a process that did not
+ * shut down cleanly are dropped with {@link #dropStaleTables(String, String)}.
+ */
+public class TempTablePool {
+
+    /**
+     * A pooled table.
+     */
+    private static class Entry {
+        String key;        // The key of the table's content.
+        String tableName;  // The (qualified) name of the table.
+        long rows;         // The number of rows of the table.
+        int users;         // The number of queries using the table.
+
+        Entry(String key, String tableName, long rows) {
+            this.key = key;
+            this.tableName = tableName;
+            this.rows = rows;
+            this.users = 1;
+        }
+    }
+
+    // A random part of the table names, unique to this process.
+    private static final String PROCESS_ID = UUID.randomUUID().toString().substring(0, 8);
+
+    private final long maxRows;                       // The maximum number of rows of the tables not in use.
+    private final LinkedHashMap<String, Entry> entries;  // The tables by key, the least recently used first.
+    private final Map<String, Entry> entriesByName;      // The tables by name.
+    private long totalRows;                           // The rows of all the pooled tables.
+    private final AtomicLong nextTableNumber;         // The number of table names returned.
+
+    /**
+     * @param maxRows The maximum number of rows kept in the pooled tables (0 disables the pool).
+     */
+    public TempTablePool(long maxRows) {
+        this.maxRows = maxRows;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+        this.entriesByName = new HashMap<>();
+        this.totalRows = 0;
+        this.nextTableNumber = new AtomicLong(0);
+    }
+
+    /**
+     * @return true if the pool keeps any tables.
+     */
+    public boolean isEnabled() {
+        return this.maxRows > 0;
+    }
+
+    /**
+     * Returns a new name for a pooled table: the prefix, a part unique to this process
+     * and a number, so that the pools of other processes never create a table with it.
+     *
+     * @param prefix The prefix of the name (the auxiliary database and the system's prefix).
+     */
+    public String newTableName(String prefix) {
+        return prefix + PROCESS_ID + "_" + this.nextTableNumber.getAndIncrement();
+    }
+
+    /**
+     * Drops the tables of a database whose names start with the prefix and that were not
+     * named by this process, i.e. the pooled tables left by the processes that were killed
+     * before their ShutdownHook ran. Call it at startup, while no other process using the
+     * prefix is running, since their pooled tables are dropped too.
+     *
+     * @param database The (auxiliary) database of the pooled tables.
+     * @param prefix The prefix of the names of the pooled tables, without the database.
+     */
+    public static void dropStaleTables(String database, String prefix) {
+        List<String> tableNames = new ArrayList<>();
+        Connection con = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        try {
+            con = DataSourceFactory.getConnection();
+            stmt = con.prepareStatement(SQLQueries.INFORMATION_SCHEMA_TABLE_NAMES_LIKE_QUERY);
+            stmt.setString(1, database);
+            stmt.setString(2, prefix.replace("_", "\\_") + "%");  // '_' is a LIKE wildcard.
+            rs = stmt.executeQuery();
+            while (rs.next()) {
+                String tableName = rs.getString(1);
+                if (!tableName.startsWith(prefix + PROCESS_ID))
+                    tableNames.add(database + "." + tableName);
+            }
+        }
+        catch (SQLException e) {
+            e.printStackTrace();
+        }
+        finally {
+            DatabaseUtil.close(con, stmt, rs);
+        }
+
+        dropTables(tableNames);
+    }
+
+    /**
+     * Returns a fingerprint of the content of a table: the number of rows and a SHA-256 digest
+     * of the values of the rows, that does not depend on the order of the rows. Since a reused
+     * table is not compared with the rows, the digest must not collide for different contents.
+     *
+     * @param rows The values of the rows.
+     */
+    public static String fingerprint(List<Object[]> rows) {
+        MessageDigest digest = newDigest();
+
+        // Digest every row, then the sorted row digests, so that the order of the rows does not matter.
+        byte[][] rowDigests = new byte[rows.size()][];
+        int rowIndex = 0;
+        for (Object[] row : rows) {
+            for (Object value : row) {
+                // The values are prefixed with their length (-1 for NULL), so they cannot run into each other.
+                if (value == null) {
+                    updateInt(digest, -1);
+                    continue;
+                }
+                byte[] bytes = value.toString().getBytes(StandardCharsets.UTF_8);
+                updateInt(digest, bytes.length);
+                digest.update(bytes);
+            }
+            rowDigests[rowIndex++] = digest.digest();
+        }
+        Arrays.sort(rowDigests, TempTablePool::compareDigests);
+
+        for (byte[] rowDigest : rowDigests)
+            digest.update(rowDigest);
+
+        StringBuilder fingerprint = new StringBuilder().append(rows.size()).append(':');
+        for (byte b : digest.digest())
+            fingerprint.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        return fingerprint.toString();
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);  // Every Java platform supports SHA-256.
+        }
+    }
+
+    private static void updateInt(MessageDigest digest, int value) {
+        digest.update((byte) (value >>> 24));
+        digest.update((byte) (value >>> 16));
+        digest.update((byte) (value >>> 8));
+        digest.update((byte) value);
+    }
+
+    private static int compareDigests(byte[] first, byte[] second) {
+        for (int index = 0; index < first.length; index++) {
+            int cmp = Integer.compare(first[index] & 0xff, second[index] & 0xff);
+            if (cmp != 0) return cmp;
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the key of a table's content in the database the {@link DataSourceFactory} connects to.
+     */
+    private static String scoped(String key) {
+        return DataSourceFactory.getURL() + "|" + key;
+    }
+
+    /**
+     * Returns the name of the pooled table with the key, marking it as used by the caller
+     * until it is {@link #release(String) released}, or null if no table has the key.
+     *
+     * @param key The key of the table's content.
+     */
+    public synchronized String acquire(String key) {
+        Entry entry = this.entries.get(scoped(key));
+        if (entry == null)
+            return null;
+
+        entry.users++;
+        return entry.tableName;
+    }
+
+    /**
+     * Adds a table that the caller created and filled to the pool, marked as used by the
+     * caller. Returns false if the pool is disabled or another table with the same key was
+     * added in the meantime, and then the caller remains the owner of its table.
+     *
+     * @param key The key of the table's content.
+     * @param tableName The (qualified) name of the table.
+     * @param rows The number of rows of the table.
+     */
+    public boolean add(String key, String tableName, long rows) {
+        key = scoped(key);
+        synchronized (this) {
+            if (!this.isEnabled() || this.entries.containsKey(key))
+                return false;
+
+            Entry entry = new Entry(key, tableName, rows);
+            this.entries.put(key, entry);
+            this.entriesByName.put(tableName, entry);
+            this.totalRows += rows;
+        }
+
+        this.evict();
+        return true;
+    }
+
+    /**
+     * Releases a pooled table acquired or added by the caller.
+     *
+     * @param tableName The name of the table.
+     */
+    public void release(String tableName) {
+        synchronized (this) {
+            Entry entry = this.entriesByName.get(tableName);
+            if (entry == null || entry.users == 0)
+                return;
+            entry.users--;
+        }
+
+        this.evict();
+    }
+
+    /**
+     * @param tableName The name of a table.
+     * @return true if the table belongs to the pool.
+     */
+    public synchronized boolean contains(String tableName) {
+        return this.entriesByName.containsKey(tableName);
+    }
+
+    /**
+     * Drops all the pooled tables.
+     */
+    public void dropAll() {
+        List<String> tableNames;
+        synchronized (this) {
+            tableNames = new ArrayList<>(this.entriesByName.keySet());
+            this.entries.clear();
+            this.entriesByName.clear();
+            this.totalRows = 0;
+        }
+
+        dropTables(tableNames);
+    }
+
+    /**
+     * Drops the least recently used tables that are not in use, while
+     * the pooled tables hold more than the maximum number of rows.
+     */
+    private void evict() {
+        List<String> evicted = new ArrayList<>();
+        synchronized (this) {
+            Iterator<Entry> iterator = this.entries.values().iterator();
+            while (this.totalRows > this.maxRows && iterator.hasNext()) {
+                Entry entry = iterator.next();
+                if (entry.users > 0) continue;
+
+                iterator.remove();
+                this.entriesByName.remove(entry.tableName);
+                this.totalRows -= entry.rows;
+                evicted.add(entry.tableName);
+            }
+        }
+
+        dropTables(evicted);
+    }
+
+    /**
+     * Drops a list of tables from the database.
+     */
+    private static void dropTables(List<String> tableNames) {
+        if (tableNames.isEmpty()) return;
+
+        Connection con = null;
+        Statement stmt = null;
+        try {
+            con = DataSourceFactory.getConnection();
+            stmt = con.createStatement();
+
+            // Temporary disable the Constraints.
+            stmt.executeUpdate(SQLQueries.SQL_DISABLE_CONSTRAINTS_QUERY);
+            // Drop the list of tables.
+            stmt.executeUpdate(String.format(SQLQueries.SQL_DROP_TABLES_QUERY, String.join(", ", tableNames)));
+            // Enable the constraints.
+            stmt.executeUpdate(SQLQueries.SQL_ENABLE_CONSTRAINTS_QUERY);
+        }
+        catch (Exception e) {
+            e.printStackTrace();
+        }
+        finally {
+            DatabaseUtil.close(con, stmt);
+        }
+    }
+
+}
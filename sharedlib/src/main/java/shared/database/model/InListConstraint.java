@@ -0,0 +1,134 @@
+package shared.database.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import shared.database.connectivity.DatabaseUtil;
+import shared.util.PrintingUtils;
+
+/**
+ * An IN LIST constraint of a query on one or more columns:
+ *
+ *      [column] IN ([value], ..., [value])
+ *      ([column], ..., [column]) IN (([value], ..., [value]), ...)
+ *
+ * The constraint can be written with its values inlined in the query, or with bind
+ * parameters ('?') and the values bound to a PreparedStatement. To keep the number
+ * of different parameterized queries small, the number of parameters is rounded up
+ * to a power of two and the list is padded by repeating its last row.
+ *
+ * A query can not have more than {@link #MAX_PARAMETERS} bind parameters, so the queries
+ * with more values inline them (see {@link SQLQuery#toParameterizedSelectQuery()}).
+ */
+public class InListConstraint {
+
+    // The maximum number of bind parameters of a query. MySQL and the PostgreSQL drivers
+    // since 42.4 accept 65,535, the older PostgreSQL drivers (like sharedlib's 42.2) 32,767.
+    public static final int MAX_PARAMETERS = 32767;
+
+    private List<String> columns;   // The (aliased) columns of the constraint.
+    private List<Object[]> rows;    // The values of the columns for every row in the list.
+
+    /**
+     * @param columns The (aliased) columns of the constraint.
+     * @param rows The values of the columns for every row in the list (a String, a Number or another object).
+     */
+    public InListConstraint(List<String> columns, List<Object[]> rows) {
+        this.columns = columns;
+        this.rows = rows;
+    }
+
+    /**
+     * @return the number of rows in the list.
+     */
+    public int size() {
+        return this.rows.size();
+    }
+
+    /**
+     * @return the number of bind parameters of {@link #toParameterizedString()}.
+     */
+    public int getParametersNum() {
+        return paddedSize(this.rows.size()) * this.columns.size();
+    }
+
+    /**
+     * @return the constraint with the values inlined.
+     */
+    @Override
+    public String toString() {
+        List<String> rowStrings = new ArrayList<>();
+        for (Object[] row : this.rows) {
+            List<String> values = new ArrayList<>();
+            for (Object value : row)
+                values.add(toLiteral(value));
+            rowStrings.add(this.formatRow(values));
+        }
+
+        return String.format(SQLQueries.IN_LIST_CONSTRAINT, this.formatColumns(), PrintingUtils.separateWithDelimiter(rowStrings, ", "));
+    }
+
+    /**
+     * @return the constraint with a bind parameter for every value of the padded list.
+     */
+    public String toParameterizedString() {
+        List<String> parameters = new ArrayList<>();
+        for (int column = 0; column < this.columns.size(); column++)
+            parameters.add("?");
+        String row = this.formatRow(parameters);
+
+        List<String> rowStrings = new ArrayList<>();
+        for (int index = 0; index < paddedSize(this.rows.size()); index++)
+            rowStrings.add(row);
+
+        return String.format(SQLQueries.IN_LIST_CONSTRAINT, this.formatColumns(), PrintingUtils.separateWithDelimiter(rowStrings, ", "));
+    }
+
+    /**
+     * Appends the values bound to the parameters of {@link #toParameterizedString()} to a list.
+     */
+    public void addParameters(List<Object> parameters) {
+        for (int index = 0; index < paddedSize(this.rows.size()); index++) {
+            Object[] row = this.rows.get(Math.min(index, this.rows.size() - 1));
+            for (Object value : row)
+                parameters.add(value);
+        }
+    }
+
+    /**
+     * @return the constraint without its values (used to print the query).
+     */
+    public String toPrettyString() {
+        return String.format(SQLQueries.IN_LIST_CONSTRAINT, this.formatColumns(), " ... ");
+    }
+
+    private String formatColumns() {
+        if (this.columns.size() == 1)
+            return this.columns.get(0);
+        return "(" + PrintingUtils.separateWithDelimiter(this.columns, ", ") + ")";
+    }
+
+    private String formatRow(List<String> values) {
+        if (values.size() == 1)
+            return values.get(0);
+        return "(" + PrintingUtils.separateWithDelimiter(values, ", ") + ")";
+    }
+
+    // Returns the smallest power of two that is not less than the size.
+    private static int paddedSize(int size) {
+        int padded = 1;
+        while (padded < size)
+            padded <<= 1;
+        return (size == 0) ? 0 : padded;
+    }
+
+    // Returns a value as an SQL literal, quoting and escaping the values that are not numbers.
+    private static String toLiteral(Object value) {
+        if (value == null)
+            return "NULL";
+        else if (value instanceof Number)
+            return value.toString();
+        return "'" + DatabaseUtil.escapeStrValue(value.toString()) + "'";
+    }
+
+}
@@ -49,6 +49,11 @@ public class MySqlDatabase extends SQLDatabase {
         MySQLInformationReader.getTableAndColumnStatistics(this);
     }
 
+    @Override
+    public Long getCatalogChecksum() {
+        return MySQLInformationReader.getCatalogChecksum(this);
+    }
+
     @Override
     public InvIdxCondBuilder getInvIndexCondition() {
         return new MySQLInvIdxCondBuilder();
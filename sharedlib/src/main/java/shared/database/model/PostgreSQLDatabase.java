@@ -50,6 +50,11 @@ public class PostgreSQLDatabase extends SQLDatabase {
         PostgreSQLInformationReader.getTableAndColumnStatistics(this);
     }
 
+    @Override
+    public Long getCatalogChecksum() {
+        return PostgreSQLInformationReader.getCatalogChecksum(this);
+    }
+
     @Override
     public InvIdxCondBuilder getInvIndexCondition() {
         return new PostgreSQLInvIdxCondBuilder();
@@ -59,6 +59,24 @@ public class PostgreSQLQueries extends SQLQueries {
       "SELECT relname as TABLE_NAME, n_live_tup as TABLE_ROWS " +
       "FROM pg_stat_user_tables";
 
+    // Gets a fingerprint of the catalog (columns, key constraints and GIN/GIST indexes) and of the
+    // table statistics (live rows) of the schemas read by the information reader (all but the system ones).
+    // It is used to validate a stored schema snapshot without reading the whole INFORMATION_SCHEMA.
+    public static final String CATALOG_CHECKSUM_QUERY =
+      "SELECT " +
+      "(SELECT COUNT(*) FROM information_schema.columns " +
+        "WHERE table_schema not in ('information_schema', 'pg_catalog')) AS COLUMNS_NUM, " +
+      "(SELECT COALESCE(SUM(hashtext(table_name || '.' || column_name || '.' || data_type || '.' || COALESCE(character_maximum_length, -1))::bigint), 0) " +
+        "FROM information_schema.columns WHERE table_schema not in ('information_schema', 'pg_catalog')) AS COLUMNS_CHECKSUM, " +
+      "(SELECT COALESCE(SUM(hashtext(conrelid::regclass::text || '.' || conname)::bigint), 0) " +
+        "FROM pg_constraint WHERE contype IN ('p', 'f') " +
+        "AND connamespace::regnamespace::text not in ('information_schema', 'pg_catalog')) AS KEYS_CHECKSUM, " +
+      "(SELECT COALESCE(SUM(hashtext(tablename || '.' || indexname)::bigint), 0) " +
+        "FROM pg_indexes WHERE (indexdef LIKE '% gin %' OR indexdef like '% gist %') " +
+        "AND schemaname not in ('information_schema', 'pg_catalog')) AS INDEXES_CHECKSUM, " +
+      "(SELECT COALESCE(SUM(hashtext(relname || '.' || n_live_tup)::bigint), 0) " +
+        "FROM pg_stat_user_tables) AS STATISTICS_CHECKSUM";
+
     public static final String UPDATE_TABLE_SET_TSVECTOR = 
       "UPDATE %s SET %s = to_tsvector('english', coalesce(%s,''))";
 
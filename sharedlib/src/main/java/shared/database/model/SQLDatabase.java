@@ -5,6 +5,7 @@ import java.util.List;
 
 import shared.database.connectivity.DataSourceFactory;
 import shared.database.connectivity.DatabaseIndexManager;
+import shared.database.connectivity.KeywordPostingCache;
 
 
 // This class models a SQL database.
@@ -40,6 +41,7 @@ public abstract class SQLDatabase {
     protected String name;                                   // The database name.
     protected List<SQLTable> tables;                         // List of tables in the database.
     protected List<SQLForeignKeyConstraint> fkConstraints;   // List of foreign key constraints between tables.
+    protected Long catalogChecksum;                          // The checksum of the catalog the database was filled from.
 
     public SQLDatabase(String name) {
         this.name = name;
@@ -130,6 +132,9 @@ public abstract class SQLDatabase {
      */
     public static SQLDatabase InstantiateDatabase(String databaseName, DatabaseType type) {        
         DataSourceFactory.loadConnectionProperties(databaseName, type);
+
+        // The cached keyword postings reference the columns of the previous database object.
+        KeywordPostingCache.getInstance().invalidate(databaseName);
         
         SQLDatabase database = null;
         if (DataSourceFactory.getType().isMySQL())
@@ -139,9 +144,20 @@ public abstract class SQLDatabase {
         else
             System.err.println("Database type not supported. Currently supporting: {Mysql, PostgreSQL}");
 
-        // Fill the database
-        if (database != null)
-            database.fillDatabase();
+        // Fill the database, from its schema snapshot if the catalog did not change since it was taken.
+        // The checksum is kept in the database, so the caches built over it can tell its versions apart.
+        if (database != null) {
+            database.setType(DataSourceFactory.getType());
+            SchemaSnapshot snapshot = SchemaSnapshot.forDatabase(databaseName, DataSourceFactory.getType());
+            Long checksum = database.getCatalogChecksum();
+
+            if (snapshot == null || checksum == null || !snapshot.load(database, checksum)) {
+                database.fillDatabase();
+                if (snapshot != null && checksum != null)
+                    snapshot.save(database, checksum);
+            }
+            database.catalogChecksum = checksum;
+        }
 
         return database;
     }
@@ -174,6 +190,15 @@ public abstract class SQLDatabase {
      * from the Database Engine (Mysql/postgre).
      */
     public abstract void fillDatabase();
+
+
+    /**
+     * Returns a checksum of the database catalog and its table statistics, used to validate a stored
+     * {@link SchemaSnapshot} instead of filling the database again.
+     *
+     * @return The checksum or null if it could not be computed.
+     */
+    public abstract Long getCatalogChecksum();
     
 
 
@@ -224,6 +249,14 @@ public abstract class SQLDatabase {
         return this.tables;
     }
 
+    /**
+     * @return The checksum of the catalog the database was filled from (see {@link #getCatalogChecksum()}),
+     *         or null if it could not be computed.
+     */
+    public Long getFilledCatalogChecksum() {
+        return this.catalogChecksum;
+    }
+
     public void setTables(List<SQLTable> tables) {
         this.tables = tables;
     }
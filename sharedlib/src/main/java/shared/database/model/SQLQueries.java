@@ -136,6 +136,27 @@ public class SQLQueries {
     "FROM INFORMATION_SCHEMA.TABLES " +
     "WHERE TABLE_SCHEMA=?";
 
+    // Query to get the names of the tables in the schema matching a LIKE pattern.
+    public static final String INFORMATION_SCHEMA_TABLE_NAMES_LIKE_QUERY =
+    "SELECT TABLE_NAME " +
+    "FROM INFORMATION_SCHEMA.TABLES " +
+    "WHERE TABLE_SCHEMA=? AND TABLE_NAME LIKE ?";
+
+    // Query to get a fingerprint of the catalog of the schema (columns, foreign keys and FULLTEXT indexes)
+    // and of its table statistics (rows and last update). It is used to validate a stored schema snapshot
+    // without reading the whole INFORMATION_SCHEMA.
+    public static final String INFORMATION_SCHEMA_CHECKSUM_QUERY =
+        "SELECT " +
+        "(SELECT COUNT(*) FROM INFORMATION_SCHEMA.COLUMNS WHERE TABLE_SCHEMA=?) AS COLUMNS_NUM, " +
+        "(SELECT COALESCE(SUM(CRC32(CONCAT_WS('.', TABLE_NAME, COLUMN_NAME, DATA_TYPE, COLUMN_KEY, CHARACTER_MAXIMUM_LENGTH))), 0) " +
+            "FROM INFORMATION_SCHEMA.COLUMNS WHERE TABLE_SCHEMA=?) AS COLUMNS_CHECKSUM, " +
+        "(SELECT COALESCE(SUM(CRC32(CONCAT_WS('.', TABLE_NAME, COLUMN_NAME, REFERENCED_TABLE_NAME, REFERENCED_COLUMN_NAME))), 0) " +
+            "FROM INFORMATION_SCHEMA.KEY_COLUMN_USAGE WHERE TABLE_SCHEMA=? AND REFERENCED_COLUMN_NAME IS NOT NULL) AS KEYS_CHECKSUM, " +
+        "(SELECT COALESCE(SUM(CRC32(CONCAT_WS('.', TABLE_NAME, COLUMN_NAME))), 0) " +
+            "FROM INFORMATION_SCHEMA.STATISTICS WHERE TABLE_SCHEMA=? AND INDEX_TYPE='FULLTEXT') AS INDEXES_CHECKSUM, " +
+        "(SELECT COALESCE(SUM(CRC32(CONCAT_WS('.', TABLE_NAME, TABLE_ROWS, UPDATE_TIME))), 0) " +
+            "FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_SCHEMA=?) AS STATISTICS_CHECKSUM";
+
     // Query to get the average length in words of all columns with a FULLTEXT index in the current database schema.
     public static final String COLUMN_AVERAGE_LENGTH_QUERY = "SELECT * FROM avg_length";
 
@@ -14,10 +14,12 @@ public class SQLQuery {
     private List<String> fromElements; // The Tables selected to participate in the Query.
     private List<String> joinEquations; // The equations used to join the above from Elements.
     private List<String> inListConstraints; // In List Assignments used in the specific query.
+    private List<InListConstraint> parameterizedInLists; // In List Assignments whose values can be bound as parameters.
     private List<String> valueConstraints; // Value specific constraints.
     private List<String> groupByElements; // The columns contained in the groupBy part.
 
     private List<Pair<String, String>> tablesWithAliases; // Contains the table names along with their aliases
+    private Integer limit;                                // The maximum number of rows returned (null for the default 2000).
 
     /** Constructor */
     public SQLQuery() {
@@ -25,9 +27,11 @@ public class SQLQuery {
         this.fromElements = new ArrayList<>();
         this.joinEquations = new ArrayList<>();
         this.inListConstraints = new ArrayList<>();
+        this.parameterizedInLists = new ArrayList<>();
         this.valueConstraints = new ArrayList<>();
         this.groupByElements = new ArrayList<>();
         this.tablesWithAliases = new ArrayList<>();
+        this.limit = null;
     }
  
 
@@ -76,6 +80,17 @@ public class SQLQuery {
         this.fromElements.add(tableName + SQLQueries.ALIAS_SPECIFIER + alias);
     }
 
+    /**
+     * Adds a derived table (a subquery in parentheses) and its alias for the SQLQuery.
+     * The table name is the name of the table that the derived table stands for.
+     */
+    public void addDerivedTableWithAlias(String derivedTable, String tableName, String alias) {
+        this.tablesWithAliases.add(new Pair<>(tableName, alias));
+
+        // Add the derived table in the from elements variable
+        this.fromElements.add(derivedTable + SQLQueries.ALIAS_SPECIFIER + alias);
+    }
+
     /**
      * Returns the Tables located in the from Part of the SQLQuery 
      */
@@ -113,6 +128,9 @@ public class SQLQuery {
         for (String inListConst: this.inListConstraints) {
             whereElements.add(inListConst.substring(0, inListConst.indexOf("IN (") + 4) + " ... )");
         }
+        for (InListConstraint inList: this.parameterizedInLists) {
+            whereElements.add(inList.toPrettyString());
+        }
         
         // Add where clause if it exists
         if (!whereElements.isEmpty()) {
@@ -137,7 +155,51 @@ public class SQLQuery {
     /**
      * Returns the SQL Select Query in string format.
      */
-    public String toSelectQuery() {        
+    public String toSelectQuery() {
+        return this.toSelectQuery(false);
+    }
+
+    /**
+     * Returns the SQL Select Query in string format, with bind parameters ('?') in place of
+     * the values of the IN lists added by {@link #addInListConstraint(InListConstraint)}.
+     * Queries that differ only in those values have the same parameterized query, so it can
+     * be prepared once and executed with the values of {@link #getParameters()}.
+     *
+     * If the IN lists need more than {@link InListConstraint#MAX_PARAMETERS} parameters,
+     * their values are inlined and the query has no parameters.
+     */
+    public String toParameterizedSelectQuery() {
+        return this.toSelectQuery(this.bindsInLists());
+    }
+
+    /**
+     * Returns the values bound to the parameters of {@link #toParameterizedSelectQuery()}, in order.
+     */
+    public List<Object> getParameters() {
+        List<Object> parameters = new ArrayList<>();
+        if (this.bindsInLists()) {
+            for (InListConstraint inList: this.parameterizedInLists)
+                inList.addParameters(parameters);
+        }
+        return parameters;
+    }
+
+    /**
+     * Returns the number of parameters the IN lists need to be bound (even if they are inlined).
+     */
+    public int getParametersNum() {
+        int parametersNum = 0;
+        for (InListConstraint inList: this.parameterizedInLists)
+            parametersNum += inList.getParametersNum();
+        return parametersNum;
+    }
+
+    // The values of the IN lists are bound as parameters if they fit in a query.
+    private boolean bindsInLists() {
+        return this.getParametersNum() <= InListConstraint.MAX_PARAMETERS;
+    }
+
+    private String toSelectQuery(boolean parameterized) {        
         String query = new String();                        
 
         // Fill in the Select and From clause of the query
@@ -152,6 +214,8 @@ public class SQLQuery {
         whereElements.addAll(this.joinEquations);        
         whereElements.addAll(this.valueConstraints);        
         whereElements.addAll(this.inListConstraints);
+        for (InListConstraint inList: this.parameterizedInLists)
+            whereElements.add(parameterized ? inList.toParameterizedString() : inList.toString());
 
         // Add where clause if it exists
         if (!whereElements.isEmpty()) {
@@ -170,22 +234,25 @@ public class SQLQuery {
         }
 
         // Add a limit to the query 
-        query += " " + SQLQueries.LIMIT_STATEMENT_2K;
+        if (this.limit != null)
+            query += " " + String.format(SQLQueries.LIMIT_STATEMENT, this.limit);
+        else
+            query += " " + SQLQueries.LIMIT_STATEMENT_2K;
 
         return query;
     }
 
     /**
      * Returns the from Elements of the Query but removes the temp
-     * tables overloaded Names and keeps the Table Names as it is on 
-     * the SQLDatabase
+     * tables overloaded Names (and derived tables) and keeps the Table
+     * Names as it is on the SQLDatabase
      */
     public List<String> getFromElementsNoTemps() {
         List<String> processedFromElements = new ArrayList<>();
-        for (String fromElement: this.fromElements) {
-            String[] tokens = fromElement.split("_");
+        for (Pair<String, String> table: this.tablesWithAliases) {
+            String[] tokens = table.getLeft().split("_");
             processedFromElements.add( 
-                tokens[tokens.length - 1]
+                tokens[tokens.length - 1] + SQLQueries.ALIAS_SPECIFIER + table.getRight()
             );
         }
         return processedFromElements;
@@ -212,6 +279,13 @@ public class SQLQuery {
        return inListConstraints;
    }
 
+   /**
+    * Adds an IN LIST constraint whose values are bound as parameters by the parameterized query.
+    */
+   public void addInListConstraint(InListConstraint inList) {
+       this.parameterizedInLists.add(inList);
+   }
+
    /**
     * @return the joinEquations
     */
@@ -226,6 +300,20 @@ public class SQLQuery {
        return valueConstraints;
    }
 
+    /**
+     * @return the maximum number of rows returned by the select query, or null for the default (2000).
+     */
+    public Integer getLimit() {
+        return limit;
+    }
+
+    /**
+     * @param limit the maximum number of rows returned by the select query.
+     */
+    public void setLimit(Integer limit) {
+        this.limit = limit;
+    }
+
     /**
      * @return the groupByElements
      */
@@ -1,5 +1,6 @@
 package shared.database.model;
 
+import shared.util.KeywordMatcher;
 import shared.util.PrintingUtils;
 
 import java.util.ArrayList;
@@ -7,7 +8,6 @@ import java.util.Collection;
 import java.util.List;
 
 import java.sql.ResultSet;
-import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 
 // This class models a SQL tuple (row) of a relation.
@@ -23,6 +23,26 @@ public class SQLTuple {
         this.primaryKey = new ArrayList<SQLColumn>();
     }
 
+    // Creates a tuple over the given lists, which are used as they are (see TupleBlock.Row).
+    protected SQLTuple(List<SQLColumn> attributes, List<SQLValue> values, List<SQLColumn> primaryKey) {
+        this.attributes = attributes;
+        this.values = values;
+        this.primaryKey = primaryKey;
+    }
+
+    // Copy constructor. The columns and values are shared, the lists are not.
+    public SQLTuple(SQLTuple tuple) {
+        this.attributes = new ArrayList<SQLColumn>(tuple.attributes);
+        this.values = new ArrayList<SQLValue>(tuple.values);
+        this.primaryKey = new ArrayList<SQLColumn>(tuple.primaryKey);
+    }
+
+    // Returns a copy of the tuple that can be modified without changing this one.
+    // Subclasses with more fields override it to copy them too.
+    public SQLTuple copy() {
+        return new SQLTuple(this);
+    }
+
     // Getters and Setters.
     public List<SQLColumn> getAttributes() {
         return this.attributes;
@@ -64,14 +84,50 @@ public class SQLTuple {
     }
 
     // Checks if the tuple contains all keywords from the given list.
+    // Every value is scanned once for all the keywords (see KeywordMatcher). If the values were
+    // scanned with the query's matcher and the keywords are a part of the query's keywords, the
+    // cached matches are used instead of scanning them again with a matcher of the part.
     public boolean containsAllKeywords(Collection<String> keywords) {
-        for (String keyword : keywords) {
-            if (!this.containsKeyword(keyword)) {
-                return false;
+        KeywordMatcher matcher = KeywordMatcher.forKeywords(keywords, this.getQueryMatcher());
+        if (matcher == null) {
+            for (String keyword : keywords) {
+                if (!this.containsKeyword(keyword)) {
+                    return false;
+                }
             }
+            return true;
         }
 
-        return true;
+        long required = matcher.maskOf(keywords);
+        long found = 0L;
+        for (SQLValue value : this.values) {
+            found |= value.match(matcher).getMask();
+            if ((found & required) == required)
+                return true;
+        }
+
+        return (found & required) == required;
+    }
+
+    // Returns the matcher the tuple's values cache their matches for, or null.
+    protected KeywordMatcher getQueryMatcher() {
+        for (SQLValue value : this.values) {
+            KeywordMatcher matcher = value.getMatcher();
+            if (matcher != null)
+                return matcher;
+        }
+
+        return null;
+    }
+
+    // Returns the mask of the matcher's keywords that appear in the tuple's values.
+    public long getKeywordMask(KeywordMatcher matcher) {
+        long mask = 0L;
+        for (SQLValue value : this.values) {
+            mask |= value.match(matcher).getMask();
+        }
+
+        return mask;
     }
 
 
@@ -97,52 +153,12 @@ public class SQLTuple {
         return null;
     }
 
-    // Fills an SQLTuple object with the names and values of the given result set
+    // Fills an SQLTuple object with the names and values of the given result set.
+    // Compiles a TupleDecoder for every row, so loops over many rows should use
+    // fill(TupleDecoder, ResultSet) with a decoder compiled once.
     public void fill(SQLDatabase database, ResultSet rs) {
         try {
-            ResultSetMetaData metadata = rs.getMetaData();    // The result set metadata                      
-
-            // All indexes are +1 because it indexes in rs starts from 1
-
-            // Loop the Results Set Columns
-            for (int index = 0; index < metadata.getColumnCount(); index++) {
-                SQLColumn column = null;
-                
-                // Get the column from the database.                
-                SQLTable table = database.getTableByName(metadata.getTableName(index + 1));     // First get the Table
-                if (table != null)                
-                    column = table.getColumnByName(metadata.getColumnName(index + 1));  // Then get the Column
-
-                // If we dint find the column this means we are returning an Aggregate function
-                // so create a new column
-                if (column == null) {                    
-                    column = new SQLColumn(null, metadata.getColumnLabel(index + 1), SQLType.NUMERIC_TYPE, null);
-                }
-            
-                // Add its value depending on the column type
-                if (column.getType().isTextual()) {
-                    this.values.add(new SQLVarcharValue(rs.getString(index+1), column.getType().getMaximumLength()));
-                    this.attributes.add(column);
-                }
-                else if (column.getType().isInt()) {
-                    this.values.add(new SQLIntValue(rs.getInt(index+1)));
-                    this.attributes.add(column);
-                }
-                else if (column.getType().isDouble()) {
-                    this.values.add(new SQLDoubleValue(rs.getDouble(index+1)));
-                    this.attributes.add(column);
-                }
-                else if (column.getType().isFloat()) {
-                    this.values.add(new SQLFloatValue(rs.getFloat(index+1)));
-                    this.attributes.add(column);
-                }
-
-                // Check if the column is part of the tuple's primary key.
-                if (column.isPrimary()) {
-                    this.primaryKey.add(column);
-                }
-            }         
-
+            this.fill(TupleDecoder.forDatabase(database, rs.getMetaData()), rs);
         }
         catch (SQLException e) {
             e.printStackTrace();
@@ -152,31 +168,14 @@ public class SQLTuple {
 
     // Fills an SQLTuple object with the names and values of the given list of columns.
     public void fill(List<SQLColumn> columns, ResultSet rs) {
+        this.fill(TupleDecoder.forColumns(columns), rs);
+    }
+
+    // Fills an SQLTuple object with the current row of the result set, using
+    // the column bindings of a decoder compiled for that result set.
+    public void fill(TupleDecoder decoder, ResultSet rs) {
         try {
-            for (int index = 0; index < columns.size(); index++) {
-                SQLColumn column = columns.get(index);
-                if (column.getType().isTextual()) {
-                    this.values.add(new SQLVarcharValue(rs.getString(index+1), column.getType().getMaximumLength()));
-                    this.attributes.add(column);
-                }
-                else if (column.getType().isInt()) {
-                    this.values.add(new SQLIntValue(rs.getInt(index+1)));
-                    this.attributes.add(column);
-                }
-                else if (column.getType().isDouble()) {
-                    this.values.add(new SQLDoubleValue(rs.getDouble(index+1)));
-                    this.attributes.add(column);
-                }
-                else if (column.getType().isFloat()) {
-                    this.values.add(new SQLFloatValue(rs.getFloat(index+1)));
-                    this.attributes.add(column);
-                }               
-
-                // Check if the column is part of the tuple's primary key.
-                if (column.isPrimary()) {
-                    this.primaryKey.add(column);
-                }
-            }         
+            decoder.decode(rs, this);
         }
         catch (SQLException e) {
             e.printStackTrace();
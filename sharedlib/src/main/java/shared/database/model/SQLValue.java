@@ -1,5 +1,7 @@
 package shared.database.model;
 
+import shared.util.KeywordMatcher;
+
 // This class models the value of an SQL attribute.
 // It is extended by specific SQL value types.
 public abstract class SQLValue {
@@ -28,6 +30,17 @@ public abstract class SQLValue {
     // Returns true if a keyword appears in the value.
     public abstract boolean contains(String keyword);
 
+    // Returns the keywords of the matcher that appear in the value.
+    // Only text values contain keywords, and they override this function.
+    public KeywordMatcher.Match match(KeywordMatcher matcher) {
+        return matcher.noMatch();
+    }
+
+    // Returns the matcher whose match the value caches (the one of the query's keywords), or null.
+    public KeywordMatcher getMatcher() {
+        return null;
+    }
+
     // Returns the length of the value in words (text attribute values override this function).
     public int getLength() { return 0;}
 
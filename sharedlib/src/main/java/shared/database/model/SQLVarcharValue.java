@@ -1,9 +1,12 @@
 package shared.database .model;
 
+import shared.util.KeywordMatcher;
+
 // This class models the value of an SQL attribute (VARCHAR type).
 public class SQLVarcharValue extends SQLValue {
 
     private String value;
+    private volatile KeywordMatcher.Match lastMatch;  // The keywords found by the last matcher used (read by any thread).
 
     public SQLVarcharValue(String value, Integer maximumLength) {
         super("varchar", maximumLength);
@@ -29,18 +32,44 @@ public class SQLVarcharValue extends SQLValue {
 
     public void setValue(String value) {
         this.value = value;
+        this.lastMatch = null;
     }
 
     // Returns true if the keyword appears in the string value (case insensitive).
+    // If the keyword is known to the last matcher used, its cached match is used.
     @Override
     public boolean contains(String keyword) {
         if (this.value == null) {
             return false;
         }
-        else {
-            return this.value.toLowerCase().contains(keyword.toLowerCase());
+
+        KeywordMatcher.Match match = this.lastMatch;
+        if (match != null) {
+            int index = match.getMatcher().indexOf(keyword);
+            if (index >= 0)
+                return match.contains(index);
         }
-    }   
+        return this.value.toLowerCase().contains(keyword.toLowerCase());
+    }
+
+    // Scans the value for the keywords of the matcher once, and caches the
+    // result for the next calls with the same matcher.
+    @Override
+    public KeywordMatcher.Match match(KeywordMatcher matcher) {
+        KeywordMatcher.Match match = this.lastMatch;
+        if (match != null && match.getMatcher() == matcher)
+            return match;
+
+        match = (this.value == null) ? matcher.noMatch() : matcher.match(this.value);
+        this.lastMatch = match;
+        return match;
+    }
+
+    @Override
+    public KeywordMatcher getMatcher() {
+        KeywordMatcher.Match match = this.lastMatch;
+        return (match != null) ? match.getMatcher() : null;
+    }
 
     @Override
     public int hashCode() {
@@ -0,0 +1,313 @@
+package shared.database.model;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+import shared.database.config.PropertiesSingleton;
+
+/**
+ * A binary snapshot of a filled {@link SQLDatabase}: its tables, columns, keys, full-text
+ * indexes, statistics and foreign key constraints. Reading the schema from the
+ * INFORMATION_SCHEMA and computing the column statistics is slow for large databases,
+ * so the first instantiation of a database stores a snapshot that the following ones
+ * map and decode instead.
+ *
+ * A snapshot is tagged with a checksum of the database catalog and of its table statistics
+ * (see {@link SQLDatabase#getCatalogChecksum}) and is reused only while that checksum is
+ * unchanged, so the stored row counts are refreshed when the tables change. The order of the tables, columns and constraints is preserved, so any
+ * graph built over the database is identical to the one built after reading the catalog.
+ *
+ * The directory of the snapshots is read from the properties file ('schema.snapshot.dir').
+ * An empty directory disables the snapshots.
+ */
+public class SchemaSnapshot {
+
+    private static final int MAGIC = 0x54484F52;   // "THOR"
+    private static final int VERSION = 2;           // Bump when the layout changes.
+    private static final String EXTENSION = ".schema";
+
+    private File file;   // The file of the snapshot.
+
+    public SchemaSnapshot(File file) {
+        this.file = file;
+    }
+
+    /**
+     * @return The snapshot of the database in the configured directory, or null if the snapshots are disabled.
+     */
+    public static SchemaSnapshot forDatabase(String databaseName, DatabaseType type) {
+        String directory = PropertiesSingleton.getStringProperty("schema.snapshot.dir", "");
+        if (directory.isEmpty())
+            return null;
+
+        String prefix = (type != null) ? type.getType() + "_" : "";
+        return new SchemaSnapshot(new File(directory, prefix + databaseName + EXTENSION));
+    }
+
+
+    /**
+     * Fills an empty database object from the snapshot if the snapshot exists, is intact
+     * and was taken from a catalog with the same checksum.
+     *
+     * @param database An empty database object.
+     * @param checksum The current checksum of the database catalog.
+     * @return True if the database was filled.
+     */
+    public boolean load(SQLDatabase database, long checksum) {
+        if (!this.file.isFile())
+            return false;
+
+        try (RandomAccessFile raf = new RandomAccessFile(this.file, "r");
+             FileChannel channel = raf.getChannel())
+        {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            // Validate the header.
+            if (buffer.remaining() < 28 || buffer.getInt() != MAGIC || buffer.getInt() != VERSION)
+                return false;
+            if (buffer.getLong() != checksum || !database.getName().equals(readString(buffer)))
+                return false;
+
+            // Validate the payload against the trailing CRC.
+            int payloadEnd = buffer.limit() - 8;
+            CRC32 crc = new CRC32();
+            for (int index = 0; index < payloadEnd; index++)
+                crc.update(buffer.get(index));
+            if (crc.getValue() != buffer.getLong(payloadEnd))
+                return false;
+
+            // Decode into new objects, so a corrupt snapshot never leaves the database half filled.
+            List<SQLTable> tables = new ArrayList<>();
+            List<SQLForeignKeyConstraint> constraints = new ArrayList<>();
+            List<int[]> referencing = new ArrayList<>();
+            List<int[]> referenced = new ArrayList<>();
+
+            // Read the tables and their columns.
+            int tablesNum = buffer.getInt();
+            for (int tableIndex = 0; tableIndex < tablesNum; tableIndex++) {
+                SQLTable table = new SQLTable(readString(buffer));
+                table.setRowsNum(buffer.getInt());
+
+                int columnsNum = buffer.getInt();
+                for (int columnIndex = 0; columnIndex < columnsNum; columnIndex++) {
+                    String name = readString(buffer);
+                    String rawType = readString(buffer);
+                    boolean hasMaximumLength = buffer.get() != 0;
+                    long maximumLength = buffer.getLong();
+                    SQLType type = new SQLType(rawType, hasMaximumLength ? Long.valueOf(maximumLength) : null);
+                    SQLColumn column = new SQLColumn(table, name, type);
+                    int keysNum = buffer.getInt();
+                    for (int keyIndex = 0; keyIndex < keysNum; keyIndex++)
+                        column.addKey(readString(buffer));
+                    column.setIsIndexed(buffer.get() != 0);
+                    column.setAverageLength(buffer.getDouble());
+                    table.addRawColumn(column);
+                }
+
+                table.setPrimaryKey(readColumnSet(buffer, table));
+                table.setForeignKeys(readColumnSet(buffer, table));
+                referencing.add(readIndices(buffer));
+                referenced.add(readIndices(buffer));
+                tables.add(table);
+            }
+
+            // Read the constraints as (table, column) positions.
+            int constraintsNum = buffer.getInt();
+            for (int constraintIndex = 0; constraintIndex < constraintsNum; constraintIndex++) {
+                SQLColumn foreignKey = tables.get(buffer.getInt()).getColumns().get(buffer.getInt());
+                SQLColumn primaryKey = tables.get(buffer.getInt()).getColumns().get(buffer.getInt());
+                constraints.add(new SQLForeignKeyConstraint(foreignKey, primaryKey));
+            }
+
+            // Link the tables to their constraints.
+            for (int tableIndex = 0; tableIndex < tablesNum; tableIndex++) {
+                for (int index : referencing.get(tableIndex))
+                    tables.get(tableIndex).addReferencingForeignKeyConstrain(constraints.get(index));
+                for (int index : referenced.get(tableIndex))
+                    tables.get(tableIndex).addReferencedForeignKeyConstrain(constraints.get(index));
+            }
+
+            database.setTables(tables);
+            database.setFKConstrains(constraints);
+            return true;
+        }
+        catch (IOException | BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            System.err.println("[WARN] Ignoring unreadable schema snapshot " + this.file + ": " + e);
+            return false;
+        }
+    }
+
+
+    /**
+     * Stores the snapshot of a filled database. The snapshot is written to a temporary file
+     * that replaces the old one, so readers never see a partial snapshot.
+     *
+     * @param database A filled database object.
+     * @param checksum The checksum of the catalog the database was read from.
+     * @return True if the snapshot was stored.
+     */
+    public boolean save(SQLDatabase database, long checksum) {
+        File tmpFile = null;
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+
+            // The header.
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(checksum);
+            writeString(out, database.getName());
+
+            // The tables and their columns.
+            List<SQLTable> tables = database.getTables();
+            List<SQLForeignKeyConstraint> constraints = database.getFKConstrains();
+            out.writeInt(tables.size());
+            for (SQLTable table : tables) {
+                writeString(out, table.getName());
+                out.writeInt(table.getRowsNum());
+
+                out.writeInt(table.getColumns().size());
+                for (SQLColumn column : table.getColumns()) {
+                    writeString(out, column.getName());
+                    writeString(out, column.getType().getRawType());
+                    Long maximumLength = column.getType().getMaximumLength();
+                    out.writeBoolean(maximumLength != null);
+                    out.writeLong((maximumLength != null) ? maximumLength : 0L);
+                    out.writeInt(column.getKey().size());
+                    for (String key : column.getKey())
+                        writeString(out, key);
+                    out.writeBoolean(column.isIndexed());
+                    out.writeDouble(column.getAverageLength());
+                }
+
+                writeColumnSet(out, table, table.getPrimaryKey());
+                writeColumnSet(out, table, table.getForeignKeys());
+                writeIndices(out, constraints, table.getReferencingConstraints());
+                writeIndices(out, constraints, table.getReferencedConstraints());
+            }
+
+            // The constraints as (table, column) positions.
+            out.writeInt(constraints.size());
+            for (SQLForeignKeyConstraint constraint : constraints) {
+                writeColumnPosition(out, tables, constraint.getForeignKeyColumn());
+                writeColumnPosition(out, tables, constraint.getPrimaryKeyColumn());
+            }
+
+            // The trailing CRC of everything above.
+            out.flush();
+            CRC32 crc = new CRC32();
+            crc.update(bytes.toByteArray());
+            out.writeLong(crc.getValue());
+            out.flush();
+
+            // Write a temporary file and move it in place.
+            File directory = this.file.getAbsoluteFile().getParentFile();
+            if (directory != null && !directory.isDirectory() && !directory.mkdirs())
+                return false;
+            tmpFile = File.createTempFile(this.file.getName(), ".tmp", directory);
+            try (FileOutputStream fileOut = new FileOutputStream(tmpFile)) {
+                bytes.writeTo(fileOut);
+                fileOut.getFD().sync();
+            }
+            Files.move(tmpFile.toPath(), this.file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        }
+        catch (IOException | IllegalStateException e) {
+            System.err.println("[WARN] Could not store schema snapshot " + this.file + ": " + e);
+            if (tmpFile != null)
+                tmpFile.delete();
+            return false;
+        }
+    }
+
+    public File getFile() {
+        return this.file;
+    }
+
+
+    // Encoding helpers.
+
+    private static void writeString(DataOutputStream out, String str) throws IOException {
+        if (str == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(MappedByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0)
+            return null;
+        if (length > buffer.remaining())
+            throw new BufferUnderflowException();
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Writes the positions of a set of the table's columns, in column order.
+    private static void writeColumnSet(DataOutputStream out, SQLTable table, Set<SQLColumn> set) throws IOException {
+        List<Integer> positions = new ArrayList<>();
+        for (int index = 0; index < table.getColumns().size(); index++)
+            if (set.contains(table.getColumns().get(index)))
+                positions.add(index);
+        out.writeInt(positions.size());
+        for (Integer position : positions)
+            out.writeInt(position);
+    }
+
+    private static Set<SQLColumn> readColumnSet(MappedByteBuffer buffer, SQLTable table) {
+        Set<SQLColumn> set = new HashSet<>();
+        int size = buffer.getInt();
+        for (int index = 0; index < size; index++)
+            set.add(table.getColumns().get(buffer.getInt()));
+        return set;
+    }
+
+    // Writes the positions of the constraints in the database's constraint list.
+    private static void writeIndices(DataOutputStream out, List<SQLForeignKeyConstraint> all, List<SQLForeignKeyConstraint> constraints)
+        throws IOException
+    {
+        out.writeInt(constraints.size());
+        for (SQLForeignKeyConstraint constraint : constraints) {
+            int index = all.indexOf(constraint);
+            if (index < 0)
+                throw new IllegalStateException("Constraint " + constraint + " is not a constraint of the database");
+            out.writeInt(index);
+        }
+    }
+
+    private static int[] readIndices(MappedByteBuffer buffer) {
+        int[] indices = new int[buffer.getInt()];
+        for (int index = 0; index < indices.length; index++)
+            indices[index] = buffer.getInt();
+        return indices;
+    }
+
+    private static void writeColumnPosition(DataOutputStream out, List<SQLTable> tables, SQLColumn column) throws IOException {
+        int tableIndex = tables.indexOf(column.getTable());
+        int columnIndex = (tableIndex < 0) ? -1 : tables.get(tableIndex).getColumns().indexOf(column);
+        if (columnIndex < 0)
+            throw new IllegalStateException("Column " + column + " is not a column of the database");
+        out.writeInt(tableIndex);
+        out.writeInt(columnIndex);
+    }
+}
@@ -0,0 +1,464 @@
+package shared.database.model;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * A block of tuples stored by column. All the rows of a block share the same attributes,
+ * so the block keeps one copy of them and stores the values of every column in a primitive
+ * array: integers in an int[], doubles and floats in a double[] and strings as codes of a
+ * dictionary. For the large tuple sets of the systems this takes a fraction of the heap of
+ * the same rows as {@link SQLTuple}s, each with its own lists and boxed {@link SQLValue}s.
+ * Blocks hold the tuples of the indexes (the full-text probes of discover's MasterIndex and
+ * the keyword posting cache) and the tuple sets of the IR engines. For the latter a block
+ * also stores the score of every row in a double[] and the frequencies of the query's
+ * keywords in an int matrix with a column per keyword (see {@link #setKeywords(List)}).
+ *
+ * The rows are accessed through {@link Row} views, which are {@link SQLTuple}s, so they can
+ * be stored in the tuple sets of the systems like any other tuple. A view holds no values:
+ * it creates the values it returns from the block's columns on every access (the textual
+ * values are created once and shared by the rows). Views can not be modified; copy one with
+ * {@link SQLTuple#SQLTuple(SQLTuple)} to get a modifiable tuple. The hash code of a view is
+ * computed from the block's columns without creating values.
+ *
+ * Blocks are filled with {@link TupleDecoder#decode(java.sql.ResultSet, TupleBlock)}, or with
+ * {@link #addTuple(SQLTuple)}. A block is not thread safe while it is filled.
+ */
+public class TupleBlock {
+
+    // How the values of a column are stored.
+    private static enum Storage { TEXT, INT, DOUBLE, FLOAT }
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private List<SQLColumn> attributes;   // The attributes of every row.
+    private List<SQLColumn> primaryKey;   // The attributes that compose the primary key of every row.
+    private int[] primaryKeyColumns;      // The columns of the primary key attributes.
+    private Storage[] storage;            // How the values of every column are stored.
+    private Long[] maxLengths;            // The maximum length of the textual columns.
+
+    private int[][] intColumns;           // The values of the INT and TEXT (dictionary codes) columns.
+    private double[][] doubleColumns;     // The values of the DOUBLE and FLOAT columns.
+    private int rowsNum;                  // The number of rows in the block.
+    private int capacity;                 // The number of rows the arrays can hold.
+
+    private List<String> dictionary;                 // The distinct strings of the block.
+    private HashMap<String, Integer> dictionaryCodes; // Maps every string to its code in the dictionary.
+    private SQLVarcharValue[][] textValues;          // The value of every code of the textual columns, created once.
+
+    private double[] scores;              // The score of every row, or null if the rows have no score.
+    private List<String> keywords;        // The keywords whose frequencies are counted, or null.
+    private int[][] keywordFrequencies;   // The frequency of every keyword (a column per keyword) in every row.
+
+    /**
+     * @param attributes The attributes of the rows. Attributes of a type without a
+     *                   {@link SQLValue} (like dates) are not stored, as in {@link TupleDecoder}.
+     */
+    public TupleBlock(List<SQLColumn> attributes) {
+        this(attributes, false);
+    }
+
+    /**
+     * @param attributes The attributes of the rows.
+     * @param scored     True to store a score for every row.
+     */
+    public TupleBlock(List<SQLColumn> attributes, boolean scored) {
+        this.attributes = new ArrayList<>();
+        this.primaryKey = new ArrayList<>();
+        for (SQLColumn column : attributes) {
+            if (storageOf(column) == null)
+                continue;
+            this.attributes.add(column);
+            if (column.isPrimary())
+                this.primaryKey.add(column);
+        }
+        this.attributes = Collections.unmodifiableList(this.attributes);
+        this.primaryKey = Collections.unmodifiableList(this.primaryKey);
+        this.primaryKeyColumns = new int[this.primaryKey.size()];
+        for (int key = 0; key < this.primaryKeyColumns.length; key++)
+            this.primaryKeyColumns[key] = this.attributes.indexOf(this.primaryKey.get(key));
+
+        int columnsNum = this.attributes.size();
+        this.storage = new Storage[columnsNum];
+        this.maxLengths = new Long[columnsNum];
+        this.intColumns = new int[columnsNum][];
+        this.textValues = new SQLVarcharValue[columnsNum][];
+        this.doubleColumns = new double[columnsNum][];
+        this.rowsNum = 0;
+        this.capacity = INITIAL_CAPACITY;
+        for (int column = 0; column < columnsNum; column++) {
+            this.storage[column] = storageOf(this.attributes.get(column));
+            this.maxLengths[column] = this.attributes.get(column).getType().getMaximumLength();
+            if (this.storage[column] == Storage.INT || this.storage[column] == Storage.TEXT)
+                this.intColumns[column] = new int[this.capacity];
+            else
+                this.doubleColumns[column] = new double[this.capacity];
+        }
+
+        this.dictionary = new ArrayList<>();
+        this.dictionaryCodes = new HashMap<>();
+        if (scored)
+            this.scores = new double[this.capacity];
+    }
+
+    /**
+     * Creates an empty block with the attributes of this one, that stores scores if this one does.
+     */
+    public TupleBlock emptyCopy() {
+        return new TupleBlock(this.attributes, this.scores != null);
+    }
+
+    // Returns how the values of a column are stored, or null if they are not.
+    private static Storage storageOf(SQLColumn column) {
+        SQLType type = column.getType();
+        if (type.isTextual()) return Storage.TEXT;
+        else if (type.isInt()) return Storage.INT;
+        else if (type.isDouble()) return Storage.DOUBLE;
+        else if (type.isFloat()) return Storage.FLOAT;
+        return null;
+    }
+
+
+    /**
+     * Appends an empty row to the block.
+     *
+     * @return The index of the new row.
+     */
+    public int addRow() {
+        if (this.rowsNum == this.capacity)
+            this.grow();
+        return this.rowsNum++;
+    }
+
+    /**
+     * Appends the values of a tuple with the same attributes as the block.
+     *
+     * @return The index of the new row.
+     */
+    public int addTuple(SQLTuple tuple) {
+        int row = this.addRow();
+        for (int column = 0; column < this.attributes.size(); column++) {
+            SQLValue value = tuple.getValueOfColumn(this.attributes.get(column));
+            Object raw = (value != null) ? value.getValue() : null;
+            switch (this.storage[column]) {
+                case TEXT:   this.setString(row, column, (String) raw); break;
+                case INT:    this.setInt(row, column, (raw != null) ? (Integer) raw : 0); break;
+                case DOUBLE: this.setDouble(row, column, (raw != null) ? (Double) raw : 0.0); break;
+                case FLOAT:  this.setDouble(row, column, (raw != null) ? (Float) raw : 0.0f); break;
+            }
+        }
+        return row;
+    }
+
+    /**
+     * Appends a row of another block. If the blocks have the same attributes the values are
+     * copied from column to column without creating {@link SQLValue}s. The score of the row is
+     * copied too, but not its keyword frequencies.
+     *
+     * @return The index of the new row.
+     */
+    public int addRow(TupleBlock source, int sourceRow) {
+        int row;
+        if (!this.attributes.equals(source.attributes)) {
+            row = this.addTuple(source.getRow(sourceRow));
+        }
+        else {
+            row = this.addRow();
+            for (int column = 0; column < this.attributes.size(); column++) {
+                switch (this.storage[column]) {
+                    case TEXT: this.setString(row, column, source.getString(sourceRow, column)); break;
+                    case INT:  this.setInt(row, column, source.intColumns[column][sourceRow]); break;
+                    default:   this.setDouble(row, column, source.doubleColumns[column][sourceRow]); break;
+                }
+            }
+        }
+
+        if (this.scores != null)
+            this.scores[row] = source.getScore(sourceRow);
+        return row;
+    }
+
+    // Doubles the capacity of the column arrays.
+    private void grow() {
+        this.capacity *= 2;
+        for (int column = 0; column < this.attributes.size(); column++) {
+            if (this.intColumns[column] != null)
+                this.intColumns[column] = Arrays.copyOf(this.intColumns[column], this.capacity);
+            else
+                this.doubleColumns[column] = Arrays.copyOf(this.doubleColumns[column], this.capacity);
+        }
+        if (this.scores != null)
+            this.scores = Arrays.copyOf(this.scores, this.capacity);
+        if (this.keywordFrequencies != null)
+            for (int keyword = 0; keyword < this.keywordFrequencies.length; keyword++)
+                this.keywordFrequencies[keyword] = Arrays.copyOf(this.keywordFrequencies[keyword], this.capacity);
+    }
+
+    // Setters of the values of a row, used while filling the block.
+
+    public void setString(int row, int column, String value) {
+        Integer code = -1;
+        if (value != null) {
+            code = this.dictionaryCodes.get(value);
+            if (code == null) {
+                code = this.dictionary.size();
+                this.dictionary.add(value);
+                this.dictionaryCodes.put(value, code);
+            }
+        }
+        this.intColumns[column][row] = code;
+    }
+
+    public void setInt(int row, int column, int value) {
+        this.intColumns[column][row] = value;
+    }
+
+    public void setDouble(int row, int column, double value) {
+        this.doubleColumns[column][row] = value;
+    }
+
+    public void setScore(int row, double score) {
+        this.scores[row] = score;
+    }
+
+
+    /**
+     * Starts counting the frequencies of the keywords in the rows, in a matrix with a column
+     * of every row's frequencies per keyword. The frequencies counted before are cleared.
+     */
+    public void setKeywords(List<String> keywords) {
+        this.keywords = new ArrayList<>(keywords);
+        this.keywordFrequencies = new int[this.keywords.size()][this.capacity];
+    }
+
+    /**
+     * Increments the frequency of a keyword in a row by 1. A keyword that is not counted yet
+     * gets a column of its own.
+     */
+    public void incrementKeywordFrequency(int row, String keyword) {
+        int index = (this.keywords != null) ? this.keywords.indexOf(keyword) : -1;
+        if (index < 0) {
+            if (this.keywords == null)
+                this.setKeywords(new ArrayList<String>());
+            index = this.keywords.size();
+            this.keywords.add(keyword);
+            this.keywordFrequencies = Arrays.copyOf(this.keywordFrequencies, index + 1);
+            this.keywordFrequencies[index] = new int[this.capacity];
+        }
+        this.keywordFrequencies[index][row]++;
+    }
+
+    /**
+     * @return The frequency of a keyword in a row, 0 if the keyword is not counted.
+     */
+    public int getKeywordFrequency(int row, String keyword) {
+        int index = (this.keywords != null) ? this.keywords.indexOf(keyword) : -1;
+        return (index < 0) ? 0 : this.keywordFrequencies[index][row];
+    }
+
+    /**
+     * @return The score of a row, 0 if the block does not store scores.
+     */
+    public double getScore(int row) {
+        return (this.scores != null) ? this.scores[row] : 0.0;
+    }
+
+
+    /**
+     * Returns the value of a row's column as the {@link SQLValue} of the column's type.
+     */
+    public SQLValue getValue(int row, int column) {
+        switch (this.storage[column]) {
+            case TEXT:
+                return this.getTextValue(column, this.intColumns[column][row]);
+            case INT:
+                return new SQLIntValue(this.intColumns[column][row]);
+            case DOUBLE:
+                return new SQLDoubleValue(this.doubleColumns[column][row]);
+            default:
+                return new SQLFloatValue((float) this.doubleColumns[column][row]);
+        }
+    }
+
+    // Returns the value of a dictionary code in a textual column. The values are created
+    // once, so all the views of the rows share them along with their cached keyword matches.
+    // The views of a filled block may be read by several threads, which share these values.
+    private synchronized SQLVarcharValue getTextValue(int column, int code) {
+        if (code < 0)
+            return new SQLVarcharValue((String) null, this.maxLengths[column]);
+
+        SQLVarcharValue[] values = this.textValues[column];
+        if (values == null || code >= values.length) {
+            values = (values == null)
+                ? new SQLVarcharValue[this.dictionary.size()]
+                : Arrays.copyOf(values, this.dictionary.size());
+            this.textValues[column] = values;
+        }
+        if (values[code] == null)
+            values[code] = new SQLVarcharValue(this.dictionary.get(code), this.maxLengths[column]);
+        return values[code];
+    }
+
+    /**
+     * Returns the hash code of a row's tuple (the one of {@link SQLTuple#hashCode()}),
+     * computed from the block's columns without creating values.
+     */
+    public int hashCodeOf(int row) {
+        int tupleHash = 7;
+        for (int column : this.primaryKeyColumns)
+            tupleHash += this.hashOf(row, column);
+        return 31 * tupleHash;
+    }
+
+    // Returns the hash code of the value of a row's column (the one of its SQLValue) without creating it.
+    private int hashOf(int row, int column) {
+        switch (this.storage[column]) {
+            case TEXT:
+                int code = this.intColumns[column][row];
+                return (code < 0) ? 0 : this.dictionary.get(code).hashCode();
+            case INT:
+                return Integer.hashCode(this.intColumns[column][row]);
+            case DOUBLE:
+                return Double.hashCode(this.doubleColumns[column][row]);
+            default:
+                return Float.hashCode((float) this.doubleColumns[column][row]);
+        }
+    }
+
+    /**
+     * Returns the string of a textual column without creating a {@link SQLValue}.
+     */
+    public String getString(int row, int column) {
+        int code = this.intColumns[column][row];
+        return (code < 0) ? null : this.dictionary.get(code);
+    }
+
+    /**
+     * Returns a view of a row.
+     */
+    public Row getRow(int row) {
+        if (row < 0 || row >= this.rowsNum)
+            throw new IndexOutOfBoundsException("Row " + row + " of a block with " + this.rowsNum + " rows");
+        return new Row(this, row);
+    }
+
+    /**
+     * Returns a read only list of the values of a row, created from the block's columns on
+     * every access. Tuples of the systems backed by a row hold this list as their values.
+     */
+    public List<SQLValue> getRowValues(int row) {
+        return new RowValues(this, row);
+    }
+
+    /**
+     * Returns the views of all the rows, in order.
+     */
+    public List<Row> getRows() {
+        List<Row> rows = new ArrayList<>(this.rowsNum);
+        for (int row = 0; row < this.rowsNum; row++)
+            rows.add(new Row(this, row));
+        return rows;
+    }
+
+
+    // Getters.
+
+    public List<SQLColumn> getAttributes() {
+        return this.attributes;
+    }
+
+    public List<SQLColumn> getPrimaryKey() {
+        return this.primaryKey;
+    }
+
+    public int getRowsNum() {
+        return this.rowsNum;
+    }
+
+    public int getColumnsNum() {
+        return this.attributes.size();
+    }
+
+    public int getDictionarySize() {
+        return this.dictionary.size();
+    }
+
+    public boolean hasScores() {
+        return this.scores != null;
+    }
+
+    public List<String> getKeywords() {
+        return this.keywords;
+    }
+
+
+    /**
+     * A read only view of a row of a {@link TupleBlock}. The attributes and the primary key
+     * are the block's, and the values are read from the block's columns when requested.
+     * Two views are equal when their tuples are equal, like any other {@link SQLTuple}.
+     */
+    public static class Row extends SQLTuple {
+
+        private TupleBlock block;  // The block of the row.
+        private int row;           // The index of the row in the block.
+
+        private Row(TupleBlock block, int row) {
+            super(block.attributes, new RowValues(block, row), block.primaryKey);
+            this.block = block;
+            this.row = row;
+        }
+
+        public TupleBlock getBlock() {
+            return this.block;
+        }
+
+        public int getRow() {
+            return this.row;
+        }
+
+        // Returns a new view of the same row.
+        public Row newView() {
+            return new Row(this.block, this.row);
+        }
+
+        @Override
+        public boolean containsKeyword(String keyword) {
+            // Only the textual values can contain a keyword, so skip creating the rest.
+            for (int column = 0; column < this.block.attributes.size(); column++)
+                if (this.block.storage[column] == Storage.TEXT && this.block.getValue(this.row, column).contains(keyword))
+                    return true;
+            return false;
+        }
+
+        @Override
+        public int hashCode() {
+            return this.block.hashCodeOf(this.row);
+        }
+    }
+
+    // The values of a row, created from the block's columns on every access.
+    private static class RowValues extends AbstractList<SQLValue> {
+
+        private TupleBlock block;
+        private int row;
+
+        RowValues(TupleBlock block, int row) {
+            this.block = block;
+            this.row = row;
+        }
+
+        @Override
+        public SQLValue get(int index) {
+            return this.block.getValue(this.row, index);
+        }
+
+        @Override
+        public int size() {
+            return this.block.attributes.size();
+        }
+    }
+}
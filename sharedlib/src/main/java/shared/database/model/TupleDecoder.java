@@ -0,0 +1,241 @@
+package shared.database.model;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decodes the rows of a {@link ResultSet} into {@link SQLTuple}s. The decoder is compiled
+ * once per result set: every result column is bound to its {@link SQLColumn} and to the
+ * reader of its type, so decoding a row does not look up tables or columns by name.
+ * Compile the decoder before the loop over the rows and reuse it for all of them:
+ *
+ * <pre>
+ * TupleDecoder decoder = TupleDecoder.forColumns(columns);
+ * while (rs.next()) {
+ *     SQLTuple tuple = new SQLTuple();
+ *     decoder.decode(rs, tuple);
+ * }
+ * </pre>
+ *
+ * A decoder can also bind a result column as the score of the tuple (see
+ * {@link #forColumnNames(List, ResultSetMetaData, String)}). The systems that score their
+ * tuples read it with {@link #readScore(ResultSet)}.
+ */
+public class TupleDecoder {
+
+    // How the value of a result column is read.
+    private static enum Reader { TEXT, INT, DOUBLE, FLOAT, SKIP }
+
+    private SQLColumn[] columns;  // The column bound to every result column.
+    private Reader[] readers;     // The reader of every result column.
+    private Long[] maxLengths;    // The maximum length of the textual columns.
+    private boolean[] isPrimary;  // True if the column is part of the primary key.
+    private int boundColumns;     // The number of result columns that are read into the tuple.
+    private int scoreIndex;       // The index of the score column in the result set (starting from 1), or 0.
+
+    private TupleDecoder(int columnsNum) {
+        this.columns = new SQLColumn[columnsNum];
+        this.readers = new Reader[columnsNum];
+        this.maxLengths = new Long[columnsNum];
+        this.isPrimary = new boolean[columnsNum];
+        this.boundColumns = 0;
+        this.scoreIndex = 0;
+    }
+
+    /**
+     * Binds the result columns to the columns of the database, using the table and column
+     * names of the metadata. Columns that do not belong to a table (like aggregate functions)
+     * are bound to new numeric columns. Mirrors {@link SQLTuple#fill(SQLDatabase, ResultSet)}.
+     */
+    public static TupleDecoder forDatabase(SQLDatabase database, ResultSetMetaData metadata) throws SQLException {
+        TupleDecoder decoder = new TupleDecoder(metadata.getColumnCount());
+        for (int index = 0; index < metadata.getColumnCount(); index++) {
+            SQLColumn column = null;
+
+            // Get the column from the database.
+            SQLTable table = database.getTableByName(metadata.getTableName(index + 1));
+            if (table != null)
+                column = table.getColumnByName(metadata.getColumnName(index + 1));
+
+            // If we dint find the column this means we are returning an Aggregate function.
+            if (column == null)
+                column = new SQLColumn(null, metadata.getColumnLabel(index + 1), SQLType.NUMERIC_TYPE, null);
+
+            decoder.bind(index, column);
+        }
+        return decoder;
+    }
+
+    /**
+     * Binds the result columns to the columns of the list by position.
+     * Mirrors {@link SQLTuple#fill(List, ResultSet)}.
+     */
+    public static TupleDecoder forColumns(List<SQLColumn> columns) {
+        TupleDecoder decoder = new TupleDecoder(columns.size());
+        for (int index = 0; index < columns.size(); index++)
+            decoder.bind(index, columns.get(index));
+        return decoder;
+    }
+
+    /**
+     * Binds the result columns to the columns of the list with the same name. The last result
+     * column labeled scoreLabel (if any) is the score of the tuple, which the systems' queries
+     * select after the attributes (like {@code SELECT *, ... AS score}), and is never bound to a
+     * column, so a table column with the same name is still read as an attribute. Other result
+     * columns without a matching column are skipped.
+     */
+    public static TupleDecoder forColumnNames(List<SQLColumn> columns, ResultSetMetaData metadata, String scoreLabel)
+        throws SQLException
+    {
+        TupleDecoder decoder = new TupleDecoder(metadata.getColumnCount());
+
+        // The score is the last result column with the score's label.
+        if (scoreLabel != null)
+            for (int index = metadata.getColumnCount(); index > 0 && decoder.scoreIndex == 0; index--)
+                if (scoreLabel.equals(metadata.getColumnLabel(index)))
+                    decoder.scoreIndex = index;
+
+        for (int index = 0; index < metadata.getColumnCount(); index++) {
+            // The score is not an attribute of the tuple.
+            if (index + 1 == decoder.scoreIndex) {
+                decoder.readers[index] = Reader.SKIP;
+                continue;
+            }
+
+            // Find the column with that name (the last one, like the systems did).
+            String columnName = metadata.getColumnName(index + 1);
+            SQLColumn column = null;
+            for (SQLColumn col : columns)
+                if (col.getName().equals(columnName))
+                    column = col;
+
+            if (column != null)
+                decoder.bind(index, column);
+            else
+                decoder.readers[index] = Reader.SKIP;
+        }
+        return decoder;
+    }
+
+    // Binds a result column to a column and its reader.
+    private void bind(int index, SQLColumn column) {
+        SQLType type = column.getType();
+        this.columns[index] = column;
+        this.maxLengths[index] = type.getMaximumLength();
+        this.isPrimary[index] = column.isPrimary();
+
+        if (type.isTextual())
+            this.readers[index] = Reader.TEXT;
+        else if (type.isInt())
+            this.readers[index] = Reader.INT;
+        else if (type.isDouble())
+            this.readers[index] = Reader.DOUBLE;
+        else if (type.isFloat())
+            this.readers[index] = Reader.FLOAT;
+        else
+            this.readers[index] = Reader.SKIP;
+
+        if (this.readers[index] != Reader.SKIP)
+            this.boundColumns++;
+    }
+
+
+    /**
+     * Appends the attributes and values of the current row of the result set to the tuple.
+     */
+    public void decode(ResultSet rs, SQLTuple tuple) throws SQLException {
+        // Size the lists of an empty tuple once.
+        if (tuple.attributes.isEmpty() && tuple.values.isEmpty()) {
+            tuple.attributes = new ArrayList<SQLColumn>(this.boundColumns);
+            tuple.values = new ArrayList<SQLValue>(this.boundColumns);
+        }
+
+        for (int index = 0; index < this.readers.length; index++) {
+            switch (this.readers[index]) {
+                case TEXT:
+                    tuple.values.add(new SQLVarcharValue(rs.getString(index + 1), this.maxLengths[index]));
+                    tuple.attributes.add(this.columns[index]);
+                    break;
+                case INT:
+                    tuple.values.add(new SQLIntValue(rs.getInt(index + 1)));
+                    tuple.attributes.add(this.columns[index]);
+                    break;
+                case DOUBLE:
+                    tuple.values.add(new SQLDoubleValue(rs.getDouble(index + 1)));
+                    tuple.attributes.add(this.columns[index]);
+                    break;
+                case FLOAT:
+                    tuple.values.add(new SQLFloatValue(rs.getFloat(index + 1)));
+                    tuple.attributes.add(this.columns[index]);
+                    break;
+                default:
+                    break;
+            }
+
+            // Check if the column is part of the tuple's primary key.
+            if (this.isPrimary[index])
+                tuple.primaryKey.add(this.columns[index]);
+        }
+    }
+
+    /**
+     * Creates an empty block for the rows of the result set, with the columns this decoder
+     * reads as its attributes. If the decoder reads a score the block stores it too.
+     */
+    public TupleBlock newBlock() {
+        List<SQLColumn> attributes = new ArrayList<>(this.boundColumns);
+        for (int index = 0; index < this.readers.length; index++)
+            if (this.readers[index] != Reader.SKIP)
+                attributes.add(this.columns[index]);
+        return new TupleBlock(attributes, this.hasScore());
+    }
+
+    /**
+     * Appends the current row of the result set to a block created by {@link #newBlock()}.
+     *
+     * @return The index of the row in the block.
+     */
+    public int decode(ResultSet rs, TupleBlock block) throws SQLException {
+        int row = block.addRow();
+        int column = 0;
+        for (int index = 0; index < this.readers.length; index++) {
+            switch (this.readers[index]) {
+                case TEXT:
+                    block.setString(row, column++, rs.getString(index + 1));
+                    break;
+                case INT:
+                    block.setInt(row, column++, rs.getInt(index + 1));
+                    break;
+                case DOUBLE:
+                    block.setDouble(row, column++, rs.getDouble(index + 1));
+                    break;
+                case FLOAT:
+                    block.setDouble(row, column++, rs.getFloat(index + 1));
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        if (this.scoreIndex > 0 && block.hasScores())
+            block.setScore(row, rs.getDouble(this.scoreIndex));
+        return row;
+    }
+
+    /**
+     * @return True if a result column is bound as the score of the tuples.
+     */
+    public boolean hasScore() {
+        return this.scoreIndex > 0;
+    }
+
+    /**
+     * @return The score of the current row of the result set, or 0 if there is no score column.
+     */
+    public double readScore(ResultSet rs) throws SQLException {
+        return (this.scoreIndex > 0) ? rs.getDouble(this.scoreIndex) : 0.0;
+    }
+}
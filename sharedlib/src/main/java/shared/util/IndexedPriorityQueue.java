@@ -0,0 +1,228 @@
+package shared.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * A priority queue (binary heap) whose elements can be found, updated and removed in
+ * O(log n) through the {@link Handle} returned when they are added, instead of the O(n)
+ * contains / remove(Object) of {@link java.util.PriorityQueue}. The head of the queue is
+ * the least element with respect to the comparator, like in java.util.PriorityQueue.
+ *
+ * When the key (score) of an element changes, {@link #update(Handle)} moves it to its
+ * new position, whether the key increased or decreased.
+ */
+public class IndexedPriorityQueue<E> implements Iterable<E> {
+
+    /**
+     * The position of an element in the queue.
+     */
+    public static final class Handle<E> {
+        private E element;     // The element.
+        private int position;  // The index of the element in the heap, -1 if it is not in the queue.
+
+        private Handle(E element, int position) {
+            this.element = element;
+            this.position = position;
+        }
+
+        /**
+         * @return the element.
+         */
+        public E getElement() {
+            return this.element;
+        }
+    }
+
+    private final Comparator<? super E> comparator;
+    private final List<Handle<E>> heap;
+
+    /**
+     * @param comparator The comparator ordering the elements (the least element is the head).
+     */
+    public IndexedPriorityQueue(Comparator<? super E> comparator) {
+        this.comparator = comparator;
+        this.heap = new ArrayList<>();
+    }
+
+    /**
+     * @return the number of elements in the queue.
+     */
+    public int size() {
+        return this.heap.size();
+    }
+
+    /**
+     * @return true if the queue has no elements.
+     */
+    public boolean isEmpty() {
+        return this.heap.isEmpty();
+    }
+
+    /**
+     * Adds an element to the queue.
+     *
+     * @return the handle of the element.
+     */
+    public Handle<E> add(E element) {
+        Handle<E> handle = new Handle<>(element, this.heap.size());
+        this.heap.add(handle);
+        this.siftUp(handle.position);
+        return handle;
+    }
+
+    /**
+     * @return the head of the queue, or null if the queue is empty.
+     */
+    public E peek() {
+        return this.heap.isEmpty() ? null : this.heap.get(0).element;
+    }
+
+    /**
+     * @return the handle of the head of the queue, or null if the queue is empty.
+     */
+    public Handle<E> peekHandle() {
+        return this.heap.isEmpty() ? null : this.heap.get(0);
+    }
+
+    /**
+     * Removes and returns the head of the queue, or null if the queue is empty.
+     */
+    public E poll() {
+        if (this.heap.isEmpty())
+            return null;
+
+        Handle<E> head = this.heap.get(0);
+        this.remove(head);
+        return head.element;
+    }
+
+    /**
+     * @return true if the element of the handle is in the queue.
+     */
+    public boolean contains(Handle<E> handle) {
+        return handle.position >= 0 && handle.position < this.heap.size() && this.heap.get(handle.position) == handle;
+    }
+
+    /**
+     * Removes the element of the handle from the queue.
+     *
+     * @return false if the element was not in the queue.
+     */
+    public boolean remove(Handle<E> handle) {
+        if (!this.contains(handle))
+            return false;
+
+        int position = handle.position;
+        Handle<E> last = this.heap.remove(this.heap.size() - 1);
+        handle.position = -1;
+
+        // Move the last element in the place of the removed one and restore the heap.
+        if (last != handle) {
+            this.heap.set(position, last);
+            last.position = position;
+            this.siftDown(position);
+            this.siftUp(last.position);
+        }
+        return true;
+    }
+
+    /**
+     * Moves the element of the handle to its position after its key changed.
+     *
+     * @return false if the element is not in the queue.
+     */
+    public boolean update(Handle<E> handle) {
+        if (!this.contains(handle))
+            return false;
+
+        this.siftUp(handle.position);
+        this.siftDown(handle.position);
+        return true;
+    }
+
+    /**
+     * Replaces the element of the handle and moves it to its new position.
+     *
+     * @return false if the element is not in the queue.
+     */
+    public boolean update(Handle<E> handle, E element) {
+        if (!this.contains(handle))
+            return false;
+
+        handle.element = element;
+        return this.update(handle);
+    }
+
+    /**
+     * Removes all the elements of the queue.
+     */
+    public void clear() {
+        for (Handle<E> handle : this.heap)
+            handle.position = -1;
+        this.heap.clear();
+    }
+
+    /**
+     * Returns an iterator over the elements of the queue, in no particular order.
+     */
+    @Override
+    public Iterator<E> iterator() {
+        final Iterator<Handle<E>> handles = this.heap.iterator();
+        return new Iterator<E>() {
+            @Override
+            public boolean hasNext() {
+                return handles.hasNext();
+            }
+
+            @Override
+            public E next() {
+                if (!handles.hasNext())
+                    throw new NoSuchElementException();
+                return handles.next().element;
+            }
+        };
+    }
+
+    private void siftUp(int position) {
+        Handle<E> handle = this.heap.get(position);
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            Handle<E> parentHandle = this.heap.get(parent);
+            if (this.comparator.compare(handle.element, parentHandle.element) >= 0)
+                break;
+
+            this.place(parentHandle, position);
+            position = parent;
+        }
+        this.place(handle, position);
+    }
+
+    private void siftDown(int position) {
+        Handle<E> handle = this.heap.get(position);
+        int half = this.heap.size() >>> 1;
+        while (position < half) {
+            int child = 2 * position + 1;
+            int right = child + 1;
+            if (right < this.heap.size() && this.comparator.compare(this.heap.get(right).element, this.heap.get(child).element) < 0)
+                child = right;
+
+            Handle<E> childHandle = this.heap.get(child);
+            if (this.comparator.compare(handle.element, childHandle.element) <= 0)
+                break;
+
+            this.place(childHandle, position);
+            position = child;
+        }
+        this.place(handle, position);
+    }
+
+    private void place(Handle<E> handle, int position) {
+        this.heap.set(position, handle);
+        handle.position = position;
+    }
+
+}
@@ -0,0 +1,296 @@
+package shared.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Finds which keywords of a query appear in a string, scanning the string once with an
+ * Aho-Corasick automaton over the lowercased keywords. The matching is case insensitive
+ * and keywords may appear anywhere in the string, like
+ * {@code value.toLowerCase().contains(keyword.toLowerCase())}.
+ *
+ * The result is a {@link Match}: a bitmask of the keywords that appear in the string and
+ * the number of times each one appears. Keywords are numbered in the order they were given
+ * (duplicates share the number of their first occurrence), and up to {@link #MAX_KEYWORDS}
+ * distinct keywords are supported.
+ *
+ * Matchers are immutable, and so are their matches, so a match cached by a value can be
+ * read by other threads. Use {@link #forKeywords(Collection)} to get the shared matcher of
+ * the query's keywords, so the values that cache their matches (see
+ * {@link shared.database.model.SQLValue#match(KeywordMatcher)}) are scanned only once, and
+ * {@link #forKeywords(Collection, KeywordMatcher)} to check a part of the query's keywords
+ * with the query's matcher instead of a new matcher per part.
+ */
+public class KeywordMatcher {
+
+    public static final int MAX_KEYWORDS = Long.SIZE;
+
+    private static final int CACHE_SIZE = 64;
+    private static final Map<List<String>, KeywordMatcher> matchers = new ConcurrentHashMap<>();
+
+    private List<String> keywords;              // The distinct keywords, in order.
+    private Map<String, Integer> keywordIndex;  // Maps every given keyword to its number.
+    private long emptyMask;                     // The mask of the empty keywords, contained in every string.
+
+    // The automaton. Node 0 is the root.
+    private char[][] labels;     // The characters of every node's transitions.
+    private int[][] targets;     // The nodes of every node's transitions.
+    private int[] failure;       // The failure link of every node.
+    private int[][] outputs;     // The keywords that end at every node (following the failure links).
+
+    /**
+     * @param keywords The keywords of the query.
+     * @throws IllegalArgumentException If there are more than {@link #MAX_KEYWORDS} distinct keywords.
+     */
+    public KeywordMatcher(Collection<String> keywords) {
+        this.keywords = new ArrayList<>();
+        this.keywordIndex = new HashMap<>();
+        Map<String, Integer> lowerCaseIndex = new HashMap<>();
+        for (String keyword : keywords) {
+            String lowerCase = keyword.toLowerCase();
+            Integer index = lowerCaseIndex.get(lowerCase);
+            if (index == null) {
+                index = this.keywords.size();
+                if (index == MAX_KEYWORDS)
+                    throw new IllegalArgumentException("More than " + MAX_KEYWORDS + " distinct keywords");
+                lowerCaseIndex.put(lowerCase, index);
+                this.keywords.add(lowerCase);
+            }
+            this.keywordIndex.put(keyword, index);
+        }
+
+        this.build();
+    }
+
+    /**
+     * Returns the shared matcher of the keywords, or null if there are too many of them.
+     */
+    public static KeywordMatcher forKeywords(Collection<String> keywords) {
+        List<String> key = new ArrayList<>(keywords);
+        KeywordMatcher matcher = matchers.get(key);
+        if (matcher != null)
+            return matcher;
+        if (new HashSet<>(key).size() > MAX_KEYWORDS)
+            return null;
+
+        // Forget the matchers of older queries.
+        if (matchers.size() >= CACHE_SIZE)
+            matchers.clear();
+        matcher = new KeywordMatcher(key);
+        KeywordMatcher previous = matchers.putIfAbsent(key, matcher);
+        return (previous != null) ? previous : matcher;
+    }
+
+    /**
+     * Returns the query's matcher if it knows all the keywords (which may be any part of the
+     * query's keywords), or else the shared matcher of the keywords, or null if there are too
+     * many of them.
+     *
+     * @param keywords The keywords to find.
+     * @param queryMatcher The matcher of the query's keywords, or null.
+     */
+    public static KeywordMatcher forKeywords(Collection<String> keywords, KeywordMatcher queryMatcher) {
+        if (queryMatcher != null && queryMatcher.maskOf(keywords) >= 0)
+            return queryMatcher;
+        return forKeywords(keywords);
+    }
+
+
+    // Builds the trie of the keywords and its failure links.
+    private void build() {
+        List<Map<Character, Integer>> trie = new ArrayList<>();
+        List<List<Integer>> ends = new ArrayList<>();
+        trie.add(new HashMap<>());
+        ends.add(new ArrayList<>());
+
+        this.emptyMask = 0L;
+        for (int index = 0; index < this.keywords.size(); index++) {
+            String keyword = this.keywords.get(index);
+            if (keyword.isEmpty()) {
+                this.emptyMask |= 1L << index;
+                continue;
+            }
+
+            int node = 0;
+            for (char c : keyword.toCharArray()) {
+                Integer next = trie.get(node).get(c);
+                if (next == null) {
+                    next = trie.size();
+                    trie.add(new HashMap<>());
+                    ends.add(new ArrayList<>());
+                    trie.get(node).put(c, next);
+                }
+                node = next;
+            }
+            ends.get(node).add(index);
+        }
+
+        // Flatten the transitions.
+        int nodesNum = trie.size();
+        this.labels = new char[nodesNum][];
+        this.targets = new int[nodesNum][];
+        for (int node = 0; node < nodesNum; node++) {
+            Map<Character, Integer> transitions = trie.get(node);
+            this.labels[node] = new char[transitions.size()];
+            this.targets[node] = new int[transitions.size()];
+            int position = 0;
+            for (Map.Entry<Character, Integer> entry : transitions.entrySet()) {
+                this.labels[node][position] = entry.getKey();
+                this.targets[node][position++] = entry.getValue();
+            }
+        }
+
+        // Compute the failure links breadth first, merging the outputs of the failure nodes.
+        this.failure = new int[nodesNum];
+        this.outputs = new int[nodesNum][];
+        this.outputs[0] = new int[0];
+        Queue<Integer> queue = new ArrayDeque<>();
+        for (int child : this.targets[0]) {
+            this.failure[child] = 0;
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            int[] own = ends.get(node).stream().mapToInt(Integer::intValue).toArray();
+            int[] inherited = this.outputs[this.failure[node]];
+            this.outputs[node] = Arrays.copyOf(own, own.length + inherited.length);
+            System.arraycopy(inherited, 0, this.outputs[node], own.length, inherited.length);
+
+            for (int position = 0; position < this.labels[node].length; position++) {
+                char c = this.labels[node][position];
+                int child = this.targets[node][position];
+                int state = this.failure[node];
+                while (state != 0 && this.next(state, c) < 0)
+                    state = this.failure[state];
+                int fail = this.next(state, c);
+                this.failure[child] = (fail >= 0 && fail != child) ? fail : 0;
+                queue.add(child);
+            }
+        }
+    }
+
+    // Returns the node reached from a node with a character, or -1.
+    private int next(int node, char c) {
+        char[] nodeLabels = this.labels[node];
+        for (int position = 0; position < nodeLabels.length; position++)
+            if (nodeLabels[position] == c)
+                return this.targets[node][position];
+        return -1;
+    }
+
+
+    /**
+     * Scans a string for the keywords.
+     *
+     * @param value The string, or null.
+     * @return The keywords that appear in the string. A null string contains no keywords.
+     */
+    public Match match(String value) {
+        if (value == null)
+            return this.noMatch();
+        return this.matchLowerCase(value.toLowerCase());
+    }
+
+    /**
+     * @return A match without keywords, for values that can not contain any (like numbers).
+     */
+    public Match noMatch() {
+        return new Match(this, 0L, null);
+    }
+
+    /**
+     * Scans a string that is already lowercased for the keywords.
+     */
+    public Match matchLowerCase(String lowerCaseValue) {
+        long mask = this.emptyMask;
+        int[] counts = null;
+        int node = 0;
+        for (int position = 0; position < lowerCaseValue.length(); position++) {
+            char c = lowerCaseValue.charAt(position);
+            int next;
+            while ((next = this.next(node, c)) < 0 && node != 0)
+                node = this.failure[node];
+            node = (next < 0) ? 0 : next;
+
+            for (int keyword : this.outputs[node]) {
+                if (counts == null)
+                    counts = new int[this.keywords.size()];
+                counts[keyword]++;
+                mask |= 1L << keyword;
+            }
+        }
+        return new Match(this, mask, counts);
+    }
+
+    /**
+     * @return The number of a keyword, or -1 if the matcher does not know it.
+     */
+    public int indexOf(String keyword) {
+        Integer index = this.keywordIndex.get(keyword);
+        return (index != null) ? index : -1;
+    }
+
+    /**
+     * @return The mask of the given keywords, or -1 if the matcher does not know some of them.
+     */
+    public long maskOf(Collection<String> keywords) {
+        long mask = 0L;
+        for (String keyword : keywords) {
+            int index = this.indexOf(keyword);
+            if (index < 0)
+                return -1L;
+            mask |= 1L << index;
+        }
+        return mask;
+    }
+
+    /**
+     * @return The distinct lowercased keywords, in the order of their numbers.
+     */
+    public List<String> getKeywords() {
+        return this.keywords;
+    }
+
+
+    /**
+     * The keywords found in a string by a {@link KeywordMatcher}.
+     */
+    public static class Match {
+
+        private final KeywordMatcher matcher;  // The matcher that found the keywords.
+        private final long mask;               // Bit i is set if keyword i appears in the string.
+        private final int[] counts;            // The occurrences of every keyword, or null if none appears.
+
+        private Match(KeywordMatcher matcher, long mask, int[] counts) {
+            this.matcher = matcher;
+            this.mask = mask;
+            this.counts = counts;
+        }
+
+        public KeywordMatcher getMatcher() {
+            return this.matcher;
+        }
+
+        public long getMask() {
+            return this.mask;
+        }
+
+        // Returns true if the keyword appears in the string.
+        public boolean contains(int keyword) {
+            return (this.mask & (1L << keyword)) != 0;
+        }
+
+        // Returns the number of times the keyword appears in the string.
+        public int getCount(int keyword) {
+            return (this.counts != null) ? this.counts[keyword] : 0;
+        }
+    }
+}
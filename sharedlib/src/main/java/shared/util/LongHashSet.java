@@ -0,0 +1,117 @@
+package shared.util;
+
+import java.util.Arrays;
+
+/**
+ * A set of primitive longs, stored in an open addressing hash table with linear
+ * probing. Unlike a HashSet&lt;Long&gt; it does not box its values nor allocate an
+ * entry per value, which matters for sets that receive many small keys (for
+ * example packed indexes).
+ */
+public class LongHashSet {
+
+    private static final int MIN_CAPACITY = 16;
+    private static final double MAX_LOAD = 0.5;
+
+    private long[] table;     // The values; a slot holding 0 is empty.
+    private boolean hasZero;  // 0 is stored separately, since it marks the empty slots.
+    private int size;         // The number of values in the set.
+
+    public LongHashSet() {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * @param expectedSize The number of values the set is expected to hold without growing.
+     */
+    public LongHashSet(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity * MAX_LOAD < expectedSize)
+            capacity <<= 1;
+        this.table = new long[capacity];
+        this.hasZero = false;
+        this.size = 0;
+    }
+
+    /**
+     * Adds a value to the set.
+     *
+     * @return false if the value was already in the set.
+     */
+    public boolean add(long value) {
+        if (value == 0) {
+            if (this.hasZero) return false;
+            this.hasZero = true;
+            this.size++;
+            return true;
+        }
+
+        int slot = this.findSlot(this.table, value);
+        if (this.table[slot] == value)
+            return false;
+
+        this.table[slot] = value;
+        this.size++;
+        if (this.size > this.table.length * MAX_LOAD)
+            this.grow();
+        return true;
+    }
+
+    /**
+     * @return true if the value is in the set.
+     */
+    public boolean contains(long value) {
+        if (value == 0)
+            return this.hasZero;
+        return this.table[this.findSlot(this.table, value)] == value;
+    }
+
+    /**
+     * @return the number of values in the set.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * @return true if the set has no values.
+     */
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    /**
+     * Removes all the values of the set.
+     */
+    public void clear() {
+        Arrays.fill(this.table, 0L);
+        this.hasZero = false;
+        this.size = 0;
+    }
+
+    // Returns the slot holding the value, or the empty slot where it would be stored.
+    private int findSlot(long[] table, long value) {
+        int mask = table.length - 1;
+        int slot = mix(value) & mask;
+        while (table[slot] != 0 && table[slot] != value)
+            slot = (slot + 1) & mask;
+        return slot;
+    }
+
+    // Doubles the table and stores the values again.
+    private void grow() {
+        long[] newTable = new long[this.table.length << 1];
+        for (long value : this.table) {
+            if (value != 0)
+                newTable[this.findSlot(newTable, value)] = value;
+        }
+        this.table = newTable;
+    }
+
+    // Spreads the bits of the value, so that consecutive values do not fill consecutive slots.
+    private static int mix(long value) {
+        long hash = value * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+}
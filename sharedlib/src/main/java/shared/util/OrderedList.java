@@ -85,37 +85,35 @@ public class OrderedList<D, S extends Comparable<S>> {
      * @param score
      */
     public void addElement(D element, S score) {
-        // If list is empty then add the element and return
-        if (this.elements.isEmpty()) {
-            elements.add(new Pair<>(score, element));          
-            return;
+        // If the list is full and the element is not better than the last one, it is not added.
+        if (this.elements.size() >= this.numOfElements) {
+            if (this.elements.isEmpty() || !this.isBetter(score, this.elements.get(this.elements.size() - 1).getLeft()))
+                return;
         }
 
-        // Loop the scores array and based on the Query's score
-        // determine what is the right index to append the query.        
-        boolean addedElement = false;
-        for (int index = 0; index < this.elements.size(); index++) {
-            if (this.type == OrderType.Descending) {
-                if ( score.compareTo(this.elements.get(index).getLeft()) > 0 ) {
-                    elements.add(index, new Pair<>(score, element));
-                    addedElement = true;
-                    break;
-                }
-            } else {
-                if ( score.compareTo(this.elements.get(index).getLeft()) < 0 ) {
-                    elements.add(index, new Pair<>(score, element));
-                    addedElement = true;
-                    break;
-                }   
-            }                                      
+        // Binary search the first element with a worse score than the element's
+        // (the element is added after the ones with an equal score).
+        int low = 0, high = this.elements.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (this.isBetter(score, this.elements.get(middle).getLeft()))
+                high = middle;
+            else
+                low = middle + 1;
         }
+        this.elements.add(low, new Pair<>(score, element));
 
         // If the list has more elements than numOfElements then remove the last one.
         if (this.elements.size() > this.numOfElements)
             this.elements.remove(this.elements.size() - 1);
-        // Else if the list is not at full capacity and we didn't add the element, add it now.
-        else if (this.elements.size() < this.numOfElements && addedElement == false)
-            elements.add(new Pair<>(score, element));
+    }
+
+    // Returns true if a score goes before an other score in the order of the list.
+    private boolean isBetter(S score, S other) {
+        if (this.type == OrderType.Descending)
+            return score.compareTo(other) > 0;
+        else
+            return score.compareTo(other) < 0;
     }
 
 
@@ -0,0 +1,115 @@
+package shared.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Keeps the best k elements added to it, with respect to a comparator that orders
+ * the better elements first (like the ScoreComparators of the systems' tuples).
+ *
+ * The elements are stored in a heap whose head is the worst kept element, so adding
+ * an element costs O(log k) and the k-th best element (the threshold that the top-k
+ * algorithms compare their upper bounds against) is read in O(1), instead of sorting
+ * all the results after every addition.
+ */
+public class TopKHeap<E> {
+
+    private final int k;                          // The number of elements kept.
+    private final Comparator<? super E> comparator;  // Orders the better elements first.
+    private final PriorityQueue<E> heap;         // The kept elements, the worst one at the head.
+
+    /**
+     * @param k The number of elements to keep.
+     * @param comparator The comparator ordering the better elements first.
+     */
+    public TopKHeap(int k, Comparator<? super E> comparator) {
+        this.k = k;
+        this.comparator = comparator;
+        this.heap = new PriorityQueue<>(Math.max(1, k), Collections.reverseOrder(comparator));
+    }
+
+    /**
+     * Adds an element if there are less than k elements, or if it is better than the
+     * worst kept element, which is then removed.
+     *
+     * @return true if the element is kept.
+     */
+    public boolean add(E element) {
+        if (this.k <= 0)
+            return false;
+
+        if (this.heap.size() < this.k) {
+            this.heap.add(element);
+            return true;
+        }
+
+        // Elements equal to the worst one are not kept, so the earlier one stays.
+        if (this.comparator.compare(element, this.heap.peek()) >= 0)
+            return false;
+
+        this.heap.poll();
+        this.heap.add(element);
+        return true;
+    }
+
+    /**
+     * Adds every element of a collection.
+     *
+     * @return true if any of the elements is kept.
+     */
+    public boolean addAll(Collection<? extends E> elements) {
+        boolean added = false;
+        for (E element : elements)
+            added |= this.add(element);
+        return added;
+    }
+
+    /**
+     * @return the worst kept element (the k-th best element when the heap is full), or null if it is empty.
+     */
+    public E peekLast() {
+        return this.heap.peek();
+    }
+
+    /**
+     * @return true if the heap keeps k elements.
+     */
+    public boolean isFull() {
+        return this.heap.size() >= this.k;
+    }
+
+    /**
+     * @return the number of kept elements.
+     */
+    public int size() {
+        return this.heap.size();
+    }
+
+    /**
+     * @return true if no element is kept.
+     */
+    public boolean isEmpty() {
+        return this.heap.isEmpty();
+    }
+
+    /**
+     * @return the number of elements the heap keeps.
+     */
+    public int capacity() {
+        return this.k;
+    }
+
+    /**
+     * @return the kept elements in a new list, the best one first.
+     */
+    public List<E> toSortedList() {
+        List<E> elements = new ArrayList<>(this.heap);
+        Collections.sort(elements, this.comparator);
+        return elements;
+    }
+
+}
@@ -12,10 +12,10 @@ import spark.model.OverloadedTuple;
 import spark.model.Parameters;
 
 import shared.database.model.graph.SchemaGraph;
+import shared.database.config.PropertiesSingleton;
 import shared.database.connectivity.DataSourceFactory;
-import shared.database.connectivity.DatabaseInfo;
+import shared.database.model.DatabaseType;
 import shared.database.model.SQLDatabase;
-import shared.database.connectivity.DatabaseConfigurations;
 import shared.util.Pair;
 import shared.util.Stopwords;
 import shared.util.Timer;
@@ -24,25 +24,29 @@ import shared.connectivity.thor.input.InputHandler;
 import shared.connectivity.thor.response.Component;
 import shared.connectivity.thor.response.GeneralArchitecture;
 import shared.connectivity.thor.response.Response;
+import shared.connectivity.thor.server.QueryHandler;
+import shared.connectivity.thor.server.QueryServer;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 
-public class SparkApplication {
+public class SparkApplication implements QueryHandler {
 
     // Parameters
     String query;
     String schemaName;
+    DatabaseType databaseType;
     Parameters parameters = new Parameters.ParametersBuilder()
         .setAndSemantics(true)
         .setPrintResultsOrderedByTable(false)
         .setMaxNetworksSize(3)
         .build();
 
-    // Database Variables
-    private HashMap<String, Pair<SQLDatabase, SchemaGraph>> storedDatabases;
+    // Database Variables (the stored databases are shared by the workers of the server)
+    private static final HashMap<String, Pair<SQLDatabase, SchemaGraph>> storedDatabases = new HashMap<>();
     SQLDatabase database;
     SchemaGraph schemaGraph;
 
@@ -57,11 +61,29 @@ public class SparkApplication {
     public static final Boolean DEBUG_PRINTS = false;
 
     public static void main(String[] args) {
+        // Fill the configurations using the "app.properties" file
+        PropertiesSingleton.loadPropertiesFile("app");
+
+        // Answer the queries of many clients when started with '--server'.
+        if (QueryServer.isRequested(args)) {
+            try {
+                QueryServer server = QueryServer.fromProperties(SparkApplication::new);
+                DataSourceFactory.setMaxConnections(server.getWorkers());  // A query uses one connection at a time.
+
+                // Read and store all the database for THOR
+                new SparkApplication().readAndStoreDatabases(new String[]{"mysql.IMDB", "mysql.YELP", "mysql.MAS"});
+                server.serve();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            return;
+        }
+
         // Create a spark instance
         SparkApplication sparkApp = new SparkApplication();
 
         // Read and store all the database for THOR
-        sparkApp.readAndStoreDatabases(new String[]{"IMDB", "YELP", "MAS"});
+        sparkApp.readAndStoreDatabases(new String[]{"mysql.IMDB", "mysql.YELP", "mysql.MAS"});
 
         // Instantiate Thor's input Handler
         InputHandler inputHandler = new InputHandler();
@@ -78,8 +100,9 @@ public class SparkApplication {
 
             // Read the parameters needed for the execution from the stdin.
             sparkApp.query = inputHandler.getQuery();
-            sparkApp.schemaName = inputHandler.getSchemaName();
-            sparkApp.parameters.maxTuples = inputHandler.getResultsNumber();
+            sparkApp.schemaName = inputHandler.getDatabaseName();
+            sparkApp.databaseType = inputHandler.getDatabaseType();
+            sparkApp.parameters.maxTuples = inputHandler.getResultsPerInterpretation();
             if (inputHandler.shutDownSystem())
                 break;
 
@@ -91,17 +114,7 @@ public class SparkApplication {
             Component executor = new Component("Executor");
 
             try {
-                // Create Database and Schema Graph automatically
-                sparkApp.getDatabaseAndSchemaGraph();
-
-                // Parse query and create the TupleSets
-                sparkApp.parseQueryAndCreateTupleSets(timer, irEngine, genArch);
-
-                // Create candidate networks
-                sparkApp.generateCandidateNetworks(timer, cnGenerator, genArch);
-
-                // Execute the candidate networks
-                sparkApp.executeCandidateNetworks(timer, executor, genArch);
+                sparkApp.executeQuery(timer, genArch, irEngine, cnGenerator, executor);
             }
             catch (Exception e) {
                 System.err.println("[ERR] Exception ocurred while executing : " + sparkApp.query);
@@ -126,6 +139,56 @@ public class SparkApplication {
 
     }
 
+    /**
+     * Answers a query of the {@link QueryServer} and returns the response for THOR.
+     */
+    @Override
+    public Response<?> answer(InputHandler request) throws Exception {
+        this.resetVars();
+        this.query = request.getQuery();
+        this.schemaName = request.getDatabaseName();
+        this.databaseType = request.getDatabaseType();
+        this.parameters.maxTuples = request.getResultsPerInterpretation();
+
+        // The components of spark displayed in THOR.
+        Timer timer = new Timer(Type.WALL_CLOCK_TIME);
+        GeneralArchitecture genArch = new GeneralArchitecture();
+        Component irEngine = new Component("IR Engine");
+        Component cnGenerator = new Component("Network Generator");
+        Component executor = new Component("Executor");
+
+        this.executeQuery(timer, genArch, irEngine, cnGenerator, executor);
+
+        // Create the architecture of the system.
+        irEngine.connectWith(cnGenerator, "Tuple sets");
+        cnGenerator.connectWith(executor, "Candidate networks");
+
+        return new Response<OverloadedTuple>(
+            "spark",
+            "Spark",
+            genArch,
+            Arrays.asList(irEngine, cnGenerator, executor),
+            this.finalResults
+        );
+    }
+
+    /**
+     * Runs all the components of spark for the current query.
+     */
+    void executeQuery(Timer timer, GeneralArchitecture genArch, Component irEngine, Component cnGenerator, Component executor) {
+        // Create Database and Schema Graph automatically
+        this.getDatabaseAndSchemaGraph();
+
+        // Parse query and create the TupleSets
+        this.parseQueryAndCreateTupleSets(timer, irEngine, genArch);
+
+        // Create candidate networks
+        this.generateCandidateNetworks(timer, cnGenerator, genArch);
+
+        // Execute the candidate networks
+        this.executeCandidateNetworks(timer, executor, genArch);
+    }
+
     /**
      * Reads all databases and creates a database object and a schema object for
      * each database. Then stores them for later usage
@@ -133,21 +196,21 @@ public class SparkApplication {
      * @param databases
      */
     public void readAndStoreDatabases(String[] databases) {
-        this.storedDatabases = new HashMap<>();
+        storedDatabases.clear();
 
         for (String dbName: databases) {
-            // Use tha database we got from the input
-            useDatabase(dbName);
+            String name = dbName.split("\\.")[1];
+            String type = dbName.split("\\.")[0];
 
             // Automatically get the info of database.
-            SQLDatabase database = DatabaseInfo.getDatabaseObject(dbName);
+            SQLDatabase database = SQLDatabase.InstantiateDatabase(name, DatabaseType.getTypeFromString(type));
 
             // Create PK-FK Relationship Graph.
             SchemaGraph schemaGraph = new SchemaGraph();
             schemaGraph.fillDirected(database.getTables(), database.getFKConstrains());
 
             // Store the db.
-            this.storedDatabases.put(dbName, new Pair<>(database, schemaGraph));
+            storedDatabases.put(name, new Pair<>(database, schemaGraph));
         }
     }
 
@@ -155,28 +218,34 @@ public class SparkApplication {
      * Fills the Database and the Schema Graph variables
      */
     void getDatabaseAndSchemaGraph() {
-        // If we have stored the database then dont read it again.
-        // Else read the db and store it.
-        if (this.storedDatabases != null && this.storedDatabases.containsKey(schemaName)) {
-            Pair<SQLDatabase, SchemaGraph> dbPair = this.storedDatabases.get(schemaName);
-            useDatabase(schemaName);
+        // The workers of the server must not read the same database twice.
+        synchronized (storedDatabases) {
+            this.getOrStoreDatabaseAndSchemaGraph();
+        }
+    }
+
+    // If we have stored the database then dont read it again.
+    // Else read the db and store it.
+    private void getOrStoreDatabaseAndSchemaGraph() {
+        if (storedDatabases.containsKey(schemaName)) {
+            Pair<SQLDatabase, SchemaGraph> dbPair = storedDatabases.get(schemaName);
+
+            // Change the Datasource Object to reflect the new database name
+            DataSourceFactory.loadConnectionProperties(this.schemaName, this.databaseType);
+
             this.database = dbPair.getLeft();
             this.schemaGraph = dbPair.getRight();
         }
         else {
-
-            // Use tha database we got from the input
-            useDatabase(schemaName);
-
             // Automatically get the info of database.
-            this.database = DatabaseInfo.getDatabaseObject(schemaName);
+            this.database = SQLDatabase.InstantiateDatabase(this.schemaName, this.databaseType);
 
             // Create PK-FK Relationship Graph.
             this.schemaGraph = new SchemaGraph();
             schemaGraph.fillDirected(database.getTables(), database.getFKConstrains());
 
             // store the db
-            this.storedDatabases.put(this.schemaName, new Pair<>(this.database, this.schemaGraph));
+            storedDatabases.put(this.schemaName, new Pair<>(this.database, this.schemaGraph));
 
             // Print Stats and Database.
             if (DEBUG_PRINTS) {
@@ -339,12 +408,4 @@ public class SparkApplication {
         this.finalResults = new ArrayList<>();
     }
 
-    /**
-     *  Set the database to be used.
-     */
-    static void useDatabase(String databaseName) {
-        DatabaseConfigurations configs = new DatabaseConfigurations("app", databaseName);     // "app" is the file name of the properties file
-        DataSourceFactory.loadDbConfigurations(configs);
-    }
-
 }
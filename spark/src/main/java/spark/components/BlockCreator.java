@@ -9,11 +9,13 @@ import spark.model.TupleSet;
 import spark.model.Stratum;
 import spark.model.Signature;
 import spark.model.ScoreType;
+import shared.util.LongHashSet;
 import shared.util.Pair;
 
 
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Map;
 import java.util.HashMap;
 import java.util.Set;
@@ -55,10 +57,7 @@ public class BlockCreator {
 
         @Override
         public int hashCode() {
-            int hash = 7;            
-            for (int i: this.array)
-                hash = hash * i;            
-            return 31*hash;
+            return Arrays.hashCode(this.array);
         }
 
         @Override
@@ -83,14 +82,19 @@ public class BlockCreator {
 
     private Map<String, List<Stratum>> strataPerTupleSet; // Maps a tuple set to its list of strata.
     private JoiningNetworkOfTupleSets network; // The candidate network.
-    private Set<IndexArray> blockCache; // The blocks created so far.
+    // The blocks created so far, every one packed in a long: the strata indexes of the block
+    // as the digits of a mixed radix number, where the radix of a position is the number of strata
+    // of its tuple set. If the number of blocks does not fit in a long, the IndexArrays are cached.
+    private LongHashSet blockCache;
+    private Set<IndexArray> indexArrayCache;
+    private long[] placeValues; // The value of a unit in every position of the packed indexes.
 
     // Splits the non-free tuple sets of the network into strata, too.
     public BlockCreator(JoiningNetworkOfTupleSets network) {
         Set<TupleSet> tupleSets = network.getUniqueNonFreeTupleSets();
         this.network = network;
         this.strataPerTupleSet = new HashMap<>();
-        this.blockCache = new HashSet<>();
+        this.blockCache = new LongHashSet();
         
         // Debug Prints
         if (SparkApplication.DEBUG_PRINTS) 
@@ -122,28 +126,29 @@ public class BlockCreator {
 
         List<Block> adjacentBlocks = new ArrayList<>();
                 
-        // Get the indexes of the strata that were used to create the block passed as argument.
-        IndexArray strataIndexesOfBlock = block.getStrataIndexesUsed();
-
         // Get the pairs that map a node in the block tree with the index of the stratum used for that node.
         List<Pair<Integer, Node>> stratumUsedPerNode = block.getStratumUsedPerNode();
+
+        // Get the packed indexes of the strata that were used to create the block passed as argument.
+        long packedIndexesOfBlock = this.packStrataIndexes(stratumUsedPerNode);
                 
-        // Increment each position of the int[] by 1 and check if the block has 
+        // Increment each position of the indexes by 1 and check if the block has 
         // been created before from the block cache.
         if (SparkApplication.DEBUG_PRINTS)
-            System.out.println("Loop adjacent (" + strataIndexesOfBlock.length() +  "):");
+            System.out.println("Loop adjacent (" + stratumUsedPerNode.size() +  "):");
 
-        for (int pos = 0; pos < strataIndexesOfBlock.length(); pos++) {
+        for (int pos = 0; pos < stratumUsedPerNode.size(); pos++) {
+            int strataIndex = stratumUsedPerNode.get(pos).getLeft();
 
             if (SparkApplication.DEBUG_PRINTS)
                 System.out.println(
-                    "Pos: " + pos + " | index: " + strataIndexesOfBlock.get(pos) + " | strata list size: " +
+                    "Pos: " + pos + " | index: " + strataIndex + " | strata list size: " +
                     this.strataPerTupleSet.get((stratumUsedPerNode.get(pos).getRight().getTupleSet().getTable().getName())).size() +
                     " | tupleSet: " + stratumUsedPerNode.get(pos).getRight().getTupleSet().toAbbreviation()
                 );
 
             // Check if the tuple set in the current position has any remanining strata.
-            if (this.hasMoreStrata(pos, strataIndexesOfBlock.get(pos), stratumUsedPerNode) == false) {
+            if (this.hasMoreStrata(pos, strataIndex, stratumUsedPerNode) == false) {
 
                 if (SparkApplication.DEBUG_PRINTS)
                     System.out.println("Can't create block: no more strata for tuple set\n");
@@ -151,12 +156,9 @@ public class BlockCreator {
                 continue;
             }
 
-            // Copy the initial array of indexes an increment the index of the stratum in the current position by one.
-            IndexArray strataIndexesForAdjacent = strataIndexesOfBlock.clone();
-            strataIndexesForAdjacent.increment(pos);
-           
-            // Check if the block has been already created, to avoid duplicates.
-            if (this.blockCache.contains(strataIndexesForAdjacent)) {
+            // Increment the index of the stratum in the current position by one and check if the
+            // block has been already created, to avoid duplicates (the block is cached if it was not).
+            if (!this.cacheAdjacentBlock(packedIndexesOfBlock, pos, stratumUsedPerNode)) {
 
                 if (SparkApplication.DEBUG_PRINTS)
                     System.out.println("Block already created!\n");
@@ -167,7 +169,7 @@ public class BlockCreator {
             // Create the adjacent block by duplicating the current one, and changing the stratum
             // of the tuple set in position pos by getting the next one.
             Block adjacent = duplicateBlock(block);
-            this.changeStratumOfBlock(pos, strataIndexesForAdjacent.get(pos), adjacent);    
+            this.changeStratumOfBlock(pos, strataIndex + 1, adjacent);    
 
             // Calculate the adjacent block's signature with the new stratum.
             adjacent.computeSignature();
@@ -179,9 +181,6 @@ public class BlockCreator {
             if (SparkApplication.DEBUG_PRINTS)
                 System.out.println("Adjacent block uscore = " + adjacent.getScore() + "\n");
 
-            // Keep the adjacent block in the cache, so we won't create it again.
-            blockCache.add(strataIndexesForAdjacent);
-
             // Add the adjacent block to the list of adjacent blocks to be returned.
             adjacentBlocks.add(adjacent);
 
@@ -201,12 +200,68 @@ public class BlockCreator {
         Block block = new Block(this.network);
         block.setRoot(extractFirstBlockFromNetwork(block, this.network.getRoot(), null)); // Copies the network nodes.
         block.computeSignature();
-        blockCache.add(block.getStrataIndexesUsed()); // Cache the block.
+        this.computePlaceValues(block.getStratumUsedPerNode());
+        this.cacheBlock(block.getStratumUsedPerNode()); // Cache the block.
         block.setBlockCreator(this); // Save the block creator to generate the adjacent blocks.
 
         return block;
     }
 
+    // Computes the place values of the packed strata indexes of the blocks, from the number of
+    // strata of the tuple set in every position. If they do not fit in a long, the blocks are
+    // cached as IndexArrays instead.
+    private void computePlaceValues(List<Pair<Integer, Node>> stratumUsedPerNode) {
+        this.placeValues = new long[stratumUsedPerNode.size()];
+        long placeValue = 1;
+        try {
+            for (int pos = 0; pos < stratumUsedPerNode.size(); pos++) {
+                this.placeValues[pos] = placeValue;
+                String tupleSetName = stratumUsedPerNode.get(pos).getRight().getTupleSet().getTable().getName();
+                placeValue = Math.multiplyExact(placeValue, (long) this.strataPerTupleSet.get(tupleSetName).size());
+            }
+        }
+        catch (ArithmeticException e) {
+            this.placeValues = null;
+            this.indexArrayCache = new HashSet<>();
+        }
+    }
+
+    // Returns the strata indexes of a block packed in a long.
+    private long packStrataIndexes(List<Pair<Integer, Node>> stratumUsedPerNode) {
+        if (this.placeValues == null) return -1;
+
+        long packed = 0;
+        for (int pos = 0; pos < stratumUsedPerNode.size(); pos++)
+            packed += stratumUsedPerNode.get(pos).getLeft() * this.placeValues[pos];
+        return packed;
+    }
+
+    // Adds the strata indexes of a block to the block cache.
+    private void cacheBlock(List<Pair<Integer, Node>> stratumUsedPerNode) {
+        if (this.placeValues != null) {
+            this.blockCache.add(this.packStrataIndexes(stratumUsedPerNode));
+        }
+        else {
+            int[] strataIndexes = new int[stratumUsedPerNode.size()];
+            for (int pos = 0; pos < strataIndexes.length; pos++)
+                strataIndexes[pos] = stratumUsedPerNode.get(pos).getLeft();
+            this.indexArrayCache.add(new IndexArray(strataIndexes));
+        }
+    }
+
+    // Adds the strata indexes of the block adjacent to a block in position pos (the block with the
+    // next stratum in that position) to the block cache. Returns false if they were already cached.
+    private boolean cacheAdjacentBlock(long packedIndexesOfBlock, int pos, List<Pair<Integer, Node>> stratumUsedPerNode) {
+        if (this.placeValues != null)
+            return this.blockCache.add(packedIndexesOfBlock + this.placeValues[pos]);
+
+        int[] strataIndexes = new int[stratumUsedPerNode.size()];
+        for (int index = 0; index < strataIndexes.length; index++)
+            strataIndexes[index] = stratumUsedPerNode.get(index).getLeft();
+        strataIndexes[pos]++;
+        return this.indexArrayCache.add(new IndexArray(strataIndexes));
+    }
+
     // Returns true if the tuple set in position pos has one or more strata after than index argument.
     private boolean hasMoreStrata(int pos, int index, List<Pair<Integer, Node>> stratumUsedPerNode) {
         String tupleSetName = stratumUsedPerNode.get(pos).getRight().getTupleSet().getTable().getName();
@@ -1,8 +1,11 @@
 package spark.components;
 
-import shared.connectivity.thor.response.Table;
+import shared.util.Table;
+import shared.database.config.PropertiesSingleton;
 import shared.database.model.SQLDatabase;
 import shared.database.model.graph.SchemaGraph;
+import shared.util.IndexedPriorityQueue;
+import shared.util.TopKHeap;
 import spark.SparkApplication;
 import spark.components.BlockCreator;
 import spark.components.CandidateNetworkExecutor;
@@ -15,10 +18,11 @@ import spark.model.Signature;
 import spark.model.TupleSet;
 
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.PriorityQueue;
 
 // Input: A query and a set of Candidate Networks.
 // Output: A stream of the top-K answers to query.
@@ -39,8 +43,14 @@ import java.util.PriorityQueue;
 // queue is empty.
 public class BlockPipelineExecutionEngine  {
 
-    PriorityQueue<Block> blocksPQueue; // The blocks sorted in descending order based on an upper bound of their score.
-    List<OverloadedTuple> results; // The top-k results sorted in descending order based on their score.
+    // The maximum number of blocks executed together. After a block with a bscore is taken from the
+    // queue, the following blocks with a bscore above the threshold are executed with it, with one
+    // query per network. A value of 1 executes one block per query.
+    private static final int BATCH_SIZE = PropertiesSingleton.getIntProperty("blockPipeline.batchSize", 8);
+
+    IndexedPriorityQueue<Block> blocksPQueue; // The blocks sorted in descending order based on an upper bound of their score.
+    List<OverloadedTuple> results; // All the results, in the order they were produced.
+    TopKHeap<OverloadedTuple> topResults; // The top-k results.
     Double threshold; // The score of the last tuple in the list of results.
 
     // A schema graph that contains the database tables and all the temporary tables (intermediate results)
@@ -74,9 +84,10 @@ public class BlockPipelineExecutionEngine  {
         this.andSemantics = andSemantics;
         this.printResultsOrderedByTable = printResultsOrderedByTable;
         this.results = new ArrayList<OverloadedTuple>();
+        this.topResults = new TopKHeap<>(maxTuples, new OverloadedTuple.ScoreComparator());
         this.allTopKCNTuples = new ArrayList<>(); // The list of results
         this.threshold = 0.0;
-        this.blocksPQueue = new PriorityQueue<>(new Block.ScoreComparator());
+        this.blocksPQueue = new IndexedPriorityQueue<>(new Block.ScoreComparator());
         this.modifiedSchemaGraph = schemaGraph;
         this.modifiedDatabase = database;
         this.nonFreeTupleSets = nonFreeTupleSets;
@@ -86,15 +97,12 @@ public class BlockPipelineExecutionEngine  {
 
     // Getters and Setters.
     public List<OverloadedTuple> getResults() {
-        if (this.results.size() > this.maxTuples) {
-            return this.results.subList(0, this.maxTuples);
-        }
-        else {
-            return this.results;
-        }
+        return this.topResults.toSortedList();
     }
 
+    // Returns all the results sorted in descending order based on their score.
     public List<OverloadedTuple> getAllResults() {        
+        Collections.sort(this.results, new OverloadedTuple.ScoreComparator());
         return this.results;
     }
     
@@ -163,13 +171,102 @@ public class BlockPipelineExecutionEngine  {
         return true;
     }
 
-    // Updates the threshold.
+    // Returns true if the execution must stop when the parameter block is the head of the queue.
+    private boolean finalizingCondition(Block head) {
+        if (this.results.size() >= this.maxTuples) { return true; }
+        return !(this.threshold < head.getScore());
+    }
+
+    // Removes the head block (a block with a bscore) from the queue along with the blocks
+    // following it that have a bscore above the threshold, up to BATCH_SIZE blocks. The
+    // batch stops at a block with a uscore, since its adjacent blocks may come before the
+    // next ones. Returns the blocks in the order of the queue.
+    private List<Block> pollBlocksBatch(Block head) {
+        List<Block> batch = new ArrayList<>();
+        batch.add(head);
+
+        while (batch.size() < BATCH_SIZE && !this.blocksPQueue.isEmpty()) {
+            Block next = this.blocksPQueue.peek();
+            if (next.getStatus() != ScoreType.BSCORE || !(this.threshold < next.getScore())) break;
+            batch.add(this.blocksPQueue.poll());
+        }
+
+        return batch;
+    }
+
+    // Executes a list of blocks and returns the result tuples of every block in the order of the list.
+    // The blocks of the same network are executed with one query.
+    private List<OverloadedTupleList> executeBlocks(CandidateNetworkExecutor executor, List<Block> blocks) {
+        List<OverloadedTupleList> results = new ArrayList<>(Collections.nCopies(blocks.size(), (OverloadedTupleList) null));
+
+        // Group the positions of the blocks by the network (creator) they belong to.
+        Map<BlockCreator, List<Integer>> positionsPerNetwork = new LinkedHashMap<>();
+        for (int index = 0; index < blocks.size(); index++) {
+            BlockCreator creator = blocks.get(index).getBlockCreator();
+            if (!positionsPerNetwork.containsKey(creator))
+                positionsPerNetwork.put(creator, new ArrayList<Integer>());
+            positionsPerNetwork.get(creator).add(index);
+        }
+
+        for (List<Integer> positions : positionsPerNetwork.values()) {
+            if (SparkApplication.DEBUG_PRINTS) {
+                for (Integer position : positions)
+                    System.out.println("Execute:\n\tnetwork: " + blocks.get(position).toAbbreviation() + " \n\tblock: " + blocks.get(position).getSignature() + "\n");
+            }
+
+            // Execute a single block with its own query.
+            if (positions.size() == 1) {
+                results.set(positions.get(0), executor.execute(blocks.get(positions.get(0))));
+            }
+            else {
+                List<Block> networkBlocks = new ArrayList<>();
+                for (Integer position : positions)
+                    networkBlocks.add(blocks.get(position));
+
+                List<OverloadedTupleList> networkResults = executor.execute(networkBlocks);
+                for (int index = 0; index < positions.size(); index++)
+                    results.set(positions.get(index), networkResults.get(index));
+            }
+            this.numOfSqlQueriesExecuted++;
+        }
+
+        return results;
+    }
+
+    // Scores the result tuples of an executed block and adds them to the results.
+    private void addBlockResults(Block block, OverloadedTupleList resultTuples) {
+        if (resultTuples.isEmpty()) return;
+
+        // Truncate Results if and Semantics: ADDED NOW
+        if (this.andSemantics)
+            resultTuples.truncate(this.keywords);
+        
+        // Add every result to the list of top tuples.
+        for (OverloadedTuple result : resultTuples.getTupleList()) {                    
+            result.setScore(Double.valueOf(result.computeScore(block)));
+            // result.setScore(block.getScore());
+            this.results.add(result);
+            this.topResults.add(result);
+        }
+
+        if (SparkApplication.DEBUG_PRINTS) {
+            System.out.println("RESULTS:\n"); 
+            resultTuples.print(true);
+        }
+
+        this.allTopKCNTuples.add(resultTuples);
+
+        // Update the threshold.
+        this.updateThreshold();
+    }
+
+    // Updates the threshold (the score of the k-th result).
     public void updateThreshold() {
-        if (this.results.size() < maxTuples) {
+        if (!this.topResults.isFull()) {
             this.threshold = -1.0;
         }
         else {
-            this.threshold = this.results.get(maxTuples-1).getScore();
+            this.threshold = this.topResults.peekLast().getScore();
         }
     }
 
@@ -185,13 +282,19 @@ public class BlockPipelineExecutionEngine  {
 
         // Loop until the finalizing condition is satisfied.
         while (this.finalizingCondition() == false) {
-            Block head = this.blocksPQueue.remove();
+            IndexedPriorityQueue.Handle<Block> headHandle = this.blocksPQueue.peekHandle();
+            Block head = headHandle.getElement();
+
+            // Only the blocks with a uscore stay in the queue (with their bscore).
+            if (head.getStatus() != ScoreType.USCORE)
+                this.blocksPQueue.remove(headHandle);
 
             if (head.getStatus() == ScoreType.USCORE) {
-                // Push the block back into the queue with its bscore value.
+                // Update the block in the queue with its bscore value (it moves down
+                // from the head in place, instead of being removed and pushed back).
                 head.setStatus(ScoreType.BSCORE);
                 head.setScore(Double.valueOf(head.computeBScore()));
-                this.blocksPQueue.add(head);
+                this.blocksPQueue.update(headHandle);
 
                 if (SparkApplication.DEBUG_PRINTS)
                     System.out.println("Block new bscore = " + head.getScore() + "\n");
@@ -202,35 +305,23 @@ public class BlockPipelineExecutionEngine  {
                 }
             }
             else if (head.getStatus() == ScoreType.BSCORE) {
-                if (SparkApplication.DEBUG_PRINTS)
-                    System.out.println("Execute:\n\tnetwork: " + head.toAbbreviation() + " \n\tblock: " + head.getSignature() + "\n");
-
-                // Execute the block tree.
-                OverloadedTupleList resultTuples = candidateNetworkExecutor.execute(head);
-                this.numOfSqlQueriesExecuted++;
-                if (resultTuples.isEmpty()) continue;
-
-                // Truncate Results if and Semantics: ADDED NOW
-                if (this.andSemantics)
-                    resultTuples.truncate(this.keywords);
-                
-                // Add every result to the list of top tuples.
-                for (OverloadedTuple result : resultTuples.getTupleList()) {                    
-                    result.setScore(Double.valueOf(result.computeScore(head)));
-                    // result.setScore(head.getScore());
-                    this.results.add(result);
+                // Take the next blocks with a bscore above the threshold along with the head
+                // and execute them together (one query per network).
+                List<Block> batch = this.pollBlocksBatch(head);
+                List<OverloadedTupleList> batchResults = this.executeBlocks(candidateNetworkExecutor, batch);
+
+                // Add the results of the blocks in the order of the queue. A block after the head is used
+                // only if the pipeline would have reached it executing one block at a time, otherwise it
+                // goes back to the queue with the rest of the batch.
+                for (int index = 0; index < batch.size(); index++) {
+                    if (index > 0 && this.finalizingCondition(batch.get(index))) {
+                        for (Block block : batch.subList(index, batch.size()))
+                            this.blocksPQueue.add(block);
+                        break;
+                    }
+
+                    this.addBlockResults(batch.get(index), batchResults.get(index));
                 }
-
-                if (SparkApplication.DEBUG_PRINTS) {
-                    System.out.println("RESULTS:\n"); 
-                    resultTuples.print(true);
-                }
-
-                this.allTopKCNTuples.add(resultTuples);
-
-                // Sort the list of results and update the threshold.
-                Collections.sort(this.results, new OverloadedTuple.ScoreComparator());
-                this.updateThreshold();
             }
         }
 
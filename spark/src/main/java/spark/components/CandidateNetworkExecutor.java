@@ -14,13 +14,15 @@ import spark.model.TupleSet;
 import spark.components.SQLQueryCreator;
 
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.List;
 
+import shared.database.model.InListConstraint;
 import shared.database.model.SQLQuery;
+import shared.database.model.TupleDecoder;
 
 // Input: A candidate network.
 // Output: The list of joining (trees of) tuples of the network.
@@ -32,6 +34,7 @@ public class CandidateNetworkExecutor {
     protected Integer maxTuples; // The maximum number of results to return.    
 
     static final Integer SQL_TIMEOUT = 30;
+    static final String BATCH_INDEX_COLUMN = "batch_index"; // Tags the rows of the networks executed together.
 
     public CandidateNetworkExecutor(SchemaGraph schemaGraph, SQLDatabase database, List<TupleSet> nonFreeTupleSets, Integer maxTuples) {
         this.database = database;        
@@ -65,20 +68,21 @@ public class CandidateNetworkExecutor {
 
         // Initialize the connection variables.
         Connection con = null;
-        Statement stmt = null;
+        PreparedStatement stmt = null;
         ResultSet rs = null;
         try {
             con = DataSourceFactory.getConnection();
 
-            // Create and execute the statement.
-            stmt = con.createStatement();
+            // Prepare (or reuse the prepared statement of a query with the same shape) and execute.
+            stmt = DatabaseUtil.prepareSelectQuery(con, query);
             stmt.setQueryTimeout(SQL_TIMEOUT);
-            rs = stmt.executeQuery(selectQuery);
+            rs = stmt.executeQuery();
 
             // Get the results.
+            TupleDecoder decoder = TupleDecoder.forColumnNames(joinableFormat.getColumnsWithoutAliases(), rs.getMetaData(), "score");
             while(rs.next()) {
                 OverloadedTuple tuple = new OverloadedTuple();
-                tuple.fill(joinableFormat.getColumnsWithoutAliases(), rs);
+                tuple.fill(decoder, rs, 1);
                 tuple.setQuery(query);
                 resultTuples.add(tuple);
             }
@@ -99,6 +103,100 @@ public class CandidateNetworkExecutor {
             return new OverloadedTupleList(resultTuples);
         }
     }
+
+    // Executes a list of candidate networks (blocks) that join the same tables with one SQL query:
+    // the UNION ALL of the query of every network, where the rows of each query are tagged with the
+    // position of its network in the list. The rows are then distributed back to their networks.
+    // If the union fails (for example it is too large for the database), the networks are
+    // executed one by one instead. Returns the result tuples of every network, in the order of the list.
+    public List<OverloadedTupleList> execute(List<? extends JoiningNetworkOfTupleSets> candidateNetworks) {
+        List<List<OverloadedTuple>> resultTuples = new ArrayList<>(); // The results of every network.
+        List<SQLQuery> queries = new ArrayList<>(); // The query of every network (null if it can't be joined).
+        JoinableFormat joinableFormat = null; // The joinable format of a network (all have the same columns).
+
+        // Create the SQL SELECT query of every network, selecting its position too.
+        for (int index = 0; index < candidateNetworks.size(); index++) {
+            resultTuples.add(new ArrayList<OverloadedTuple>());
+
+            JoinableFormat networkFormat = new JoinableFormat();
+            try {
+                networkFormat.fill(candidateNetworks.get(index), this.schemaGraph);
+            } catch (JoinCandidateNotFoundException e1) {
+                e1.printStackTrace();
+                queries.add(null);
+                continue;
+            }
+
+            SQLQuery query = SQLQueryCreator.createSQLSelectQuery(networkFormat);
+            query.getSelectElements().add(index + " AS " + BATCH_INDEX_COLUMN);
+            queries.add(query);
+            joinableFormat = networkFormat;
+        }
+
+        // Create the UNION ALL of the queries and gather their parameters. If the union
+        // needs more parameters than a query can have, the values are inlined.
+        int parametersNum = 0;
+        for (SQLQuery query: queries)
+            if (query != null) parametersNum += query.getParametersNum();
+        boolean bindParameters = parametersNum <= InListConstraint.MAX_PARAMETERS;
+
+        List<String> selectQueries = new ArrayList<>();
+        List<Object> parameters = new ArrayList<>();
+        for (SQLQuery query: queries) {
+            if (query == null) continue;
+            if (bindParameters) {
+                selectQueries.add("(" + query.toParameterizedSelectQuery() + ")");
+                parameters.addAll(query.getParameters());
+            }
+            else {
+                selectQueries.add("(" + query.toSelectQuery() + ")");
+            }
+        }
+
+        boolean unionFailed = false;
+        if (!selectQueries.isEmpty()) {
+            // Initialize the connection variables.
+            Connection con = null;
+            PreparedStatement stmt = null;
+            ResultSet rs = null;
+            try {
+                con = DataSourceFactory.getConnection();
+
+                // Prepare and execute the union of the queries.
+                stmt = DatabaseUtil.prepareQuery(con, String.join("\nUNION ALL\n", selectQueries), parameters);
+                stmt.setQueryTimeout(SQL_TIMEOUT);
+                rs = stmt.executeQuery();
+
+                // Get the results and give every one to its network.
+                TupleDecoder decoder = TupleDecoder.forColumnNames(joinableFormat.getColumnsWithoutAliases(), rs.getMetaData(), "score");
+                while(rs.next()) {
+                    int index = rs.getInt(BATCH_INDEX_COLUMN);
+                    OverloadedTuple tuple = new OverloadedTuple();
+                    tuple.fill(decoder, rs, 1);
+                    tuple.setQuery(queries.get(index));
+                    resultTuples.get(index).add(tuple);
+                }
+            }
+            catch (SQLException e) {
+                e.printStackTrace();
+                unionFailed = true;
+            }
+            finally {
+                DatabaseUtil.close(con, stmt, rs);
+            }
+        }
+
+        // Return the results.
+        List<OverloadedTupleList> results = new ArrayList<>();
+        for (int index = 0; index < candidateNetworks.size(); index++) {
+            // Drop the partial results of a failed union and execute the network on its own.
+            if (unionFailed && queries.get(index) != null)
+                results.add(this.execute(candidateNetworks.get(index)));
+            else
+                results.add(new OverloadedTupleList(resultTuples.get(index)));
+        }
+        return results;
+    }
   
 }
 
@@ -3,9 +3,14 @@ package spark.components;
 import shared.database.model.SQLColumn;
 import shared.database.model.SQLDatabase;
 import shared.database.model.SQLTable;
-import shared.connectivity.thor.response.Table;
+import shared.database.model.SQLTuple;
+import shared.database.model.TupleBlock;
+import shared.database.model.TupleDecoder;
+import shared.util.Table;
 import shared.database.connectivity.DataSourceFactory;
 import shared.database.connectivity.DatabaseUtil;
+import shared.database.connectivity.KeywordPostingCache;
+import shared.database.connectivity.KeywordPostingCache.SearchMode;
 
 import spark.model.OverloadedTuple;
 import spark.model.TupleSet;
@@ -111,11 +116,30 @@ public class IREngine {
                 Connection con, PreparedStatement stmt, ResultSet rs) throws SQLException {
         Set<OverloadedTuple> tuples = new HashSet<OverloadedTuple>();
         Set<SQLColumn> columnsContainingKeywords = new HashSet<SQLColumn>();
+        TupleBlock block = null;  // Stores the tuples with their scores and keyword frequencies.
 
         // Execute the INV_INDEX_QUERY against every column's index.
         for (SQLColumn column : table.getColumns()) {
             // FULLTEXT indexes can only be built on columns with strings as values.
             if (column.getType().isTextual() && column.isIndexed()) {
+                // Use the cached posting if we have probed the column for the query before.
+                KeywordPostingCache.Key cacheKey = new KeywordPostingCache.Key(
+                    this.database.getName(), column, query, SearchMode.NATURAL_LANGUAGE_ROWS);
+                List<SQLTuple> cachedTuples = KeywordPostingCache.getInstance().get(cacheKey);
+                if (cachedTuples != null) {
+                    // Copy the cached rows to the query's block, so every query computes its own keyword frequencies.
+                    for (SQLTuple cachedTuple : cachedTuples) {
+                        TupleBlock.Row cachedRow = (TupleBlock.Row) cachedTuple;
+                        if (block == null)
+                            block = cachedRow.getBlock().emptyCopy();
+                        tuples.add(new OverloadedTuple(block, block.addRow(cachedRow.getBlock(), cachedRow.getRow())));
+                    }
+                    if (!cachedTuples.isEmpty())
+                        columnsContainingKeywords.add(column);
+                    continue;
+                }
+                List<TupleBlock.Row> columnRows = new ArrayList<>();
+
                 // Prepare the query to execute.
                 String indexQuery = String.format(INV_INDEX_QUERY, column.getName(), table.getName(), column.getName());
                 stmt = con.prepareStatement(indexQuery);
@@ -124,19 +148,27 @@ public class IREngine {
 
                 // Execute the query and store the tuples.
                 rs = stmt.executeQuery();
+                TupleDecoder decoder = TupleDecoder.forColumnNames(table.getColumns(), rs.getMetaData(), "score");
+                // The probes of a table select the same columns, so they share the block.
+                if (block == null)
+                    block = decoder.newBlock();
                 while (rs.next()) {
-                    // Create an OverloadedTuple object and save it.
-                    OverloadedTuple tuple = new OverloadedTuple();
-                    tuple.fill(table.getColumns(), rs);
-                    tuples.add(tuple);
+                    // Store the row in the block and save a tuple backed by it.
+                    int row = decoder.decode(rs, block);
+                    tuples.add(new OverloadedTuple(block, row));
                     columnsContainingKeywords.add(column);
+                    columnRows.add(block.getRow(row));
                 }
+
+                KeywordPostingCache.getInstance().put(cacheKey, columnRows);
             }
         }
 
         // Create the tuple set of the table.
         // The tuples are stored in a list sorted in descending order based on their score.
         TupleSet tupleSet = new TupleSet(table, columnsContainingKeywords, tuples);
+        if (block != null)
+            block.setKeywords(this.keywords);
         tupleSet.computeKeywordStatistics(this.keywords);
 
         // Store the rows matched the query.
@@ -2,6 +2,7 @@ package spark.components;
 
 import java.util.List;
 
+import shared.database.model.InListConstraint;
 import shared.database.model.SQLColumn;
 import shared.database.model.SQLQueries;
 import shared.database.model.SQLTable;
@@ -79,8 +80,8 @@ public class SQLQueryCreator {
         // }
 
         //  - The IN LIST Constraints if there are any. {        
-        for(String inListConstraint: joinableFormat.getInListConstraints()) {
-            query.getInListConstraints().add( inListConstraint );
+        for(InListConstraint inListConstraint: joinableFormat.getInListConstraints()) {
+            query.addInListConstraint( inListConstraint );
         }           
         // }
 
@@ -1,6 +1,7 @@
 package spark.model;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
@@ -12,6 +13,7 @@ import javax.print.DocFlavor.STRING;
 
 import spark.components.Joiner;
 // import spark.components.Joiner;
+import shared.database.model.InListConstraint;
 import shared.database.model.SQLColumn;
 import shared.database.model.SQLQueries;
 import shared.database.model.SQLTable;
@@ -37,7 +39,7 @@ public class JoinableFormat {
 
     // Depending on the objects that fill the JoinableFormat, create a list of strings that
     // stores IN LIST SQL Constraints. (Happens for TupleSets)
-    private List<String> inListConstraints;
+    private List<InListConstraint> inListConstraints;
 
     // If the Tables Used to Join contained score columns keep them in a separate list.
     // This is necessary because we will group them in the query as one score column 
@@ -60,7 +62,7 @@ public class JoinableFormat {
     public List<Pair<SQLColumn, String>> getColumnsFromTables() { return columnsFromTables; }            
     public List<Pair<SQLColumn, String>> getScoreColumns() { return scoreColumns; }    
     public List<JoinEquation> getJoinEquations() { return joinEquations; }
-    public List<String> getInListConstraints() { return inListConstraints; }    
+    public List<InListConstraint> getInListConstraints() { return inListConstraints; }    
 
 
     // Get ColumnsFromTables in a list without aliases.    
@@ -194,23 +196,20 @@ public class JoinableFormat {
         for (Pair<TupleSet, String> pair: tupleSets) {
             // If a tupleSet's table is created by the pre processor as a temp Table then dont create
             // an in list Constraint.            
-            String inListConstraint = this.getInListConstraintForIdsOfTupleSet(pair.getLeft(), pair.getRight());
-            if (inListConstraint != null)
-                this.inListConstraints.add(inListConstraint);
+            this.inListConstraints.addAll(this.getInListConstraintsForIdsOfTupleSet(pair.getLeft(), pair.getRight()));
         }
     }
 
-    // Returns an IN LIST SQLConstraint in String format, containing primaryKey values of the tuples
-    // inside the parameter tupleSet. This IN LIST SQLConstraint is formated like this :
+    // Returns IN LIST SQLConstraints, one for every primaryKey column of the tuples
+    // inside the parameter tupleSet, containing the values of the column. Every IN LIST SQLConstraint is like this :
     //      [table_identifier].[primaryKeyColumn] IN LIST ([ColumnValue], ..., [ColumnValue])
     // Remember that each tupleSet is connected with an SQLTable so the primaryKeys
     // and the identifier is borrowed by that SQLTable.
-    protected String getInListConstraintForIdsOfTupleSet(TupleSet tupleSet, String tableAlias) {
+    protected List<InListConstraint> getInListConstraintsForIdsOfTupleSet(TupleSet tupleSet, String tableAlias) {
+        List<InListConstraint> constraints = new ArrayList<>();
+
         // Dont process FreeTupleSets, they dont have tuples.
-        if (tupleSet instanceof FreeTupleSet) return null;
-        
-        // The String storing the in list assignment.
-        String inListAssignment = new String();        
+        if (tupleSet instanceof FreeTupleSet) return constraints;
 
         // Get the primary key column of the table connecting with this tupleSet.
         Set<SQLColumn> primaryKey = tupleSet.getTable().getPrimaryKey();        
@@ -218,32 +217,21 @@ public class JoinableFormat {
         // Get the TupleSets tuples and extract the value of the PK columns.
         for (SQLColumn pkColumn: primaryKey) {
             // Get the values of the pkColumn
-            String idList = new String();            
+            List<Object[]> ids = new ArrayList<>();
             for (OverloadedTuple tuple: tupleSet.getTuples()) {
                 SQLValue value = tuple.getValueOfColumnWithName(pkColumn.getName());
                 if (value != null) {
-                    idList += value.toString() + ", ";
+                    ids.add(new Object[]{ value.getValue() });
                 }
-            }            
-
+            }
+            if (ids.isEmpty()) continue;
 
-            // Remove the last ", ".
-            if (idList.length() != 0)
-                idList = idList.substring(0, idList.length()-2);
-            
             // Create the assignment
             String columnWithAlias = tableAlias + "." + pkColumn.getName();
-            inListAssignment += String.format(
-                SQLQueries.IN_LIST_CONSTRAINT,
-                columnWithAlias, idList)
-                + " AND ";
+            constraints.add(new InListConstraint(Arrays.asList(columnWithAlias), ids));
         }
 
-        // Remove the last " AND ".
-        if (!inListAssignment.isEmpty())
-            return inListAssignment.substring(0, inListAssignment.length() - 5);
-        else
-            return null;        
+        return constraints;
     }    
      
 }
@@ -9,6 +9,7 @@ public class Node {
     TupleSet tupleSet;
     Node parent;
     List<Node> children;
+    String canonicalForm;  // The canonical encoding of the subtree rooted at the node, or null if not computed yet.
 
     public Node() {
         this.tupleSet = null;
@@ -42,6 +43,7 @@ public class Node {
     // Sets a new tupleSet.
     public void setTupleSet(TupleSet tupleSet) {
         this.tupleSet = tupleSet;
+        this.invalidateCanonicalForm();
     }
 
     // Returns the node's children.
@@ -52,6 +54,7 @@ public class Node {
     // Add a node as child.
     public void addChild(Node child) {
         this.children.add(child);
+        this.invalidateCanonicalForm();
     }
 
     // Returns true if a node has a parent node.
@@ -76,6 +79,7 @@ public class Node {
         this.tupleSet = src.tupleSet;
         this.parent = src.parent;
         this.children = src.children;
+        this.canonicalForm = src.canonicalForm;
     }
 
     // Returns a node's joinable expression's abbreviation. In this case it is a tuple set's abbreviation.
@@ -83,4 +87,11 @@ public class Node {
         return this.tupleSet.toAbbreviation();
     }
 
+    // Forgets the canonical encodings of the node and its ancestors,
+    // after the subtree rooted at the node was modified.
+    void invalidateCanonicalForm() {
+        for (Node node = this; node != null; node = node.parent)
+            node.canonicalForm = null;
+    }
+
 }
\ No newline at end of file
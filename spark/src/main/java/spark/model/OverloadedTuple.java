@@ -6,13 +6,13 @@ import shared.connectivity.thor.response.ColumnValuePair;
 import shared.connectivity.thor.response.ResultInterface;
 import shared.database.model.SQLColumn;
 import shared.database.model.SQLDoubleValue;
-import shared.database.model.SQLFloatValue;
-import shared.database.model.SQLIntValue;
 import shared.database.model.SQLQuery;
 import shared.database.model.SQLTuple;
 import shared.database.model.SQLType;
 import shared.database.model.SQLValue;
-import shared.database.model.SQLVarcharValue;
+import shared.database.model.TupleBlock;
+import shared.database.model.TupleDecoder;
+import shared.util.KeywordMatcher;
 import shared.util.PrintingUtils;
 
 import java.util.ArrayList;
@@ -24,7 +24,6 @@ import java.util.HashMap;
 import java.util.Comparator;
 
 import java.sql.ResultSet;
-import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 
 // This class models a SQL tuple (row) of a relation.
@@ -41,32 +40,77 @@ public class OverloadedTuple extends SQLTuple implements ResultInterface {
     private Double score;          // The score of each tuple    
     SQLQuery query;                // The sqlQuery used to get this tuple
 
+    // The block row that stores the values, score and keyword frequencies of a tuple of an
+    // IR engine's tuple set, or null for a tuple with its own storage (like a joined result).
+    private TupleBlock block;
+    private int row;
+
     public OverloadedTuple() {
         super();
         this.score = 0.0;
         this.keywordFrequencies = new HashMap<String, Integer>();
     }
 
+    // Creates a tuple backed by a row of a block. The tuple keeps no values, score
+    // or keyword frequencies of its own, it reads and updates the block's columns.
+    public OverloadedTuple(TupleBlock block, int row) {
+        super(block.getAttributes(), block.getRowValues(row), block.getPrimaryKey());
+        this.block = block;
+        this.row = row;
+    }
+
+    // Creates a tuple with the attributes, values and score of the parameter
+    // tuple, but with no keyword frequencies computed yet.
+    public OverloadedTuple(OverloadedTuple tuple) {
+        super(tuple);
+        this.score = tuple.getScore();
+        this.keywordFrequencies = new HashMap<String, Integer>();
+    }
+
+    @Override
+    public OverloadedTuple copy() {
+        return new OverloadedTuple(this);
+    }
+
     // Getters and Setters.    
     public Double getScore() {
-        return this.score;
+        return (this.block != null) ? this.block.getScore(this.row) : this.score;
     }
 
     public void setScore(Double score) {
-        this.score = score;
+        if (this.block != null)
+            this.block.setScore(this.row, score);
+        else
+            this.score = score;
     }
 
     public Map<String, Integer> getKeywordFrequencies() {
-        return this.keywordFrequencies;
+        if (this.block == null)
+            return this.keywordFrequencies;
+
+        // Collect the keywords the row contains from the block's frequencies.
+        Map<String, Integer> frequencies = new HashMap<String, Integer>();
+        if (this.block.getKeywords() != null) {
+            for (String keyword : this.block.getKeywords()) {
+                int frequency = this.block.getKeywordFrequency(this.row, keyword);
+                if (frequency > 0)
+                    frequencies.put(keyword, frequency);
+            }
+        }
+        return frequencies;
     }
 
     // Get the frequency of a keyword.
     public Integer getKeywordFrequency(String keyword) {
-        return this.keywordFrequencies.get(keyword);
+        if (this.block == null)
+            return this.keywordFrequencies.get(keyword);
+
+        int frequency = this.block.getKeywordFrequency(this.row, keyword);
+        return (frequency > 0) ? frequency : null;
     }
 
     public Set<String> getKeywords() {
-        return this.keywordFrequencies.keySet();
+        return this.getKeywordFrequencies().keySet();
     }
 
     /**
@@ -74,13 +118,14 @@ public class OverloadedTuple extends SQLTuple implements ResultInterface {
      */
     public boolean containsNoKeyword() {
         int countNoContainedKeywords = 0;
-        for (Map.Entry<String,Integer> entry: this.keywordFrequencies.entrySet()) {
+        Map<String, Integer> keywordFrequencies = this.getKeywordFrequencies();
+        for (Map.Entry<String,Integer> entry: keywordFrequencies.entrySet()) {
             if (entry.getValue() == 0){
                 countNoContainedKeywords++;
             }
         }
 
-        if (countNoContainedKeywords == this.keywordFrequencies.size())
+        if (countNoContainedKeywords == keywordFrequencies.size())
             return true;
         else 
             return false;
@@ -88,21 +133,27 @@ public class OverloadedTuple extends SQLTuple implements ResultInterface {
         
     // Increments the score by the given value.
     public void incrementScore(Double inc) {
-        this.score += inc;
+        if (this.block != null)
+            this.block.setScore(this.row, this.block.getScore(this.row) + inc);
+        else
+            this.score += inc;
     }
 
     // Get Tuple 's Signature.
     public Signature getSignature() {
         // Create and fill the signature object.
         Signature signature = new Signature();
-        signature.fill(keywordFrequencies);
+        signature.fill(this.getKeywordFrequencies());
         // Return the signature.
         return signature;
     }
 
     // Increments the frequency of a keyword by 1.
     public void incrementKeywordFrequency(String keyword) {
-        this.keywordFrequencies.put(keyword, this.keywordFrequencies.getOrDefault(keyword, 0) + 1);
+        if (this.block != null)
+            this.block.incrementKeywordFrequency(this.row, keyword);
+        else
+            this.keywordFrequencies.put(keyword, this.keywordFrequencies.getOrDefault(keyword, 0) + 1);
     }
 
     // Given a query and an attribute this function checks if any keyword
@@ -118,10 +169,16 @@ public class OverloadedTuple extends SQLTuple implements ResultInterface {
 
         SQLValue value = super.values.get(index);
 
+        // Scan the value for all the keywords at once, the match is cached on the value.
+        // A value already scanned with the query's matcher keeps its match.
+        KeywordMatcher matcher = KeywordMatcher.forKeywords(keywords, value.getMatcher());
+        if (matcher != null)
+            value.match(matcher);
+
         // Check if the value contains any keywords from the list.
         for (String keyword : keywords) {
             if (value.contains(keyword)) {
-                this.keywordFrequencies.put(keyword, this.keywordFrequencies.getOrDefault(keyword, 0) + 1);
+                this.incrementKeywordFrequency(keyword);
             }
         }
     }
@@ -167,100 +224,66 @@ public class OverloadedTuple extends SQLTuple implements ResultInterface {
     }
     
 
+    // The lists of a tuple backed by a block are the block's and can not be modified,
+    // so the tuple copies them before its first modification (the score and keyword
+    // frequencies stay in the block).
+    private void copyBlockLists() {
+        if (this.block != null && this.attributes == this.block.getAttributes()) {
+            this.attributes = new ArrayList<SQLColumn>(this.attributes);
+            this.values = new ArrayList<SQLValue>(this.values);
+            this.primaryKey = new ArrayList<SQLColumn>(this.primaryKey);
+        }
+    }
+
+    @Override
+    public void addAttribute(SQLColumn attribute) {
+        this.copyBlockLists();
+        super.addAttribute(attribute);
+    }
+
+    @Override
+    public void addValue(SQLValue value) {
+        this.copyBlockLists();
+        super.addValue(value);
+    }
+
+    @Override
+    public void removeLastValue() {
+        this.copyBlockLists();
+        super.removeLastValue();
+    }
+
+    @Override
+    public int hashCode() {
+        // A tuple backed by a block hashes its primary key from the block's columns.
+        return (this.block != null) ? this.block.hashCodeOf(this.row) : super.hashCode();
+    }
+
     // Fills an SQLTuple object with the names and values of the given list of columns.
     public void fill(List<SQLColumn> columns, ResultSet rs) {
+        this.fill(columns, rs, 1);
+    }
+
+    // Fills an SQLTuple object with the names and values of the given list of columns.
+    // Also calculates the score attribute by dividing the sum of scores that sql 
+    // gives with the size of the tree.
+    public void fill(List<SQLColumn> columns, ResultSet rs, int size) {
         try {
-            // All indexes are +1 because the indexes in ResultSet starts from 1
-            ResultSetMetaData metadata = rs.getMetaData();
-
-            // Loop the Results Set Columns
-            for (int index = 0; index < metadata.getColumnCount(); index++) {
-
-                // Loop the columns and find the correct one
-                SQLColumn column = null;
-                for (SQLColumn col: columns)
-                    if (col.getName().equals(metadata.getColumnName(index + 1)))
-                        column = col;
-
-                // If no column was found and ResultSet's column name is score then store the score.
-                if (column == null && metadata.getColumnName(index + 1).equals("score"))
-                    this.score = rs.getDouble(index+1);                                  
-                // Otherwise create the correct Column
-                else {
-                    if (column.getType().isTextual()) {
-                        this.addAttribute(column);
-                        this.addValue(new SQLVarcharValue(rs.getString(index+1), column.getType().getMaximumLength()));
-                    }
-                    else if (column.getType().isInt()) {
-                        this.addAttribute(column);
-                        this.addValue(new SQLIntValue(rs.getInt(index+1)));
-                    }
-                    else if (column.getType().isDouble()) {
-                        this.values.add(new SQLDoubleValue(rs.getDouble(index+1)));
-                        this.attributes.add(column);
-                    }
-                    else if (column.getType().isFloat()) {
-                        this.values.add(new SQLFloatValue(rs.getFloat(index+1)));
-                        this.attributes.add(column);
-                    }
-
-                    // Check if the column is part of the tuple's primary key.
-                    if (column.isPrimary()) {
-                        this.primaryKey.add(column);
-                    }
-                }
-            }            
+            this.fill(TupleDecoder.forColumnNames(columns, rs.getMetaData(), "score"), rs, size);
         }
         catch (SQLException e) {
             e.printStackTrace();
         }
     }
 
-    // Fills an SQLTuple object with the names and values of the given list of columns.
-    // Also calculates the score attribute by dividing the sum of scores that sql 
-    // gives with the size of the tree.
-    public void fill(List<SQLColumn> columns, ResultSet rs, int size) {
+    // Fills an SQLTuple object with the current row of the result set, using the
+    // column bindings of a decoder compiled once for that result set (see
+    // TupleDecoder.forColumnNames). The score is divided with the size of the tree.
+    public void fill(TupleDecoder decoder, ResultSet rs, int size) {
         try {
-            // All indexes are +1 because the indexes in ResultSet starts from 1
-            ResultSetMetaData metadata = rs.getMetaData();
-
-            // Loop the Results Set Columns
-            for (int index = 0; index < metadata.getColumnCount(); index++) {
-
-                // Loop the columns and find the correct one
-                SQLColumn column = null;
-                for (SQLColumn col: columns)
-                    if (col.getName().equals(metadata.getColumnName(index + 1)))
-                        column = col;
-
-                // If no column was found and ResultSet's column name is score then store the score.
-                if (column == null && metadata.getColumnName(index + 1).equals("score"))
-                    this.score = rs.getDouble(index+1) / size;                                  
-                // Otherwise create the correct Column
-                else {
-                    if (column.getType().isTextual()) {
-                        this.addAttribute(column);
-                        this.addValue(new SQLVarcharValue(rs.getString(index+1), column.getType().getMaximumLength()));
-                    }
-                    else if (column.getType().isInt()) {
-                        this.addAttribute(column);
-                        this.addValue(new SQLIntValue(rs.getInt(index+1)));
-                    }
-                    else if (column.getType().isDouble()) {
-                        this.values.add(new SQLDoubleValue(rs.getDouble(index+1)));
-                        this.attributes.add(column);
-                    }
-                    else if (column.getType().isFloat()) {
-                        this.values.add(new SQLFloatValue(rs.getFloat(index+1)));
-                        this.attributes.add(column);
-                    }
-
-                    // Check if the column is part of the tuple's primary key.
-                    if (column.isPrimary()) {
-                        this.primaryKey.add(column);
-                    }
-                }
-            }            
+            decoder.decode(rs, this);
+            if (decoder.hasScore())
+                this.score = decoder.readScore(rs) / size;
         }
         catch (SQLException e) {
             e.printStackTrace();
@@ -275,7 +298,7 @@ public class OverloadedTuple extends SQLTuple implements ResultInterface {
         for (SQLValue value : super.values) {
             str += value + " ";
         }
-        str += "(" + this.score + ")";
+        str += "(" + this.getScore() + ")";
 
         return str;
     }
@@ -287,7 +310,7 @@ public class OverloadedTuple extends SQLTuple implements ResultInterface {
         // Create a score column.
         SQLType columnType = new SQLType("double", 0);
         SQLColumn scoreColumn = new SQLColumn(null, "score", columnType, "");
-        attributes.add(scoreColumn);
+        this.addAttribute(scoreColumn);
 
         // Add the value of the score column.
         SQLValue scoreValue = new SQLDoubleValue(this.getScore());
@@ -383,7 +406,7 @@ public class OverloadedTuple extends SQLTuple implements ResultInterface {
 
 	@Override
 	public double getResultScore() {
-		return this.score;
+		return this.getScore();
 	}
 
 }
@@ -13,22 +13,23 @@ public class Signature {
 
     // All the keywords of the query.
     // It is declared as static because all signature instances must have the same sequence of keywords.
-    private static List<String> keywords;
+    // Every thread keeps its own keywords, since the workers of the query server execute different queries.
+    private static final ThreadLocal<List<String>> keywords = new ThreadLocal<>();
 
     private int[] frequencies; // Contains the frequencies of the above keywords.
     private double watf; // The watf value of the signature, which is used to sort tuples or strata.
 
     public Signature() {
-        this.frequencies = new int[Signature.keywords.size()]; // Initialized to zeros.
+        this.frequencies = new int[Signature.keywords.get().size()]; // Initialized to zeros.
     }
 
     // Getters and Setters.
     public static List<String> getKeywords() {
-        return Signature.keywords;
+        return Signature.keywords.get();
     }
 
     public static void setKeywords(List<String> keywords) {
-        Signature.keywords = keywords;
+        Signature.keywords.set(keywords);
     }
 
     public Double getWatf() {
@@ -40,7 +41,7 @@ public class Signature {
         List<String> containedKeywords = new ArrayList<>();
         for (int index = 0; index < this.frequencies.length; index++) {
             if (this.frequencies[index] > 0) {
-                containedKeywords.add(Signature.keywords.get(index));
+                containedKeywords.add(Signature.keywords.get().get(index));
             }
         }
 
@@ -50,7 +51,7 @@ public class Signature {
     // Sets the frequency of a keyword.
     public void setFrequency(String keyword, int frequency) {
         try {
-            this.frequencies[Signature.keywords.indexOf(keyword)] = frequency;
+            this.frequencies[Signature.keywords.get().indexOf(keyword)] = frequency;
         } catch (ArrayIndexOutOfBoundsException e) {
             System.err.print("[WARN] In Signature.setFrequency() : Unknown Keyword \"" + keyword + "\" passed.");
         }
@@ -60,7 +61,7 @@ public class Signature {
     public int getKeywordFrequency(String keyword) {
         int frequency = 0;
         try {
-            frequency = this.frequencies[Signature.keywords.indexOf(keyword)];
+            frequency = this.frequencies[Signature.keywords.get().indexOf(keyword)];
         } catch (ArrayIndexOutOfBoundsException e) {
             System.err.print("[WARN] In Signature.setFrequency() : Unknown Keyword \"" + keyword + "\" passed.");
         }
@@ -106,7 +107,7 @@ public class Signature {
     // Increments the frequency of a keyword.
     public void incrementFrequency(String keyword) {
         try {
-            this.frequencies[Signature.keywords.indexOf(keyword)] += 1;
+            this.frequencies[Signature.keywords.get().indexOf(keyword)] += 1;
         } catch (ArrayIndexOutOfBoundsException e) {
             System.err.print("[WARN] In Signature.incrementFrequency() : Unknown Keyword \"" + keyword + "\" passed.");
         }
@@ -117,8 +118,8 @@ public class Signature {
         double sum = 0.0;
         
         // Compute the summation of the numerator.
-        for (String keyword : Signature.keywords) {
-            int keywordFrequency = this.frequencies[Signature.keywords.indexOf(keyword)];
+        for (String keyword : Signature.keywords.get()) {
+            int keywordFrequency = this.frequencies[Signature.keywords.get().indexOf(keyword)];
             if (keywordFrequency > 0) {
                 sum += keywordFrequency * network.getKeywordIdf(keyword);
             }
@@ -162,7 +163,7 @@ public class Signature {
         String str = new String();
         str += "<";
         for (int index = 0; index < this.frequencies.length; index++) {
-            str += Signature.keywords.get(index) + ": " + this.frequencies[index] + ", ";
+            str += Signature.keywords.get().get(index) + ": " + this.frequencies[index] + ", ";
         }
         str = str.substring(0, str.length() - 2) + ">";
         return str;
@@ -277,17 +277,25 @@ public class TupleSet {
 
     @Override
     public int hashCode() {
+        // Only the table, since equals does not compare the keywords symmetrically
+        // (and hashing the tuples on every call was linear in the size of the set).
         int hash = 7;
-        int tuplesHash = 1;
         hash = 31 * hash + (this.table == null ? 0 : this.table.getName().hashCode());
-        for (OverloadedTuple tuple: this.tuples) {
-             tuplesHash =  tuple.hashCode();
-        }
-        hash += 31 * tuplesHash;
-        // System.out.println("TupleSet_" + this.toAbbreviation() + " :" + hash);
         return  hash;
     }
 
+    // Returns a label that is the same for tuple sets of the same table and keywords:
+    // the table's name followed by the sorted keywords, each prefixed with its length.
+    public String getCanonicalLabel() {
+        List<String> sortedKeywords = new ArrayList<>(this.keywords);
+        Collections.sort(sortedKeywords);
+
+        StringBuilder label = new StringBuilder(this.table.getName()).append('^');
+        for (String keyword : sortedKeywords)
+            label.append(keyword.length()).append(':').append(keyword);
+        return label.toString();
+    }
+
     @Override
     public boolean equals(Object obj) {
         if (obj == null) return false;
@@ -318,7 +326,7 @@ public class TupleSet {
     public void print(Boolean printScore) {
         if (this.tuples == null || this.tuples.isEmpty()) return;
 
-        List<SQLColumn> attributes = tuples.get(0).getAttributes();
+        List<SQLColumn> attributes = new ArrayList<>(tuples.get(0).getAttributes());
 
         // Add the score attribute.
         if (printScore) {
@@ -390,9 +398,6 @@ public class TupleSet {
         System.out.println(separationLine);
 
         if (printScore) {
-            // remove score from attribute list.
-            attributes.remove(attributes.size() - 1);
-
             // Remove the value of the score column.
             for(OverloadedTuple tuple: this.tuples) {
                 tuple.removeLastValue();
@@ -13,9 +13,9 @@ import java.util.List;
 import java.util.Scanner;
 import java.util.Set;
 
+import shared.database.config.PropertiesSingleton;
 import shared.database.connectivity.DataSourceFactory;
-import shared.database.connectivity.DatabaseConfigurations;
-import shared.database.connectivity.DatabaseInfo;
+import shared.database.model.DatabaseType;
 import shared.database.model.SQLDatabase;
 import shared.database.model.graph.SchemaGraph;
 import shared.util.Pair;
@@ -40,13 +40,16 @@ public class TestingMain {
     // private static final String QUERY_FILE = "../../queries/ALLkwq_withdbs.txt";
     private static final String QUERY_FILE = "./q";
     
-    private static HashMap<String, Pair<SQLDatabase, SchemaGraph>> storedDatabases = new HashMap<>();
+    static HashMap<String, Pair<SQLDatabase, SchemaGraph>> storedDatabases = new HashMap<>();
 
     public static void main(String[] args) throws FileNotFoundException {
         // Redirect all output to file
 		PrintStream o =  new PrintStream(new File(DEBUG_FILE));	
 		PrintStream originalOut = System.out;
 
+        // Load the properties
+        PropertiesSingleton.loadPropertiesFile("app");
+
         // Initialize variables.
         Timer timer = new Timer(Type.WALL_CLOCK_TIME);    // Used to measure the tim e of different parts of the program.
         List<String> overloadedQueries = getQueryList(QUERY_FILE);        
@@ -62,7 +65,7 @@ public class TestingMain {
         CSVManager.init();
 
         // Read and store all the databases
-        readAndStoreDatabases(new String[]{"IMDB", "YELP", "MAS"});
+        readAndStoreDatabases(new String[]{"mysql.IMDB", "mysql.YELP", "mysql.MAS"});
                 
         // Loop all overloadedQueries
         for (String ovQuery: overloadedQueries) {
@@ -70,8 +73,11 @@ public class TestingMain {
             String query = ovQuery.split(";")[0];
             String schemaName = ovQuery.split(";")[1];
 
-            // Use tha database we got from the input
-            useDatabase(schemaName);
+            String name = schemaName.split("\\.")[1];
+            String type = schemaName.split("\\.")[0];
+
+            // Change the Datasource Object to reflect the database of the query.
+            DataSourceFactory.loadConnectionProperties(name, DatabaseType.getTypeFromString(type));
             SQLDatabase database = storedDatabases.get(schemaName).getLeft();
             SchemaGraph schemaGraph = storedDatabases.get(schemaName).getRight();
 
@@ -237,15 +243,6 @@ public class TestingMain {
         }        
     }
 
-    /**
-     *  Set the database to be used.
-     */
-    static void useDatabase(String databaseName) {
-        DatabaseConfigurations configs = new DatabaseConfigurations("app", databaseName);     // "app" is the file name of the properties file           
-        DataSourceFactory.loadDbConfigurations(configs);        
-    }
-
-
      /** Read queries */
 	 static List<String> getQueryList(String filePath) {
         List<String> queries = new ArrayList<>();
@@ -287,11 +284,11 @@ public class TestingMain {
         storedDatabases = new HashMap<>();
 
         for (String dbName: databases) {
-            // Use tha database we got from the input
-            useDatabase(dbName);
+            String name = dbName.split("\\.")[1];
+            String type = dbName.split("\\.")[0];
 
             // Automatically get the info of database.
-            SQLDatabase database = DatabaseInfo.getDatabaseObject(dbName);
+            SQLDatabase database = SQLDatabase.InstantiateDatabase(name, DatabaseType.getTypeFromString(type));
 
             // Create PK-FK Relationship Graph.
             SchemaGraph schemaGraph = new SchemaGraph();